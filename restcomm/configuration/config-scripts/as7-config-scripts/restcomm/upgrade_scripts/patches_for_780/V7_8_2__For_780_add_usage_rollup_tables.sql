@@ -0,0 +1,38 @@
+-- SQL Script for MySQL/MariaDB to add the usage rollup tables
+
+-- #To run the script use mysql client:
+-- #mysql -u yourusername -p yourpassword yourdatabase < sql_update_script.sql
+
+USE ${RESTCOMM_DBNAME};
+DELIMITER //
+CREATE PROCEDURE updateProcedure()
+ BEGIN
+ SELECT DISTINCTROW IFNULL(table_name, '') INTO @tblName782
+ FROM information_schema.columns
+ WHERE table_schema='${RESTCOMM_DBNAME}'
+ AND table_name = 'restcomm_usage_rollups';
+
+	IF @tblName782 IS NULL THEN
+		CREATE TABLE restcomm_usage_rollups (
+		account_sid VARCHAR(34) NOT NULL,
+		category VARCHAR(16) NOT NULL,
+		granularity VARCHAR(8) NOT NULL,
+		period_start DATETIME NOT NULL,
+		api_version VARCHAR(10) NOT NULL,
+		count_total BIGINT NOT NULL,
+		usage_total BIGINT NOT NULL,
+		price_total DOUBLE NOT NULL,
+		PRIMARY KEY (account_sid, category, granularity, period_start, api_version)
+		);
+		CREATE TABLE restcomm_usage_rollup_state (
+		category VARCHAR(16) NOT NULL PRIMARY KEY,
+		rolled_until DATETIME,
+		lease_owner VARCHAR(64),
+		lease_expires DATETIME
+		);
+	END IF;
+END //
+
+DELIMITER ;
+CALL updateProcedure();
+drop procedure updateProcedure;
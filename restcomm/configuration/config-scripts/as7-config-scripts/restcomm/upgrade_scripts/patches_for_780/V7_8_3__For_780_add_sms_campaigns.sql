@@ -0,0 +1,44 @@
+-- SQL Script for MySQL/MariaDB to add the sms campaigns table and the campaign of each sms message
+
+-- #To run the script use mysql client:
+-- #mysql -u yourusername -p yourpassword yourdatabase < sql_update_script.sql
+
+USE ${RESTCOMM_DBNAME};
+DELIMITER //
+CREATE PROCEDURE updateProcedure()
+ BEGIN
+ SELECT DISTINCTROW IFNULL(table_name, '') INTO @tblName783
+ FROM information_schema.columns
+ WHERE table_schema='${RESTCOMM_DBNAME}'
+ AND table_name = 'restcomm_sms_campaigns';
+
+	IF @tblName783 IS NULL THEN
+		CREATE TABLE restcomm_sms_campaigns (
+		sid VARCHAR(34) NOT NULL PRIMARY KEY,
+		date_created DATETIME NOT NULL,
+		date_updated DATETIME NOT NULL,
+		account_sid VARCHAR(34) NOT NULL,
+		sender VARCHAR(15) NOT NULL,
+		body VARCHAR(999) NOT NULL,
+		status VARCHAR(20) NOT NULL,
+		encoding VARCHAR(10) NOT NULL,
+		api_version VARCHAR(10) NOT NULL,
+		uri MEDIUMTEXT NOT NULL,
+		instanceid VARCHAR(255)
+		);
+	END IF;
+
+ SELECT IFNULL(column_name, '') INTO @colName783
+ FROM information_schema.columns
+ WHERE table_schema='${RESTCOMM_DBNAME}'
+ AND table_name = 'restcomm_sms_messages'
+ AND column_name = 'campaign_sid';
+
+	IF @colName783 IS NULL THEN
+		ALTER TABLE restcomm_sms_messages ADD campaign_sid VARCHAR(34);
+	END IF;
+END //
+
+DELIMITER ;
+CALL updateProcedure();
+drop procedure updateProcedure;
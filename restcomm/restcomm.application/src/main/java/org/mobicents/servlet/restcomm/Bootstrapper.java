@@ -1,9 +1,14 @@
 package org.mobicents.servlet.restcomm;
 
 import java.net.InetAddress;
+import java.net.URI;
 import java.net.UnknownHostException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.media.mscontrol.MsControlException;
 import javax.media.mscontrol.MsControlFactory;
@@ -20,12 +25,22 @@ import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.XMLConfiguration;
 import org.apache.commons.configuration.interpol.ConfigurationInterpolator;
+import org.apache.http.NameValuePair;
 import org.apache.log4j.Logger;
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.asr.TranscriptionService;
 import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfigurationReloader;
+import org.mobicents.servlet.restcomm.configuration.sets.MainConfigurationSet;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.TranscriptionsDao;
+import org.mobicents.servlet.restcomm.dao.UsageDao;
 import org.mobicents.servlet.restcomm.entities.InstanceId;
 import org.mobicents.servlet.restcomm.entities.shiro.ShiroResources;
+import org.mobicents.servlet.restcomm.http.client.HttpRequestDescriptor;
+import org.mobicents.servlet.restcomm.http.client.callback.CallbackDispatcher;
 import org.mobicents.servlet.restcomm.identity.IdentityContext;
+import org.mobicents.servlet.restcomm.interpreter.SharedServices;
 import org.mobicents.servlet.restcomm.loader.ObjectFactory;
 import org.mobicents.servlet.restcomm.loader.ObjectInstantiationException;
 import org.mobicents.servlet.restcomm.mgcp.PowerOnMediaGateway;
@@ -33,7 +48,12 @@ import org.mobicents.servlet.restcomm.mscontrol.MediaServerControllerFactory;
 import org.mobicents.servlet.restcomm.mscontrol.MediaServerInfo;
 import org.mobicents.servlet.restcomm.mscontrol.jsr309.Jsr309ControllerFactory;
 import org.mobicents.servlet.restcomm.mscontrol.mgcp.MmsControllerFactory;
+import org.mobicents.servlet.restcomm.sms.SmsCampaignDispatcher;
+import org.mobicents.servlet.restcomm.startup.ProjectMigration;
+import org.mobicents.servlet.restcomm.startup.StartupGraph;
+import org.mobicents.servlet.restcomm.startup.StartupGraph.Step;
 import org.mobicents.servlet.restcomm.telephony.config.ConfigurationStringLookup;
+import org.mobicents.servlet.restcomm.trace.CallTracer;
 import org.mobicents.servlet.sip.SipConnector;
 
 import com.typesafe.config.Config;
@@ -44,6 +64,7 @@ import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.actor.UntypedActor;
 import akka.actor.UntypedActorFactory;
+import scala.concurrent.duration.Duration;
 
 import com.telestax.servlet.MonitoringService;
 
@@ -67,6 +88,15 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
     public void destroy() {
         system.shutdown();
         system.awaitTermination();
+        // Stop the storage background tasks once nothing can use it anymore.
+        final DaoManager storage = (DaoManager) getServletContext().getAttribute(DaoManager.class.getName());
+        if (storage != null) {
+            try {
+                storage.shutdown();
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     private MediaServerControllerFactory mediaServerControllerFactory(final Configuration configuration, ClassLoader loader)
@@ -255,16 +285,215 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
 
     }
 
+    private ActorRef callbackDispatcher(final Configuration configuration) {
+        final Configuration settings = configuration.subset("callback-dispatcher");
+        final MainConfigurationSet main = RestcommConfiguration.getInstance().getMain();
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new CallbackDispatcher(settings, main);
+            }
+        }), CallbackDispatcher.NAME);
+    }
+
+    private ActorRef transcriptionService(final Configuration configuration, final DaoManager storage,
+            final ActorRef callbackDispatcher) {
+        final Configuration settings = configuration.subset("transcription-service");
+        final Configuration recognizer = configuration.subset("speech-recognizer");
+        final TranscriptionsDao transcriptions = storage.getTranscriptionsDao();
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new TranscriptionService(settings, TranscriptionService.engine(recognizer), transcriptions,
+                        new TranscriptionService.Callback() {
+                            @Override
+                            public void send(final URI uri, final List<NameValuePair> parameters) {
+                                callbackDispatcher.tell(new HttpRequestDescriptor(uri, "POST", parameters), null);
+                            }
+                        });
+            }
+        }), TranscriptionService.NAME);
+    }
+
     private String uri(final ServletContext context) {
         return context.getContextPath();
     }
 
+    private void startup(final StartupGraph startup, final ServletContext context, final Configuration xml,
+            final ClassLoader loader) {
+        // Create the storage system.
+        startup.add("storage", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                context.setAttribute(DaoManager.class.getName(), storage(xml, loader));
+            }
+        });
+        // Keep the usage rollup tables current, away from the default dispatcher since a run can take minutes
+        startup.add("usage-rollups", false, new Step() {
+            @Override
+            public void run() throws Exception {
+                final DaoManager storage = (DaoManager) context.getAttribute(DaoManager.class.getName());
+                final int rollupInterval = xml.getInt("dao-manager.usage-rollup-interval", 300);
+                if (storage != null && rollupInterval > 0) {
+                    final UsageDao usage = storage.getUsageDao();
+                    system.scheduler().schedule(Duration.create(rollupInterval, TimeUnit.SECONDS),
+                            Duration.create(rollupInterval, TimeUnit.SECONDS), new Runnable() {
+                                @Override
+                                public void run() {
+                                    try {
+                                        usage.updateUsageRollups(DateTime.now());
+                                    } catch (final Exception exception) {
+                                        logger.error("Could not update the usage rollups: ", exception);
+                                    }
+                                }
+                            }, system.dispatchers().lookup("restcomm-usage-rollup-dispatcher"));
+                }
+            }
+        }, "storage");
+        // Create the status callback dispatcher shared by the interpreters
+        startup.add("callback-dispatcher", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                context.setAttribute(CallbackDispatcher.class.getName(), callbackDispatcher(xml));
+            }
+        });
+        // Create the transcription service that works through the recordings queued by the interpreters
+        startup.add("transcription-service", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                final DaoManager storage = (DaoManager) context.getAttribute(DaoManager.class.getName());
+                final ActorRef callbackDispatcher = (ActorRef) context.getAttribute(CallbackDispatcher.class.getName());
+                if (storage != null) {
+                    context.setAttribute(TranscriptionService.class.getName(),
+                            transcriptionService(xml, storage, callbackDispatcher));
+                }
+            }
+        }, "storage", "callback-dispatcher");
+        // Create the speech, fax and email services shared by the interpreters
+        startup.add("shared-services", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                for (final Map.Entry<String, ActorRef> service : SharedServices.start(system, xml).entrySet()) {
+                    context.setAttribute(SharedServices.class.getName() + "." + service.getKey(), service.getValue());
+                }
+            }
+        });
+        // Initialize identityContext
+        startup.add("identity", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                context.setAttribute(IdentityContext.class.getName(), new IdentityContext(xml));
+            }
+        });
+        //Initialize Monitoring Service
+        startup.add("monitoring", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                final DaoManager storage = (DaoManager) context.getAttribute(DaoManager.class.getName());
+                context.setAttribute(MonitoringService.class.getName(), monitoringService(xml, storage, loader));
+                if (logger.isInfoEnabled()) {
+                    logger.info("Monitoring Service created and stored in the context");
+                }
+            }
+        }, "storage");
+        //Initialize Extensions
+        startup.add("extensions", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                Configuration extensionConfiguration = null;
+                try {
+                    extensionConfiguration = new XMLConfiguration(context.getRealPath("WEB-INF/conf/extensions.xml"));
+                } catch (final ConfigurationException exception) {
+//                    logger.error(exception);
+                }
+                ExtensionScanner extensionScanner = new ExtensionScanner(extensionConfiguration);
+                extensionScanner.start();
+            }
+        });
+        // Create the media server controller factory
+        startup.add("media-server", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                context.setAttribute(MediaServerControllerFactory.class.getName(), mediaServerControllerFactory(xml, loader));
+            }
+        });
+        // Replicate RVD Projects as database entities, in the background. A project used before the migration got to
+        // it is migrated on the spot.
+        Boolean rvdMigrationEnabled = new Boolean(xml.subset("runtime-settings").getString("rvd-workspace-migration-enabled", "true"));
+        if (rvdMigrationEnabled) {
+            final AtomicReference<RvdProjectsMigrator> migrator = new AtomicReference<RvdProjectsMigrator>();
+            startup.add("rvd-migration", false, new Step() {
+                @Override
+                public void run() throws Exception {
+                    try {
+                        RvdProjectsMigrator rvdProjectMigrator = new RvdProjectsMigrator(context, xml);
+                        migrator.set(rvdProjectMigrator);
+                        context.setAttribute(ProjectMigration.class.getName(), rvdProjectMigrator);
+                        rvdProjectMigrator.executeMigration();
+                    } finally {
+                        context.removeAttribute(ProjectMigration.class.getName());
+                    }
+                }
+
+                @Override
+                public String progress() {
+                    final RvdProjectsMigrator rvdProjectMigrator = migrator.get();
+                    return rvdProjectMigrator == null ? null : rvdProjectMigrator.progress();
+                }
+            }, "storage", "shared-services");
+        }
+        // Pass the InstanceId to the monitoring service and the load balancer
+        startup.add("instance-id", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                GenerateInstanceId generateInstanceId = null;
+                InstanceId instanceId = null;
+                try {
+                    SipURI sipURI = outboundInterface(context,"udp");
+                    if (sipURI != null) {
+                        generateInstanceId = new GenerateInstanceId(context, sipURI);
+                    } else {
+                        if (logger.isInfoEnabled()) {
+                            logger.info("SipURI is NULL!!! Cannot proceed to generate InstanceId");
+                        }
+                    }
+                    instanceId = generateInstanceId.instanceId();
+                } catch (UnknownHostException e) {
+                    logger.error("UnknownHostException during the generation of InstanceId: "+e);
+                }
+                context.setAttribute(InstanceId.class.getName(), instanceId);
+                final ActorRef monitoring = (ActorRef) context.getAttribute(MonitoringService.class.getName());
+                monitoring.tell(instanceId, null);
+                // The campaign dispatcher resumes the unfinished campaigns of this instance, if the sms servlet is
+                // initialized after this step it picks the InstanceId up from the context instead.
+                final ActorRef campaignDispatcher = (ActorRef) context.getAttribute(SmsCampaignDispatcher.class.getName());
+                if (campaignDispatcher != null) {
+                    campaignDispatcher.tell(instanceId, null);
+                }
+                RestcommConfiguration.getInstance().getMain().setInstanceId(instanceId.getId().toString());
+                // https://github.com/RestComm/Restcomm-Connect/issues/1285 Pass InstanceId to the Load Balancer for LCM stickiness
+                SipConnector[] connectors = (SipConnector[]) context.getAttribute("org.mobicents.servlet.sip.SIP_CONNECTORS");
+                Properties loadBalancerCustomInfo = new Properties();
+                loadBalancerCustomInfo.setProperty("Restcomm-Instance-Id", instanceId.getId().toString());
+                for (SipConnector sipConnector : connectors) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Passing InstanceId " + instanceId.getId().toString() + " to connector " + sipConnector);
+                    }
+                    sipConnector.setLoadBalancerCustomInformation(loadBalancerCustomInfo);
+                }
+            }
+        }, "monitoring");
+    }
+
     @Override
     public void servletInitialized(SipServletContextEvent event) {
         if (event.getSipServlet().getClass().equals(Bootstrapper.class)) {
             final ServletContext context = event.getServletContext();
             final String path = context.getRealPath("WEB-INF/conf/restcomm.xml");
-            final String extensionConfigurationPath = context.getRealPath("WEB-INF/conf/extensions.xml");
             // Initialize the configuration interpolator.
             final ConfigurationStringLookup strings = new ConfigurationStringLookup();
             strings.addProperty("home", home(context));
@@ -291,95 +520,45 @@ public final class Bootstrapper extends SipServlet implements SipServletListener
             system = ActorSystem.create("RestComm", settings, loader);
             // Share the actor system with other servlets.
             context.setAttribute(ActorSystem.class.getName(), system);
-            // Create the storage system.
-            DaoManager storage = null;
-            try {
-                storage = storage(xml, loader);
-            } catch (final ObjectInstantiationException exception) {
-                logger.error("ObjectInstantiationException during initialization: ", exception);
-            }
-            context.setAttribute(DaoManager.class.getName(), storage);
             //ShiroResources.getInstance().set(DaoManager.class, storage);
             ShiroResources.getInstance().set(Configuration.class, xml.subset("runtime-settings"));
             // Create high-level restcomm configuration
-            RestcommConfiguration.createOnce(xml);
-            // Initialize identityContext
-            IdentityContext identityContext = new IdentityContext(xml);
-            context.setAttribute(IdentityContext.class.getName(), identityContext);
-
-            // Create the media gateway.
-
-            //Initialize Monitoring Service
-            ActorRef monitoring = monitoringService(xml, storage, loader);
-            if (monitoring != null) {
-                context.setAttribute(MonitoringService.class.getName(), monitoring);
-                if(logger.isInfoEnabled()) {
-                    logger.info("Monitoring Service created and stored in the context");
-                }
-            } else {
-                logger.error("Monitoring Service is null");
-            }
-
-            //Initialize Extensions
-            Configuration extensionConfiguration = null;
-            try {
-                extensionConfiguration = new XMLConfiguration(extensionConfigurationPath);
-            } catch (final ConfigurationException exception) {
-//                logger.error(exception);
+            RestcommConfiguration restcommConfiguration = RestcommConfiguration.createOnce(xml);
+            context.setAttribute(RestcommConfiguration.class.getName(), restcommConfiguration);
+            // Watch restcomm.xml and publish a new configuration snapshot when it changes
+            final int reloadInterval = xml.getInt("runtime-settings.configuration-reload-interval", 0);
+            if (reloadInterval > 0) {
+                final Map<String, String> overrides = new HashMap<String, String>();
+                overrides.put("runtime-settings.home-directory", home(context));
+                overrides.put("runtime-settings.root-uri", uri(context));
+                final RestcommConfigurationReloader reloader = new RestcommConfigurationReloader(path, overrides,
+                        restcommConfiguration);
+                system.scheduler().schedule(Duration.create(reloadInterval, TimeUnit.SECONDS),
+                        Duration.create(reloadInterval, TimeUnit.SECONDS), reloader, system.dispatcher());
             }
-            ExtensionScanner extensionScanner = new ExtensionScanner(extensionConfiguration);
-            extensionScanner.start();
-
-            // Create the media server controller factory
-            MediaServerControllerFactory mscontrollerFactory = null;
+            // Per call latency traces
+            CallTracer.getInstance().configure(xml.getInt("runtime-settings.call-trace-buffer-size", 1000),
+                    xml.getDouble("runtime-settings.call-trace-log-sample-rate", 0));
+            // The services below start as soon as the ones they depend on are up, the others in parallel. The node is
+            // ready once the critical ones are, the RVD workspace migration keeps running in the background.
+            final StartupGraph startup = new StartupGraph(xml.getInt("runtime-settings.startup-threads", 4));
+            context.setAttribute(StartupGraph.class.getName(), startup);
+            startup(startup, context, xml, loader);
+            startup.start();
             try {
-                mscontrollerFactory = mediaServerControllerFactory(xml, loader);
-            } catch (ServletException exception) {
-                logger.error("ServletException during initialization: ", exception);
-            }
-            context.setAttribute(MediaServerControllerFactory.class.getName(), mscontrollerFactory);
-
-            Boolean rvdMigrationEnabled = new Boolean(xml.subset("runtime-settings").getString("rvd-workspace-migration-enabled", "true"));
-            if (rvdMigrationEnabled) {
-                //Replicate RVD Projects as database entities
-                try {
-                    RvdProjectsMigrator rvdProjectMigrator = new RvdProjectsMigrator(context, xml);
-                    rvdProjectMigrator.executeMigration();
-                } catch (Exception exception) {
-                    logger.error("RVD Porjects migration failed during initialization: ", exception);
+                final int timeout = xml.getInt("runtime-settings.startup-timeout", 300);
+                if (!startup.await(timeout, TimeUnit.SECONDS)) {
+                    logger.error("The critical start up steps did not finish within " + timeout + " seconds");
                 }
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            if (logger.isInfoEnabled()) {
+                logger.info(startup.report());
             }
 
             //Last, print Version and send PING if needed
             Version.printVersion();
-            GenerateInstanceId generateInstanceId = null;
-            InstanceId instanceId = null;
-            try {
-                SipURI sipURI = outboundInterface(context,"udp");
-                if (sipURI != null) {
-                    generateInstanceId = new GenerateInstanceId(context, sipURI);
-                } else {
-                    if (logger.isInfoEnabled()) {
-                        logger.info("SipURI is NULL!!! Cannot proceed to generate InstanceId");
-                    }
-                }
-                instanceId = generateInstanceId.instanceId();
-            } catch (UnknownHostException e) {
-                logger.error("UnknownHostException during the generation of InstanceId: "+e);
-            }
-            context.setAttribute(InstanceId.class.getName(), instanceId);
-            monitoring.tell(instanceId, null);
-            RestcommConfiguration.getInstance().getMain().setInstanceId(instanceId.getId().toString());
-            // https://github.com/RestComm/Restcomm-Connect/issues/1285 Pass InstanceId to the Load Balancer for LCM stickiness
-            SipConnector[] connectors = (SipConnector[]) context.getAttribute("org.mobicents.servlet.sip.SIP_CONNECTORS");
-            Properties loadBalancerCustomInfo = new Properties();
-            loadBalancerCustomInfo.setProperty("Restcomm-Instance-Id", instanceId.getId().toString());
-            for (SipConnector sipConnector : connectors) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Passing InstanceId " + instanceId.getId().toString() + " to connector " + sipConnector);
-                }
-                sipConnector.setLoadBalancerCustomInformation(loadBalancerCustomInfo);
-            }
             //Depreciated
 //            Ping ping = new Ping(xml, context);
 //            ping.sendPing();
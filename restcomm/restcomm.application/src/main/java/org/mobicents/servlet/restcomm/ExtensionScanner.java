@@ -20,10 +20,18 @@
  */
 package org.mobicents.servlet.restcomm;
 
+import java.util.List;
+
 import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.HierarchicalConfiguration;
 import org.apache.log4j.Logger;
 
+import com.telestax.servlet.ExtensionController;
+import com.telestax.servlet.RestcommExtensionGeneric;
+
 /**
+ * Loads the extensions listed in extensions.xml and registers them with the {@link ExtensionController}.
+ *
  * @author <a href="mailto:gvagenas@gmail.com">gvagenas</a>
  *
  */
@@ -36,7 +44,33 @@ public class ExtensionScanner {
     }
 
     public void start() {
-
+        if (!(configuration instanceof HierarchicalConfiguration)) {
+            if (logger.isInfoEnabled()) {
+                logger.info("No extensions configured");
+            }
+            return;
+        }
+        final ExtensionController controller = ExtensionController.getInstance();
+        @SuppressWarnings("unchecked")
+        final List<HierarchicalConfiguration> extensions = ((HierarchicalConfiguration) configuration)
+                .configurationsAt("extension");
+        for (final HierarchicalConfiguration extension : extensions) {
+            final String name = extension.getString("class");
+            if (!extension.getBoolean("enabled", true)) {
+                continue;
+            }
+            try {
+                final RestcommExtensionGeneric instance = (RestcommExtensionGeneric) Class.forName(name).newInstance();
+                final List<?> sections = extension.configurationsAt("configuration");
+                instance.init(sections.isEmpty() ? new HierarchicalConfiguration() : (Configuration) sections.get(0));
+                controller.register(instance);
+                if (logger.isInfoEnabled()) {
+                    logger.info("Extension " + name + " loaded");
+                }
+            } catch (final Exception exception) {
+                logger.error("Could not load extension " + name, exception);
+            }
+        }
     }
 
 }
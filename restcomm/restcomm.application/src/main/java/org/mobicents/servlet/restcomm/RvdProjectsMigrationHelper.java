@@ -58,13 +58,17 @@ import org.mobicents.servlet.restcomm.entities.Client;
 import org.mobicents.servlet.restcomm.entities.IncomingPhoneNumber;
 import org.mobicents.servlet.restcomm.entities.Notification;
 import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.interpreter.SharedServices;
 import org.mobicents.servlet.restcomm.util.StringUtils;
 
+import scala.concurrent.Future;
 import akka.actor.Actor;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.actor.UntypedActorFactory;
+import akka.dispatch.OnComplete;
+import akka.pattern.Patterns;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
@@ -102,8 +106,9 @@ public class RvdProjectsMigrationHelper {
     private final NotificationsDao notificationsDao;
     private List<IncomingPhoneNumber> dids;
     private List<Client> clients;
-    private ActorSystem system;
-    private ActorRef emailService;
+    // How long a notification may take to be delivered, retries included, before its own email service is stopped
+    private static final long EMAIL_TIMEOUT = 5 * 60 * 1000;
+    private final ActorSystem system;
 
     public RvdProjectsMigrationHelper(ServletContext servletContext, Configuration configuration) throws Exception {
         defineWorkspacePath(servletContext);
@@ -114,7 +119,7 @@ public class RvdProjectsMigrationHelper {
         this.didsDao = storage.getIncomingPhoneNumbersDao();
         this.clientsDao = storage.getClientsDao();
         this.notificationsDao = storage.getNotificationsDao();
-        this.system = ActorSystem.create();
+        this.system = (ActorSystem) servletContext.getAttribute(ActorSystem.class.getName());
     }
 
     private void defineWorkspacePath(ServletContext servletContext) throws Exception {
@@ -185,7 +190,7 @@ public class RvdProjectsMigrationHelper {
                 @Override
                 public boolean accept(File anyfile) {
                     if (anyfile.isDirectory() && !anyfile.getName().startsWith(PROTO_DIRECTORY_PREFIX)
-                            && !anyfile.getName().equals(USERS_DIRECTORY_NAME))
+                            && !anyfile.getName().equals(USERS_DIRECTORY_NAME) && !anyfile.getName().startsWith("."))
                         return true;
                     return false;
                 }
@@ -407,15 +412,24 @@ public class RvdProjectsMigrationHelper {
     }
 
     private boolean hasUrlReference(URI url, String projectName) throws UnsupportedEncodingException {
+        return projectName.equals(projectName(url));
+    }
+
+    /**
+     * @return the name of the RVD project the url points to, null if it does not point to one
+     */
+    public String projectName(URI url) {
         if (url != null && !url.toString().isEmpty()) {
             Matcher m = RVD_PROJECT_URL.matcher(url.toString());
             if (m.find()) {
-                String result = m.group(1);
-                result = URLDecoder.decode(result, "UTF-8");
-                return projectName.equals(result);
+                try {
+                    return URLDecoder.decode(m.group(1), "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    return null;
+                }
             }
         }
-        return false;
+        return null;
     }
 
     public int updateClients(String applicationSid, String projectName) throws RvdProjectsMigrationException {
@@ -535,10 +549,6 @@ public class RvdProjectsMigrationHelper {
                 || username.isEmpty() || password.isEmpty() || defaultEmailAddress.isEmpty()) {
             throw new RvdProjectsMigrationException("Skipping email notification due to invalid configuration");
         }
-        if (emailService == null) {
-            emailService = emailService(configuration.subset("smtp-notify"));
-        }
-
         String subject = "Restcomm - RVD Projects migration";
         String body = message;
         if (!migrationSucceeded) {
@@ -546,8 +556,20 @@ public class RvdProjectsMigrationHelper {
         }
 
         final Mail emailMsg = new Mail(username + "@" + host, defaultEmailAddress, subject, body);
-        emailService.tell(new EmailRequest(emailMsg), emailService);
-
+        final ActorRef shared = system.actorFor("/user/" + SharedServices.SMTP_NOTIFY);
+        if (!shared.isTerminated()) {
+            shared.tell(new EmailRequest(emailMsg), null);
+            return;
+        }
+        // Without a shared service, start one for this message and stop it, with its delivery threads, once answered.
+        final ActorRef service = emailService(configuration.subset("smtp-notify"));
+        final Future<Object> future = Patterns.ask(service, new EmailRequest(emailMsg), EMAIL_TIMEOUT);
+        future.onComplete(new OnComplete<Object>() {
+            @Override
+            public void onComplete(final Throwable failure, final Object response) {
+                system.stop(service);
+            }
+        }, system.dispatcher());
     }
 
     private ActorRef emailService(final Configuration configuration) {
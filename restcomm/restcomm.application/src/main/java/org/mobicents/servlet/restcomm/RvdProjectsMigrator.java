@@ -23,9 +23,13 @@ package org.mobicents.servlet.restcomm;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.Timestamp;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletContext;
 
@@ -33,25 +37,30 @@ import org.apache.commons.configuration.Configuration;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDateTime;
+import org.mobicents.servlet.restcomm.startup.ProjectMigration;
 
 /**
  * The goal of this class is to generate an Application entity inside the database for each RVD project located inside its
  * workspace. Also, apply the new naming convention on project directories inside the workspace, based on a new
  * {@link org.mobicents.servlet.restcomm.entities.Sid.Type.PROJECT} generated to each entry.
  *
+ * The migration runs in the background while the node takes traffic, a project about to be used is migrated first
+ * through {@link #migrate(URI)}.
+ *
  * @author guilherme.jansen@telestax.com
  */
-public class RvdProjectsMigrator {
+public class RvdProjectsMigrator implements ProjectMigration {
 
     private static final Logger logger = Logger.getLogger(RvdProjectsMigrator.class);
     private static final String separator = "--------------------------------------";
     private RvdProjectsMigrationHelper migrationHelper;
-    private List<String> projectNames;
+    private volatile List<String> projectNames;
+    private final Set<String> pending;
     private boolean migrationSucceeded;
     private Integer errorCode;
     private String logPath;
 
-    private int projectsProcessed;
+    private volatile int projectsProcessed;
     private int projectsSuccess;
     private int projectsError;
     private int updatedDids;
@@ -67,6 +76,7 @@ public class RvdProjectsMigrator {
         this.projectsError = 0;
         this.updatedDids = 0;
         this.updatedClients = 0;
+        this.pending = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     }
 
     public void executeMigration() throws Exception {
@@ -95,45 +105,87 @@ public class RvdProjectsMigrator {
             }
             throw e;
         }
+        pending.addAll(projectNames);
         for (String projectName : projectNames) {
+            migrateProject(projectName);
+        }
+        synchronized (this) {
             try {
-                // Load Project State Header
-                migrationHelper.loadProjectState(projectName);
+                storeMigrationStatus();
+            } catch (Exception e) {
+                storeNewMessage("[ERROR-CODE:2] Error while storing workspace status " + e, true, true, false, true);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Migrates the project the url points to right away, when the background migration did not get to it yet, so
+     * callers never use a project whose directory was renamed while the numbers still point to its old name.
+     */
+    @Override
+    public boolean migrate(URI url) {
+        if (pending.isEmpty()) {
+            return false;
+        }
+        final String projectName = migrationHelper.projectName(url);
+        if (projectName == null || !pending.contains(projectName)) {
+            return false;
+        }
+        // Migrated now or by the background migration while waiting for it, either way the caller read it before
+        try {
+            migrateProject(projectName);
+        } catch (Exception e) {
+            logger.error("Error while migrating project '" + projectName + "' on first access", e);
+        }
+        return true;
+    }
+
+    /**
+     * @return how many of the projects found in the workspace were migrated, for the start up report
+     */
+    public String progress() {
+        if (projectNames == null) {
+            return null;
+        }
+        return projectsProcessed + "/" + projectNames.size() + " projects";
+    }
+
+    private synchronized void migrateProject(String projectName) throws Exception {
+        if (!pending.remove(projectName)) {
+            return;
+        }
+        try {
+            // Load Project State Header
+            migrationHelper.loadProjectState(projectName);
 
-                // Check if this project is already synchronized with a application
-                String applicationSid = searchApplicationSid(projectName);
+            // Check if this project is already synchronized with a application
+            String applicationSid = searchApplicationSid(projectName);
 
-                // Synchronize with application entity if needed
-                applicationSid = synchronizeApplicationEntity(applicationSid, projectName);
+            // Synchronize with application entity if needed
+            applicationSid = synchronizeApplicationEntity(applicationSid, projectName);
 
-                // Rename Project
-                migrateNamingConvention(projectName, applicationSid);
+            // Rename Project
+            migrateNamingConvention(projectName, applicationSid);
 
-                // Update IncomingPhoneNumbers
-                updateIncomingPhoneNumbers(applicationSid, projectName);
+            // Update IncomingPhoneNumbers
+            updateIncomingPhoneNumbers(applicationSid, projectName);
 
-                // Update Clients
-                updateClients(applicationSid, projectName);
+            // Update Clients
+            updateClients(applicationSid, projectName);
 
-                projectsSuccess++;
-            } catch (RvdProjectsMigrationException e) {
-                migrationSucceeded = false;
-                if (errorCode == 0) { // Keep the first error only
-                    errorCode = e.getErrorCode();
-                }
-                projectsError++;
-                storeNewMessage("Error while migrating project '" + projectName + "' " + e.getMessage(), false, true, false,
-                        true);
+            projectsSuccess++;
+        } catch (RvdProjectsMigrationException e) {
+            migrationSucceeded = false;
+            if (errorCode == 0) { // Keep the first error only
+                errorCode = e.getErrorCode();
             }
-            projectsProcessed++;
-            storeNewMessage(separator, false, true, false, false);
-        }
-        try {
-            storeMigrationStatus();
-        } catch (Exception e) {
-            storeNewMessage("[ERROR-CODE:2] Error while storing workspace status " + e, true, true, false, true);
-            throw e;
+            projectsError++;
+            storeNewMessage("Error while migrating project '" + projectName + "' " + e.getMessage(), false, true, false,
+                    true);
         }
+        projectsProcessed++;
+        storeNewMessage(separator, false, true, false, false);
     }
 
     private void loadProjectsList() throws Exception {
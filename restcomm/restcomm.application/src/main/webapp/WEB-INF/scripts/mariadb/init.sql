@@ -221,7 +221,22 @@ status VARCHAR(20) NOT NULL,
 direction VARCHAR(14) NOT NULL,
 price VARCHAR(8) NOT NULL,
 api_version VARCHAR(10) NOT NULL,
-uri MEDIUMTEXT NOT NULL
+uri MEDIUMTEXT NOT NULL,
+campaign_sid VARCHAR(34)
+);
+
+CREATE TABLE restcomm_sms_campaigns (
+sid VARCHAR(34) NOT NULL PRIMARY KEY,
+date_created DATETIME NOT NULL,
+date_updated DATETIME NOT NULL,
+account_sid VARCHAR(34) NOT NULL,
+sender VARCHAR(15) NOT NULL,
+body VARCHAR(999) NOT NULL,
+status VARCHAR(20) NOT NULL,
+encoding VARCHAR(10) NOT NULL,
+api_version VARCHAR(10) NOT NULL,
+uri MEDIUMTEXT NOT NULL,
+instanceid VARCHAR(255)
 );
 
 CREATE TABLE restcomm_recordings (
@@ -299,6 +314,25 @@ ttl INT NOT NULL,
 uri MEDIUMTEXT NOT NULL
 );
 
+CREATE TABLE restcomm_usage_rollups (
+account_sid VARCHAR(34) NOT NULL,
+category VARCHAR(16) NOT NULL,
+granularity VARCHAR(8) NOT NULL,
+period_start DATETIME NOT NULL,
+api_version VARCHAR(10) NOT NULL,
+count_total BIGINT NOT NULL,
+usage_total BIGINT NOT NULL,
+price_total DOUBLE NOT NULL,
+PRIMARY KEY (account_sid, category, granularity, period_start, api_version)
+);
+
+CREATE TABLE restcomm_usage_rollup_state (
+category VARCHAR(16) NOT NULL PRIMARY KEY,
+rolled_until DATETIME,
+lease_owner VARCHAR(64),
+lease_expires DATETIME
+);
+
 CREATE TABLE update_scripts (
 script VARCHAR(255) NOT NULL,
 date_executed DATETIME NOT NULL
@@ -22,13 +22,6 @@ package org.mobicents.servlet.restcomm.asr;
 import akka.actor.ActorRef;
 import akka.actor.UntypedActor;
 
-import com.iSpeech.SpeechResult;
-import com.iSpeech.iSpeechRecognizer;
-import static com.iSpeech.iSpeechRecognizer.*;
-import com.iSpeech.iSpeechRecognizer.SpeechRecognizerEvent;
-
-import java.io.File;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.commons.configuration.Configuration;
@@ -36,29 +29,16 @@ import org.apache.commons.configuration.Configuration;
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
  */
-public final class ISpeechAsr extends UntypedActor implements SpeechRecognizerEvent {
-    private static final Map<String, String> languages = new HashMap<String, String>();
-    static {
-        languages.put("en", "en-US");
-        languages.put("en-gb", "en-GB");
-        languages.put("es", "es-ES");
-        languages.put("it", "it-IT");
-        languages.put("fr", "fr-FR");
-        languages.put("pl", "pl-PL");
-        languages.put("pt", "pt-PT");
-    }
-
-    private final String key;
-    private final boolean production;
+public final class ISpeechAsr extends UntypedActor {
+    private final AsrEngine engine;
 
     public ISpeechAsr(final Configuration configuration) {
         super();
-        key = configuration.getString("api-key");
-        production = configuration.getBoolean("api-key[@production]");
+        engine = new ISpeechAsrEngine(configuration);
     }
 
     private AsrInfo info() {
-        return new AsrInfo(languages.keySet());
+        return new AsrInfo(engine.languages());
     }
 
     @Override
@@ -89,19 +69,6 @@ public final class ISpeechAsr extends UntypedActor implements SpeechRecognizerEv
 
     private String recognize(final Object message) throws Exception {
         final AsrRequest request = (AsrRequest) message;
-        final File file = request.file();
-        final String language = languages.get(request.language());
-        final iSpeechRecognizer recognizer = iSpeechRecognizer.getInstance(key, production);
-        recognizer.setFreeForm(FREEFORM_DICTATION);
-        recognizer.setLanguage(language);
-        final SpeechResult results = recognizer.startFileRecognize("audio/x-wav", file, this);
-        return results.Text;
-    }
-
-    @Override
-    public void stateChanged(final int event, final int value, final Exception exception) {
-        if (SpeechRecognizerEvent.RECORDING_ERROR == event) {
-            // We don't use the recorder.
-        }
+        return engine.recognize(request.file(), request.language());
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.asr;
+
+import static com.iSpeech.iSpeechRecognizer.FREEFORM_DICTATION;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.configuration.Configuration;
+
+import com.iSpeech.SpeechResult;
+import com.iSpeech.iSpeechRecognizer;
+import com.iSpeech.iSpeechRecognizer.SpeechRecognizerEvent;
+
+/**
+ * Transcribes recordings with the iSpeech service.
+ */
+public final class ISpeechAsrEngine implements AsrEngine, SpeechRecognizerEvent {
+    private static final Map<String, String> languages = new HashMap<String, String>();
+    static {
+        languages.put("en", "en-US");
+        languages.put("en-gb", "en-GB");
+        languages.put("es", "es-ES");
+        languages.put("it", "it-IT");
+        languages.put("fr", "fr-FR");
+        languages.put("pl", "pl-PL");
+        languages.put("pt", "pt-PT");
+    }
+
+    private final String key;
+    private final boolean production;
+
+    public ISpeechAsrEngine(final Configuration configuration) {
+        super();
+        key = configuration.getString("api-key");
+        production = configuration.getBoolean("api-key[@production]");
+    }
+
+    @Override
+    public Set<String> languages() {
+        return Collections.unmodifiableSet(languages.keySet());
+    }
+
+    @Override
+    public String recognize(final File file, final String language) throws Exception {
+        final iSpeechRecognizer recognizer = iSpeechRecognizer.getInstance(key, production);
+        recognizer.setFreeForm(FREEFORM_DICTATION);
+        recognizer.setLanguage(languages.get(language));
+        final SpeechResult results = recognizer.startFileRecognize("audio/x-wav", file, this);
+        return results.Text;
+    }
+
+    @Override
+    public void stateChanged(final int event, final int value, final Exception exception) {
+        if (SpeechRecognizerEvent.RECORDING_ERROR == event) {
+            // We don't use the recorder.
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.asr;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.commons.configuration.Configuration;
+
+/**
+ * Answers every recording with the text of the stub-text setting, for tests and for deployments without a speech
+ * recognition vendor.
+ */
+public final class StubAsrEngine implements AsrEngine {
+    private final String text;
+
+    public StubAsrEngine(final Configuration configuration) {
+        super();
+        text = configuration.getString("stub-text", "");
+    }
+
+    @Override
+    public Set<String> languages() {
+        return Collections.singleton("en");
+    }
+
+    @Override
+    public String recognize(final File file, final String language) throws Exception {
+        if (!file.exists()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        return text;
+    }
+}
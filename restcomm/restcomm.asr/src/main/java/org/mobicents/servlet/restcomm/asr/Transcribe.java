@@ -0,0 +1,77 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.asr;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+
+import org.apache.http.NameValuePair;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * Asks the {@link TranscriptionService} to transcribe a recording and fill in the transcription with the result.
+ */
+@Immutable
+public final class Transcribe {
+    private final Sid transcription;
+    private final File file;
+    private final String language;
+    private final URI callback;
+    private final List<NameValuePair> parameters;
+
+    /**
+     * @param transcription the sid of the transcription, already stored with an in-progress status.
+     * @param file the recording.
+     * @param language the language spoken in the recording.
+     * @param callback where to post the result, may be null.
+     * @param parameters posted to the callback along with the transcription.
+     */
+    public Transcribe(final Sid transcription, final File file, final String language, final URI callback,
+            final List<NameValuePair> parameters) {
+        super();
+        this.transcription = transcription;
+        this.file = file;
+        this.language = language;
+        this.callback = callback;
+        this.parameters = parameters;
+    }
+
+    public Sid transcription() {
+        return transcription;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public String language() {
+        return language;
+    }
+
+    public URI callback() {
+        return callback;
+    }
+
+    public List<NameValuePair> parameters() {
+        return parameters;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.asr;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+import org.mobicents.servlet.restcomm.dao.TranscriptionsDao;
+import org.mobicents.servlet.restcomm.entities.Transcription;
+import org.mobicents.servlet.restcomm.metrics.Gauge;
+import org.mobicents.servlet.restcomm.metrics.LatencyHistogram;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+import akka.actor.ActorRef;
+import akka.actor.UntypedActor;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+/**
+ * Transcribes recordings in the background so the interpreter that recorded them does not have to wait.
+ *
+ * Interpreters hand a {@link Transcribe} job to the service and may stop right away. Each job is written to a local
+ * spool before it is queued and removed once its result is stored through the {@link TranscriptionsDao}, so the jobs
+ * left over by a restart are picked up again. Jobs run on a bounded thread pool against the configured
+ * {@link AsrEngine}, the ones over the limit wait in the queue. Once a transcription is stored the result is posted
+ * to its callback through the {@link Callback}.
+ *
+ * The service is meant to run as a single top level actor named {@link #NAME}.
+ */
+public final class TranscriptionService extends UntypedActor {
+    public static final String NAME = "transcription-service";
+
+    private static final int DEFAULT_THREADS = 4;
+
+    private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+
+    private final AsrEngine engine;
+    private final TranscriptionsDao transcriptions;
+    private final Callback callback;
+    private final TranscriptionSpool spool;
+    private final int threads;
+    private final ExecutorService executor;
+    private final Deque<Transcribe> queue;
+    private final LatencyHistogram latency;
+    private volatile int queued;
+    private int inFlight;
+
+    /**
+     * @param configuration the &lt;transcription-service&gt; configuration section.
+     * @param engine transcribes the recordings.
+     * @param transcriptions where the results are stored.
+     * @param callback posts the results to the transcribe callbacks.
+     */
+    public TranscriptionService(final Configuration configuration, final AsrEngine engine,
+            final TranscriptionsDao transcriptions, final Callback callback) {
+        super();
+        this.engine = engine;
+        this.transcriptions = transcriptions;
+        this.callback = callback;
+        this.spool = new TranscriptionSpool(configuration.getString("spool-path"));
+        this.threads = configuration.getInt("threads", DEFAULT_THREADS);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.queue = new ArrayDeque<Transcribe>();
+        this.latency = MetricsRegistry.getInstance().histogram("restcomm_transcription_seconds",
+                "Time taken by the speech recognizer to transcribe a recording.");
+    }
+
+    /**
+     * Creates the engine named by the engine attribute of the speech-recognizer configuration, iSpeech by default.
+     */
+    public static AsrEngine engine(final Configuration configuration) throws Exception {
+        final String classpath = configuration.getString("[@engine]", ISpeechAsrEngine.class.getName());
+        return (AsrEngine) Class.forName(classpath).getConstructor(Configuration.class).newInstance(configuration);
+    }
+
+    @Override
+    public void preStart() {
+        MetricsRegistry.getInstance().gauge("restcomm_transcription_queued", "Transcriptions waiting for a worker.",
+                new Gauge() {
+                    @Override
+                    public long value() {
+                        return queued;
+                    }
+                });
+        final List<Transcribe> spooled = spool.load();
+        if (!spooled.isEmpty() && logger.isInfoEnabled()) {
+            logger.info("Resuming " + spooled.size() + " spooled transcriptions");
+        }
+        for (final Transcribe job : spooled) {
+            enqueue(job);
+        }
+    }
+
+    @Override
+    public void postStop() {
+        executor.shutdownNow();
+        super.postStop();
+    }
+
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        final Class<?> klass = message.getClass();
+        if (Transcribe.class.equals(klass)) {
+            final Transcribe job = (Transcribe) message;
+            spool.store(job);
+            enqueue(job);
+        } else if (Transcribed.class.equals(klass)) {
+            onTranscribed((Transcribed) message);
+        }
+    }
+
+    private void enqueue(final Transcribe job) {
+        queue.addLast(job);
+        drain();
+    }
+
+    private void drain() {
+        final ActorRef self = self();
+        while (inFlight < threads && !queue.isEmpty()) {
+            final Transcribe job = queue.pollFirst();
+            inFlight++;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    self.tell(transcribe(job), null);
+                }
+            });
+        }
+        queued = queue.size();
+    }
+
+    // Runs on the executor.
+    private Transcribed transcribe(final Transcribe job) {
+        final long start = System.nanoTime();
+        try {
+            return new Transcribed(job, engine.recognize(job.file(), job.language()), null);
+        } catch (final Exception exception) {
+            return new Transcribed(job, null, exception);
+        } finally {
+            latency.recordSince(start);
+        }
+    }
+
+    private void onTranscribed(final Transcribed transcribed) {
+        inFlight--;
+        final Transcribe job = transcribed.job;
+        try {
+            Transcription transcription = transcriptions.getTranscription(job.transcription());
+            if (transcription != null) {
+                if (transcribed.failure == null) {
+                    transcription = transcription.setStatus(Transcription.Status.COMPLETED);
+                    transcription = transcription.setTranscriptionText(transcribed.text);
+                } else {
+                    logger.warning("Could not transcribe " + job.file() + ": " + transcribed.failure);
+                    transcription = transcription.setStatus(Transcription.Status.FAILED);
+                }
+                transcriptions.updateTranscription(transcription);
+            } else {
+                logger.warning("Transcription " + job.transcription() + " is gone, dropping its result");
+            }
+            spool.remove(job);
+            if (transcription != null && job.callback() != null) {
+                callback.send(job.callback(), parameters(job, transcription));
+            }
+        } catch (final Exception exception) {
+            // Leave it in the spool, it is tried again after a restart.
+            logger.error(exception, "Could not store transcription " + job.transcription());
+        }
+        drain();
+    }
+
+    private List<NameValuePair> parameters(final Transcribe job, final Transcription transcription) {
+        final List<NameValuePair> parameters = new ArrayList<NameValuePair>(job.parameters());
+        parameters.add(new BasicNameValuePair("TranscriptionSid", transcription.getSid().toString()));
+        parameters.add(new BasicNameValuePair("TranscriptionStatus", transcription.getStatus().toString()));
+        if (transcription.getTranscriptionText() != null) {
+            parameters.add(new BasicNameValuePair("TranscriptionText", transcription.getTranscriptionText()));
+        }
+        if (transcription.getUri() != null) {
+            parameters.add(new BasicNameValuePair("TranscriptionUrl", transcription.getUri().toString()));
+        }
+        parameters.add(new BasicNameValuePair("RecordingSid", transcription.getRecordingSid().toString()));
+        return parameters;
+    }
+
+    /**
+     * Posts the result of a transcription to its callback.
+     */
+    public interface Callback {
+        void send(URI uri, List<NameValuePair> parameters);
+    }
+
+    private static final class Transcribed {
+        private final Transcribe job;
+        private final String text;
+        private final Exception failure;
+
+        private Transcribed(final Transcribe job, final String text, final Exception failure) {
+            super();
+            this.job = job;
+            this.text = text;
+            this.failure = failure;
+        }
+    }
+}
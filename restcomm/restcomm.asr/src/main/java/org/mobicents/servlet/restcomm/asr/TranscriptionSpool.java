@@ -0,0 +1,175 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.asr;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * Durable queue of the transcriptions that are not finished yet. Every job is kept in its own file, named after the
+ * transcription, until its result is stored so that a restart does not leave transcriptions in progress forever. Files
+ * are written to a temporary name first and then renamed to keep partially written entries out of the spool.
+ *
+ * When no directory is configured the spool is disabled and all operations are no-ops.
+ */
+@NotThreadSafe
+public final class TranscriptionSpool {
+    private static final Logger logger = Logger.getLogger(TranscriptionSpool.class);
+    private static final String SUFFIX = ".transcription";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String ENCODING = "UTF-8";
+
+    private final File directory;
+
+    public TranscriptionSpool(final String path) {
+        super();
+        if (path == null || path.isEmpty()) {
+            directory = null;
+        } else {
+            directory = new File(path);
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IllegalArgumentException("Could not create transcription spool directory " + path);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public void store(final Transcribe job) {
+        if (directory == null) {
+            return;
+        }
+        final String id = job.transcription().toString();
+        final File temp = new File(directory, id + TEMP_SUFFIX);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), ENCODING)) {
+            writer.write(id);
+            writer.write('\n');
+            writer.write(job.file().getPath());
+            writer.write('\n');
+            writer.write(job.language());
+            writer.write('\n');
+            writer.write(job.callback() == null ? "" : job.callback().toString());
+            writer.write('\n');
+            for (final NameValuePair parameter : job.parameters()) {
+                writer.write(URLEncoder.encode(parameter.getName(), ENCODING));
+                writer.write('=');
+                if (parameter.getValue() != null) {
+                    writer.write(URLEncoder.encode(parameter.getValue(), ENCODING));
+                }
+                writer.write('\n');
+            }
+        } catch (final IOException exception) {
+            logger.error("Could not spool transcription " + id, exception);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(new File(directory, id + SUFFIX))) {
+            logger.error("Could not spool transcription " + id);
+            temp.delete();
+        }
+    }
+
+    public void remove(final Transcribe job) {
+        if (directory == null) {
+            return;
+        }
+        new File(directory, job.transcription() + SUFFIX).delete();
+    }
+
+    /**
+     * Reads back every spooled job. Entries that can not be parsed are discarded.
+     */
+    public List<Transcribe> load() {
+        final List<Transcribe> jobs = new ArrayList<Transcribe>();
+        if (directory == null) {
+            return jobs;
+        }
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return jobs;
+        }
+        for (final File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            } else if (name.endsWith(SUFFIX)) {
+                try {
+                    jobs.add(read(file));
+                } catch (final IOException | RuntimeException exception) {
+                    logger.error("Discarding unreadable spooled transcription " + file.getPath(), exception);
+                    file.delete();
+                }
+            }
+        }
+        return jobs;
+    }
+
+    private Transcribe read(final File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING))) {
+            final String sid = reader.readLine();
+            final String recording = reader.readLine();
+            final String language = reader.readLine();
+            final String callback = reader.readLine();
+            if (sid == null || recording == null || language == null || callback == null) {
+                throw new IOException("Truncated transcription entry");
+            }
+            final List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final int separator = line.indexOf('=');
+                if (separator < 0) {
+                    parameters.add(new BasicNameValuePair(decode(line), null));
+                } else {
+                    parameters.add(new BasicNameValuePair(decode(line.substring(0, separator)),
+                            decode(line.substring(separator + 1))));
+                }
+            }
+            return new Transcribe(new Sid(sid), new File(recording), language, callback.isEmpty() ? null
+                    : URI.create(callback), parameters);
+        }
+    }
+
+    private String decode(final String value) throws UnsupportedEncodingException {
+        return URLDecoder.decode(value, ENCODING);
+    }
+}
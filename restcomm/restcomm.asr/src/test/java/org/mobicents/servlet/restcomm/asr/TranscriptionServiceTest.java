@@ -0,0 +1,204 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.asr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.TranscriptionsDao;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.entities.Transcription;
+
+import akka.actor.Actor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActorFactory;
+
+public final class TranscriptionServiceTest {
+    private ActorSystem system;
+    private File spool;
+    private File recording;
+    private Configuration configuration;
+    private MemoryTranscriptionsDao transcriptions;
+    private BlockingQueue<List<NameValuePair>> callbacks;
+
+    @Before
+    public void before() throws Exception {
+        system = ActorSystem.create();
+        spool = File.createTempFile("transcriptions", "");
+        spool.delete();
+        recording = File.createTempFile("recording", ".wav");
+        configuration = new BaseConfiguration();
+        configuration.setProperty("spool-path", spool.getPath());
+        configuration.setProperty("threads", "2");
+        configuration.setProperty("stub-text", "hello world");
+        transcriptions = new MemoryTranscriptionsDao();
+        callbacks = new LinkedBlockingQueue<List<NameValuePair>>();
+    }
+
+    @After
+    public void after() throws Exception {
+        system.shutdown();
+        FileUtils.deleteQuietly(spool);
+        FileUtils.deleteQuietly(recording);
+    }
+
+    private ActorRef service() {
+        final AsrEngine engine = new StubAsrEngine(configuration);
+        final TranscriptionService.Callback callback = new TranscriptionService.Callback() {
+            @Override
+            public void send(final URI uri, final List<NameValuePair> parameters) {
+                callbacks.add(parameters);
+            }
+        };
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new TranscriptionService(configuration, engine, transcriptions, callback);
+            }
+        }));
+    }
+
+    private Transcription transcription() {
+        final Transcription.Builder builder = Transcription.builder();
+        builder.setSid(Sid.generate(Sid.Type.TRANSCRIPTION));
+        builder.setAccountSid(Sid.generate(Sid.Type.ACCOUNT));
+        builder.setRecordingSid(Sid.generate(Sid.Type.RECORDING));
+        builder.setStatus(Transcription.Status.IN_PROGRESS);
+        builder.setDuration(1);
+        builder.setPrice(new BigDecimal("0.00"));
+        final Transcription transcription = builder.build();
+        transcriptions.addTranscription(transcription);
+        return transcription;
+    }
+
+    private static String parameter(final List<NameValuePair> parameters, final String name) {
+        for (final NameValuePair parameter : parameters) {
+            if (parameter.getName().equals(name)) {
+                return parameter.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testTranscriptionIsStoredAndPosted() throws Exception {
+        final Transcription transcription = transcription();
+        final List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+        parameters.add(new BasicNameValuePair("CallSid", "CA1"));
+        service().tell(new Transcribe(transcription.getSid(), recording, "en", URI.create("http://example.com/t"),
+                parameters), null);
+        final List<NameValuePair> posted = callbacks.poll(5, TimeUnit.SECONDS);
+        assertEquals("CA1", parameter(posted, "CallSid"));
+        assertEquals("hello world", parameter(posted, "TranscriptionText"));
+        assertEquals("completed", parameter(posted, "TranscriptionStatus"));
+        final Transcription stored = transcriptions.getTranscription(transcription.getSid());
+        assertEquals(Transcription.Status.COMPLETED, stored.getStatus());
+        assertEquals("hello world", stored.getTranscriptionText());
+        assertEquals(0, spool.list().length);
+    }
+
+    @Test
+    public void testFailedTranscriptionIsMarkedFailed() throws Exception {
+        final Transcription transcription = transcription();
+        final File missing = new File(spool, "missing.wav");
+        service().tell(new Transcribe(transcription.getSid(), missing, "en", URI.create("http://example.com/t"),
+                Collections.<NameValuePair> emptyList()), null);
+        final List<NameValuePair> posted = callbacks.poll(5, TimeUnit.SECONDS);
+        assertEquals("failed", parameter(posted, "TranscriptionStatus"));
+        assertEquals(Transcription.Status.FAILED, transcriptions.getTranscription(transcription.getSid()).getStatus());
+    }
+
+    @Test
+    public void testSpooledJobsAreResumed() throws Exception {
+        final Transcription transcription = transcription();
+        final List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+        parameters.add(new BasicNameValuePair("From", "+1 555 & co"));
+        new TranscriptionSpool(spool.getPath()).store(new Transcribe(transcription.getSid(), recording, "en", URI
+                .create("http://example.com/t"), parameters));
+        service();
+        final List<NameValuePair> posted = callbacks.poll(5, TimeUnit.SECONDS);
+        assertEquals("+1 555 & co", parameter(posted, "From"));
+        assertEquals(transcription.getSid().toString(), parameter(posted, "TranscriptionSid"));
+        assertTrue(spool.list().length == 0);
+    }
+
+    private static final class MemoryTranscriptionsDao implements TranscriptionsDao {
+        private final Map<Sid, Transcription> transcriptions = new ConcurrentHashMap<Sid, Transcription>();
+
+        @Override
+        public void addTranscription(final Transcription transcription) {
+            transcriptions.put(transcription.getSid(), transcription);
+        }
+
+        @Override
+        public Transcription getTranscription(final Sid sid) {
+            return transcriptions.get(sid);
+        }
+
+        @Override
+        public Transcription getTranscriptionByRecording(final Sid recordingSid) {
+            return null;
+        }
+
+        @Override
+        public List<Transcription> getTranscriptions(final Sid accountSid) {
+            return new ArrayList<Transcription>(transcriptions.values());
+        }
+
+        @Override
+        public void removeTranscription(final Sid sid) {
+            transcriptions.remove(sid);
+        }
+
+        @Override
+        public void removeTranscriptions(final Sid accountSid) {
+            transcriptions.clear();
+        }
+
+        @Override
+        public void updateTranscription(final Transcription transcription) {
+            transcriptions.put(transcription.getSid(), transcription);
+        }
+    }
+}
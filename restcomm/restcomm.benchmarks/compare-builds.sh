@@ -0,0 +1,46 @@
+#!/bin/bash
+#
+# Runs the same benchmarks against two builds of benchmarks.jar and prints time and allocation per operation side
+# by side. Extra arguments are passed to JMH, e.g. a benchmark regex or -f 3.
+#
+#   ./compare-builds.sh baseline/benchmarks.jar target/benchmarks.jar 'RcmlParser|Converter'
+#
+if [ $# -lt 2 ]; then
+    echo "Usage: $0 <baseline jar> <candidate jar> [jmh options]"
+    exit 1
+fi
+BASELINE=$1
+CANDIDATE=$2
+shift 2
+WORKDIR=$(mktemp -d)
+
+java -jar "$BASELINE" -rf csv -rff "$WORKDIR/baseline.csv" "$@" || exit 1
+java -jar "$CANDIDATE" -rf csv -rff "$WORKDIR/candidate.csv" "$@" || exit 1
+
+# JMH csv rows: "Benchmark","Mode","Threads","Samples","Score","Score Error (99.9%)","Unit",params...
+# The primary row carries the time, the ":·gc.alloc.rate.norm" secondary row the bytes per operation.
+awk -F',' '
+function key(   k, i) {
+    k = $1
+    sub(/^org\.mobicents\.servlet\.restcomm\.benchmarks\./, "", k)
+    for (i = 8; i <= NF; i++) k = k "," $i
+    return k
+}
+FNR == 1 { next }
+{
+    gsub(/"/, "")
+    k = key()
+    if (FILENAME ~ /baseline/) base[k] = $5; else cand[k] = $5
+    if (!(k in seen)) { seen[k] = 1; order[n++] = k; unit[k] = $7 }
+}
+END {
+    printf "%-90s %14s %14s %8s  %s\n", "Benchmark", "Baseline", "Candidate", "Ratio", "Unit"
+    for (i = 0; i < n; i++) {
+        k = order[i]
+        if (k ~ /gc\.(count|time|churn)/ || k ~ /gc\.alloc\.rate,/ || k ~ /gc\.alloc\.rate$/) continue
+        ratio = (base[k] > 0) ? sprintf("%.2f", cand[k] / base[k]) : "n/a"
+        printf "%-90s %14.3f %14.3f %8s  %s\n", k, base[k], cand[k], ratio, unit[k]
+    }
+}' "$WORKDIR/baseline.csv" "$WORKDIR/candidate.csv"
+
+rm -rf "$WORKDIR"
@@ -0,0 +1,98 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecordList;
+import org.mobicents.servlet.restcomm.entities.RestCommResponse;
+import org.mobicents.servlet.restcomm.http.converter.CallDetailRecordConverter;
+import org.mobicents.servlet.restcomm.http.converter.CallDetailRecordListConverter;
+import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Serializes a page of calls the way CallsEndpoint does, with the default page size and with a large one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+    @Param({ "50", "1000" })
+    public int records;
+
+    private Gson gson;
+    private XStream xstream;
+    private CallDetailRecordList list;
+
+    @Setup
+    public void setup() {
+        final Configuration configuration = new PropertiesConfiguration();
+        configuration.setProperty("api-version", "2012-04-24");
+        configuration.setProperty("root-uri", "http://127.0.0.1:8080/restcomm/");
+        final CallDetailRecordConverter converter = new CallDetailRecordConverter(configuration);
+        final CallDetailRecordListConverter listConverter = new CallDetailRecordListConverter(configuration);
+        listConverter.setCount(records);
+        listConverter.setPage(0);
+        listConverter.setPageSize(records);
+        listConverter.setPathUri("/restcomm/2012-04-24/Accounts/ACae6e420f425248d6a26948c17a9e2acf/Calls");
+        final GsonBuilder builder = new GsonBuilder();
+        builder.registerTypeAdapter(CallDetailRecord.class, converter);
+        builder.registerTypeAdapter(CallDetailRecordList.class, listConverter);
+        builder.setPrettyPrinting();
+        gson = builder.create();
+        xstream = new XStream();
+        xstream.alias("RestcommResponse", RestCommResponse.class);
+        xstream.registerConverter(converter);
+        xstream.registerConverter(new RestCommResponseConverter(configuration));
+        xstream.registerConverter(listConverter);
+        list = new CallDetailRecordList(Fixtures.cdrs(records));
+    }
+
+    @Benchmark
+    public String json() {
+        return gson.toJson(list);
+    }
+
+    @Benchmark
+    public String xml() {
+        return xstream.toXML(new RestCommResponse(list));
+    }
+}
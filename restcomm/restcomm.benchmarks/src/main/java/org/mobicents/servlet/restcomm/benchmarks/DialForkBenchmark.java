@@ -0,0 +1,227 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.benchmarks;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.mobicents.servlet.restcomm.interpreter.DialFork;
+import org.mobicents.servlet.restcomm.mgcp.CreateConnection;
+import org.mobicents.servlet.restcomm.mgcp.CreateMediaSession;
+import org.mobicents.servlet.restcomm.mgcp.DestroyConnection;
+import org.mobicents.servlet.restcomm.mgcp.MediaGatewayResponse;
+import org.mobicents.servlet.restcomm.mgcp.MediaSession;
+import org.mobicents.servlet.restcomm.mgcp.MockMediaGateway;
+import org.mobicents.servlet.restcomm.mgcp.PowerOnMediaGateway;
+import org.mobicents.servlet.restcomm.telephony.CallManagerResponse;
+import org.mobicents.servlet.restcomm.telephony.CreateCall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+
+/**
+ * Post dial delay of a Dial with several children: the time from the start of the fork until the last outbound leg is
+ * rung. The legs are created by the {@link DialFork} of the VoiceInterpreter, through a CallManager that sets up the
+ * media of each leg on the mock media gateway before answering. A concurrency of 1 creates the legs one after another
+ * the way the fork used to, higher values are what dial-fork-concurrency does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DialForkBenchmark {
+    @Param({ "1", "5", "20" })
+    private int children;
+    @Param({ "1", "10" })
+    private int concurrency;
+
+    private ActorSystem system;
+    private ActorRef gateway;
+    private ActorRef callManager;
+
+    @Setup
+    public void setup() throws Exception {
+        system = ActorSystem.create("DialForkBenchmark");
+        gateway = system.actorOf(new Props(MockMediaGateway.class));
+        final PowerOnMediaGateway.Builder builder = PowerOnMediaGateway.builder();
+        builder.setName("mock media gateway");
+        builder.setLocalIP(InetAddress.getByName("127.0.0.1"));
+        builder.setLocalPort(2727);
+        builder.setRemoteIP(InetAddress.getByName("127.0.0.1"));
+        builder.setRemotePort(2427);
+        builder.setUseNat(false);
+        builder.setTimeout(5000);
+        gateway.tell(builder.build(), null);
+        final ActorRef gateway = this.gateway;
+        callManager = system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new CallManager(gateway);
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        system.shutdown();
+    }
+
+    @Benchmark
+    public void fork() throws Exception {
+        final CountDownLatch rung = new CountDownLatch(children);
+        final ActorRef callManager = this.callManager;
+        final int concurrency = this.concurrency;
+        final ActorRef interpreter = system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new Interpreter(callManager, concurrency, rung);
+            }
+        }));
+        final List<String> numbers = new ArrayList<String>(children);
+        for (int i = 0; i < children; i++) {
+            numbers.add("+1555000" + String.format("%04d", i));
+        }
+        interpreter.tell(numbers, null);
+        if (!rung.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("The fork did not ring " + children + " legs in time.");
+        }
+        system.stop(interpreter);
+    }
+
+    // Forks the Dial the way the VoiceInterpreter does, ringing a leg only counts it.
+    private static final class Interpreter extends UntypedActor implements DialFork.Legs<String> {
+        private final DialFork<String> fork;
+        private final CountDownLatch rung;
+
+        Interpreter(final ActorRef callManager, final int concurrency, final CountDownLatch rung) {
+            super();
+            this.fork = new DialFork<String>(callManager, self(), concurrency, this);
+            this.rung = rung;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof CallManagerResponse) {
+                fork.created((CallManagerResponse<Object>) message);
+            } else if (message instanceof List) {
+                fork.fork((List<String>) message);
+            }
+        }
+
+        @Override
+        public CreateCall create(final String child) {
+            return new CreateCall("+15559999999", child, null, null, false, 30, CreateCall.Type.PSTN, null, null);
+        }
+
+        @Override
+        public boolean isRinging(final String child) {
+            return true;
+        }
+
+        @Override
+        public void ring(final ActorRef leg, final String child) {
+            rung.countDown();
+        }
+    }
+
+    // Creates a leg per CreateCall, each setting up its media on its own.
+    private static final class CallManager extends UntypedActor {
+        private final ActorRef gateway;
+
+        CallManager(final ActorRef gateway) {
+            super();
+            this.gateway = gateway;
+        }
+
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof CreateCall) {
+                final CreateCall create = (CreateCall) message;
+                final ActorRef requester = sender();
+                getContext().actorOf(new Props(new UntypedActorFactory() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public UntypedActor create() throws Exception {
+                        return new Leg(gateway, create, requester);
+                    }
+                }));
+            }
+        }
+    }
+
+    private static final class Leg extends UntypedActor {
+        private final ActorRef gateway;
+        private final CreateCall create;
+        private final ActorRef requester;
+
+        Leg(final ActorRef gateway, final CreateCall create, final ActorRef requester) {
+            super();
+            this.gateway = gateway;
+            this.create = create;
+            this.requester = requester;
+        }
+
+        @Override
+        public void preStart() {
+            gateway.tell(new CreateMediaSession(), self());
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof MediaGatewayResponse) {
+                final Object result = ((MediaGatewayResponse<Object>) message).get();
+                if (result instanceof MediaSession) {
+                    gateway.tell(new CreateConnection((MediaSession) result), self());
+                } else {
+                    gateway.tell(new DestroyConnection((ActorRef) result), self());
+                    requester.tell(new CallManagerResponse<Object>(self(), create), self());
+                    getContext().stop(self());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mobicents.servlet.restcomm.cache.HashGenerator;
+import org.mobicents.servlet.restcomm.util.DigestAuthentication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Digest responses are computed for every REGISTER and authenticated INVITE, and the cache hashes for every Say.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DigestAuthenticationBenchmark {
+    private final String user = "alice";
+    private final String realm = "127.0.0.1";
+    private final String password = "1234";
+    private final String nonce = "4b5a33ee2dbf7e3ff3a0d1e6f8a0a1c2";
+    private final String cnonce = "0a4f113b";
+    private final String uri = "sip:127.0.0.1:5080";
+    private final String ha1 = DigestAuthentication.HA1(user, realm, password);
+
+    @Benchmark
+    public String response() {
+        return DigestAuthentication.response("MD5", user, realm, password, nonce, "00000001", cnonce, "REGISTER", uri, null,
+                "auth");
+    }
+
+    @Benchmark
+    public String responseWithHA1() {
+        return DigestAuthentication.responseWithHA1("MD5", ha1, nonce, "00000001", cnonce, "REGISTER", uri, null, "auth");
+    }
+
+    @Benchmark
+    public String speechHash() {
+        return HashGenerator.hashMessage("Welcome to Telestax, press 1 for sales or 2 for support.", "man", "en");
+    }
+}
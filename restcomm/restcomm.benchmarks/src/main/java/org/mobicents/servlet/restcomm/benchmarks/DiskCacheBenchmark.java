@@ -0,0 +1,106 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.shiro.crypto.hash.Sha256Hash;
+import org.mobicents.servlet.restcomm.cache.DiskCache;
+import org.mobicents.servlet.restcomm.cache.DiskCacheRequest;
+import org.mobicents.servlet.restcomm.cache.HashGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import akka.actor.Actor;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActorFactory;
+import akka.testkit.TestActorRef;
+
+/**
+ * Cache hits of the disk cache, for a prompt url and for a synthesized speech hash. The files exist so nothing is
+ * downloaded and only the path handling and the file system lookups are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DiskCacheBenchmark {
+    private ActorSystem system;
+    private File directory;
+    private DiskCache cache;
+    private DiskCacheRequest url;
+    private DiskCacheRequest hash;
+
+    @Setup
+    public void setup() throws IOException {
+        system = ActorSystem.create("DiskCacheBenchmark");
+        directory = File.createTempFile("restcomm", "cache");
+        directory.delete();
+        directory.mkdirs();
+        final String path = directory.getAbsolutePath();
+        final TestActorRef<DiskCache> ref = TestActorRef.create(system, new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new DiskCache(path, "http://127.0.0.1:8080/restcomm/cache", true);
+            }
+        }), "cache");
+        cache = ref.underlyingActor();
+        final URI prompt = URI.create("http://127.0.0.1:8080/restcomm/audio/demo-prompt.wav");
+        new File(directory, new Sha256Hash(prompt.toString()).toHex() + ".wav").createNewFile();
+        url = new DiskCacheRequest(prompt);
+        final String speech = HashGenerator.hashMessage("Hello World", "woman", "en");
+        new File(directory, speech + ".wav").createNewFile();
+        hash = new DiskCacheRequest(speech);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        system.shutdown();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public URI cachedUrl() throws Exception {
+        return cache.cache(url);
+    }
+
+    @Benchmark
+    public URI cachedHash() throws Exception {
+        return cache.cache(hash);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.mobicents.servlet.restcomm.fsm.Action;
+import org.mobicents.servlet.restcomm.fsm.FiniteStateMachine;
+import org.mobicents.servlet.restcomm.fsm.State;
+import org.mobicents.servlet.restcomm.fsm.Transition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Creates a state machine shaped like the one of a call and drives it from queued to completed, which every call
+ * actor does once per call.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FiniteStateMachineBenchmark {
+    private State uninitialized;
+    private State queued;
+    private State ringing;
+    private State inProgress;
+    private State completing;
+    private State completed;
+    private State failed;
+    private Set<Transition> transitions;
+    private final Object event = new Object();
+
+    @Setup
+    public void setup() {
+        final Action action = new Action() {
+            @Override
+            public void execute(final Object message) throws Exception {
+            }
+        };
+        uninitialized = new State("uninitialized", null, null);
+        queued = new State("queued", action, null);
+        ringing = new State("ringing", action, null);
+        inProgress = new State("in progress", action, null);
+        completing = new State("completing", action, null);
+        completed = new State("completed", action, null);
+        failed = new State("failed", action, null);
+        transitions = new HashSet<Transition>();
+        transitions.add(new Transition(uninitialized, queued));
+        transitions.add(new Transition(queued, ringing));
+        transitions.add(new Transition(queued, failed));
+        transitions.add(new Transition(ringing, inProgress));
+        transitions.add(new Transition(ringing, failed));
+        transitions.add(new Transition(ringing, completing));
+        transitions.add(new Transition(inProgress, completing));
+        transitions.add(new Transition(inProgress, failed));
+        transitions.add(new Transition(completing, completed));
+    }
+
+    @Benchmark
+    public FiniteStateMachine create() {
+        return new FiniteStateMachine(uninitialized, transitions);
+    }
+
+    @Benchmark
+    public void callLifecycle(final Blackhole blackhole) throws Exception {
+        final FiniteStateMachine fsm = new FiniteStateMachine(uninitialized, transitions);
+        fsm.transition(event, queued);
+        fsm.transition(event, ringing);
+        fsm.transition(event, inProgress);
+        fsm.transition(event, completing);
+        fsm.transition(event, completed);
+        blackhole.consume(fsm.state());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.benchmarks;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * Realistic inputs shared by the benchmarks.
+ */
+final class Fixtures {
+    private static final String SMALL = "<Response><Say voice=\"woman\" language=\"en\">Hello World</Say></Response>";
+
+    // A typical IVR menu, close to what RVD generates for one step.
+    private static final String MENU = "<Gather action=\"http://127.0.0.1:8080/restcomm-rvd/services/apps/AP73926e7113fa4d95981aa96b76eca854/controller?target=menu&amp;step=1\" method=\"POST\" numDigits=\"1\" timeout=\"5\" finishOnKey=\"#\">"
+            + "<Say voice=\"man\" language=\"en\" loop=\"1\">Welcome to Telestax, press 1 for sales, press 2 for support or stay on the line for an operator.</Say>"
+            + "<Play loop=\"1\">http://127.0.0.1:8080/restcomm/audio/demo-prompt.wav</Play>"
+            + "<Pause length=\"1\"/>"
+            + "</Gather>"
+            + "<Record action=\"http://127.0.0.1:8080/restcomm-rvd/services/apps/AP73926e7113fa4d95981aa96b76eca854/controller?target=voicemail\" method=\"POST\" maxLength=\"60\" finishOnKey=\"#\" transcribe=\"false\" playBeep=\"true\"/>"
+            + "<Dial action=\"http://127.0.0.1:8080/restcomm-rvd/services/apps/AP73926e7113fa4d95981aa96b76eca854/controller?target=dial\" method=\"POST\" timeout=\"30\" timeLimit=\"14400\" callerId=\"+15126002188\" record=\"false\">"
+            + "<Number sendDigits=\"ww1234\">+13105551234</Number>"
+            + "<Client>alice</Client>"
+            + "<Uri>sip:operator@127.0.0.1:5090</Uri>"
+            + "</Dial>"
+            + "<Sms to=\"+13105551234\" from=\"+15126002188\" statusCallback=\"http://127.0.0.1:8080/status\">Your call has been recorded.</Sms>"
+            + "<Redirect method=\"POST\">http://127.0.0.1:8080/restcomm-rvd/services/apps/AP73926e7113fa4d95981aa96b76eca854/controller?target=start</Redirect>";
+
+    private Fixtures() {
+        super();
+    }
+
+    /**
+     * @param size small is a single verb, medium an IVR step with about twenty tags and large fifty of those steps.
+     */
+    static String rcml(final String size) {
+        if ("small".equals(size)) {
+            return SMALL;
+        } else if ("medium".equals(size)) {
+            return "<Response>" + MENU + "<Hangup/></Response>";
+        } else if ("large".equals(size)) {
+            final StringBuilder buffer = new StringBuilder("<Response>");
+            for (int step = 0; step < 50; step++) {
+                buffer.append(MENU);
+            }
+            return buffer.append("<Hangup/></Response>").toString();
+        }
+        throw new IllegalArgumentException("Unknown rcml size " + size);
+    }
+
+    static List<CallDetailRecord> cdrs(final int count) {
+        final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+        final String instanceId = Sid.generate(Sid.Type.INSTANCE).toString();
+        final DateTime start = DateTime.now().minusDays(1);
+        final List<CallDetailRecord> cdrs = new ArrayList<CallDetailRecord>(count);
+        for (int index = 0; index < count; index++) {
+            final Sid sid = Sid.generate(Sid.Type.CALL);
+            final DateTime started = start.plusSeconds(index * 30);
+            final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+            builder.setSid(sid);
+            builder.setInstanceId(instanceId);
+            builder.setDateCreated(started);
+            builder.setAccountSid(account);
+            builder.setTo("+1310555" + String.format("%04d", index % 10000));
+            builder.setFrom("+15126002188");
+            builder.setPhoneNumberSid(Sid.generate(Sid.Type.PHONE_NUMBER));
+            builder.setStatus("completed");
+            builder.setStartTime(started.plusSeconds(5));
+            builder.setEndTime(started.plusSeconds(95));
+            builder.setDuration(90);
+            builder.setPrice(new BigDecimal("0.0150"));
+            builder.setPriceUnit(Currency.getInstance("USD"));
+            builder.setDirection(index % 2 == 0 ? "inbound" : "outbound-api");
+            builder.setApiVersion("2012-04-24");
+            builder.setCallerName("Alice");
+            builder.setUri(URI.create("/2012-04-24/Accounts/" + account + "/Calls/" + sid));
+            cdrs.add(builder.build());
+        }
+        return cdrs;
+    }
+}
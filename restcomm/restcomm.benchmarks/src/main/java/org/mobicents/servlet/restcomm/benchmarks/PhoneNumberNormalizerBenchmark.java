@@ -0,0 +1,115 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.i18n.phonenumbers.NumberParseException;
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
+
+/**
+ * Compares a plain libphonenumber parse/format round trip with the cached PhoneNumberNormalizer over a working
+ * set of numbers similar to the DIDs seen by a node, and the lookup of a provisioned number stored without the
+ * '+' by walking every spelling against resolving it through the normalizer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhoneNumberNormalizerBenchmark {
+
+    @Param({ "100", "5000" })
+    public int numbers;
+
+    private String[] inputs;
+    private PhoneNumberUtil phoneNumberUtil;
+    private PhoneNumberNormalizer normalizer;
+    private PhoneNumberNormalizer.Lookup<String> provisioned;
+    private int next;
+
+    @Setup
+    public void setup() {
+        inputs = new String[numbers];
+        final Set<String> stored = new HashSet<String>();
+        for (int i = 0; i < numbers; i++) {
+            inputs[i] = String.valueOf(3055500000L + i * 7);
+            stored.add(inputs[i]);
+        }
+        phoneNumberUtil = PhoneNumberUtil.getInstance();
+        normalizer = new PhoneNumberNormalizer(10000);
+        // Stands in for the incoming phone numbers table, every call is a query.
+        provisioned = new PhoneNumberNormalizer.Lookup<String>() {
+            @Override
+            public String find(final String spelling) {
+                return stored.contains(spelling) ? spelling : null;
+            }
+        };
+    }
+
+    private String nextInput() {
+        final String input = inputs[next];
+        next = (next + 1) % inputs.length;
+        return input;
+    }
+
+    @Benchmark
+    public String libphonenumber() throws NumberParseException {
+        return phoneNumberUtil.format(phoneNumberUtil.parse(nextInput(), "US"), PhoneNumberFormat.E164);
+    }
+
+    @Benchmark
+    public String normalizer() {
+        return normalizer.toE164(nextInput(), "US");
+    }
+
+    @Benchmark
+    public String walkCandidates() {
+        for (final String candidate : normalizer.candidates(nextInput())) {
+            final String found = provisioned.find(candidate);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String resolve() {
+        return normalizer.resolve(nextInput(), provisioned);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mobicents.servlet.restcomm.interpreter.rcml.End;
+import org.mobicents.servlet.restcomm.interpreter.rcml.GetNextVerb;
+import org.mobicents.servlet.restcomm.interpreter.rcml.Parser;
+import org.mobicents.servlet.restcomm.interpreter.rcml.Tag;
+import org.mobicents.servlet.restcomm.interpreter.rcml.TagIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import akka.actor.Actor;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.testkit.TestActorRef;
+
+/**
+ * Parses RCML documents the way the interpreter does, by creating a Parser and asking it for verbs until the end of the
+ * document. The actors run on the calling thread so only the parsing and the verb lookup are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RcmlParserBenchmark {
+    @Param({ "small", "medium", "large" })
+    public String size;
+
+    private ActorSystem system;
+    private TestActorRef<Sink> sink;
+    private String rcml;
+    private Tag document;
+    private long parsers;
+
+    @Setup
+    public void setup() {
+        system = ActorSystem.create("RcmlParserBenchmark");
+        sink = TestActorRef.create(system, new Props(Sink.class), "sink");
+        rcml = Fixtures.rcml(size);
+        parseAndWalk();
+        // The parser keeps its document to itself, rebuild it from the verbs it handed out.
+        final Tag.Builder builder = Tag.builder();
+        builder.setName("Response");
+        for (final Tag verb : sink.underlyingActor().verbs) {
+            builder.addChild(verb);
+        }
+        document = builder.build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        system.shutdown();
+    }
+
+    @Benchmark
+    public int parseAndWalk() {
+        final TestActorRef<Parser> parser = TestActorRef.create(system, new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new Parser(rcml, sink);
+            }
+        }), "parser-" + parsers++);
+        final Sink verbs = sink.underlyingActor();
+        verbs.reset();
+        final GetNextVerb next = GetNextVerb.instance();
+        while (!verbs.ended) {
+            parser.tell(next, sink);
+        }
+        system.stop(parser);
+        return verbs.verbs.size();
+    }
+
+    @Benchmark
+    public int iterateTags() {
+        int tags = 0;
+        final TagIterator iterator = new TagIterator(document);
+        while (iterator.hasNext()) {
+            iterator.next();
+            tags++;
+        }
+        return tags;
+    }
+
+    public static final class Sink extends UntypedActor {
+        private final List<Tag> verbs = new ArrayList<Tag>();
+        private boolean ended;
+
+        private void reset() {
+            verbs.clear();
+            ended = false;
+        }
+
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof Tag) {
+                verbs.add((Tag) message);
+            } else if (message instanceof End) {
+                ended = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.dao.RegistrationLocationService;
+import org.mobicents.servlet.restcomm.dao.RegistrationsDao;
+import org.mobicents.servlet.restcomm.entities.Registration;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Client lookups served by the registration location service, and the database writes one keep-alive round of every
+ * registered client costs, written through like the UserAgentManager used to versus persisted in the background. The
+ * database is a counting stand-in, the rounds are one ping interval apart.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RegistrationLocationBenchmark {
+    private static final int PING_INTERVAL = 60;
+
+    @Param({ "10000" })
+    private int clients;
+
+    private CountingRegistrationsDao database;
+    private RegistrationLocationService service;
+    private List<Registration> registrations;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Writes {
+        public long databaseWrites;
+        public long rounds;
+    }
+
+    @Setup
+    public void setup() {
+        database = new CountingRegistrationsDao();
+        service = new RegistrationLocationService(database, 2 * PING_INTERVAL);
+        registrations = new ArrayList<Registration>(clients);
+        final DateTime now = DateTime.now();
+        for (int index = 0; index < clients; index++) {
+            final String user = "client" + index;
+            final Registration registration = new Registration(Sid.generate(Sid.Type.REGISTRATION), "instanceId", now, now,
+                    now.plusHours(1), "sip:" + user + "@127.0.0.1", user, user, "Restcomm-Benchmark/1.0", 3600,
+                    "sip:" + user + "@10.0.0." + (index % 250) + ":" + (5060 + index % 1000), false, false);
+            service.addRegistration(registration);
+            registrations.add(registration);
+        }
+        service.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public List<Registration> lookup() {
+        return service.getRegistrations("client" + ThreadLocalRandom.current().nextInt(clients));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void keepAliveRoundWrittenThrough(final Writes writes) {
+        final long before = database.writes;
+        for (int index = 0; index < registrations.size(); index++) {
+            final Registration registration = pong(registrations.get(index));
+            registrations.set(index, registration);
+            database.updateRegistration(registration);
+        }
+        writes.databaseWrites += database.writes - before;
+        writes.rounds++;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void keepAliveRoundInBackground(final Writes writes) {
+        final long before = service.writes();
+        for (int index = 0; index < registrations.size(); index++) {
+            final Registration registration = pong(registrations.get(index));
+            registrations.set(index, registration);
+            service.updateRegistration(registration);
+        }
+        service.flush();
+        writes.databaseWrites += service.writes() - before;
+        writes.rounds++;
+    }
+
+    // What a keep-alive answer does to a registration, one ping interval after the previous one.
+    private static Registration pong(final Registration registration) {
+        final DateTime updated = registration.getDateUpdated().plusSeconds(PING_INTERVAL);
+        return new Registration(registration.getSid(), registration.getInstanceId(), registration.getDateCreated(), updated,
+                registration.getDateExpires(), registration.getAddressOfRecord(), registration.getDisplayName(),
+                registration.getUserName(), registration.getUserAgent(), registration.getTimeToLive(),
+                registration.getLocation(), registration.isWebRTC(), registration.isLBPresent());
+    }
+
+    private static final class CountingRegistrationsDao implements RegistrationsDao {
+        private volatile long writes;
+
+        @Override
+        public void addRegistration(final Registration registration) {
+            writes++;
+        }
+
+        @Override
+        public Registration getRegistration(final String user) {
+            return null;
+        }
+
+        @Override
+        public Registration getRegistrationByInstanceId(final String user, final String instanceId) {
+            return null;
+        }
+
+        @Override
+        public List<Registration> getRegistrations(final String user) {
+            return null;
+        }
+
+        @Override
+        public List<Registration> getRegistrations() {
+            return new ArrayList<Registration>();
+        }
+
+        @Override
+        public boolean hasRegistration(final Registration registration) {
+            return false;
+        }
+
+        @Override
+        public void removeRegistration(final Registration registration) {
+            writes++;
+        }
+
+        @Override
+        public void updateRegistration(final Registration registration) {
+            writes++;
+        }
+    }
+}
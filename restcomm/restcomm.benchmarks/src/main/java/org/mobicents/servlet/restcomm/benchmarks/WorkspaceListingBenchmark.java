@@ -0,0 +1,107 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.mobicents.servlet.restcomm.rvd.model.ModelMarshaler;
+import org.mobicents.servlet.restcomm.rvd.model.client.ProjectState;
+import org.mobicents.servlet.restcomm.rvd.model.client.StateHeader;
+import org.mobicents.servlet.restcomm.rvd.storage.FsProjectStorage;
+import org.mobicents.servlet.restcomm.rvd.storage.WorkspaceIndex;
+import org.mobicents.servlet.restcomm.rvd.storage.WorkspaceStorage;
+import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Listing an RVD workspace the way the project and app lists need it, by reading the state header and looking up the
+ * rapp files of every project versus asking the workspace index, which only lists the workspace directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkspaceListingBenchmark {
+    @Param({ "1000", "10000" })
+    private int projects;
+
+    private File directory;
+    private WorkspaceStorage storage;
+
+    @Setup
+    public void setup() throws IOException, StorageException {
+        directory = File.createTempFile("restcomm", "workspace");
+        directory.delete();
+        directory.mkdirs();
+        storage = new WorkspaceStorage(directory.getAbsolutePath(), new ModelMarshaler());
+        for (int index = 0; index < projects; index++) {
+            final String name = "AP" + index;
+            FsProjectStorage.createProjectSlot(name, storage);
+            FsProjectStorage.storeProject(true, ProjectState.createEmptyVoice("user" + index % 50 + "@company.com"), name,
+                    storage);
+        }
+        // build the index file up front, the benchmark measures the listings that follow
+        WorkspaceIndex.get(storage).list();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public List<StateHeader> directoryWalk() throws StorageException {
+        final List<StateHeader> headers = new ArrayList<StateHeader>(projects);
+        for (final String name : FsProjectStorage.listProjectNames(storage)) {
+            headers.add(FsProjectStorage.loadStateHeader(name, storage));
+            if (FsProjectStorage.hasRasInfo(name, storage)) {
+                FsProjectStorage.loadRapp(name, storage);
+            }
+            if (FsProjectStorage.hasPackagingInfo(name, storage)) {
+                FsProjectStorage.loadRappFromPackaging(name, storage);
+            }
+            FsProjectStorage.hasBootstrapInfo(name, storage);
+        }
+        return headers;
+    }
+
+    @Benchmark
+    public List<WorkspaceIndex.Entry> index() throws StorageException {
+        return WorkspaceIndex.get(storage).list();
+    }
+}
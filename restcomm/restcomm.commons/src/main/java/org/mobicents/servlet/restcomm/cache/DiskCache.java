@@ -32,9 +32,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -121,11 +123,34 @@ public final class DiskCache extends UntypedActor {
         File origFile = new File(request.uri());
         File destFile = new File(cacheDir + origFile.getName());
         if (!destFile.exists()) {
-            FileUtils.moveFile(origFile, destFile);
+            if (request.shared()) {
+                link(origFile, destFile);
+            } else {
+                FileUtils.moveFile(origFile, destFile);
+            }
         }
         return URI.create(this.cacheUri + destFile.getName());
     }
 
+    // Leaves the source in place, the other cache keeps serving it
+    private static void link(final File source, final File destination) throws IOException {
+        try {
+            Files.createLink(destination.toPath(), source.toPath());
+        } catch (final FileAlreadyExistsException exception) {
+            // Another interpreter got there first
+        } catch (final IOException | UnsupportedOperationException exception) {
+            // No hard links across file systems, copy aside then rename so nobody plays a partial file
+            final File copy = File.createTempFile(destination.getName(), ".tmp", destination.getParentFile());
+            try {
+                FileUtils.copyFile(source, copy);
+                Files.move(copy.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                FileUtils.deleteQuietly(copy);
+            }
+        }
+    }
+
     private URI handleExternalUrl(final DiskCacheRequest request) throws IOException, URISyntaxException {
         //Handle all the rest
         // This is a request to cache a URI
@@ -30,10 +30,19 @@ import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
 public final class DiskCacheRequest {
     private URI uri;
     private String hash = null;
+    private boolean shared;
 
     public DiskCacheRequest(URI uri) {
+        this(uri, false);
+    }
+
+    /**
+     * @param shared true if the file belongs to another cache, it is then linked or copied instead of moved.
+     */
+    public DiskCacheRequest(URI uri, boolean shared) {
         super();
         this.uri = uri;
+        this.shared = shared;
     }
 
     public DiskCacheRequest(String hash) {
@@ -48,4 +57,8 @@ public final class DiskCacheRequest {
     public String hash() {
         return hash;
     }
+
+    public boolean shared() {
+        return shared;
+    }
 }
@@ -20,59 +20,136 @@
 
 package org.mobicents.servlet.restcomm.configuration;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.commons.configuration.tree.ConfigurationNode;
+import org.apache.log4j.Logger;
 import org.mobicents.servlet.restcomm.configuration.sets.CacheConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sets.MediaServerConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sets.OutboundProxyConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sets.RuntimeConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sets.SmppConfigurationSet;
 import org.mobicents.servlet.restcomm.configuration.sets.impl.CacheConfigurationSetImpl;
 import org.mobicents.servlet.restcomm.configuration.sets.impl.ConfigurationSet;
 import org.mobicents.servlet.restcomm.configuration.sets.MainConfigurationSet;
 import org.mobicents.servlet.restcomm.configuration.sets.impl.MainConfigurationSetImpl;
+import org.mobicents.servlet.restcomm.configuration.sets.impl.MediaServerConfigurationSetImpl;
+import org.mobicents.servlet.restcomm.configuration.sets.impl.OutboundProxyConfigurationSetImpl;
+import org.mobicents.servlet.restcomm.configuration.sets.impl.RuntimeConfigurationSetImpl;
+import org.mobicents.servlet.restcomm.configuration.sets.impl.SmppConfigurationSetImpl;
 import org.mobicents.servlet.restcomm.configuration.sources.ApacheConfigurationSource;
 
 /**
  * Singleton like class that provides access to ConfigurationSets.
  * Use get+() functions to access configuration sets.
  *
+ * The sets are kept in an immutable snapshot that is replaced as a whole by reload(). Readers never
+ * allocate or lock, they just dereference the current snapshot. Subsystems that cache derived values
+ * can subscribe with addListener() to be told when a new snapshot is published.
+ *
+ * The Apache configuration the sets were created from is updated by reload() too, so the components that read it
+ * directly see the same values as the sets. Subsets taken from it before a reload are copies and keep the old values.
+ *
  * @author orestis.tsakiridis@telestax.com (Orestis Tsakiridis)
  *
  */
 public class RestcommConfiguration {
+    private static final Logger logger = Logger.getLogger(RestcommConfiguration.class);
 
-    private final Map<String,ConfigurationSet> sets = new ConcurrentHashMap<String,ConfigurationSet>();
+    private volatile Map<String,ConfigurationSet> sets = Collections.emptyMap();
+    private final Configuration source;
+    private final List<RestcommConfigurationListener> listeners = new CopyOnWriteArrayList<RestcommConfigurationListener>();
 
     public RestcommConfiguration() {
         // No ConfigurationSets added. You'll have to it manually with addConfigurationSet().
+        this.source = null;
     }
 
     public RestcommConfiguration(Configuration apacheConf) {
-        // addConfigurationSet("main", new MainConfigurationSet( new ApacheConfigurationSource(apacheConf)));
-        ApacheConfigurationSource apacheCfgSrc = new ApacheConfigurationSource(apacheConf);
-
-        addConfigurationSet("main", new MainConfigurationSetImpl(apacheCfgSrc));
-        addConfigurationSet("cache", new CacheConfigurationSetImpl(apacheCfgSrc));
         // addConfigurationSet("identity", new IdentityConfigurationSet( new DbConfigurationSource(dbConf)));
         // ...
+        this.source = apacheConf;
+        this.sets = Collections.unmodifiableMap(createSets(apacheConf, null));
+    }
+
+    private static Map<String,ConfigurationSet> createSets(Configuration apacheConf, Map<String,ConfigurationSet> previous) {
+        ApacheConfigurationSource apacheCfgSrc = new ApacheConfigurationSource(apacheConf);
+        Map<String,ConfigurationSet> created = new HashMap<String,ConfigurationSet>();
+        // sets added manually through addConfigurationSet() are not backed by the file, keep them
+        if (previous != null)
+            created.putAll(previous);
+
+        MainConfigurationSetImpl main = new MainConfigurationSetImpl(apacheCfgSrc);
+        if (previous != null && previous.get("main") != null)
+            main.setInstanceId(((MainConfigurationSet) previous.get("main")).getInstanceId());
+        created.put("main", main);
+        created.put("cache", new CacheConfigurationSetImpl(apacheCfgSrc));
+        created.put("runtime", new RuntimeConfigurationSetImpl(apacheCfgSrc));
+        created.put("outbound-proxy", new OutboundProxyConfigurationSetImpl(apacheCfgSrc));
+        created.put("smpp", new SmppConfigurationSetImpl(apacheCfgSrc));
+        created.put("media-server", new MediaServerConfigurationSetImpl(apacheCfgSrc));
+        return created;
     }
 
-    public void addConfigurationSet(String setKey, ConfigurationSet set ) {
-        sets.put(setKey, set);
+    public synchronized void addConfigurationSet(String setKey, ConfigurationSet set ) {
+        Map<String,ConfigurationSet> updated = new HashMap<String,ConfigurationSet>(sets);
+        updated.put(setKey, set);
+        sets = Collections.unmodifiableMap(updated);
     }
     public <T extends ConfigurationSet> T get(String key, Class <T> type) {
         return type.cast(sets.get(key));
     }
 
+    /**
+     * Builds a new snapshot from the given configuration and publishes it atomically, along with the contents of the
+     * Apache configuration this one was created from. The new configuration is validated before anything is published,
+     * so if it is invalid the current snapshot and contents are left untouched and the error is propagated.
+     */
+    public void reload(Configuration apacheConf) {
+        synchronized (this) {
+            if (source instanceof HierarchicalConfiguration && apacheConf instanceof HierarchicalConfiguration
+                    && source != apacheConf) {
+                // Validate on a separate configuration that resolves variables, like restcomm:home, the same way as
+                // the source. The live source is only touched once the new sets were created successfully.
+                final HierarchicalConfiguration hierarchical = (HierarchicalConfiguration) source;
+                final ConfigurationNode root = ((HierarchicalConfiguration) apacheConf).getRootNode();
+                final HierarchicalConfiguration candidate = new HierarchicalConfiguration();
+                candidate.setDelimiterParsingDisabled(hierarchical.isDelimiterParsingDisabled());
+                candidate.setRootNode(root);
+                candidate.getInterpolator().setParentInterpolator(hierarchical.getInterpolator());
+                final Map<String, ConfigurationSet> created = createSets(candidate, sets);
+                sets = Collections.unmodifiableMap(created);
+                hierarchical.setRootNode(root);
+            } else {
+                sets = Collections.unmodifiableMap(createSets(apacheConf, sets));
+            }
+        }
+        for (RestcommConfigurationListener listener : listeners) {
+            try {
+                listener.onConfigurationUpdate(this);
+            } catch (Exception e) {
+                logger.error("Configuration listener " + listener + " failed to process configuration update", e);
+            }
+        }
+    }
+
+    public void addListener(RestcommConfigurationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(RestcommConfigurationListener listener) {
+        listeners.remove(listener);
+    }
+
     public MainConfigurationSet getMain() {
         return (MainConfigurationSet) sets.get("main");
     }
-    /*
-    public void reloadMain() {
-        MainConfigurationSet oldMain = getMain();
-        MainConfigurationSet newMain = new MainConfigurationSet(oldMain.getSource());
-        sets.put("main", newMain);
-    }
-    */
 
     // define getters  for additional ConfigurationSets here
     // ...
@@ -80,8 +157,24 @@ public class RestcommConfiguration {
         return (CacheConfigurationSet) sets.get("cache");
     }
 
+    public RuntimeConfigurationSet getRuntime() {
+        return (RuntimeConfigurationSet) sets.get("runtime");
+    }
+
+    public OutboundProxyConfigurationSet getOutboundProxy() {
+        return (OutboundProxyConfigurationSet) sets.get("outbound-proxy");
+    }
+
+    public SmppConfigurationSet getSmpp() {
+        return (SmppConfigurationSet) sets.get("smpp");
+    }
+
+    public MediaServerConfigurationSet getMediaServer() {
+        return (MediaServerConfigurationSet) sets.get("media-server");
+    }
+
     // singleton stuff
-    private static RestcommConfiguration instance;
+    private static volatile RestcommConfiguration instance;
     public static RestcommConfiguration createOnce(Configuration apacheConf) {
         synchronized (RestcommConfiguration.class) {
             if (instance == null) {
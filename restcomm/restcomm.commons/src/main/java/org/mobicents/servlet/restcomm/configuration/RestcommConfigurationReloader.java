@@ -0,0 +1,77 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.configuration;
+
+import java.io.File;
+import java.util.Map;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.log4j.Logger;
+
+/**
+ * Polls restcomm.xml for modifications and publishes a fresh snapshot to the RestcommConfiguration
+ * when the file changes. Meant to be run periodically from a scheduler.
+ */
+public class RestcommConfigurationReloader implements Runnable {
+    private static final Logger logger = Logger.getLogger(RestcommConfigurationReloader.class);
+
+    private final File file;
+    private final Map<String, String> overrides;
+    private final RestcommConfiguration configuration;
+    private long lastModified;
+
+    /**
+     * @param path the configuration file to watch
+     * @param overrides properties set at runtime by the bootstrapper that are not part of the file
+     * @param configuration the configuration that receives the reloaded snapshots
+     */
+    public RestcommConfigurationReloader(String path, Map<String, String> overrides, RestcommConfiguration configuration) {
+        this.file = new File(path);
+        this.overrides = overrides;
+        this.configuration = configuration;
+        this.lastModified = file.lastModified();
+    }
+
+    @Override
+    public synchronized void run() {
+        final long modified = file.lastModified();
+        if (modified == 0 || modified == lastModified)
+            return;
+        lastModified = modified;
+        try {
+            XMLConfiguration xml = new XMLConfiguration();
+            xml.setDelimiterParsingDisabled(true);
+            xml.setAttributeSplittingDisabled(true);
+            xml.load(file);
+            if (overrides != null) {
+                for (Map.Entry<String, String> entry : overrides.entrySet()) {
+                    xml.setProperty(entry.getKey(), entry.getValue());
+                }
+            }
+            configuration.reload(xml);
+            if (logger.isInfoEnabled())
+                logger.info("Reloaded configuration from " + file.getPath());
+        } catch (ConfigurationException | RuntimeException e) {
+            logger.error("Could not reload configuration from " + file.getPath() + ". Keeping current settings.", e);
+        }
+    }
+}
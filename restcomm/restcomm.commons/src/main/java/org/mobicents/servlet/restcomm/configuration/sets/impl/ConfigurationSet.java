@@ -40,4 +40,30 @@ public class ConfigurationSet {
     public ConfigurationSource getSource() {
         return source;
     }
+
+    protected static boolean toBoolean(String value, boolean defaultValue) {
+        if (value == null || value.trim().isEmpty())
+            return defaultValue;
+        return Boolean.valueOf(value.trim());
+    }
+
+    protected static int toInt(String key, String value, int defaultValue) {
+        if (value == null || value.trim().isEmpty())
+            return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Error initializing '" + key + "' configuration setting", e);
+        }
+    }
+
+    protected static long toLong(String key, String value, long defaultValue) {
+        if (value == null || value.trim().isEmpty())
+            return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Error initializing '" + key + "' configuration setting", e);
+        }
+    }
 }
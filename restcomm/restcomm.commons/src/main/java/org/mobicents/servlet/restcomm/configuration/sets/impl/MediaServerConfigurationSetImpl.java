@@ -0,0 +1,73 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.configuration.sets.impl;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.configuration.sets.MediaServerConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sources.ConfigurationSource;
+
+/**
+ * Snapshot of the &lt;mscontrol&gt; and &lt;media-server-manager&gt; options.
+ */
+@Immutable
+public class MediaServerConfigurationSetImpl extends ConfigurationSet implements MediaServerConfigurationSet {
+    public static final String COMPATIBILITY_KEY = "mscontrol.compatibility";
+    public static final String MGCP_SERVER_NAME_KEY = "media-server-manager.mgcp-server[@name]";
+    public static final String MGCP_SERVER_EXTERNAL_ADDRESS_KEY = "media-server-manager.mgcp-server.external-address";
+    public static final String MGCP_SERVER_RESPONSE_TIMEOUT_KEY = "media-server-manager.mgcp-server.response-timeout";
+    private static final String COMPATIBILITY_DEFAULT = "rms";
+    private static final long RESPONSE_TIMEOUT_DEFAULT = 500;
+
+    private final String compatibility;
+    private final String mgcpServerName;
+    private final String mgcpServerExternalAddress;
+    private final long mgcpServerResponseTimeout;
+
+    public MediaServerConfigurationSetImpl(ConfigurationSource source) {
+        super(source);
+        String value = source.getProperty(COMPATIBILITY_KEY);
+        compatibility = (value == null || value.isEmpty()) ? COMPATIBILITY_DEFAULT : value;
+        mgcpServerName = source.getProperty(MGCP_SERVER_NAME_KEY);
+        mgcpServerExternalAddress = source.getProperty(MGCP_SERVER_EXTERNAL_ADDRESS_KEY);
+        mgcpServerResponseTimeout = toLong(MGCP_SERVER_RESPONSE_TIMEOUT_KEY, source.getProperty(MGCP_SERVER_RESPONSE_TIMEOUT_KEY),
+                RESPONSE_TIMEOUT_DEFAULT);
+    }
+
+    @Override
+    public String getCompatibility() {
+        return compatibility;
+    }
+
+    @Override
+    public String getMgcpServerName() {
+        return mgcpServerName;
+    }
+
+    @Override
+    public String getMgcpServerExternalAddress() {
+        return mgcpServerExternalAddress;
+    }
+
+    @Override
+    public long getMgcpServerResponseTimeout() {
+        return mgcpServerResponseTimeout;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.configuration.sets.impl;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.configuration.sets.OutboundProxyConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sources.ConfigurationSource;
+
+/**
+ * Snapshot of the &lt;runtime-settings&gt;&lt;outbound-proxy&gt; options.
+ */
+@Immutable
+public class OutboundProxyConfigurationSetImpl extends ConfigurationSet implements OutboundProxyConfigurationSet {
+    private static final String PREFIX = "runtime-settings.outbound-proxy.";
+    public static final String OUTBOUND_PROXY_URI_KEY = PREFIX + "outbound-proxy-uri";
+    public static final String OUTBOUND_PROXY_USER_KEY = PREFIX + "outbound-proxy-user";
+    public static final String OUTBOUND_PROXY_PASSWORD_KEY = PREFIX + "outbound-proxy-password";
+    public static final String FALLBACK_OUTBOUND_PROXY_URI_KEY = PREFIX + "fallback-outbound-proxy-uri";
+    public static final String FALLBACK_OUTBOUND_PROXY_USER_KEY = PREFIX + "fallback-outbound-proxy-user";
+    public static final String FALLBACK_OUTBOUND_PROXY_PASSWORD_KEY = PREFIX + "fallback-outbound-proxy-password";
+    public static final String ALLOW_FALLBACK_KEY = PREFIX + "allow-fallback";
+    public static final String ALLOW_FALLBACK_TO_PRIMARY_KEY = PREFIX + "allow-fallback-to-primary";
+    public static final String MAX_FAILED_CALLS_KEY = PREFIX + "max-failed-calls";
+    public static final String USER_AT_DISPLAYED_NAME_KEY = PREFIX + "user-at-displayed-name";
+    public static final String USER_AT_FROM_HEADER_KEY = PREFIX + "outboudproxy-user-at-from-header";
+
+    private final String outboundProxyUri;
+    private final String outboundProxyUser;
+    private final String outboundProxyPassword;
+    private final String fallbackOutboundProxyUri;
+    private final String fallbackOutboundProxyUser;
+    private final String fallbackOutboundProxyPassword;
+    private final boolean allowFallback;
+    private final boolean allowFallbackToPrimary;
+    private final int maxFailedCalls;
+    private final boolean userAtDisplayedName;
+    private final boolean outboundProxyUserAtFromHeader;
+
+    public OutboundProxyConfigurationSetImpl(ConfigurationSource source) {
+        super(source);
+        outboundProxyUri = source.getProperty(OUTBOUND_PROXY_URI_KEY);
+        outboundProxyUser = source.getProperty(OUTBOUND_PROXY_USER_KEY);
+        outboundProxyPassword = source.getProperty(OUTBOUND_PROXY_PASSWORD_KEY);
+        fallbackOutboundProxyUri = source.getProperty(FALLBACK_OUTBOUND_PROXY_URI_KEY);
+        fallbackOutboundProxyUser = source.getProperty(FALLBACK_OUTBOUND_PROXY_USER_KEY);
+        fallbackOutboundProxyPassword = source.getProperty(FALLBACK_OUTBOUND_PROXY_PASSWORD_KEY);
+        allowFallback = toBoolean(source.getProperty(ALLOW_FALLBACK_KEY), false);
+        allowFallbackToPrimary = toBoolean(source.getProperty(ALLOW_FALLBACK_TO_PRIMARY_KEY), false);
+        maxFailedCalls = toInt(MAX_FAILED_CALLS_KEY, source.getProperty(MAX_FAILED_CALLS_KEY), 20);
+        userAtDisplayedName = toBoolean(source.getProperty(USER_AT_DISPLAYED_NAME_KEY), false);
+        outboundProxyUserAtFromHeader = toBoolean(source.getProperty(USER_AT_FROM_HEADER_KEY), true);
+    }
+
+    @Override
+    public String getOutboundProxyUri() {
+        return outboundProxyUri;
+    }
+
+    @Override
+    public String getOutboundProxyUser() {
+        return outboundProxyUser;
+    }
+
+    @Override
+    public String getOutboundProxyPassword() {
+        return outboundProxyPassword;
+    }
+
+    @Override
+    public String getFallbackOutboundProxyUri() {
+        return fallbackOutboundProxyUri;
+    }
+
+    @Override
+    public String getFallbackOutboundProxyUser() {
+        return fallbackOutboundProxyUser;
+    }
+
+    @Override
+    public String getFallbackOutboundProxyPassword() {
+        return fallbackOutboundProxyPassword;
+    }
+
+    @Override
+    public boolean isAllowFallback() {
+        return allowFallback;
+    }
+
+    @Override
+    public boolean isAllowFallbackToPrimary() {
+        return allowFallbackToPrimary;
+    }
+
+    @Override
+    public int getMaxFailedCalls() {
+        return maxFailedCalls;
+    }
+
+    @Override
+    public boolean isUserAtDisplayedName() {
+        return userAtDisplayedName;
+    }
+
+    @Override
+    public boolean isOutboundProxyUserAtFromHeader() {
+        return outboundProxyUserAtFromHeader;
+    }
+}
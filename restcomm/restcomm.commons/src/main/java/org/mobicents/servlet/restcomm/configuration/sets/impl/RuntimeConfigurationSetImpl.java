@@ -0,0 +1,118 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.configuration.sets.impl;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.configuration.sets.RuntimeConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sources.ConfigurationSource;
+
+/**
+ * Snapshot of the &lt;runtime-settings&gt; options read on a per call or per verb basis.
+ * Defaults mirror the ones used by the call sites that used to read the raw configuration.
+ */
+@Immutable
+public class RuntimeConfigurationSetImpl extends ConfigurationSet implements RuntimeConfigurationSet {
+    public static final String API_VERSION_KEY = "runtime-settings.api-version";
+    public static final String PROMPTS_URI_KEY = "runtime-settings.prompts-uri";
+    public static final String RECORDINGS_PATH_KEY = "runtime-settings.recordings-path";
+    public static final String RECORDINGS_URI_KEY = "runtime-settings.recordings-uri";
+    public static final String ERROR_DICTIONARY_URI_KEY = "runtime-settings.error-dictionary-uri";
+    public static final String USE_TO_KEY = "runtime-settings.use-to";
+    public static final String USE_LOCAL_ADDRESS_KEY = "runtime-settings.use-local-address";
+    public static final String AUTHENTICATE_KEY = "runtime-settings.authenticate";
+    public static final String NORMALIZE_NUMBERS_KEY = "runtime-settings.normalize-numbers-for-outbound-calls";
+    public static final String PATCH_FOR_NAT_B2BUA_SESSIONS_KEY = "runtime-settings.patch-for-nat-b2bua-sessions";
+
+    private final String apiVersion;
+    private final String promptsUri;
+    private final String recordingsPath;
+    private final String recordingsUri;
+    private final String errorDictionaryUri;
+    private final boolean useTo;
+    private final boolean useLocalAddress;
+    private final boolean authenticate;
+    private final boolean normalizeNumbersForOutboundCalls;
+    private final boolean patchForNatB2BUASessions;
+
+    public RuntimeConfigurationSetImpl(ConfigurationSource source) {
+        super(source);
+        apiVersion = source.getProperty(API_VERSION_KEY);
+        promptsUri = source.getProperty(PROMPTS_URI_KEY);
+        recordingsPath = source.getProperty(RECORDINGS_PATH_KEY);
+        recordingsUri = source.getProperty(RECORDINGS_URI_KEY);
+        errorDictionaryUri = source.getProperty(ERROR_DICTIONARY_URI_KEY);
+        useTo = toBoolean(source.getProperty(USE_TO_KEY), false);
+        useLocalAddress = toBoolean(source.getProperty(USE_LOCAL_ADDRESS_KEY), false);
+        authenticate = toBoolean(source.getProperty(AUTHENTICATE_KEY), false);
+        normalizeNumbersForOutboundCalls = toBoolean(source.getProperty(NORMALIZE_NUMBERS_KEY), false);
+        patchForNatB2BUASessions = toBoolean(source.getProperty(PATCH_FOR_NAT_B2BUA_SESSIONS_KEY), true);
+    }
+
+    @Override
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    @Override
+    public String getPromptsUri() {
+        return promptsUri;
+    }
+
+    @Override
+    public String getRecordingsPath() {
+        return recordingsPath;
+    }
+
+    @Override
+    public String getRecordingsUri() {
+        return recordingsUri;
+    }
+
+    @Override
+    public String getErrorDictionaryUri() {
+        return errorDictionaryUri;
+    }
+
+    @Override
+    public boolean isUseTo() {
+        return useTo;
+    }
+
+    @Override
+    public boolean isUseLocalAddress() {
+        return useLocalAddress;
+    }
+
+    @Override
+    public boolean isAuthenticate() {
+        return authenticate;
+    }
+
+    @Override
+    public boolean isNormalizeNumbersForOutboundCalls() {
+        return normalizeNumbersForOutboundCalls;
+    }
+
+    @Override
+    public boolean isPatchForNatB2BUASessions() {
+        return patchForNatB2BUASessions;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.configuration.sets.impl;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.configuration.sets.SmppConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sources.ConfigurationSource;
+
+/**
+ * Snapshot of the top level &lt;smpp&gt; options.
+ */
+@Immutable
+public class SmppConfigurationSetImpl extends ConfigurationSet implements SmppConfigurationSet {
+    public static final String SMPP_CLASS_KEY = "smpp[@class]";
+    public static final String ACTIVATE_SMPP_CONNECTION_KEY = "smpp[@activateSmppConnection]";
+
+    private final String smppServiceClass;
+    private final boolean activateSmppConnection;
+
+    public SmppConfigurationSetImpl(ConfigurationSource source) {
+        super(source);
+        smppServiceClass = source.getProperty(SMPP_CLASS_KEY);
+        activateSmppConnection = toBoolean(source.getProperty(ACTIVATE_SMPP_CONNECTION_KEY), false);
+    }
+
+    @Override
+    public String getSmppServiceClass() {
+        return smppServiceClass;
+    }
+
+    @Override
+    public boolean isActivateSmppConnection() {
+        return activateSmppConnection;
+    }
+}
@@ -36,6 +36,7 @@ import com.google.common.collect.ImmutableMap;
 public class FiniteStateMachine {
     private final ImmutableMap<State, Map<State, Transition>> transitions;
     private State state;
+    private TransitionListener listener;
 
     public FiniteStateMachine(final State initial, final Set<Transition> transitions) {
         super();
@@ -49,6 +50,10 @@ public class FiniteStateMachine {
         return state;
     }
 
+    public void setListener(final TransitionListener listener) {
+        this.listener = listener;
+    }
+
     public void transition(final Object event, final State target) throws TransitionFailedException,
             TransitionNotFoundException, TransitionRollbackException {
         checkNotNull(event, "The message passed can not be null.");
@@ -91,7 +96,11 @@ public class FiniteStateMachine {
             }
 
             // Move to a new state
+            final State previous = state;
             state = target;
+            if (listener != null) {
+                listener.onTransition(event, previous, target);
+            }
 
             // Execute action after entering new state (processing)
             final Action actionOnState = target.getActionOnState();
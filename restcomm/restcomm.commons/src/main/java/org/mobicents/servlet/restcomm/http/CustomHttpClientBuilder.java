@@ -25,6 +25,7 @@ import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.mobicents.servlet.restcomm.HttpConnector;
@@ -51,6 +52,18 @@ public class CustomHttpClientBuilder {
 
 
     public static HttpClient build(MainConfigurationSet config) {
+        return build(config, HttpClients.custom());
+    }
+
+    /**
+     * Builds a client whose connection pool can be shared by many concurrent requests. Use it for long lived
+     * clients instead of creating one client per request.
+     */
+    public static HttpClient buildPooled(MainConfigurationSet config, int maxConnectionsPerRoute, int maxConnections) {
+        return build(config, HttpClients.custom().setMaxConnPerRoute(maxConnectionsPerRoute).setMaxConnTotal(maxConnections));
+    }
+
+    private static HttpClient build(MainConfigurationSet config, HttpClientBuilder builder) {
         SslMode mode = config.getSslMode();
         int timeoutConnection = config.getResponseTimeout();
         RequestConfig requestConfig = RequestConfig.custom()
@@ -59,13 +72,13 @@ public class CustomHttpClientBuilder {
                 .setSocketTimeout(timeoutConnection)
                 .setCookieSpec(CookieSpecs.STANDARD).build();
         if ( mode == SslMode.strict ) {
-            return  HttpClients.custom().setDefaultRequestConfig(requestConfig).build();
+            return  builder.setDefaultRequestConfig(requestConfig).build();
         } else {
-            return buildAllowallClient(requestConfig);
+            return buildAllowallClient(requestConfig, builder);
         }
     }
 
-    private static HttpClient buildAllowallClient(RequestConfig requestConfig) {
+    private static HttpClient buildAllowallClient(RequestConfig requestConfig, HttpClientBuilder builder) {
         HttpConnectorList httpConnectorList = UriUtils.getHttpConnectorList();
         HttpClient httpClient = null;
         //Enable SSL only if we have HTTPS connector
@@ -76,10 +89,10 @@ public class CustomHttpClientBuilder {
             if (connector.isSecure()) {
                 SSLConnectionSocketFactory sslsf;
                 try {
-                    SSLContextBuilder builder = new SSLContextBuilder();
-                    builder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
-                    sslsf = new SSLConnectionSocketFactory(builder.build());
-                    httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).setSSLSocketFactory(sslsf).build();
+                    SSLContextBuilder sslContextBuilder = new SSLContextBuilder();
+                    sslContextBuilder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
+                    sslsf = new SSLConnectionSocketFactory(sslContextBuilder.build());
+                    httpClient = builder.setDefaultRequestConfig(requestConfig).setSSLSocketFactory(sslsf).build();
                 } catch (KeyManagementException | NoSuchAlgorithmException | KeyStoreException e) {
                     throw new RuntimeException("Error creating HttpClient", e);
                 }
@@ -87,7 +100,7 @@ public class CustomHttpClientBuilder {
             }
         }
         if (httpClient == null) {
-            httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).build();
+            httpClient = builder.setDefaultRequestConfig(requestConfig).build();
         }
 
         return httpClient;
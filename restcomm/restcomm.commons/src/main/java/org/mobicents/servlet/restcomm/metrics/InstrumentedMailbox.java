@@ -0,0 +1,104 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.metrics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+import scala.Option;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+
+import com.typesafe.config.Config;
+
+/**
+ * Unbounded mailbox that keeps a count of the messages waiting in all the mailboxes of the actor system, exposed as
+ * the restcomm_actor_mailbox_depth gauge. Enable it with:
+ *
+ * <pre>
+ * akka.actor.default-dispatcher.mailbox-type = "org.mobicents.servlet.restcomm.metrics.InstrumentedMailbox"
+ * </pre>
+ */
+@ThreadSafe
+public final class InstrumentedMailbox implements MailboxType {
+    private static final StripedLong depth = new StripedLong();
+
+    static {
+        MetricsRegistry.getInstance().gauge("restcomm_actor_mailbox_depth",
+                "Messages waiting in actor mailboxes.", new Gauge() {
+                    @Override
+                    public long value() {
+                        return depth.sum();
+                    }
+                });
+    }
+
+    public InstrumentedMailbox(final ActorSystem.Settings settings, final Config config) {
+        super();
+    }
+
+    @Override
+    public MessageQueue create(final Option<ActorRef> owner, final Option<ActorSystem> system) {
+        return new InstrumentedMessageQueue();
+    }
+
+    private static final class InstrumentedMessageQueue implements MessageQueue {
+        private final Queue<Envelope> queue = new ConcurrentLinkedQueue<Envelope>();
+
+        @Override
+        public void enqueue(final ActorRef receiver, final Envelope handle) {
+            queue.add(handle);
+            depth.add(1);
+        }
+
+        @Override
+        public Envelope dequeue() {
+            final Envelope envelope = queue.poll();
+            if (envelope != null) {
+                depth.add(-1);
+            }
+            return envelope;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return queue.size();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(final ActorRef owner, final MessageQueue deadLetters) {
+            Envelope envelope = dequeue();
+            while (envelope != null) {
+                deadLetters.enqueue(owner, envelope);
+                envelope = dequeue();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * Records durations in nanoseconds into log-linear buckets, the way HdrHistogram does: every power of two is split in
+ * 16 linear sub buckets so any recorded value is known within 1/16 (about 6%) of its magnitude. Recording is two
+ * atomic adds and never allocates, reading takes a snapshot of the buckets.
+ */
+@ThreadSafe
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 2^40 ns is a little over 18 minutes, anything longer goes into the last bucket.
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final StripedLong sum;
+
+    LatencyHistogram() {
+        super();
+        counts = new AtomicLongArray(BUCKETS);
+        sum = new StripedLong();
+    }
+
+    public void record(final long nanos) {
+        final long value = nanos < 0 ? 0 : nanos;
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+    }
+
+    public void record(final long duration, final TimeUnit unit) {
+        record(unit.toNanos(duration));
+    }
+
+    /**
+     * Records the time elapsed since start, which was taken with System.nanoTime().
+     */
+    public void recordSince(final long start) {
+        record(System.nanoTime() - start);
+    }
+
+    public Snapshot snapshot() {
+        final long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            copy[index] = counts.get(index);
+            count += copy[index];
+        }
+        return new Snapshot(copy, count, sum.sum());
+    }
+
+    static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // The largest value that falls in the bucket at index.
+    static long highestValue(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long sub = index % SUB_BUCKETS;
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return ((SUB_BUCKETS + sub) << shift) + (1L << shift) - 1;
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        private Snapshot(final long[] counts, final long count, final long sum) {
+            super();
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sum() {
+            return sum;
+        }
+
+        /**
+         * Returns the value, in nanoseconds, below which the given fraction of the recorded values falls.
+         */
+        public long valueAt(final double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int index = 0; index < counts.length; index++) {
+                seen += counts[index];
+                if (seen >= rank) {
+                    return highestValue(index);
+                }
+            }
+            return highestValue(counts.length - 1);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * Process wide registry of counters, gauges and latency histograms, written out in the Prometheus text exposition
+ * format by {@link #write(Writer)}.
+ *
+ * Looking a metric up builds its label string, so components look their metrics up once (at start up or the first
+ * time they see a new statement, resource...) and keep the reference. Recording on the returned metric is lock free
+ * and does not allocate.
+ *
+ * Labels are passed as name, value pairs.
+ */
+@ThreadSafe
+public final class MetricsRegistry {
+    private static final MetricsRegistry instance = new MetricsRegistry();
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), SUMMARY("summary");
+
+        private final String text;
+
+        private Type(final String text) {
+            this.text = text;
+        }
+    }
+
+    private final ConcurrentMap<String, Family> families;
+
+    public MetricsRegistry() {
+        super();
+        families = new ConcurrentSkipListMap<String, Family>();
+    }
+
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    public Counter counter(final String name, final String help, final String... labels) {
+        final Family family = family(name, help, Type.COUNTER);
+        final String key = labels(labels);
+        Object metric = family.metrics.get(key);
+        if (metric == null) {
+            final Counter counter = new Counter();
+            metric = family.metrics.putIfAbsent(key, counter);
+            if (metric == null) {
+                metric = counter;
+            }
+        }
+        return (Counter) metric;
+    }
+
+    public LatencyHistogram histogram(final String name, final String help, final String... labels) {
+        final Family family = family(name, help, Type.SUMMARY);
+        final String key = labels(labels);
+        Object metric = family.metrics.get(key);
+        if (metric == null) {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            metric = family.metrics.putIfAbsent(key, histogram);
+            if (metric == null) {
+                metric = histogram;
+            }
+        }
+        return (LatencyHistogram) metric;
+    }
+
+    /**
+     * Registers a gauge, replacing the one registered before with the same name and labels so a component that is
+     * restarted does not keep its old instance reachable.
+     */
+    public void gauge(final String name, final String help, final Gauge gauge, final String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(labels(labels), gauge);
+    }
+
+    public void remove(final String name) {
+        families.remove(name);
+    }
+
+    public void write(final Writer writer) throws IOException {
+        for (final Family family : families.values()) {
+            writer.write("# HELP ");
+            writer.write(family.name);
+            writer.write(' ');
+            writer.write(family.help);
+            writer.write("\n# TYPE ");
+            writer.write(family.name);
+            writer.write(' ');
+            writer.write(family.type.text);
+            writer.write('\n');
+            for (final Map.Entry<String, Object> entry : family.metrics.entrySet()) {
+                final String labels = entry.getKey();
+                final Object metric = entry.getValue();
+                switch (family.type) {
+                    case COUNTER:
+                        sample(writer, family.name, labels, Long.toString(((Counter) metric).value()));
+                        break;
+                    case GAUGE:
+                        sample(writer, family.name, labels, Long.toString(((Gauge) metric).value()));
+                        break;
+                    case SUMMARY:
+                        final LatencyHistogram.Snapshot snapshot = ((LatencyHistogram) metric).snapshot();
+                        for (final double quantile : QUANTILES) {
+                            final String quantileLabel = "quantile=\"" + quantile + "\"";
+                            sample(writer, family.name, labels.isEmpty() ? quantileLabel : labels + "," + quantileLabel,
+                                    seconds(snapshot.valueAt(quantile)));
+                        }
+                        sample(writer, family.name + "_sum", labels, seconds(snapshot.sum()));
+                        sample(writer, family.name + "_count", labels, Long.toString(snapshot.count()));
+                        break;
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private Family family(final String name, final String help, final Type type) {
+        Family family = families.get(name);
+        if (family == null) {
+            final Family created = new Family(name, help, type);
+            family = families.putIfAbsent(name, created);
+            if (family == null) {
+                family = created;
+            }
+        }
+        if (family.type != type) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type.text + ".");
+        }
+        return family;
+    }
+
+    private static String labels(final String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be passed as name, value pairs.");
+        }
+        final StringBuilder buffer = new StringBuilder();
+        for (int index = 0; index < labels.length; index += 2) {
+            if (index > 0) {
+                buffer.append(',');
+            }
+            buffer.append(labels[index]).append("=\"");
+            final String value = labels[index + 1] == null ? "" : labels[index + 1];
+            for (int position = 0; position < value.length(); position++) {
+                final char character = value.charAt(position);
+                if (character == '\\' || character == '"') {
+                    buffer.append('\\').append(character);
+                } else if (character == '\n') {
+                    buffer.append("\\n");
+                } else {
+                    buffer.append(character);
+                }
+            }
+            buffer.append('"');
+        }
+        return buffer.toString();
+    }
+
+    private static void sample(final Writer writer, final String name, final String labels, final String value)
+            throws IOException {
+        writer.write(name);
+        if (!labels.isEmpty()) {
+            writer.write('{');
+            writer.write(labels);
+            writer.write('}');
+        }
+        writer.write(' ');
+        writer.write(value);
+        writer.write('\n');
+    }
+
+    private static String seconds(final long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final ConcurrentMap<String, Object> metrics;
+
+        private Family(final String name, final String help, final Type type) {
+            super();
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.metrics = new ConcurrentSkipListMap<String, Object>();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * A long that is spread over several padded cells so threads updating it concurrently rarely touch the same cache
+ * line. Updates are a single atomic add on the cell picked by the thread id; reads sum all the cells.
+ */
+@ThreadSafe
+final class StripedLong {
+    private static final int STRIPES = 16;
+    // 8 longs per cell keeps two cells out of the same 64 byte cache line.
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+
+    StripedLong() {
+        super();
+        cells = new AtomicLongArray(STRIPES * PADDING);
+    }
+
+    void add(final long delta) {
+        final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        cells.getAndAdd(stripe * PADDING, delta);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            sum += cells.get(stripe * PADDING);
+        }
+        return sum;
+    }
+}
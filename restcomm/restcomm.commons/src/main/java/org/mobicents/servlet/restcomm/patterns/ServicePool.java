@@ -0,0 +1,226 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.patterns;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.mobicents.servlet.restcomm.metrics.Counter;
+import org.mobicents.servlet.restcomm.metrics.Gauge;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+import scala.concurrent.duration.Duration;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+/**
+ * Routes requests to a fixed number of workers that answer every request with a single response, like the speech
+ * synthesizers or the fax service. A worker is handed one request at a time and the requests that find every worker
+ * busy wait in a bounded queue. Once the queue is full, or a worker takes longer than the timeout to answer, the
+ * requester is answered right away with the response built by the {@link Rejection} so a slow vendor pushes back on
+ * the interpreters instead of piling up requests.
+ *
+ * The responses are sent to the requester by the pool.
+ */
+public final class ServicePool extends UntypedActor {
+    private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+
+    private final String name;
+    private final Props worker;
+    private final int size;
+    private final int queueSize;
+    private final long timeout;
+    private final Rejection rejection;
+    private final Deque<ActorRef> idle;
+    private final Map<ActorRef, Job> busy;
+    private final Deque<Job> queue;
+    private final Counter rejections;
+    private final Counter timeouts;
+    private volatile int queued;
+    private long sequence;
+
+    /**
+     * @param name identifies the pool in the logs and the metrics.
+     * @param worker creates the workers.
+     * @param size how many workers to create.
+     * @param queueSize how many requests may wait for a worker.
+     * @param timeout how long, in milliseconds, a worker may take to answer, 0 waits forever.
+     * @param rejection builds the responses of the requests the pool gives up on.
+     */
+    public ServicePool(final String name, final Props worker, final int size, final int queueSize, final long timeout,
+            final Rejection rejection) {
+        super();
+        this.name = name;
+        this.worker = worker;
+        this.size = size;
+        this.queueSize = queueSize;
+        this.timeout = timeout;
+        this.rejection = rejection;
+        this.idle = new ArrayDeque<ActorRef>(size);
+        this.busy = new HashMap<ActorRef, Job>(size);
+        this.queue = new ArrayDeque<Job>();
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.rejections = metrics.counter("restcomm_service_pool_rejections_total",
+                "Requests rejected because the queue of the pool was full.", "pool", name);
+        this.timeouts = metrics.counter("restcomm_service_pool_timeouts_total",
+                "Requests a worker of the pool did not answer in time.", "pool", name);
+    }
+
+    @Override
+    public void preStart() {
+        for (int index = 0; index < size; index++) {
+            idle.add(getContext().actorOf(worker));
+        }
+        MetricsRegistry.getInstance().gauge("restcomm_service_pool_queued", "Requests waiting for a worker of the pool.",
+                new Gauge() {
+                    @Override
+                    public long value() {
+                        return queued;
+                    }
+                }, "pool", name);
+    }
+
+    @Override
+    public void postStop() {
+        final RejectedExecutionException exception = new RejectedExecutionException(name + " stopped.");
+        for (final Job job : busy.values()) {
+            reject(job, exception);
+        }
+        for (final Job job : queue) {
+            reject(job, exception);
+        }
+        busy.clear();
+        queue.clear();
+        queued = 0;
+    }
+
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        final ActorRef sender = sender();
+        if (Expired.class.equals(message.getClass())) {
+            expire((Expired) message);
+        } else if (busy.containsKey(sender)) {
+            final Job job = busy.remove(sender);
+            job.requester.tell(message, self());
+            next(sender);
+        } else if (self().path().equals(sender.path().parent())) {
+            // Late answer from a worker that timed out and was replaced.
+            if (logger.isDebugEnabled()) {
+                logger.debug(name + " dropped a late " + message.getClass().getSimpleName() + " from " + sender.path());
+            }
+        } else {
+            submit(new Job(++sequence, message, sender));
+        }
+    }
+
+    private void submit(final Job job) {
+        if (!idle.isEmpty()) {
+            dispatch(idle.poll(), job);
+        } else if (queue.size() < queueSize) {
+            queue.add(job);
+            queued = queue.size();
+        } else {
+            rejections.increment();
+            reject(job, new RejectedExecutionException(name + " has " + queue.size() + " requests waiting already."));
+        }
+    }
+
+    private void dispatch(final ActorRef worker, final Job job) {
+        busy.put(worker, job);
+        worker.tell(job.message, self());
+        if (timeout > 0) {
+            getContext().system().scheduler().scheduleOnce(Duration.create(timeout, TimeUnit.MILLISECONDS), self(),
+                    new Expired(worker, job.id), getContext().dispatcher());
+        }
+    }
+
+    private void next(final ActorRef worker) {
+        final Job job = queue.poll();
+        queued = queue.size();
+        if (job != null) {
+            dispatch(worker, job);
+        } else {
+            idle.add(worker);
+        }
+    }
+
+    private void expire(final Expired expired) {
+        final Job job = busy.get(expired.worker);
+        if (job == null || job.id != expired.id) {
+            return;
+        }
+        busy.remove(expired.worker);
+        timeouts.increment();
+        logger.warning(name + " gave up on a " + job.message.getClass().getSimpleName() + " after " + timeout + "ms");
+        reject(job, new TimeoutException(name + " did not answer within " + timeout + "ms."));
+        // The worker may be stuck on the vendor, put a fresh one in its place.
+        getContext().stop(expired.worker);
+        next(getContext().actorOf(worker));
+    }
+
+    private void reject(final Job job, final Throwable cause) {
+        final Object response = rejection.reject(job.message, cause);
+        if (response != null) {
+            job.requester.tell(response, self());
+        }
+    }
+
+    /**
+     * Builds the response of a request the pool gives up on, in the format the requester expects from the workers.
+     */
+    public interface Rejection {
+        /**
+         * @return the response or null to leave the requester without an answer.
+         */
+        Object reject(Object request, Throwable cause);
+    }
+
+    private static final class Job {
+        private final long id;
+        private final Object message;
+        private final ActorRef requester;
+
+        private Job(final long id, final Object message, final ActorRef requester) {
+            super();
+            this.id = id;
+            this.message = message;
+            this.requester = requester;
+        }
+    }
+
+    private static final class Expired {
+        private final ActorRef worker;
+        private final long id;
+
+        private Expired(final ActorRef worker, final long id) {
+            super();
+            this.worker = worker;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.startup;
+
+import java.net.URI;
+
+/**
+ * A migration of hosted applications that keeps running in the background once the node takes traffic. Whoever is
+ * about to use an application has it migrated first, so it is never seen half way.
+ */
+public interface ProjectMigration {
+    /**
+     * Migrates the application the url points to, if the migration did not get to it yet.
+     *
+     * @return true if the application was migrated by this call, references to it (numbers, clients...) have to be
+     *         read again
+     */
+    boolean migrate(URI url);
+}
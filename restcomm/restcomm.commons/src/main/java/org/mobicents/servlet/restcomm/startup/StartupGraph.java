@@ -0,0 +1,313 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.startup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * Start up expressed as steps and the steps they depend on. A step runs as soon as its dependencies finished, steps
+ * that do not depend on each other run in parallel.
+ *
+ * Critical steps are the ones the node needs before it can take traffic, {@link #await(long, TimeUnit)} waits for
+ * them and {@link #isReady()} tells whether they all succeeded. The other steps run in the background and may report
+ * their progress. A step that fails is logged and its dependents still run, like they did when start up was a
+ * sequence of calls that each had to cope with what the previous ones left behind.
+ */
+@ThreadSafe
+public final class StartupGraph {
+    private static final Logger logger = Logger.getLogger(StartupGraph.class);
+
+    public enum State {
+        WAITING, RUNNING, DONE, FAILED
+    }
+
+    public abstract static class Step {
+        public abstract void run() throws Exception;
+
+        /**
+         * @return a description of how far a long running step got, null if the step does not track its progress
+         */
+        public String progress() {
+            return null;
+        }
+    }
+
+    private final Map<String, Node> nodes;
+    private final ExecutorService executor;
+    private final AtomicInteger remaining;
+    private volatile CountDownLatch critical;
+    private volatile long started;
+
+    public StartupGraph(final int threads) {
+        super();
+        this.nodes = Collections.synchronizedMap(new LinkedHashMap<String, Node>());
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "restcomm-startup-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.remaining = new AtomicInteger();
+    }
+
+    /**
+     * Adds a step, its dependencies have to be added first which keeps the graph free of cycles.
+     */
+    public void add(final String name, final boolean critical, final Step step, final String... dependencies) {
+        if (this.critical != null) {
+            throw new IllegalStateException("The start up already began");
+        }
+        final Node node = new Node(name, critical, step, Arrays.asList(dependencies));
+        synchronized (nodes) {
+            if (nodes.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate step " + name);
+            }
+            for (final String dependency : dependencies) {
+                final Node parent = nodes.get(dependency);
+                if (parent == null) {
+                    throw new IllegalArgumentException("Step " + name + " depends on the unknown step " + dependency);
+                }
+                parent.dependents.add(node);
+            }
+            nodes.put(name, node);
+        }
+    }
+
+    public void start() {
+        final List<Node> roots = new ArrayList<Node>();
+        int count = 0;
+        synchronized (nodes) {
+            if (critical != null) {
+                throw new IllegalStateException("The start up already began");
+            }
+            for (final Node node : nodes.values()) {
+                if (node.critical) {
+                    count++;
+                }
+                if (node.pending.get() == 0) {
+                    roots.add(node);
+                }
+            }
+            remaining.set(nodes.size());
+            started = System.nanoTime();
+            critical = new CountDownLatch(count);
+        }
+        if (roots.isEmpty()) {
+            executor.shutdown();
+        }
+        for (final Node node : roots) {
+            submit(node);
+        }
+    }
+
+    /**
+     * Waits for the critical steps.
+     *
+     * @return true if they all finished, successfully or not, before the timeout
+     */
+    public boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return critical.await(timeout, unit);
+    }
+
+    /**
+     * @return true once every critical step finished successfully
+     */
+    public boolean isReady() {
+        final CountDownLatch latch = critical;
+        if (latch == null || latch.getCount() > 0) {
+            return false;
+        }
+        for (final StepStatus status : steps()) {
+            if (status.isCritical() && status.getState() != State.DONE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<StepStatus> steps() {
+        final List<StepStatus> steps = new ArrayList<StepStatus>();
+        synchronized (nodes) {
+            for (final Node node : nodes.values()) {
+                steps.add(node.status(started));
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * @return one line per step with its state, when it started and how long it took, in milliseconds from the start
+     *         of the start up
+     */
+    public String report() {
+        final StringBuilder buffer = new StringBuilder("Startup report:");
+        long criticalPath = 0;
+        for (final StepStatus status : steps()) {
+            buffer.append("\n  ").append(status.getName()).append(status.isCritical() ? " (critical)" : "").append(": ")
+                    .append(status.getState());
+            if (status.getState() != State.WAITING) {
+                buffer.append(" at ").append(status.getStart()).append("ms");
+            }
+            if (status.getState() == State.DONE || status.getState() == State.FAILED) {
+                buffer.append(" took ").append(status.getDuration()).append("ms");
+                if (status.isCritical()) {
+                    criticalPath = Math.max(criticalPath, status.getStart() + status.getDuration());
+                }
+            }
+            if (status.getProgress() != null) {
+                buffer.append(", ").append(status.getProgress());
+            }
+        }
+        buffer.append("\n  critical path: ").append(criticalPath).append("ms");
+        return buffer.toString();
+    }
+
+    private void submit(final Node node) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                node.started = System.nanoTime();
+                node.state = State.RUNNING;
+                State state = State.FAILED;
+                try {
+                    node.step.run();
+                    state = State.DONE;
+                } catch (final Throwable throwable) {
+                    logger.error("Startup step " + node.name + " failed", throwable);
+                } finally {
+                    // The state is published last so whoever sees a finished step sees when it finished
+                    node.finished = System.nanoTime();
+                    node.state = state;
+                    finished(node);
+                }
+            }
+        });
+    }
+
+    private void finished(final Node node) {
+        if (node.critical) {
+            critical.countDown();
+        }
+        for (final Node dependent : node.dependents) {
+            if (dependent.pending.decrementAndGet() == 0) {
+                submit(dependent);
+            }
+        }
+        if (remaining.decrementAndGet() == 0) {
+            executor.shutdown();
+            if (logger.isInfoEnabled()) {
+                logger.info(report());
+            }
+        }
+    }
+
+    private static final class Node {
+        private final String name;
+        private final boolean critical;
+        private final Step step;
+        private final List<Node> dependents;
+        private final AtomicInteger pending;
+        private volatile State state;
+        private volatile long started;
+        private volatile long finished;
+
+        private Node(final String name, final boolean critical, final Step step, final List<String> dependencies) {
+            super();
+            this.name = name;
+            this.critical = critical;
+            this.step = step;
+            this.dependents = new ArrayList<Node>();
+            this.pending = new AtomicInteger(dependencies.size());
+            this.state = State.WAITING;
+        }
+
+        private StepStatus status(final long origin) {
+            final State state = this.state;
+            final long start = state == State.WAITING ? 0 : TimeUnit.NANOSECONDS.toMillis(started - origin);
+            final long duration = state == State.DONE || state == State.FAILED ? TimeUnit.NANOSECONDS
+                    .toMillis(finished - started) : 0;
+            return new StepStatus(name, critical, state, start, duration, step.progress());
+        }
+    }
+
+    @Immutable
+    public static final class StepStatus {
+        private final String name;
+        private final boolean critical;
+        private final State state;
+        private final long start;
+        private final long duration;
+        private final String progress;
+
+        private StepStatus(final String name, final boolean critical, final State state, final long start,
+                final long duration, final String progress) {
+            super();
+            this.name = name;
+            this.critical = critical;
+            this.state = state;
+            this.start = start;
+            this.duration = duration;
+            this.progress = progress;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isCritical() {
+            return critical;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+
+        public String getProgress() {
+            return progress;
+        }
+    }
+}
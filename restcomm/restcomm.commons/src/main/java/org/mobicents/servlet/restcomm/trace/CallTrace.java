@@ -0,0 +1,183 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.trace;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.fsm.State;
+import org.mobicents.servlet.restcomm.fsm.TransitionListener;
+
+/**
+ * Timestamped record of what the actors handling a call did, one entry per state machine transition or explicit
+ * mark. The trace is shared by reference between the actors of the call: the Call gets it with the INVITE (or creates
+ * it for outbound calls), the media server controller with CreateMediaSession and the interpreter looks it up by call
+ * sid in the {@link CallTracer}.
+ *
+ * Entries go in preallocated arrays, recording one is an atomic increment and four stores. A trace is only read
+ * once the call completed; entries still being written by a late actor at that time may be missing.
+ */
+@ThreadSafe
+public final class CallTrace {
+    static final CallTrace DISABLED = new CallTrace(0);
+
+    private final int capacity;
+    private final long start;
+    private final long startMillis;
+    private final AtomicInteger size;
+    private final String[] components;
+    private final String[] names;
+    private final Class<?>[] events;
+    private final long[] times;
+    private volatile String sid;
+    private volatile String accountSid;
+    private volatile long end;
+
+    CallTrace(final int capacity) {
+        super();
+        this.capacity = capacity;
+        this.start = System.nanoTime();
+        this.startMillis = System.currentTimeMillis();
+        this.size = new AtomicInteger();
+        this.components = new String[capacity];
+        this.names = new String[capacity];
+        this.events = new Class<?>[capacity];
+        this.times = new long[capacity];
+    }
+
+    public String sid() {
+        return sid;
+    }
+
+    void bind(final String sid) {
+        this.sid = sid;
+    }
+
+    /**
+     * The account the call belongs to, null until an actor of the call knows it.
+     */
+    public String accountSid() {
+        return accountSid;
+    }
+
+    public void bindAccount(final String accountSid) {
+        this.accountSid = accountSid;
+    }
+
+    void complete() {
+        end = System.nanoTime();
+    }
+
+    boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    public void mark(final String component, final String name) {
+        record(component, name, null);
+    }
+
+    /**
+     * Returns a listener that records the transitions of a state machine under the given component name.
+     */
+    public TransitionListener listener(final String component) {
+        return new TransitionListener() {
+            @Override
+            public void onTransition(final Object event, final State from, final State to) {
+                record(component, to.getId(), event == null ? null : event.getClass());
+            }
+        };
+    }
+
+    private void record(final String component, final String name, final Class<?> event) {
+        if (capacity == 0) {
+            return;
+        }
+        final int index = size.getAndIncrement();
+        if (index < capacity) {
+            times[index] = System.nanoTime();
+            components[index] = component;
+            names[index] = name;
+            events[index] = event;
+        }
+    }
+
+    /**
+     * One line per entry with its offset from the start of the call, and how long the component stayed there
+     * before its next entry.
+     */
+    @Override
+    public String toString() {
+        final int recorded = Math.min(size.get(), capacity);
+        final Integer[] order = new Integer[recorded];
+        for (int index = 0; index < recorded; index++) {
+            order[index] = index;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer first, final Integer second) {
+                return Long.compare(times[first], times[second]);
+            }
+        });
+        // Time each entry lasted, up to the next entry of the same component or the end of the call.
+        final long finish = end == 0 ? System.nanoTime() : end;
+        final long[] durations = new long[recorded];
+        final Map<String, Integer> last = new HashMap<String, Integer>();
+        for (final Integer index : order) {
+            if (components[index] == null) {
+                continue;
+            }
+            final Integer previous = last.put(components[index], index);
+            if (previous != null) {
+                durations[previous] = times[index] - times[previous];
+            }
+        }
+        for (final Integer index : last.values()) {
+            durations[index] = finish - times[index];
+        }
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("Call ").append(sid).append(" started ").append(new DateTime(startMillis)).append(", lasted ")
+                .append(millis(finish - start)).append(" ms\n");
+        for (final Integer index : order) {
+            if (components[index] == null) {
+                continue;
+            }
+            buffer.append(String.format("%12s ms  %-20s %-32s %12s ms", millis(times[index] - start), components[index],
+                    names[index], millis(durations[index])));
+            if (events[index] != null) {
+                buffer.append("  on ").append(events[index].getSimpleName());
+            }
+            buffer.append('\n');
+        }
+        if (size.get() > capacity) {
+            buffer.append(size.get() - capacity).append(" more entries were dropped\n");
+        }
+        return buffer.toString();
+    }
+
+    private static String millis(final long nanos) {
+        return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
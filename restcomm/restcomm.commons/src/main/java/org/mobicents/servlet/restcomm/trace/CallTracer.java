@@ -0,0 +1,118 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.trace;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * Hands out call traces, keeps the ones of live calls by call sid and the last completed ones in a ring buffer. A
+ * sample of the completed traces can be written to the log.
+ */
+@ThreadSafe
+public final class CallTracer {
+    private static final Logger logger = Logger.getLogger(CallTracer.class);
+    private static final CallTracer instance = new CallTracer();
+    // Enough for a call going through a dozen verbs.
+    private static final int TRACE_CAPACITY = 256;
+
+    private final ConcurrentMap<String, CallTrace> live;
+    private final AtomicLong cursor;
+    private volatile AtomicReferenceArray<CallTrace> completed;
+    private volatile boolean enabled;
+    private volatile double logSampleRate;
+
+    public CallTracer() {
+        super();
+        live = new ConcurrentHashMap<String, CallTrace>();
+        cursor = new AtomicLong();
+        completed = new AtomicReferenceArray<CallTrace>(1000);
+        enabled = true;
+        logSampleRate = 0;
+    }
+
+    public static CallTracer getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param bufferSize how many completed traces to keep, 0 turns tracing off.
+     * @param logSampleRate fraction, between 0 and 1, of the completed traces written to the log.
+     */
+    public void configure(final int bufferSize, final double logSampleRate) {
+        this.enabled = bufferSize > 0;
+        this.completed = new AtomicReferenceArray<CallTrace>(Math.max(bufferSize, 1));
+        this.logSampleRate = logSampleRate;
+    }
+
+    public CallTrace start() {
+        return enabled ? new CallTrace(TRACE_CAPACITY) : CallTrace.DISABLED;
+    }
+
+    /**
+     * Makes a trace available to the other actors of the call, by call sid.
+     */
+    public void bind(final CallTrace trace, final String sid) {
+        if (trace.isEnabled()) {
+            trace.bind(sid);
+            live.put(sid, trace);
+        }
+    }
+
+    public void complete(final CallTrace trace) {
+        if (!trace.isEnabled()) {
+            return;
+        }
+        trace.complete();
+        final String sid = trace.sid();
+        if (sid != null) {
+            live.remove(sid);
+        }
+        final AtomicReferenceArray<CallTrace> buffer = completed;
+        buffer.set((int) (cursor.getAndIncrement() % buffer.length()), trace);
+        if (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate && logger.isInfoEnabled()) {
+            logger.info(trace.toString());
+        }
+    }
+
+    /**
+     * Returns the trace of a live or recently completed call, null if there is none.
+     */
+    public CallTrace get(final String sid) {
+        final CallTrace trace = live.get(sid);
+        if (trace != null) {
+            return trace;
+        }
+        final AtomicReferenceArray<CallTrace> buffer = completed;
+        for (int index = 0; index < buffer.length(); index++) {
+            final CallTrace candidate = buffer.get(index);
+            if (candidate != null && sid.equals(candidate.sid())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
@@ -33,15 +33,14 @@ public final class DigestAuthentication {
         super();
     }
 
-    private static String A1(final String algorithm, final String user, final String realm, final String password,
-            final String nonce, final String cnonce) {
+    private static String HA1(final String algorithm, final String ha1, final String nonce, final String cnonce) {
         if (algorithm == null || algorithm.trim().length() == 0 || algorithm.trim().equalsIgnoreCase("MD5")) {
-            return user + ":" + realm + ":" + password;
+            return ha1;
         } else {
             if (cnonce == null || cnonce.length() == 0) {
                 throw new NullPointerException("The cnonce parameter may not be null.");
             }
-            return H(user + ":" + realm + ":" + password) + ":" + nonce + ":" + cnonce;
+            return H(ha1 + ":" + nonce + ":" + cnonce);
         }
     }
 
@@ -59,12 +58,37 @@ public final class DigestAuthentication {
             final String nonce, final String nc, final String cnonce, final String method, final String uri, String body,
             final String qop) {
         validate(user, realm, password, nonce, method, uri);
-        final String a1 = A1(algorithm, user, realm, password, nonce, cnonce);
+        return responseWithHA1(algorithm, HA1(user, realm, password), nonce, nc, cnonce, method, uri, body, qop);
+    }
+
+    /**
+     * Computes H(user:realm:password). The result can be stored in place of the password and handed to
+     * {@link #responseWithHA1} later on.
+     */
+    public static String HA1(final String user, final String realm, final String password) {
+        return H(user + ":" + realm + ":" + password);
+    }
+
+    /**
+     * Same as {@link #response} for callers that keep H(user:realm:password) instead of the plain password.
+     */
+    public static String responseWithHA1(final String algorithm, final String ha1, final String nonce, final String nc,
+            final String cnonce, final String method, final String uri, String body, final String qop) {
+        if (ha1 == null) {
+            throw new NullPointerException("The ha1 parameter may not be null.");
+        } else if (nonce == null) {
+            throw new NullPointerException("The nonce parameter may not be null.");
+        } else if (method == null) {
+            throw new NullPointerException("The method parameter may not be null.");
+        } else if (uri == null) {
+            throw new NullPointerException("The uri parameter may not be null.");
+        }
         final String a2 = A2(method, uri, body, qop);
+        final String secret = HA1(algorithm, ha1, nonce, cnonce);
         if (cnonce != null && qop != null && nc != null && (qop.equalsIgnoreCase("auth") || qop.equalsIgnoreCase("auth-int"))) {
-            return KD(H(a1), nonce + ":" + nc + ":" + cnonce + ":" + qop + ":" + H(a2));
+            return KD(secret, nonce + ":" + nc + ":" + cnonce + ":" + qop + ":" + H(a2));
         } else {
-            return KD(H(a1), nonce + ":" + H(a2));
+            return KD(secret, nonce + ":" + H(a2));
         }
     }
 
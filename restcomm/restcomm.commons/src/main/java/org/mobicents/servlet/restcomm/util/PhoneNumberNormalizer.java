@@ -0,0 +1,262 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.metrics.Counter;
+import org.mobicents.servlet.restcomm.metrics.Gauge;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.i18n.phonenumbers.NumberParseException;
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
+
+/**
+ * Shared E.164 normalization with a bounded cache in front of libphonenumber.
+ *
+ * Parsing and formatting a number is expensive compared to the lookups that follow it and the same numbers
+ * are normalized over and over (incoming DIDs, dialed numbers, API requests). Results are cached per raw
+ * input and default region, numbers that can not be parsed are cached as failures too.
+ *
+ * On top of that {@link #resolve(String, String, Lookup)} remembers which spelling of a number a lookup matched,
+ * so finding a provisioned number costs a single query instead of one per candidate spelling. Numbers that matched
+ * nothing are not remembered, numbers are provisioned through several endpoints, by other nodes and straight in the
+ * database, and none of them could tell this cache.
+ */
+@ThreadSafe
+public final class PhoneNumberNormalizer {
+    public static final String DEFAULT_REGION = "US";
+    private static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private static final PhoneNumberNormalizer instance = new PhoneNumberNormalizer(DEFAULT_MAXIMUM_SIZE,
+            MetricsRegistry.getInstance());
+
+    private final PhoneNumberUtil phoneNumberUtil;
+    private final LoadingCache<Key, Optional<String>> cache;
+    private final Cache<Key, String> spellings;
+    private final Counter hits;
+    private final Counter misses;
+
+    public PhoneNumberNormalizer(final int maximumSize) {
+        this(maximumSize, new MetricsRegistry());
+    }
+
+    PhoneNumberNormalizer(final int maximumSize, final MetricsRegistry metrics) {
+        super();
+        this.phoneNumberUtil = PhoneNumberUtil.getInstance();
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats()
+                .build(new CacheLoader<Key, Optional<String>>() {
+                    @Override
+                    public Optional<String> load(final Key key) {
+                        return Optional.fromNullable(format(key.number, key.region));
+                    }
+                });
+        this.spellings = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        this.hits = metrics.counter("restcomm_number_lookup_hits_total",
+                "Provisioned number lookups answered with a single query from the remembered spelling.");
+        this.misses = metrics.counter("restcomm_number_lookup_misses_total",
+                "Provisioned number lookups that had to try every spelling of the number.");
+        metrics.gauge("restcomm_number_normalizer_hits", "E.164 normalizations answered from the cache.", new Gauge() {
+            @Override
+            public long value() {
+                return cache.stats().hitCount();
+            }
+        });
+        metrics.gauge("restcomm_number_normalizer_misses", "E.164 normalizations run through libphonenumber.",
+                new Gauge() {
+                    @Override
+                    public long value() {
+                        return cache.stats().missCount();
+                    }
+                });
+    }
+
+    public static PhoneNumberNormalizer getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the number in E.164 format or null if it can not be parsed.
+     */
+    public String toE164(final String number, final String region) {
+        if (number == null) {
+            return null;
+        }
+        try {
+            return cache.get(new Key(number, region)).orNull();
+        } catch (final ExecutionException exception) {
+            return null;
+        }
+    }
+
+    public String toE164(final String number) {
+        return toE164(number, DEFAULT_REGION);
+    }
+
+    /**
+     * @return the number in E.164 format or the number itself if it can not be parsed.
+     */
+    public String normalize(final String number, final String region) {
+        final String result = toE164(number, region);
+        return result == null ? number : result;
+    }
+
+    public String normalize(final String number) {
+        return normalize(number, DEFAULT_REGION);
+    }
+
+    /**
+     * Builds the list of spellings a provisioned number may have been stored with, most likely first: the E.164
+     * form, the number as received and the number with the leading '+' added or removed.
+     */
+    public List<String> candidates(final String number, final String region) {
+        if (number == null) {
+            return Collections.emptyList();
+        }
+        final List<String> candidates = new ArrayList<String>(3);
+        final String e164 = toE164(number, region);
+        if (e164 != null) {
+            candidates.add(e164);
+        }
+        if (!candidates.contains(number)) {
+            candidates.add(number);
+        }
+        final String alternative = number.startsWith("+") ? number.substring(1) : "+" + number;
+        if (!alternative.isEmpty() && !candidates.contains(alternative)) {
+            candidates.add(alternative);
+        }
+        return candidates;
+    }
+
+    public List<String> candidates(final String number) {
+        return candidates(number, DEFAULT_REGION);
+    }
+
+    /**
+     * Finds whatever a number was provisioned as. The spelling that matched last time is tried first and only when
+     * it no longer matches are the other {@link #candidates(String, String)} queried.
+     *
+     * @return what the lookup returned for the first spelling that matched or null.
+     */
+    public <T> T resolve(final String number, final String region, final Lookup<T> lookup) {
+        if (number == null) {
+            return null;
+        }
+        final Key key = new Key(number, region);
+        final String known = spellings.getIfPresent(key);
+        if (known != null) {
+            final T result = lookup.find(known);
+            if (result != null) {
+                hits.increment();
+                return result;
+            }
+            spellings.invalidate(key);
+        }
+        misses.increment();
+        for (final String candidate : candidates(number, region)) {
+            // The remembered spelling was just queried and did not match.
+            if (candidate.equals(known)) {
+                continue;
+            }
+            final T result = lookup.find(candidate);
+            if (result != null) {
+                spellings.put(key, candidate);
+                return result;
+            }
+        }
+        return null;
+    }
+
+    public <T> T resolve(final String number, final Lookup<T> lookup) {
+        return resolve(number, DEFAULT_REGION, lookup);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public double hitRate() {
+        return cache.stats().hitRate();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+        spellings.invalidateAll();
+    }
+
+    private String format(final String number, final String region) {
+        try {
+            return phoneNumberUtil.format(phoneNumberUtil.parse(number, region), PhoneNumberFormat.E164);
+        } catch (final NumberParseException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Looks a single spelling of a number up, usually in the database.
+     */
+    public interface Lookup<T> {
+        T find(String spelling);
+    }
+
+    private static final class Key {
+        private final String number;
+        private final String region;
+        private final int hash;
+
+        private Key(final String number, final String region) {
+            this.number = number;
+            this.region = region;
+            this.hash = 31 * number.hashCode() + (region == null ? 0 : region.hashCode());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return number.equals(key.number) && (region == null ? key.region == null : region.equals(key.region));
+        }
+    }
+}
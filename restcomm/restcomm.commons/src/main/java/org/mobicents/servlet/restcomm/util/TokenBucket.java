@@ -0,0 +1,90 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.servlet.restcomm.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+/**
+ * A bucket holding up to burst tokens, refilled at rate tokens per second. A rate of zero or less disables the limit.
+ * Time is passed in, in nanoseconds, so the caller reads the clock once per request whatever the number of buckets it
+ * checks.
+ */
+@ThreadSafe
+public final class TokenBucket {
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean limited;
+    private final double rate;
+    private final double burst;
+    private double tokens;
+    private long updated;
+
+    public TokenBucket(final double rate, final double burst, final long now) {
+        super();
+        this.limited = rate > 0;
+        this.rate = rate / NANOS_PER_SECOND;
+        this.burst = burst;
+        this.tokens = burst;
+        this.updated = now;
+    }
+
+    public synchronized boolean tryAcquire(final long now) {
+        if (!limited) {
+            return true;
+        }
+        refill(now);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gives back a token taken for a request that was not sent after all.
+     */
+    public synchronized void release() {
+        if (limited) {
+            tokens = Math.min(burst, tokens + 1);
+        }
+    }
+
+    /**
+     * @return true when the bucket refilled completely, so dropping it and starting a new one changes nothing
+     */
+    public synchronized boolean isFull(final long now) {
+        if (!limited) {
+            return true;
+        }
+        refill(now);
+        return tokens >= burst;
+    }
+
+    private void refill(final long now) {
+        final long elapsed = now - updated;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed * rate);
+            updated = now;
+        }
+    }
+}
@@ -3,15 +3,24 @@ package org.mobicents.servlet.restcomm.configuration;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.XMLConfiguration;
 import org.junit.Before;
 import org.junit.Test;
+import org.apache.commons.io.FileUtils;
 import org.mobicents.servlet.restcomm.configuration.sets.MainConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sets.OutboundProxyConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sets.RuntimeConfigurationSet;
 import org.mobicents.servlet.restcomm.http.SslMode;
 
 public class RestcommConfigurationTest {
@@ -33,6 +42,11 @@ public class RestcommConfigurationTest {
     @Test 
     public void allConfiguraitonSetsAreAvailable() {
         assertNotNull(conf.getMain());
+        assertNotNull(conf.getCache());
+        assertNotNull(conf.getRuntime());
+        assertNotNull(conf.getOutboundProxy());
+        assertNotNull(conf.getSmpp());
+        assertNotNull(conf.getMediaServer());
         // add new sets here ...
         // ...
     }
@@ -58,4 +72,95 @@ public class RestcommConfigurationTest {
         assertTrue( conf1 == conf2 );        
     }
 
+    @Test
+    public void runtimeSetConfigurationOptionsAreValid() {
+        RuntimeConfigurationSet runtime = conf.getRuntime();
+        assertEquals("2012-04-24", runtime.getApiVersion());
+        assertEquals("http://127.0.0.1:8080/restcomm/errors", runtime.getErrorDictionaryUri());
+        assertTrue(runtime.isUseTo());
+        assertTrue(runtime.isAuthenticate());
+        assertFalse(runtime.isUseLocalAddress());
+        assertFalse(runtime.isNormalizeNumbersForOutboundCalls());
+        assertTrue(runtime.isPatchForNatB2BUASessions());
+
+        OutboundProxyConfigurationSet proxy = conf.getOutboundProxy();
+        assertEquals("127.0.0.1:5070", proxy.getOutboundProxyUri());
+        assertEquals("127.0.0.1:5090", proxy.getFallbackOutboundProxyUri());
+        assertEquals(20, proxy.getMaxFailedCalls());
+        assertTrue(proxy.isUserAtDisplayedName());
+        assertFalse(proxy.isOutboundProxyUserAtFromHeader());
+
+        assertFalse(conf.getSmpp().isActivateSmppConnection());
+        assertEquals("rms", conf.getMediaServer().getCompatibility());
+    }
+
+    @Test
+    public void reloadPublishesNewSnapshotAndNotifiesListeners() {
+        conf.getMain().setInstanceId("instance");
+        RuntimeConfigurationSet before = conf.getRuntime();
+        final AtomicInteger notifications = new AtomicInteger();
+        conf.addListener(new RestcommConfigurationListener() {
+            @Override
+            public void onConfigurationUpdate(RestcommConfiguration configuration) {
+                notifications.incrementAndGet();
+            }
+        });
+
+        xml.setProperty("runtime-settings.normalize-numbers-for-outbound-calls", "true");
+        // the snapshot must not observe changes to the underlying configuration until reloaded
+        assertFalse(conf.getRuntime().isNormalizeNumbersForOutboundCalls());
+        conf.reload(xml);
+
+        assertEquals(1, notifications.get());
+        assertNotSame(before, conf.getRuntime());
+        assertTrue(conf.getRuntime().isNormalizeNumbersForOutboundCalls());
+        assertFalse(before.isNormalizeNumbersForOutboundCalls());
+        // runtime assigned values survive reloads
+        assertEquals("instance", conf.getMain().getInstanceId());
+    }
+
+    @Test
+    public void invalidReloadLeavesSourceUntouched() throws ConfigurationException, MalformedURLException {
+        MainConfigurationSet before = conf.getMain();
+        String timeout = xml.getString("http-client.response-timeout");
+        XMLConfiguration invalid = new XMLConfiguration(this.getClass().getResource("/restcomm.xml"));
+        invalid.setProperty("http-client.response-timeout", "not-a-number");
+        try {
+            conf.reload(invalid);
+            fail("An invalid configuration must not be published");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertSame(before, conf.getMain());
+        assertEquals(timeout, xml.getString("http-client.response-timeout"));
+    }
+
+    @Test
+    public void reloaderPicksUpFileChanges() throws IOException, URISyntaxException {
+        File original = new File(this.getClass().getResource("/restcomm.xml").toURI());
+        File copy = File.createTempFile("restcomm", ".xml");
+        try {
+            FileUtils.copyFile(original, copy);
+            Map<String, String> overrides = new HashMap<String, String>();
+            overrides.put("runtime-settings.api-version", "overridden");
+            RestcommConfigurationReloader reloader = new RestcommConfigurationReloader(copy.getPath(), overrides, conf);
+            // nothing changed yet
+            reloader.run();
+            assertEquals("2012-04-24", conf.getRuntime().getApiVersion());
+
+            String content = FileUtils.readFileToString(copy);
+            FileUtils.writeStringToFile(copy, content.replace("<use-to>true</use-to>", "<use-to>false</use-to>"));
+            copy.setLastModified(copy.lastModified() + 2000);
+            reloader.run();
+            assertFalse(conf.getRuntime().isUseTo());
+            assertEquals("overridden", conf.getRuntime().getApiVersion());
+            // The configuration handed to the actors follows the reload.
+            assertFalse(xml.getBoolean("runtime-settings.use-to"));
+            assertFalse(xml.subset("runtime-settings").getBoolean("use-to"));
+            assertEquals("overridden", xml.getString("runtime-settings.api-version"));
+        } finally {
+            copy.delete();
+        }
+    }
+
 }
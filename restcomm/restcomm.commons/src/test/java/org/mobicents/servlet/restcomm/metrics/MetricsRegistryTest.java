@@ -0,0 +1,121 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+    private MetricsRegistry registry;
+
+    @Before
+    public void before() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    public void metricsAreLookedUpByNameAndLabels() {
+        final Counter counter = registry.counter("restcomm_test_total", "Test.", "kind", "a");
+        assertSame(counter, registry.counter("restcomm_test_total", "Test.", "kind", "a"));
+        assertTrue(counter != registry.counter("restcomm_test_total", "Test.", "kind", "b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aNameHasOneType() {
+        registry.counter("restcomm_test", "Test.");
+        registry.histogram("restcomm_test", "Test.");
+    }
+
+    @Test
+    public void countersAddUpAcrossThreads() throws InterruptedException {
+        final Counter counter = registry.counter("restcomm_test_total", "Test.");
+        final Thread[] threads = new Thread[8];
+        for (int index = 0; index < threads.length; index++) {
+            threads[index] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int count = 0; count < 10000; count++) {
+                        counter.increment();
+                    }
+                }
+            });
+            threads[index].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80000, counter.value());
+    }
+
+    @Test
+    public void histogramQuantilesAreWithinOneSubBucket() {
+        final LatencyHistogram histogram = registry.histogram("restcomm_test_seconds", "Test.");
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis, TimeUnit.MILLISECONDS);
+        }
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.count());
+        assertEquals(500500L * 1000000L, snapshot.sum());
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(500), snapshot.valueAt(0.5));
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(990), snapshot.valueAt(0.99));
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.valueAt(1.0));
+    }
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        for (long value = 0; value < 100000; value++) {
+            final int index = LatencyHistogram.index(value);
+            assertTrue(value <= LatencyHistogram.highestValue(index));
+            assertTrue(index == 0 || value > LatencyHistogram.highestValue(index - 1));
+        }
+    }
+
+    @Test
+    public void metricsAreWrittenInTextFormat() throws Exception {
+        registry.counter("restcomm_test_total", "Test counter.", "kind", "say \"hi\"").add(3);
+        registry.gauge("restcomm_test_depth", "Test gauge.", new Gauge() {
+            @Override
+            public long value() {
+                return 7;
+            }
+        });
+        registry.histogram("restcomm_test_seconds", "Test histogram.").record(2, TimeUnit.SECONDS);
+        final StringWriter writer = new StringWriter();
+        registry.write(writer);
+        final String text = writer.toString();
+        assertTrue(text.contains("# TYPE restcomm_test_total counter\nrestcomm_test_total{kind=\"say \\\"hi\\\"\"} 3\n"));
+        assertTrue(text.contains("# TYPE restcomm_test_depth gauge\nrestcomm_test_depth 7\n"));
+        assertTrue(text.contains("# TYPE restcomm_test_seconds summary\n"));
+        assertTrue(text.contains("restcomm_test_seconds{quantile=\"0.5\"} 2."));
+        assertTrue(text.contains("restcomm_test_seconds_sum 2.0\n"));
+        assertTrue(text.contains("restcomm_test_seconds_count 1\n"));
+    }
+
+    private static void assertWithin(final long expected, final long actual) {
+        assertTrue(actual + " is not within 1/16 of " + expected, Math.abs(actual - expected) <= expected / 16);
+    }
+}
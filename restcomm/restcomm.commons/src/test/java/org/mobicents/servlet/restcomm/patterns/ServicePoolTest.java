@@ -0,0 +1,129 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.patterns;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import akka.actor.Actor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.testkit.JavaTestKit;
+
+public class ServicePoolTest {
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void before() {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void after() {
+        system.shutdown();
+    }
+
+    private static ActorRef pool(final int size, final int queueSize, final long timeout) {
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new ServicePool("test", new Props(SlowEcho.class), size, queueSize, timeout,
+                        new ServicePool.Rejection() {
+                            @Override
+                            public Object reject(final Object request, final Throwable cause) {
+                                return cause;
+                            }
+                        });
+            }
+        }));
+    }
+
+    @Test
+    public void testQueuedRequestsAreAnswered() {
+        new JavaTestKit(system) {
+            {
+                final ActorRef pool = pool(2, 10, 0);
+                for (int index = 0; index < 6; index++) {
+                    pool.tell(Long.valueOf(50), getRef());
+                }
+                // Two workers get through six requests of 50ms in three rounds.
+                for (int index = 0; index < 6; index++) {
+                    expectMsgEquals(duration("1 second"), "50");
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testRequestsOverTheQueueAreRejected() {
+        new JavaTestKit(system) {
+            {
+                final ActorRef pool = pool(1, 1, 0);
+                pool.tell(Long.valueOf(300), getRef());
+                pool.tell(Long.valueOf(300), getRef());
+                pool.tell(Long.valueOf(300), getRef());
+                // The third request finds the worker busy and the queue full.
+                assertTrue(expectMsgClass(duration("1 second"), RejectedExecutionException.class) != null);
+                expectMsgEquals(duration("2 seconds"), "300");
+                expectMsgEquals(duration("2 seconds"), "300");
+            }
+        };
+    }
+
+    @Test
+    public void testSlowWorkersAreReplaced() {
+        new JavaTestKit(system) {
+            {
+                final ActorRef pool = pool(1, 10, 200);
+                pool.tell(Long.valueOf(1000), getRef());
+                pool.tell(Long.valueOf(10), getRef());
+                expectMsgClass(duration("1 second"), TimeoutException.class);
+                // The second request goes to the replacement instead of waiting on the stuck worker.
+                expectMsgEquals(duration("500 milliseconds"), "10");
+                expectNoMsg(duration("1500 milliseconds"));
+            }
+        };
+    }
+
+    private static final class SlowEcho extends UntypedActor {
+        @SuppressWarnings("unused")
+        public SlowEcho() {
+            super();
+        }
+
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            final long delay = (Long) message;
+            Thread.sleep(delay);
+            sender().tell(String.valueOf(delay), self());
+        }
+    }
+}
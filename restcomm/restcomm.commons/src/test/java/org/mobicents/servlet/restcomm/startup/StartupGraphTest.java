@@ -0,0 +1,141 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.startup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.startup.StartupGraph.State;
+import org.mobicents.servlet.restcomm.startup.StartupGraph.Step;
+import org.mobicents.servlet.restcomm.startup.StartupGraph.StepStatus;
+
+public class StartupGraphTest {
+    @Test
+    public void independentStepsRunInParallel() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final StartupGraph graph = new StartupGraph(2);
+        // Each step only gets past the barrier if the other one runs at the same time
+        graph.add("storage", true, barrier(barrier));
+        graph.add("media", true, barrier(barrier));
+        graph.start();
+        assertTrue(graph.await(10, TimeUnit.SECONDS));
+        assertTrue(graph.isReady());
+    }
+
+    @Test
+    public void stepsRunAfterTheirDependencies() throws Exception {
+        final List<String> order = new CopyOnWriteArrayList<String>();
+        final StartupGraph graph = new StartupGraph(4);
+        graph.add("storage", true, record(order, "storage"));
+        graph.add("dispatcher", true, record(order, "dispatcher"));
+        graph.add("monitoring", true, record(order, "monitoring"), "storage");
+        graph.add("transcription", true, record(order, "transcription"), "storage", "dispatcher");
+        graph.add("instance", true, record(order, "instance"), "monitoring");
+        graph.start();
+        assertTrue(graph.await(10, TimeUnit.SECONDS));
+        assertEquals(5, order.size());
+        assertTrue(order.indexOf("storage") < order.indexOf("monitoring"));
+        assertTrue(order.indexOf("storage") < order.indexOf("transcription"));
+        assertTrue(order.indexOf("dispatcher") < order.indexOf("transcription"));
+        assertTrue(order.indexOf("monitoring") < order.indexOf("instance"));
+    }
+
+    @Test
+    public void backgroundStepsDoNotHoldReadinessBack() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch migrated = new CountDownLatch(1);
+        final StartupGraph graph = new StartupGraph(2);
+        graph.add("storage", true, record(new CopyOnWriteArrayList<String>(), "storage"));
+        graph.add("migration", false, new Step() {
+            @Override
+            public void run() throws Exception {
+                running.countDown();
+                release.await();
+                migrated.countDown();
+            }
+
+            @Override
+            public String progress() {
+                return release.getCount() == 0 ? "3/3 projects" : "1/3 projects";
+            }
+        }, "storage");
+        graph.start();
+        assertTrue(graph.await(10, TimeUnit.SECONDS));
+        assertTrue(graph.isReady());
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        assertTrue(graph.report(), graph.report().contains("migration: RUNNING"));
+        assertTrue(graph.report(), graph.report().contains("1/3 projects"));
+        release.countDown();
+        assertTrue(migrated.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void aFailedCriticalStepIsNotReadyButItsDependentsRun() throws Exception {
+        final List<String> order = new CopyOnWriteArrayList<String>();
+        final StartupGraph graph = new StartupGraph(2);
+        graph.add("storage", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                throw new IllegalStateException("no database");
+            }
+        });
+        graph.add("monitoring", true, record(order, "monitoring"), "storage");
+        graph.start();
+        assertTrue(graph.await(10, TimeUnit.SECONDS));
+        assertFalse(graph.isReady());
+        assertEquals(1, order.size());
+        final StepStatus storage = graph.steps().get(0);
+        assertEquals("storage", storage.getName());
+        assertEquals(State.FAILED, storage.getState());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dependenciesHaveToBeAddedFirst() {
+        final StartupGraph graph = new StartupGraph(1);
+        graph.add("monitoring", true, record(new CopyOnWriteArrayList<String>(), "monitoring"), "storage");
+    }
+
+    private static Step barrier(final CyclicBarrier barrier) {
+        return new Step() {
+            @Override
+            public void run() throws Exception {
+                barrier.await(5, TimeUnit.SECONDS);
+            }
+        };
+    }
+
+    private static Step record(final List<String> order, final String name) {
+        return new Step() {
+            @Override
+            public void run() throws Exception {
+                order.add(name);
+            }
+        };
+    }
+}
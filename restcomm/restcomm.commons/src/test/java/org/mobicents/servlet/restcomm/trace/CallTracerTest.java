@@ -0,0 +1,89 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.trace;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.fsm.FiniteStateMachine;
+import org.mobicents.servlet.restcomm.fsm.State;
+import org.mobicents.servlet.restcomm.fsm.Transition;
+
+public class CallTracerTest {
+    private CallTracer tracer;
+
+    @Before
+    public void before() {
+        tracer = new CallTracer();
+        tracer.configure(2, 0);
+    }
+
+    @Test
+    public void transitionsAreRecorded() throws Exception {
+        final State uninitialized = new State("uninitialized", null, null);
+        final State ringing = new State("ringing", null, null);
+        final Set<Transition> transitions = new HashSet<Transition>();
+        transitions.add(new Transition(uninitialized, ringing));
+        final FiniteStateMachine fsm = new FiniteStateMachine(uninitialized, transitions);
+        final CallTrace trace = tracer.start();
+        trace.mark("CallManager", "invite");
+        fsm.setListener(trace.listener("Call"));
+        fsm.transition("INVITE", ringing);
+        tracer.bind(trace, "CA1");
+        tracer.complete(trace);
+        final String text = trace.toString();
+        assertTrue(text, text.startsWith("Call CA1 started"));
+        assertTrue(text, text.indexOf("CallManager") < text.indexOf("ringing"));
+        assertTrue(text, text.contains("on String"));
+    }
+
+    @Test
+    public void liveAndCompletedTracesAreFoundBySid() {
+        final CallTrace first = tracer.start();
+        tracer.bind(first, "CA1");
+        assertSame(first, tracer.get("CA1"));
+        tracer.complete(first);
+        assertSame(first, tracer.get("CA1"));
+        for (int index = 2; index <= 3; index++) {
+            final CallTrace trace = tracer.start();
+            tracer.bind(trace, "CA" + index);
+            tracer.complete(trace);
+        }
+        // The buffer holds the last two calls.
+        assertNull(tracer.get("CA1"));
+        assertTrue(tracer.get("CA3") != null);
+    }
+
+    @Test
+    public void nothingIsKeptWhenDisabled() {
+        tracer.configure(0, 0);
+        final CallTrace trace = tracer.start();
+        trace.mark("CallManager", "invite");
+        tracer.bind(trace, "CA1");
+        tracer.complete(trace);
+        assertNull(tracer.get("CA1"));
+    }
+}
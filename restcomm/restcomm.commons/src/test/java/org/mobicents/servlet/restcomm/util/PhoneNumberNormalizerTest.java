@@ -0,0 +1,118 @@
+package org.mobicents.servlet.restcomm.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+public class PhoneNumberNormalizerTest {
+    private PhoneNumberNormalizer normalizer;
+    private MetricsRegistry metrics;
+
+    @Before
+    public void before() {
+        metrics = new MetricsRegistry();
+        normalizer = new PhoneNumberNormalizer(100, metrics);
+    }
+
+    @Test
+    public void numbersAreFormattedAsE164() {
+        assertEquals("+13055551234", normalizer.toE164("3055551234"));
+        assertEquals("+13055551234", normalizer.toE164("+1 (305) 555-1234"));
+        assertEquals("+302101234567", normalizer.toE164("2101234567", "GR"));
+    }
+
+    @Test
+    public void failuresAreCachedAndReported() {
+        assertNull(normalizer.toE164("not-a-number"));
+        assertNull(normalizer.toE164("not-a-number"));
+        assertEquals("not-a-number", normalizer.normalize("not-a-number"));
+        assertEquals(1, normalizer.stats().missCount());
+        assertEquals(2, normalizer.stats().hitCount());
+    }
+
+    @Test
+    public void repeatedLookupsAreServedFromCache() {
+        for (int i = 0; i < 10; i++) {
+            normalizer.toE164("3055551234");
+        }
+        assertEquals(1, normalizer.stats().missCount());
+        assertTrue(normalizer.hitRate() > 0.8);
+    }
+
+    @Test
+    public void cacheIsBounded() {
+        for (int i = 0; i < 1000; i++) {
+            normalizer.toE164("305555" + (1000 + i));
+        }
+        assertTrue(normalizer.size() <= 100);
+    }
+
+    @Test
+    public void candidatesCoverPlusPrefixVariants() {
+        assertEquals(Arrays.asList("+13055551234", "3055551234", "+3055551234"), normalizer.candidates("3055551234"));
+        assertEquals(Arrays.asList("+13055551234", "13055551234"), normalizer.candidates("+13055551234"));
+        assertEquals(Arrays.asList("1234", "+1234"), normalizer.candidates("1234", "ZZ"));
+    }
+
+    @Test
+    public void resolvedSpellingsCostOneQuery() {
+        final Store store = new Store("3055551234");
+        assertEquals("3055551234", normalizer.resolve("3055551234", store));
+        assertEquals(2, store.queries.size());
+        store.queries.clear();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("3055551234", normalizer.resolve("3055551234", store));
+        }
+        assertEquals(5, store.queries.size());
+        assertEquals(5, metrics.counter("restcomm_number_lookup_hits_total", "").value());
+        assertEquals(1, metrics.counter("restcomm_number_lookup_misses_total", "").value());
+    }
+
+    @Test
+    public void numbersProvisionedAfterAMissAreFound() {
+        final Store store = new Store();
+        assertNull(normalizer.resolve("3055551234", store));
+        assertEquals(3, store.queries.size());
+        // Provisioned behind the back of the normalizer, by another node for instance.
+        store.numbers.add("+13055551234");
+        assertEquals("+13055551234", normalizer.resolve("3055551234", store));
+        assertEquals(4, store.queries.size());
+    }
+
+    @Test
+    public void removedSpellingsAreLookedUpAgain() {
+        final Store store = new Store("3055551234");
+        normalizer.resolve("3055551234", store);
+        store.numbers.clear();
+        store.numbers.add("+3055551234");
+        store.queries.clear();
+        assertEquals("+3055551234", normalizer.resolve("3055551234", store));
+        // The remembered spelling is not queried twice.
+        assertEquals(Arrays.asList("3055551234", "+13055551234", "+3055551234"), store.queries);
+    }
+
+    private static final class Store implements PhoneNumberNormalizer.Lookup<String> {
+        private final List<String> numbers;
+        private final List<String> queries;
+
+        private Store(final String... numbers) {
+            super();
+            this.numbers = new ArrayList<String>(Arrays.asList(numbers));
+            this.queries = new ArrayList<String>();
+        }
+
+        @Override
+        public String find(final String spelling) {
+            queries.add(spelling);
+            return numbers.contains(spelling) ? spelling : null;
+        }
+    }
+}
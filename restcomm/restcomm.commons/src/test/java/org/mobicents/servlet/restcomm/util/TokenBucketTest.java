@@ -0,0 +1,68 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public final class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testBurstThenRate() {
+        final TokenBucket bucket = new TokenBucket(2, 3, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+        // Half a second buys one token at two per second.
+        assertTrue(bucket.tryAcquire(SECOND / 2));
+        assertFalse(bucket.tryAcquire(SECOND / 2));
+        assertFalse(bucket.isFull(SECOND / 2));
+        assertTrue(bucket.isFull(SECOND * 2));
+    }
+
+    @Test
+    public void testReleaseGivesTheTokenBack() {
+        final TokenBucket bucket = new TokenBucket(1, 1, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+        bucket.release();
+        assertTrue(bucket.tryAcquire(0));
+        // Never above the burst.
+        bucket.release();
+        bucket.release();
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+    }
+
+    @Test
+    public void testNoRateMeansNoLimit() {
+        final TokenBucket bucket = new TokenBucket(0, 1, 0);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(bucket.tryAcquire(0));
+        }
+        assertTrue(bucket.isFull(0));
+    }
+}
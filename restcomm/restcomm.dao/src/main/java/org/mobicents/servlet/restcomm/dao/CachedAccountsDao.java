@@ -0,0 +1,179 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Read-through cache in front of an {@link AccountsDao}. Every REST request resolves the authenticated account, the
+ * operated account and often its parent, so accounts are looked up several times per call. Lookups by sid, by
+ * name/email, for authentication and the sub-account hierarchy are kept for a bounded time. Missing accounts are cached
+ * too so that bogus credentials do not reach the database on every attempt.
+ *
+ * Any write through this DAO drops every cached entry. Account writes are rare and the name, email and hierarchy keys
+ * cannot be invalidated selectively, so a status change or a new token takes effect on the very next request. Writes
+ * made by other nodes become visible once the entries expire.
+ */
+@ThreadSafe
+public final class CachedAccountsDao implements AccountsDao {
+    private final AccountsDao dao;
+    private final Cache<Sid, Optional<Account>> accountsBySid;
+    private final Cache<String, Optional<Account>> accountsByName;
+    private final Cache<String, Optional<Account>> accountsToAuthenticate;
+    private final Cache<Sid, List<Account>> accounts;
+    private final Cache<Sid, List<String>> subAccountSids;
+
+    /**
+     * @param dao the DAO backing this cache.
+     * @param ttl how long, in seconds, an entry is served before it is read again from the backing DAO.
+     * @param size the maximum number of entries kept per lookup type.
+     */
+    public CachedAccountsDao(final AccountsDao dao, final long ttl, final long size) {
+        super();
+        this.dao = dao;
+        this.accountsBySid = build(ttl, size);
+        this.accountsByName = build(ttl, size);
+        this.accountsToAuthenticate = build(ttl, size);
+        this.accounts = build(ttl, size);
+        this.subAccountSids = build(ttl, size);
+    }
+
+    private static <K, V> Cache<K, V> build(final long ttl, final long size) {
+        return CacheBuilder.newBuilder().expireAfterWrite(ttl, TimeUnit.SECONDS).maximumSize(size).recordStats().build();
+    }
+
+    private static <K, V> V get(final Cache<K, V> cache, final K key, final Callable<V> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (final ExecutionException exception) {
+            throw Throwables.propagate(exception.getCause());
+        } catch (final UncheckedExecutionException exception) {
+            throw Throwables.propagate(exception.getCause());
+        }
+    }
+
+    @Override
+    public void addAccount(final Account account) {
+        try {
+            dao.addAccount(account);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public Account getAccount(final Sid sid) {
+        return get(accountsBySid, sid, new Callable<Optional<Account>>() {
+            @Override
+            public Optional<Account> call() throws Exception {
+                return Optional.fromNullable(dao.getAccount(sid));
+            }
+        }).orNull();
+    }
+
+    @Override
+    public Account getAccount(final String name) {
+        return get(accountsByName, name, new Callable<Optional<Account>>() {
+            @Override
+            public Optional<Account> call() throws Exception {
+                return Optional.fromNullable(dao.getAccount(name));
+            }
+        }).orNull();
+    }
+
+    @Override
+    public Account getAccountToAuthenticate(final String name) {
+        return get(accountsToAuthenticate, name, new Callable<Optional<Account>>() {
+            @Override
+            public Optional<Account> call() throws Exception {
+                return Optional.fromNullable(dao.getAccountToAuthenticate(name));
+            }
+        }).orNull();
+    }
+
+    @Override
+    public List<Account> getAccounts(final Sid sid) {
+        return new ArrayList<Account>(get(accounts, sid, new Callable<List<Account>>() {
+            @Override
+            public List<Account> call() throws Exception {
+                return new ArrayList<Account>(dao.getAccounts(sid));
+            }
+        }));
+    }
+
+    @Override
+    public void removeAccount(final Sid sid) {
+        try {
+            dao.removeAccount(sid);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public void updateAccount(final Account account) {
+        try {
+            dao.updateAccount(account);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public List<String> getSubAccountSidsRecursive(final Sid parentAccountSid) {
+        return new ArrayList<String>(get(subAccountSids, parentAccountSid, new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception {
+                return new ArrayList<String>(dao.getSubAccountSidsRecursive(parentAccountSid));
+            }
+        }));
+    }
+
+    /**
+     * Drops every cached account and hierarchy entry.
+     */
+    public void invalidateAll() {
+        accountsBySid.invalidateAll();
+        accountsByName.invalidateAll();
+        accountsToAuthenticate.invalidateAll();
+        accounts.invalidateAll();
+        subAccountSids.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return accountsBySid.stats().plus(accountsByName.stats()).plus(accountsToAuthenticate.stats())
+                .plus(accounts.stats()).plus(subAccountSids.stats());
+    }
+}
@@ -19,6 +19,7 @@
  */
 package org.mobicents.servlet.restcomm.dao;
 
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.List;
 
@@ -69,4 +70,7 @@ public interface CallDetailRecordsDao {
     List<CallDetailRecord> getCallDetailRecords(CallDetailRecordFilter filter);
 
     Integer getTotalCallDetailRecords(CallDetailRecordFilter filter);
+
+    // Hands every cdr matching the filter to the handler as it is read, the limit and offset of the filter are ignored.
+    void exportCallDetailRecords(CallDetailRecordFilter filter, CallDetailRecordHandler handler) throws IOException;
 }
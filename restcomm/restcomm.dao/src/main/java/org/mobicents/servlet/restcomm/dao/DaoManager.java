@@ -56,6 +56,8 @@ public interface DaoManager extends Configurable, LifeCycle {
 
     SmsMessagesDao getSmsMessagesDao();
 
+    SmsCampaignsDao getSmsCampaignsDao();
+
     UsageDao getUsageDao();
 
     TranscriptionsDao getTranscriptionsDao();
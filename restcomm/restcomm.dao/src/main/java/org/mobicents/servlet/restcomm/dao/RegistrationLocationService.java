@@ -0,0 +1,369 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.Registration;
+
+/**
+ * Keeps the active registrations in memory, indexed by user and by contact, and serves every lookup from there. The
+ * {@link RegistrationsDao} behind it is only written to, in the background, so that the registrations survive a
+ * restart: writes are coalesced per contact and flushed once a second, and a keep-alive that only moves the last
+ * update time is persisted at most once per refresh interval.
+ *
+ * Registrations are expired by a timer wheel with one second ticks instead of a periodic scan of every registration.
+ * Registrations made on other nodes are not visible, so this is meant for single node deployments.
+ */
+@ThreadSafe
+public final class RegistrationLocationService implements RegistrationsDao {
+    private static final Logger logger = Logger.getLogger(RegistrationLocationService.class);
+    // Ticks of one second, one full turn covers the longest registration Restcomm accepts.
+    private static final int WHEEL_SIZE = 4096;
+
+    public interface Listener {
+        void expired(Registration registration);
+    }
+
+    private final RegistrationsDao dao;
+    private final long refresh;
+    private final ConcurrentMap<String, Registration> byContact;
+    private final ConcurrentMap<String, ConcurrentMap<String, Registration>> byUser;
+    private final List<Set<String>> wheel;
+    private long tick;
+    // Latest state of every contact not written yet, null once the contact is removed.
+    private Map<String, Registration> pending;
+    private final Map<String, Registration> persisted;
+    private final AtomicLong writes;
+    private final ScheduledExecutorService timer;
+    private volatile Listener listener;
+
+    /**
+     * @param dao the DAO the registrations are loaded from and persisted to.
+     * @param refresh how long, in seconds, a keep-alive can go unpersisted.
+     */
+    public RegistrationLocationService(final RegistrationsDao dao, final long refresh) {
+        super();
+        this.dao = dao;
+        this.refresh = TimeUnit.SECONDS.toMillis(refresh);
+        this.byContact = new ConcurrentHashMap<String, Registration>();
+        this.byUser = new ConcurrentHashMap<String, ConcurrentMap<String, Registration>>();
+        this.wheel = new ArrayList<Set<String>>(WHEEL_SIZE);
+        for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+            wheel.add(new HashSet<String>());
+        }
+        this.tick = second(System.currentTimeMillis());
+        this.pending = new HashMap<String, Registration>();
+        this.persisted = new HashMap<String, Registration>();
+        this.writes = new AtomicLong();
+        for (final Registration registration : dao.getRegistrations()) {
+            final String contact = contact(registration);
+            persisted.put(contact, registration);
+            final Registration current = byContact.get(contact);
+            if (current == null || current.getDateUpdated().isBefore(registration.getDateUpdated())) {
+                put(contact, registration);
+            }
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "RegistrationLocationService");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        timer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    expire(System.currentTimeMillis());
+                    flush();
+                } catch (final RuntimeException exception) {
+                    logger.error("Could not expire or persist the registrations", exception);
+                }
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private static long second(final long millis) {
+        return millis / 1000;
+    }
+
+    private static String contact(final Registration registration) {
+        return registration.getAddressOfRecord() + " " + registration.getLocation();
+    }
+
+    public void setListener(final Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return how many writes reached the backing DAO so far.
+     */
+    public long writes() {
+        return writes.get();
+    }
+
+    // Must hold the lock of this service or be called from the constructor.
+    private void put(final String contact, final Registration registration) {
+        byContact.put(contact, registration);
+        ConcurrentMap<String, Registration> contacts = byUser.get(registration.getUserName());
+        if (contacts == null) {
+            contacts = new ConcurrentHashMap<String, Registration>();
+            byUser.put(registration.getUserName(), contacts);
+        }
+        contacts.put(contact, registration);
+        if (registration.getDateExpires() != null) {
+            final long expires = Math.max(second(registration.getDateExpires().getMillis()), tick + 1);
+            wheel.get((int) (expires % WHEEL_SIZE)).add(contact);
+        }
+    }
+
+    // Must hold the lock of this service.
+    private Registration remove(final String contact) {
+        final Registration registration = byContact.remove(contact);
+        if (registration != null) {
+            final ConcurrentMap<String, Registration> contacts = byUser.get(registration.getUserName());
+            if (contacts != null) {
+                contacts.remove(contact);
+                if (contacts.isEmpty()) {
+                    byUser.remove(registration.getUserName());
+                }
+            }
+        }
+        return registration;
+    }
+
+    private synchronized void write(final String contact, final Registration registration) {
+        pending.put(contact, registration);
+    }
+
+    /**
+     * Removes the registrations whose expiration time is up to the given time.
+     */
+    public void expire(final long now) {
+        final List<Registration> expired = new ArrayList<Registration>();
+        synchronized (this) {
+            final long second = second(now);
+            while (tick < second) {
+                tick++;
+                final int slot = (int) (tick % WHEEL_SIZE);
+                final Iterator<String> contacts = wheel.get(slot).iterator();
+                while (contacts.hasNext()) {
+                    final String contact = contacts.next();
+                    final Registration registration = byContact.get(contact);
+                    if (registration == null || registration.getDateExpires() == null) {
+                        contacts.remove();
+                        continue;
+                    }
+                    final long expires = second(registration.getDateExpires().getMillis());
+                    if (expires <= tick) {
+                        contacts.remove();
+                        remove(contact);
+                        pending.put(contact, null);
+                        expired.add(registration);
+                    } else if (expires % WHEEL_SIZE != slot) {
+                        // Refreshed since, the registration sits in another slot now
+                        contacts.remove();
+                    }
+                }
+            }
+        }
+        final Listener listener = this.listener;
+        for (final Registration registration : expired) {
+            if (logger.isInfoEnabled()) {
+                logger.info("Registration: " + registration.getLocation() + " expired and was removed");
+            }
+            if (listener != null) {
+                listener.expired(registration);
+            }
+        }
+    }
+
+    /**
+     * Writes the changes made since the last flush to the backing DAO.
+     */
+    public void flush() {
+        synchronized (persisted) {
+            final Map<String, Registration> changes;
+            synchronized (this) {
+                changes = pending;
+                pending = new HashMap<String, Registration>();
+            }
+            for (final Map.Entry<String, Registration> change : changes.entrySet()) {
+                final String contact = change.getKey();
+                final Registration registration = change.getValue();
+                try {
+                    persist(contact, registration);
+                } catch (final RuntimeException exception) {
+                    logger.error("Could not persist the registration of " + contact + ", will retry", exception);
+                    synchronized (this) {
+                        if (!pending.containsKey(contact)) {
+                            pending.put(contact, registration);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void persist(final String contact, final Registration registration) {
+        final Registration previous = persisted.get(contact);
+        if (registration == null) {
+            if (previous != null) {
+                dao.removeRegistration(previous);
+                writes.incrementAndGet();
+                persisted.remove(contact);
+            }
+        } else if (previous == null) {
+            dao.addRegistration(registration);
+            writes.incrementAndGet();
+            persisted.put(contact, registration);
+        } else if (!sameRecord(previous, registration)) {
+            dao.removeRegistration(previous);
+            dao.addRegistration(registration);
+            writes.addAndGet(2);
+            persisted.put(contact, registration);
+        } else if (!keepAlive(previous, registration)) {
+            dao.updateRegistration(registration);
+            writes.incrementAndGet();
+            persisted.put(contact, registration);
+        }
+    }
+
+    // The columns the database matches a registration on when it is checked for or updated.
+    private static boolean sameRecord(final Registration registration, final Registration other) {
+        return Objects.equals(registration.getDisplayName(), other.getDisplayName())
+                && Objects.equals(registration.getUserAgent(), other.getUserAgent());
+    }
+
+    private boolean keepAlive(final Registration persisted, final Registration registration) {
+        return persisted.getTimeToLive() == registration.getTimeToLive()
+                && Objects.equals(persisted.getDateExpires(), registration.getDateExpires())
+                && registration.getDateUpdated().getMillis() - persisted.getDateUpdated().getMillis() < refresh;
+    }
+
+    /**
+     * Stops the timer and writes what is still pending.
+     */
+    public void shutdown() {
+        timer.shutdown();
+        try {
+            timer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Override
+    public synchronized void addRegistration(final Registration registration) {
+        final String contact = contact(registration);
+        remove(contact);
+        put(contact, registration);
+        write(contact, registration);
+    }
+
+    @Override
+    public Registration getRegistration(final String user) {
+        final List<Registration> registrations = getRegistrations(user);
+        return registrations == null ? null : registrations.get(0);
+    }
+
+    @Override
+    public Registration getRegistrationByInstanceId(final String user, final String instanceId) {
+        final List<Registration> registrations = getRegistrations(user);
+        if (registrations != null) {
+            for (final Registration registration : registrations) {
+                if (Objects.equals(instanceId, registration.getInstanceId())) {
+                    return registration;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Registration> getRegistrations(final String user) {
+        final ConcurrentMap<String, Registration> contacts = byUser.get(user);
+        if (contacts == null) {
+            return null;
+        }
+        final List<Registration> registrations = new ArrayList<Registration>(contacts.values());
+        if (registrations.isEmpty()) {
+            return null;
+        }
+        // Latest updated first, like the database backed DAO
+        Collections.sort(registrations);
+        return registrations;
+    }
+
+    @Override
+    public List<Registration> getRegistrations() {
+        return new ArrayList<Registration>(byContact.values());
+    }
+
+    @Override
+    public boolean hasRegistration(final Registration registration) {
+        final Registration current = byContact.get(contact(registration));
+        return current != null && sameRecord(current, registration);
+    }
+
+    @Override
+    public synchronized void removeRegistration(final Registration registration) {
+        final String contact = contact(registration);
+        if (remove(contact) != null) {
+            write(contact, null);
+        }
+    }
+
+    @Override
+    public synchronized void updateRegistration(final Registration registration) {
+        final String contact = contact(registration);
+        final Registration current = byContact.get(contact);
+        if (current != null && sameRecord(current, registration)) {
+            // Only the expiration and the last update move, like the columns the database updates
+            final Registration updated = new Registration(current.getSid(), current.getInstanceId(),
+                    current.getDateCreated(), registration.getDateUpdated(), registration.getDateExpires(),
+                    current.getAddressOfRecord(), current.getDisplayName(), current.getUserName(), current.getUserAgent(),
+                    registration.getTimeToLive(), current.getLocation(), current.isWebRTC(), current.isLBPresent());
+            remove(contact);
+            put(contact, updated);
+            write(contact, updated);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao;
+
+import java.util.List;
+
+import org.mobicents.servlet.restcomm.entities.SmsCampaign;
+
+/**
+ * The stored campaigns let an instance resume the campaigns it had not finished when it went down. Only the status of
+ * a campaign is updated, its counters are rebuilt from the messages.
+ */
+public interface SmsCampaignsDao {
+    void addSmsCampaign(SmsCampaign smsCampaign);
+
+    /**
+     * @return the campaigns accepted by the given instance that are neither completed nor canceled
+     */
+    List<SmsCampaign> getUnfinishedSmsCampaigns(String instanceId);
+
+    void updateSmsCampaign(SmsCampaign smsCampaign);
+}
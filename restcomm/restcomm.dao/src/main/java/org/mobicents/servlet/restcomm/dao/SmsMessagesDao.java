@@ -30,13 +30,25 @@ import org.mobicents.servlet.restcomm.entities.SmsMessage;
 public interface SmsMessagesDao {
     void addSmsMessage(SmsMessage smsMessage);
 
+    /**
+     * Inserts the messages of a campaign in a single JDBC batch and transaction.
+     */
+    void addSmsMessages(Sid campaignSid, List<SmsMessage> smsMessages);
+
     SmsMessage getSmsMessage(Sid sid);
 
     List<SmsMessage> getSmsMessages(Sid accountSid);
 
+    List<SmsMessage> getSmsCampaignMessages(Sid campaignSid);
+
     void removeSmsMessage(Sid sid);
 
     void removeSmsMessages(Sid accountSid);
 
     void updateSmsMessage(SmsMessage smsMessage);
+
+    /**
+     * Updates the messages in a single JDBC batch and transaction.
+     */
+    void updateSmsMessages(List<SmsMessage> smsMessages);
 }
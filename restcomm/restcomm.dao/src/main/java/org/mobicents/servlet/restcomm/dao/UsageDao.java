@@ -39,6 +39,13 @@ public interface UsageDao {
 
   List<Usage> getUsageAllTime(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate);
 
+  /**
+   * Rolls raw call and sms records up into the daily usage table, up to the start of the hour containing
+   * <code>now</code>. The first run backfills from the oldest raw record. Categories rolled up by another node at the
+   * same time are skipped.
+   */
+  void updateUsageRollups(DateTime now);
+
   /*
   List<Usage> getUsageToday(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate);
 
@@ -0,0 +1,96 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.metrics.Counter;
+import org.mobicents.servlet.restcomm.metrics.LatencyHistogram;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+/**
+ * Times every statement run by the DAOs, labelled with the mapped statement id (e.g.
+ * org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao.getCallDetailRecord), and counts the ones that fail.
+ */
+@ThreadSafe
+@Intercepts({
+        @Signature(type = Executor.class, method = "query", args = { MappedStatement.class, Object.class, RowBounds.class,
+                ResultHandler.class }),
+        @Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }) })
+final class MetricsInterceptor implements Interceptor {
+    private final MetricsRegistry registry;
+    // Keyed by the statement id, which MyBatis keeps for the lifetime of the configuration.
+    private final ConcurrentMap<String, LatencyHistogram> latencies;
+    private final ConcurrentMap<String, Counter> errors;
+
+    MetricsInterceptor(final MetricsRegistry registry) {
+        super();
+        this.registry = registry;
+        this.latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+        this.errors = new ConcurrentHashMap<String, Counter>();
+    }
+
+    @Override
+    public Object intercept(final Invocation invocation) throws Throwable {
+        final String statement = ((MappedStatement) invocation.getArgs()[0]).getId();
+        final long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } catch (final Throwable throwable) {
+            Counter counter = errors.get(statement);
+            if (counter == null) {
+                counter = registry.counter("restcomm_dao_query_errors_total", "Database statements that failed.",
+                        "statement", statement);
+                errors.put(statement, counter);
+            }
+            counter.increment();
+            throw throwable;
+        } finally {
+            LatencyHistogram histogram = latencies.get(statement);
+            if (histogram == null) {
+                histogram = registry.histogram("restcomm_dao_query_seconds", "Time spent running database statements.",
+                        "statement", statement);
+                latencies.put(statement, histogram);
+            }
+            histogram.recordSince(start);
+        }
+    }
+
+    @Override
+    public Object plugin(final Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(final Properties properties) {
+    }
+}
@@ -32,6 +32,7 @@ import static org.mobicents.servlet.restcomm.dao.DaoUtils.writeDateTime;
 import static org.mobicents.servlet.restcomm.dao.DaoUtils.writeSid;
 import static org.mobicents.servlet.restcomm.dao.DaoUtils.writeUri;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.text.ParseException;
@@ -44,12 +45,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.dao.CallDetailRecordHandler;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecordFilter;
@@ -131,6 +136,33 @@ public final class MybatisCallDetailRecordsDao implements CallDetailRecordsDao {
         }
     }
 
+    @Override
+    public void exportCallDetailRecords(final CallDetailRecordFilter filter, final CallDetailRecordHandler handler)
+            throws IOException {
+        final SqlSession session = sessions.openSession();
+        try {
+            session.select(namespace + "exportCallDetailRecordsByUsingFilters", filter, new ResultHandler() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public void handleResult(final ResultContext context) {
+                    try {
+                        handler.handle(toCallDetailRecord((Map<String, Object>) context.getResultObject()));
+                    } catch (final IOException exception) {
+                        // Stops the query, the cause is rethrown below.
+                        throw new HandlerException(exception);
+                    }
+                }
+            });
+        } catch (final PersistenceException exception) {
+            if (exception.getCause() instanceof HandlerException) {
+                throw (IOException) exception.getCause().getCause();
+            }
+            throw exception;
+        } finally {
+            session.close();
+        }
+    }
+
     @Override
     public List<CallDetailRecord> getCallDetailRecords(final Sid accountSid) {
         return getCallDetailRecords(namespace + "getCallDetailRecords", accountSid.toString());
@@ -333,4 +365,12 @@ public final class MybatisCallDetailRecordsDao implements CallDetailRecordsDao {
         map.put("on_hold", cdr.isOnHold());
         return map;
     }
+
+    private static final class HandlerException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private HandlerException(final IOException cause) {
+            super(cause);
+        }
+    }
 }
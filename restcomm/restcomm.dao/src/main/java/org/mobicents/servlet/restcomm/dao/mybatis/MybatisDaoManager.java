@@ -31,6 +31,7 @@ import org.mobicents.servlet.restcomm.dao.AccountsDao;
 import org.mobicents.servlet.restcomm.dao.AnnouncementsDao;
 import org.mobicents.servlet.restcomm.dao.ApplicationsDao;
 import org.mobicents.servlet.restcomm.dao.AvailablePhoneNumbersDao;
+import org.mobicents.servlet.restcomm.dao.CachedAccountsDao;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.ClientsDao;
 import org.mobicents.servlet.restcomm.dao.ConferenceDetailRecordsDao;
@@ -42,13 +43,16 @@ import org.mobicents.servlet.restcomm.dao.InstanceIdDao;
 import org.mobicents.servlet.restcomm.dao.NotificationsDao;
 import org.mobicents.servlet.restcomm.dao.OutgoingCallerIdsDao;
 import org.mobicents.servlet.restcomm.dao.RecordingsDao;
+import org.mobicents.servlet.restcomm.dao.RegistrationLocationService;
 import org.mobicents.servlet.restcomm.dao.RegistrationsDao;
 import org.mobicents.servlet.restcomm.dao.ShortCodesDao;
+import org.mobicents.servlet.restcomm.dao.SmsCampaignsDao;
 import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
 import org.mobicents.servlet.restcomm.dao.TranscriptionsDao;
 import org.mobicents.servlet.restcomm.dao.UsageDao;
 import org.mobicents.servlet.restcomm.amazonS3.S3AccessTool;
 import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -73,6 +77,7 @@ public final class MybatisDaoManager implements DaoManager {
     private RecordingsDao recordingsDao;
     private ShortCodesDao shortCodesDao;
     private SmsMessagesDao smsMessagesDao;
+    private SmsCampaignsDao smsCampaignsDao;
     private UsageDao usageDao;
     private TranscriptionsDao transcriptionsDao;
     private GatewaysDao gatewaysDao;
@@ -165,6 +170,11 @@ public final class MybatisDaoManager implements DaoManager {
         return smsMessagesDao;
     }
 
+    @Override
+    public SmsCampaignsDao getSmsCampaignsDao() {
+        return smsCampaignsDao;
+    }
+
     @Override
     public UsageDao getUsageDao() {
         return usageDao;
@@ -187,7 +197,9 @@ public final class MybatisDaoManager implements DaoManager {
 
     @Override
     public void shutdown() {
-        // Nothing to do.
+        if (presenceRecordsDao instanceof RegistrationLocationService) {
+            ((RegistrationLocationService) presenceRecordsDao).shutdown();
+        }
     }
 
     @Override
@@ -227,8 +239,14 @@ public final class MybatisDaoManager implements DaoManager {
     }
 
     public void start(final SqlSessionFactory sessions) {
+        sessions.getConfiguration().addInterceptor(new MetricsInterceptor(MetricsRegistry.getInstance()));
         // Instantiate the DAO objects.
         accountsDao = new MybatisAccountsDao(sessions);
+        final long accountsCacheTtl = configuration == null ? 0 : configuration.getLong("accounts-cache-ttl", 0);
+        if (accountsCacheTtl > 0) {
+            final long accountsCacheSize = configuration.getLong("accounts-cache-size", 10000);
+            accountsDao = new CachedAccountsDao(accountsDao, accountsCacheTtl, accountsCacheSize);
+        }
         applicationsDao = new MybatisApplicationsDao(sessions);
         announcementsDao = new MybatisAnnouncementsDao(sessions);
         availablePhoneNumbersDao = new MybatisAvailablePhoneNumbersDao(sessions);
@@ -240,6 +258,11 @@ public final class MybatisDaoManager implements DaoManager {
         notificationsDao = new MybatisNotificationsDao(sessions);
         outgoingCallerIdsDao = new MybatisOutgoingCallerIdsDao(sessions);
         presenceRecordsDao = new MybatisRegistrationsDao(sessions);
+        if (configuration != null && configuration.getBoolean("registrations-location-service", false)) {
+            // A keep-alive can go unpersisted for two ping intervals, registrations not updated for three are dropped on startup
+            final int pingInterval = runtimeConfiguration == null ? 60 : runtimeConfiguration.getInt("ping-interval", 60);
+            presenceRecordsDao = new RegistrationLocationService(presenceRecordsDao, 2 * pingInterval);
+        }
         if (s3AccessTool != null) {
             final String recordingPath = runtimeConfiguration.getString("recordings-path");
             recordingsDao = new MybatisRecordingsDao(sessions, s3AccessTool, recordingPath);
@@ -248,7 +271,9 @@ public final class MybatisDaoManager implements DaoManager {
         }
         shortCodesDao = new MybatisShortCodesDao(sessions);
         smsMessagesDao = new MybatisSmsMessagesDao(sessions);
-        usageDao = new MybatisUsageDao(sessions);
+        smsCampaignsDao = new MybatisSmsCampaignsDao(sessions);
+        final int usageRollupLookback = configuration == null ? 24 : configuration.getInt("usage-rollup-lookback", 24);
+        usageDao = new MybatisUsageDao(sessions, usageRollupLookback);
         transcriptionsDao = new MybatisTranscriptionsDao(sessions);
         gatewaysDao = new MybatisGatewaysDao(sessions);
         instanceIdDao = new MybatisInstanceIdDao(sessions);
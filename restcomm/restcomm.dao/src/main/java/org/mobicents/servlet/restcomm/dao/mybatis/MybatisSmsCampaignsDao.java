@@ -0,0 +1,108 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import static org.mobicents.servlet.restcomm.dao.DaoUtils.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.dao.SmsCampaignsDao;
+import org.mobicents.servlet.restcomm.entities.SmsCampaign;
+
+@ThreadSafe
+public final class MybatisSmsCampaignsDao implements SmsCampaignsDao {
+    private static final String namespace = "org.mobicents.servlet.sip.restcomm.dao.SmsCampaignsDao.";
+    private final SqlSessionFactory sessions;
+
+    public MybatisSmsCampaignsDao(final SqlSessionFactory sessions) {
+        super();
+        this.sessions = sessions;
+    }
+
+    @Override
+    public void addSmsCampaign(final SmsCampaign smsCampaign) {
+        final SqlSession session = sessions.openSession();
+        try {
+            session.insert(namespace + "addSmsCampaign", toMap(smsCampaign));
+            session.commit();
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public List<SmsCampaign> getUnfinishedSmsCampaigns(final String instanceId) {
+        final SqlSession session = sessions.openSession();
+        try {
+            final List<Map<String, Object>> results = session.selectList(namespace + "getUnfinishedSmsCampaigns",
+                    instanceId);
+            final List<SmsCampaign> smsCampaigns = new ArrayList<SmsCampaign>();
+            if (results != null && !results.isEmpty()) {
+                for (final Map<String, Object> result : results) {
+                    smsCampaigns.add(toSmsCampaign(result));
+                }
+            }
+            return smsCampaigns;
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public void updateSmsCampaign(final SmsCampaign smsCampaign) {
+        final SqlSession session = sessions.openSession();
+        try {
+            session.update(namespace + "updateSmsCampaign", toMap(smsCampaign));
+            session.commit();
+        } finally {
+            session.close();
+        }
+    }
+
+    private Map<String, Object> toMap(final SmsCampaign smsCampaign) {
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("sid", writeSid(smsCampaign.getSid()));
+        map.put("date_created", writeDateTime(smsCampaign.getDateCreated()));
+        map.put("date_updated", writeDateTime(smsCampaign.getDateUpdated()));
+        map.put("account_sid", writeSid(smsCampaign.getAccountSid()));
+        map.put("sender", smsCampaign.getSender());
+        map.put("body", smsCampaign.getBody());
+        map.put("status", smsCampaign.getStatus().toString());
+        map.put("encoding", smsCampaign.getEncoding());
+        map.put("api_version", smsCampaign.getApiVersion());
+        map.put("uri", writeUri(smsCampaign.getUri()));
+        map.put("instanceid", smsCampaign.getInstanceId());
+        return map;
+    }
+
+    private SmsCampaign toSmsCampaign(final Map<String, Object> map) {
+        return new SmsCampaign(readSid(map.get("sid")), readDateTime(map.get("date_created")),
+                readDateTime(map.get("date_updated")), readSid(map.get("account_sid")), readString(map.get("sender")),
+                readString(map.get("body")), SmsCampaign.Status.getStatusValue(readString(map.get("status"))), 0, 0, 0,
+                0, 0, readString(map.get("api_version")), readUri(map.get("uri")), readString(map.get("encoding")),
+                readString(map.get("instanceid")));
+    }
+}
@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 
@@ -62,6 +63,24 @@ public final class MybatisSmsMessagesDao implements SmsMessagesDao {
         }
     }
 
+    @Override
+    public void addSmsMessages(final Sid campaignSid, final List<SmsMessage> smsMessages) {
+        if (smsMessages.isEmpty()) {
+            return;
+        }
+        final SqlSession session = sessions.openSession(ExecutorType.BATCH);
+        try {
+            for (final SmsMessage smsMessage : smsMessages) {
+                final Map<String, Object> map = toMap(smsMessage);
+                map.put("campaign_sid", writeSid(campaignSid));
+                session.insert(namespace + "addSmsCampaignMessage", map);
+            }
+            session.commit();
+        } finally {
+            session.close();
+        }
+    }
+
     @Override
     public SmsMessage getSmsMessage(final Sid sid) {
         final SqlSession session = sessions.openSession();
@@ -79,9 +98,18 @@ public final class MybatisSmsMessagesDao implements SmsMessagesDao {
 
     @Override
     public List<SmsMessage> getSmsMessages(final Sid accountSid) {
+        return getSmsMessages(namespace + "getSmsMessages", accountSid);
+    }
+
+    @Override
+    public List<SmsMessage> getSmsCampaignMessages(final Sid campaignSid) {
+        return getSmsMessages(namespace + "getSmsCampaignMessages", campaignSid);
+    }
+
+    private List<SmsMessage> getSmsMessages(final String selector, final Sid sid) {
         final SqlSession session = sessions.openSession();
         try {
-            final List<Map<String, Object>> results = session.selectList(namespace + "getSmsMessages", accountSid.toString());
+            final List<Map<String, Object>> results = session.selectList(selector, sid.toString());
             final List<SmsMessage> smsMessages = new ArrayList<SmsMessage>();
             if (results != null && !results.isEmpty()) {
                 for (final Map<String, Object> result : results) {
@@ -124,6 +152,22 @@ public final class MybatisSmsMessagesDao implements SmsMessagesDao {
         }
     }
 
+    @Override
+    public void updateSmsMessages(final List<SmsMessage> smsMessages) {
+        if (smsMessages.isEmpty()) {
+            return;
+        }
+        final SqlSession session = sessions.openSession(ExecutorType.BATCH);
+        try {
+            for (final SmsMessage smsMessage : smsMessages) {
+                session.update(namespace + "updateSmsMessage", toMap(smsMessage));
+            }
+            session.commit();
+        } finally {
+            session.close();
+        }
+    }
+
     private Map<String, Object> toMap(final SmsMessage smsMessage) {
         final Map<String, Object> map = new HashMap<String, Object>();
         map.put("sid", writeSid(smsMessage.getSid()));
@@ -19,6 +19,9 @@
  */
 package org.mobicents.servlet.restcomm.dao.mybatis;
 
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.joda.time.DateTime;
@@ -37,47 +40,82 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
 
 import static org.mobicents.servlet.restcomm.dao.DaoUtils.*;
 import static org.mobicents.servlet.restcomm.dao.DaoUtils.readUri;
 
 /**
+ * Answers usage queries from the daily rollup table, reading the raw call and sms records only for the time that has
+ * not been rolled up yet. Until the first rollup run has completed the raw records are queried directly.
+ *
+ * Nodes sharing a database take turns: a category is rolled up by the node holding its lease in the rollup state
+ * table, the others skip it until the lease is released or expires.
+ *
  * @author brainslog@gmail.com (Alexandre Mendonca)
  */
 @ThreadSafe
 public final class MybatisUsageDao implements UsageDao {
 
   private static final String namespace = "org.mobicents.servlet.sip.restcomm.dao.UsageDao.";
+  private static final Usage.Category[] rollupCategories = { Usage.Category.CALLS, Usage.Category.SMS };
+  // The backfill commits every few days worth of rollups so a large history is not rolled up in one transaction.
+  private static final int rollupChunkDays = 7;
+  // Renewed before every chunk, a node that dies mid run holds the lease this long.
+  private static final int rollupLeaseMinutes = 10;
+
+  private enum Period {
+    DAY("yyyy-MM-dd"), MONTH("yyyy-MM"), YEAR("yyyy"), ALL(null);
+
+    private final String pattern;
+
+    private Period(final String pattern) {
+      this.pattern = pattern;
+    }
+
+    private String key(final DateTime day) {
+      return pattern == null ? "" : day.toString(pattern);
+    }
+  }
+
   private final SqlSessionFactory sessions;
+  private final int lookbackHours;
+  private final String leaseOwner = UUID.randomUUID().toString();
 
   public MybatisUsageDao(final SqlSessionFactory sessions) {
+    this(sessions, 24);
+  }
+
+  public MybatisUsageDao(final SqlSessionFactory sessions, final int lookbackHours) {
     super();
     this.sessions = sessions;
+    this.lookbackHours = lookbackHours;
   }
 
   @Override
   public List<Usage> getUsage(final Sid accountSid) {
-    return getUsageCalls(accountSid, null, null, null, "getAllTimeCalls");
+    return getUsageCalls(accountSid, null, null, null, "getAllTimeCalls", Period.ALL);
   }
 
   @Override
   public List<Usage> getUsageDaily(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate) {
-    return getUsageCalls(accountSid, category, startDate, endDate, "getDailyCalls");
+    return getUsageCalls(accountSid, category, startDate, endDate, "getDailyCalls", Period.DAY);
   }
 
   @Override
   public List<Usage> getUsageMonthly(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate) {
-    return getUsageCalls(accountSid, category, startDate, endDate, "getMonthlyCalls");
+    return getUsageCalls(accountSid, category, startDate, endDate, "getMonthlyCalls", Period.MONTH);
   }
 
   @Override
   public List<Usage> getUsageYearly(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate) {
-    return getUsageCalls(accountSid, category, startDate, endDate, "getYearlyCalls");
+    return getUsageCalls(accountSid, category, startDate, endDate, "getYearlyCalls", Period.YEAR);
   }
 
   @Override
   public List<Usage> getUsageAllTime(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate) {
-    return getUsageCalls(accountSid, category, startDate, endDate, "getAllTimeCalls");
+    return getUsageCalls(accountSid, category, startDate, endDate, "getAllTimeCalls", Period.ALL);
   }
 
   /*
@@ -101,16 +139,22 @@ public final class MybatisUsageDao implements UsageDao {
     return getUsageCalls(accountSid, category, startDate, endDate, "getLastMonthCalls");
   }
   */
-  private List<Usage> getUsageCalls(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate, final String queryName) {
-    long startTime = System.currentTimeMillis();
+  private List<Usage> getUsageCalls(final Sid accountSid, Usage.Category category, DateTime startDate, DateTime endDate,
+      final String queryName, final Period period) {
     final SqlSession session = sessions.openSession();
     Map<String, Object> params = new HashMap<String, Object>();
     params.put("sid", accountSid.toString());
-    params.put("startDate", new Date(startDate.getMillis()));
-    params.put("endDate", new Date(endDate.getMillis()));
     fillParametersByCategory(category, params);
     try {
-      final List<Map<String, Object>> results = session.selectList(namespace + queryName, params);
+      final DateTime rolledUntil = getRolledUntil(session, (String) params.get("category"));
+      final List<Map<String, Object>> results;
+      if (rolledUntil == null) {
+        params.put("startDate", new Date(startDate == null ? 0 : startDate.getMillis()));
+        params.put("endDate", new Date(endDate == null ? System.currentTimeMillis() : endDate.getMillis()));
+        results = session.selectList(namespace + queryName, params);
+      } else {
+        results = getRolledUpUsage(session, params, startDate, endDate, rolledUntil, period);
+      }
       final List<Usage> usageRecords = new ArrayList<Usage>();
       if (results != null && !results.isEmpty()) {
         for (final Map<String, Object> result : results) {
@@ -123,6 +167,200 @@ public final class MybatisUsageDao implements UsageDao {
     }
   }
 
+  private List<Map<String, Object>> getRolledUpUsage(final SqlSession session, final Map<String, Object> params,
+      final DateTime startDate, final DateTime endDate, final DateTime rolledUntil, final Period period) {
+    final DateTime from = startDate == null ? null : startDate.withTimeAtStartOfDay();
+    final DateTime to = endDate == null ? null : endDate.withTimeAtStartOfDay().plusDays(1);
+    final Map<String, Map<String, Object>> totals = new TreeMap<String, Map<String, Object>>();
+    // Everything before the rollup watermark comes from the daily rollups.
+    if (from == null || from.isBefore(rolledUntil)) {
+      params.put("from", writeDateTime(from));
+      params.put("to", writeDateTime(to == null || to.isAfter(rolledUntil) ? rolledUntil : to));
+      final List<Map<String, Object>> rollups = session.selectList(namespace + "getDailyRollups", params);
+      for (final Map<String, Object> rollup : rollups) {
+        accumulate(totals, period, readDateTime(rollup.get("period_start")), rollup);
+      }
+    }
+    // The rest, usually just the current hour, comes from the raw records.
+    if (to == null || to.isAfter(rolledUntil)) {
+      params.put("from", writeDateTime(from == null || from.isBefore(rolledUntil) ? rolledUntil : from));
+      params.put("to", writeDateTime(to));
+      final List<Map<String, Object>> rows = session.selectList(namespace + "getRawUsage", params);
+      for (final Map<String, Object> row : rows) {
+        accumulate(totals, period, readDateTime(row.get("day")), row);
+      }
+    }
+    return new ArrayList<Map<String, Object>>(totals.values());
+  }
+
+  private void accumulate(final Map<String, Map<String, Object>> totals, final Period period, final DateTime day,
+      final Map<String, Object> row) {
+    final String apiVersion = readString(row.get("api_version"));
+    final String key = period.key(day) + "|" + apiVersion;
+    final String date = day.toString("yyyy-MM-dd");
+    Map<String, Object> total = totals.get(key);
+    if (total == null) {
+      total = new HashMap<String, Object>();
+      total.put("api_version", apiVersion);
+      total.put("start_date", date);
+      total.put("end_date", date);
+      total.put("count", 0L);
+      total.put("usage", 0L);
+      total.put("price", 0D);
+      total.put("uri", "/todo");
+      totals.put(key, total);
+    }
+    if (date.compareTo((String) total.get("start_date")) < 0) {
+      total.put("start_date", date);
+    }
+    if (date.compareTo((String) total.get("end_date")) > 0) {
+      total.put("end_date", date);
+    }
+    total.put("count", (Long) total.get("count") + toLong(row.get("count")));
+    total.put("usage", (Long) total.get("usage") + toLong(row.get("usage")));
+    total.put("price", (Double) total.get("price") + toDouble(row.get("price")));
+  }
+
+  @Override
+  public void updateUsageRollups(final DateTime now) {
+    final DateTime until = now.hourOfDay().roundFloorCopy();
+    for (final Usage.Category category : rollupCategories) {
+      final Map<String, Object> params = fillParametersByCategory(category, new HashMap<String, Object>());
+      final String name = (String) params.get("category");
+      if (!acquireLease(name)) {
+        // Another node is rolling this category up.
+        continue;
+      }
+      try {
+        DateTime from = null;
+        final SqlSession session = sessions.openSession();
+        try {
+          final DateTime rolledUntil = getRolledUntil(session, name);
+          if (rolledUntil == null) {
+            // First run, backfill from the oldest raw record.
+            final Map<String, Object> earliest = session.selectOne(namespace + "getEarliestRawUsage", params);
+            from = earliest == null ? null : readDateTime(earliest.get("date_created"));
+          } else {
+            // Records are updated after they are created, calls when they end for instance, so recompute the last hours.
+            from = rolledUntil;
+            if (from.isAfter(now.minusHours(lookbackHours))) {
+              from = now.minusHours(lookbackHours);
+            }
+          }
+        } finally {
+          session.close();
+        }
+        from = from == null ? until : from.withTimeAtStartOfDay();
+        do {
+          final DateTime to = from.plusDays(rollupChunkDays).isBefore(until) ? from.plusDays(rollupChunkDays) : until;
+          if (!rollup(params, from, to)) {
+            break;
+          }
+          from = to;
+        } while (from.isBefore(until) && acquireLease(name));
+      } finally {
+        releaseLease(name);
+      }
+    }
+  }
+
+  // Returns false, leaving the rollups untouched, when the lease was lost to another node.
+  private boolean rollup(final Map<String, Object> params, final DateTime from, final DateTime to) {
+    final String category = (String) params.get("category");
+    final SqlSession session = sessions.openSession(ExecutorType.BATCH);
+    try {
+      params.put("from", writeDateTime(from));
+      params.put("to", writeDateTime(to));
+      final List<Map<String, Object>> rows = from.isBefore(to) ? session.<Map<String, Object>> selectList(namespace
+          + "getRawUsage", params) : new ArrayList<Map<String, Object>>();
+      session.delete(namespace + "removeRollups", params);
+      for (final Map<String, Object> row : rows) {
+        session.insert(namespace + "addRollup", toRollup(row, category, "day", readDateTime(row.get("day"))));
+      }
+      final Map<String, Object> state = new HashMap<String, Object>();
+      state.put("category", category);
+      state.put("owner", leaseOwner);
+      state.put("rolled_until", writeDateTime(to));
+      session.update(namespace + "updateRollupState", state);
+      // Batched statements only report their update counts once flushed.
+      final List<BatchResult> results = session.flushStatements();
+      final int[] counts = results.get(results.size() - 1).getUpdateCounts();
+      if (counts.length > 0 && counts[0] == 0) {
+        session.rollback();
+        return false;
+      }
+      session.commit();
+      return true;
+    } finally {
+      session.close();
+    }
+  }
+
+  private boolean acquireLease(final String category) {
+    final DateTime now = DateTime.now();
+    final Map<String, Object> lease = new HashMap<String, Object>();
+    lease.put("category", category);
+    lease.put("owner", leaseOwner);
+    lease.put("now", writeDateTime(now));
+    lease.put("expires", writeDateTime(now.plusMinutes(rollupLeaseMinutes)));
+    final SqlSession session = sessions.openSession();
+    try {
+      if (session.update(namespace + "acquireRollupLease", lease) == 0) {
+        try {
+          session.insert(namespace + "addRollupLease", lease);
+        } catch (final PersistenceException exception) {
+          // The category is there, its lease is held by another node.
+          return false;
+        }
+      }
+      session.commit();
+      return true;
+    } finally {
+      session.close();
+    }
+  }
+
+  private void releaseLease(final String category) {
+    final Map<String, Object> lease = new HashMap<String, Object>();
+    lease.put("category", category);
+    lease.put("owner", leaseOwner);
+    final SqlSession session = sessions.openSession();
+    try {
+      session.update(namespace + "releaseRollupLease", lease);
+      session.commit();
+    } finally {
+      session.close();
+    }
+  }
+
+  private Map<String, Object> toRollup(final Map<String, Object> row, final String category, final String granularity,
+      final DateTime periodStart) {
+    final Map<String, Object> rollup = new HashMap<String, Object>();
+    rollup.put("account_sid", row.get("account_sid"));
+    rollup.put("api_version", row.get("api_version"));
+    rollup.put("category", category);
+    rollup.put("granularity", granularity);
+    rollup.put("period_start", writeDateTime(periodStart));
+    rollup.put("count", toLong(row.get("count")));
+    rollup.put("usage", toLong(row.get("usage")));
+    rollup.put("price", toDouble(row.get("price")));
+    return rollup;
+  }
+
+  private DateTime getRolledUntil(final SqlSession session, final String category) {
+    final Map<String, Object> state = session.selectOne(namespace + "getRollupState", category);
+    return state == null ? null : readDateTime(state.get("rolled_until"));
+  }
+
+  // Aggregates come back as Integer, Long, BigInteger or BigDecimal depending on the database.
+  private static long toLong(final Object number) {
+    return number == null ? 0 : ((Number) number).longValue();
+  }
+
+  private static double toDouble(final Object number) {
+    return number == null ? 0 : ((Number) number).doubleValue();
+  }
+
   private Usage toUsageRecord(final Sid accountSid, final Map<String, Object> map) {
     final Usage.Category category = Usage.Category.CALLS;
     final String description = "Total Calls";
@@ -156,6 +394,7 @@ public final class MybatisUsageDao implements UsageDao {
       case CALLS_CLIENT:
       case CALLS_SIP:
         params.put("tableName", "restcomm_call_detail_records");
+        params.put("category", "calls");
         params.put("usageExprPre", "COALESCE(SUM(");
         params.put("usageExprCol", "duration");
         params.put("usageExprSuf", "),0)");
@@ -168,6 +407,7 @@ public final class MybatisUsageDao implements UsageDao {
       case SMS_OUTBOUND_SHORTCODE:
       case SMS_OUTBOUND_LONGCODE:
         params.put("tableName", "restcomm_sms_messages");
+        params.put("category", "sms");
         params.put("usageExprPre", "COUNT(");
         params.put("usageExprCol", "sid");
         params.put("usageExprSuf", ")");
@@ -186,6 +426,7 @@ public final class MybatisUsageDao implements UsageDao {
       case TOTALPRICE:
       default:
         params.put("tableName", "restcomm_call_detail_records");
+        params.put("category", "calls");
         params.put("usageExprPre", "COALESCE(SUM(");
         params.put("usageExprCol", "duration");
         params.put("usageExprSuf", "),0)");
@@ -34,7 +34,7 @@ public final class Sid {
     private final String id;
 
     public enum Type {
-        ACCOUNT, APPLICATION, ANNOUNCEMENT, CALL, CLIENT, CONFERENCE, GATEWAY, INVALID, NOTIFICATION, PHONE_NUMBER, RECORDING, REGISTRATION, SHORT_CODE, SMS_MESSAGE, TRANSCRIPTION, INSTANCE
+        ACCOUNT, APPLICATION, ANNOUNCEMENT, CALL, CLIENT, CONFERENCE, GATEWAY, INVALID, NOTIFICATION, PHONE_NUMBER, RECORDING, REGISTRATION, SHORT_CODE, SMS_MESSAGE, SMS_CAMPAIGN, TRANSCRIPTION, INSTANCE
     };
 
     private static final Sid INVALID_SID = new Sid("IN00000000000000000000000000000000");
@@ -124,6 +124,9 @@ public final class Sid {
             case SMS_MESSAGE: {
                 return new Sid("SM" + uuid);
             }
+            case SMS_CAMPAIGN: {
+                return new Sid("MC" + uuid);
+            }
             case TRANSCRIPTION: {
                 return new Sid("TR" + uuid);
             }
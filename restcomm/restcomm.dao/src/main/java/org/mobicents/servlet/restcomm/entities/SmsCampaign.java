@@ -0,0 +1,162 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.entities;
+
+import java.net.URI;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+
+/**
+ * A snapshot of the progress of a bulk outbound sms campaign. The messages of a campaign are stored as regular
+ * {@link SmsMessage} records tagged with the campaign sid. The stored campaign keeps what is needed to resume sending
+ * on the instance that accepted it, the counters are rebuilt from the messages.
+ */
+@Immutable
+public final class SmsCampaign {
+    private final Sid sid;
+    private final DateTime dateCreated;
+    private final DateTime dateUpdated;
+    private final Sid accountSid;
+    private final String sender;
+    private final String body;
+    private final Status status;
+    private final int total;
+    private final int queued;
+    private final int sending;
+    private final int sent;
+    private final int failed;
+    private final String apiVersion;
+    private final URI uri;
+    private final String encoding;
+    private final String instanceId;
+
+    public SmsCampaign(final Sid sid, final DateTime dateCreated, final DateTime dateUpdated, final Sid accountSid,
+            final String sender, final String body, final Status status, final int total, final int queued,
+            final int sending, final int sent, final int failed, final String apiVersion, final URI uri,
+            final String encoding, final String instanceId) {
+        super();
+        this.sid = sid;
+        this.dateCreated = dateCreated;
+        this.dateUpdated = dateUpdated;
+        this.accountSid = accountSid;
+        this.sender = sender;
+        this.body = body;
+        this.status = status;
+        this.total = total;
+        this.queued = queued;
+        this.sending = sending;
+        this.sent = sent;
+        this.failed = failed;
+        this.apiVersion = apiVersion;
+        this.uri = uri;
+        this.encoding = encoding;
+        this.instanceId = instanceId;
+    }
+
+    public Sid getSid() {
+        return sid;
+    }
+
+    public DateTime getDateCreated() {
+        return dateCreated;
+    }
+
+    public DateTime getDateUpdated() {
+        return dateUpdated;
+    }
+
+    public Sid getAccountSid() {
+        return accountSid;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getSending() {
+        return sending;
+    }
+
+    public int getSent() {
+        return sent;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public enum Status {
+        QUEUED("queued"), SENDING("sending"), COMPLETED("completed"), CANCELED("canceled");
+
+        private final String text;
+
+        private Status(final String text) {
+            this.text = text;
+        }
+
+        public static Status getStatusValue(final String text) {
+            final Status[] values = values();
+            for (final Status value : values) {
+                if (value.toString().equals(text)) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException(text + " is not a valid status.");
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
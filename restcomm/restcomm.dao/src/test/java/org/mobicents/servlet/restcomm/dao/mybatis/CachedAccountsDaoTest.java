@@ -0,0 +1,75 @@
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import junit.framework.Assert;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.CachedAccountsDao;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+public class CachedAccountsDaoTest extends DaoTest {
+    private static MybatisDaoManager manager;
+    private CachedAccountsDao dao;
+
+    public CachedAccountsDaoTest() {
+        super();
+    }
+
+    @Before
+    public void before() throws Exception {
+        sandboxRoot = createTempDir("cachedAccountsTest");
+        String mybatisFilesPath = getClass().getResource("/accountsDao").getFile();
+        setupSandbox(mybatisFilesPath, sandboxRoot);
+
+        String mybatisXmlPath = sandboxRoot.getPath() + "/mybatis_updated.xml";
+        final InputStream data = new FileInputStream(mybatisXmlPath);
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        final SqlSessionFactory factory = builder.build(data);
+        manager = new MybatisDaoManager();
+        manager.start(factory);
+        dao = new CachedAccountsDao(manager.getAccountsDao(), 60, 100);
+    }
+
+    @After
+    public void after() throws Exception {
+        manager.shutdown();
+        removeTempDir(sandboxRoot.getAbsolutePath());
+    }
+
+    @Test
+    public void repeatedReadsAreServedFromCache() {
+        final Sid sid = new Sid("AC00000000000000000000000000000000");
+        Assert.assertNotNull(dao.getAccount(sid));
+        Assert.assertNotNull(dao.getAccount(sid));
+        Assert.assertNotNull(dao.getAccount(sid));
+        Assert.assertEquals(1, dao.stats().missCount());
+        Assert.assertEquals(2, dao.stats().hitCount());
+        Assert.assertEquals(5, dao.getSubAccountSidsRecursive(sid).size());
+        Assert.assertEquals(5, dao.getSubAccountSidsRecursive(sid).size());
+        Assert.assertEquals(3, dao.stats().hitCount());
+    }
+
+    @Test
+    public void missingAccountsAreCached() {
+        final Sid sid = new Sid("AC59494830204948392023934839392092");
+        Assert.assertNull(dao.getAccount(sid));
+        Assert.assertNull(dao.getAccount(sid));
+        Assert.assertEquals(1, dao.stats().hitCount());
+    }
+
+    @Test
+    public void updatesAreVisibleImmediately() {
+        final Sid sid = new Sid("AC00000000000000000000000000000000");
+        final Account account = dao.getAccount(sid);
+        Assert.assertNotNull(dao.getAccountToAuthenticate(sid.toString()));
+        dao.updateAccount(account.setStatus(Account.Status.SUSPENDED));
+        Assert.assertEquals(Account.Status.SUSPENDED, dao.getAccount(sid).getStatus());
+        Assert.assertEquals(Account.Status.SUSPENDED, dao.getAccountToAuthenticate(sid.toString()).getStatus());
+    }
+}
@@ -22,6 +22,7 @@ package org.mobicents.servlet.restcomm.dao.mybatis;
 import static org.junit.Assert.*;
 
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.net.URI;
@@ -37,6 +38,7 @@ import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.CallDetailRecordHandler;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
 import org.mobicents.servlet.restcomm.entities.CallDetailRecordFilter;
@@ -449,4 +451,39 @@ public class CallDetailRecordsDaoTest extends DaoTest {
         filter = new CallDetailRecordFilter("AC00000000000000000000000000000000", null, null, null, null, null, null, null, null, null, null);
         Assert.assertEquals(12, dao.getTotalCallDetailRecords(filter).intValue());
     }
+
+    @Test
+    public void exportAccountCdrs() throws Exception {
+        CallDetailRecordsDao dao = manager.getCallDetailRecordsDao();
+        List<String> accountSidSet = new ArrayList<String>();
+        accountSidSet.add("AC00000000000000000000000000000000");
+        accountSidSet.add("AC11111111111111111111111111111111");
+        accountSidSet.add("AC22222222222222222222222222222222");
+        // paging parameters are not needed, everything that matches is streamed
+        CallDetailRecordFilter filter = new CallDetailRecordFilter(null, accountSidSet, null, null, null, null, null, null, null, null, null);
+        final List<CallDetailRecord> exported = new ArrayList<CallDetailRecord>();
+        dao.exportCallDetailRecords(filter, new CallDetailRecordHandler() {
+            @Override
+            public void handle(final CallDetailRecord cdr) throws IOException {
+                exported.add(cdr);
+            }
+        });
+        Assert.assertEquals(25, exported.size());
+        // an I/O failure in the handler stops the export and reaches the caller
+        final int[] handled = new int[1];
+        try {
+            dao.exportCallDetailRecords(filter, new CallDetailRecordHandler() {
+                @Override
+                public void handle(final CallDetailRecord cdr) throws IOException {
+                    if (++handled[0] == 3) {
+                        throw new IOException("Broken pipe");
+                    }
+                }
+            });
+            Assert.fail("The handler failure was swallowed");
+        } catch (final IOException exception) {
+            Assert.assertEquals("Broken pipe", exception.getMessage());
+        }
+        Assert.assertEquals(3, handled[0]);
+    }
 }
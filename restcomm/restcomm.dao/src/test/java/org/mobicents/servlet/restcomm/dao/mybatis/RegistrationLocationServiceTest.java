@@ -0,0 +1,146 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.RegistrationLocationService;
+import org.mobicents.servlet.restcomm.dao.RegistrationsDao;
+import org.mobicents.servlet.restcomm.entities.Registration;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+public final class RegistrationLocationServiceTest {
+    private MybatisDaoManager manager;
+    private RegistrationsDao database;
+    private RegistrationLocationService service;
+
+    @Before
+    public void before() {
+        final InputStream data = getClass().getResourceAsStream("/mybatis.xml");
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        final SqlSessionFactory factory = builder.build(data);
+        manager = new MybatisDaoManager();
+        manager.start(factory);
+        database = manager.getRegistrationsDao();
+        service = new RegistrationLocationService(database, 120);
+    }
+
+    @After
+    public void after() {
+        service.shutdown();
+        for (final Registration registration : database.getRegistrations()) {
+            database.removeRegistration(registration);
+        }
+        manager.shutdown();
+    }
+
+    private static Registration registration(final String user, final String location, final DateTime expires) {
+        final DateTime now = DateTime.now();
+        return new Registration(Sid.generate(Sid.Type.REGISTRATION), "instanceId", now, now, expires, "sip:" + user + "@company.com",
+                user, user, "TestUserAgent/1.0", 3600, location, false, false);
+    }
+
+    @Test
+    public void lookupsAreServedFromMemoryAndPersistedInTheBackground() {
+        final String user = "alice_" + System.nanoTime();
+        final Registration registration = registration(user, "sip:" + user + "@192.168.1.10:5060", DateTime.now().plusHours(1));
+        service.addRegistration(registration);
+        assertTrue(service.hasRegistration(registration));
+        assertEquals(registration.getSid(), service.getRegistration(user).getSid());
+        assertFalse(database.hasRegistration(registration));
+        service.flush();
+        assertTrue(database.hasRegistration(registration));
+        assertEquals(1, service.writes());
+        service.removeRegistration(registration);
+        assertNull(service.getRegistrations(user));
+        service.flush();
+        assertFalse(database.hasRegistration(registration));
+        assertEquals(2, service.writes());
+    }
+
+    @Test
+    public void keepAlivesAreNotWrittenEveryTime() {
+        final String user = "bob_" + System.nanoTime();
+        Registration registration = registration(user, "sip:" + user + "@192.168.1.11:5060", DateTime.now().plusHours(1));
+        service.addRegistration(registration);
+        service.flush();
+        for (int pong = 0; pong < 5; pong++) {
+            registration = service.getRegistration(user).updated();
+            service.updateRegistration(registration);
+            service.flush();
+        }
+        assertEquals(1, service.writes());
+        // A new expiration time is always written
+        service.updateRegistration(registration.setTimeToLive(1800));
+        service.flush();
+        assertEquals(2, service.writes());
+    }
+
+    @Test
+    public void registrationsExpireOnTheWheel() {
+        final String user = "carol_" + System.nanoTime();
+        final Registration registration = registration(user, "sip:" + user + "@192.168.1.12:5060", DateTime.now().plusSeconds(2));
+        final Registration other = registration(user, "sip:" + user + "@192.168.1.13:5060", DateTime.now().plusHours(1));
+        service.addRegistration(registration);
+        service.addRegistration(other);
+        service.flush();
+        final List<Registration> expired = new ArrayList<Registration>();
+        service.setListener(new RegistrationLocationService.Listener() {
+            @Override
+            public void expired(final Registration registration) {
+                expired.add(registration);
+            }
+        });
+        service.expire(System.currentTimeMillis() + 5000);
+        assertEquals(1, expired.size());
+        assertEquals(registration.getLocation(), expired.get(0).getLocation());
+        assertEquals(1, service.getRegistrations(user).size());
+        service.flush();
+        assertFalse(database.hasRegistration(registration));
+        assertTrue(database.hasRegistration(other));
+    }
+
+    @Test
+    public void registrationsAreRecoveredFromTheDatabase() {
+        final String user = "dave_" + System.nanoTime();
+        final Registration registration = registration(user, "sip:" + user + "@192.168.1.14:5060", DateTime.now().plusHours(1));
+        database.addRegistration(registration);
+        final RegistrationLocationService restarted = new RegistrationLocationService(database, 120);
+        try {
+            assertEquals(registration.getSid(), restarted.getRegistration(user).getSid());
+            assertEquals(1, restarted.getRegistrations(user).size());
+        } finally {
+            restarted.shutdown();
+        }
+    }
+}
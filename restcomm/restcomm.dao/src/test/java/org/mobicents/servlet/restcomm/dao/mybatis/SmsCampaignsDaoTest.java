@@ -0,0 +1,101 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.joda.time.DateTime;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.SmsCampaignsDao;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.entities.SmsCampaign;
+
+public final class SmsCampaignsDaoTest extends DaoTest {
+    private static MybatisDaoManager manager;
+
+    public SmsCampaignsDaoTest() {
+        super();
+    }
+
+    @Before
+    public void before() throws Exception {
+        sandboxRoot = createTempDir("smsCampaignsTest");
+        String mybatisFilesPath = getClass().getResource("/smsMessagesDao").getFile();
+        setupSandbox(mybatisFilesPath, sandboxRoot);
+
+        String mybatisXmlPath = sandboxRoot.getPath() + "/mybatis_updated.xml";
+        final InputStream data = new FileInputStream(mybatisXmlPath);
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        final SqlSessionFactory factory = builder.build(data);
+        manager = new MybatisDaoManager();
+        manager.start(factory);
+    }
+
+    @After
+    public void after() {
+        manager.shutdown();
+        removeTempDir(sandboxRoot.getAbsolutePath());
+    }
+
+    private SmsCampaign campaign(final String instanceId) {
+        final Sid sid = Sid.generate(Sid.Type.SMS_CAMPAIGN);
+        final URI uri = URI.create("2012-04-24/Accounts/Account/SMS/Campaigns/" + sid + ".json");
+        return new SmsCampaign(sid, DateTime.now(), DateTime.now(), Sid.generate(Sid.Type.ACCOUNT), "+17778889999",
+                "Hello World!", SmsCampaign.Status.QUEUED, 0, 0, 0, 0, 0, "2012-04-24", uri, "GSM", instanceId);
+    }
+
+    @Test
+    public void unfinishedCampaignsAreReadPerInstance() {
+        final SmsCampaignsDao campaigns = manager.getSmsCampaignsDao();
+        final SmsCampaign first = campaign("instance-1");
+        final SmsCampaign second = campaign("instance-1");
+        campaigns.addSmsCampaign(first);
+        campaigns.addSmsCampaign(second);
+        campaigns.addSmsCampaign(campaign("instance-2"));
+        List<SmsCampaign> unfinished = campaigns.getUnfinishedSmsCampaigns("instance-1");
+        assertEquals(2, unfinished.size());
+        final SmsCampaign result = unfinished.get(0).getSid().equals(first.getSid()) ? unfinished.get(0) : unfinished.get(1);
+        assertEquals(first.getAccountSid(), result.getAccountSid());
+        assertEquals("+17778889999", result.getSender());
+        assertEquals("Hello World!", result.getBody());
+        assertEquals("GSM", result.getEncoding());
+        assertEquals(first.getUri(), result.getUri());
+        assertEquals("instance-1", result.getInstanceId());
+        assertTrue(result.getStatus() == SmsCampaign.Status.QUEUED);
+        // Completed and canceled campaigns are not resumed.
+        campaigns.updateSmsCampaign(new SmsCampaign(first.getSid(), first.getDateCreated(), DateTime.now(),
+                first.getAccountSid(), first.getSender(), first.getBody(), SmsCampaign.Status.COMPLETED, 0, 0, 0, 0, 0,
+                first.getApiVersion(), first.getUri(), first.getEncoding(), first.getInstanceId()));
+        campaigns.updateSmsCampaign(new SmsCampaign(second.getSid(), second.getDateCreated(), DateTime.now(),
+                second.getAccountSid(), second.getSender(), second.getBody(), SmsCampaign.Status.CANCELED, 0, 0, 0, 0,
+                0, second.getApiVersion(), second.getUri(), second.getEncoding(), second.getInstanceId()));
+        unfinished = campaigns.getUnfinishedSmsCampaigns("instance-1");
+        assertTrue(unfinished.isEmpty());
+        assertEquals(1, campaigns.getUnfinishedSmsCampaigns("instance-2").size());
+    }
+}
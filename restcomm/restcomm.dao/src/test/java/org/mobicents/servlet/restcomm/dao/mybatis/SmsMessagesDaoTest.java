@@ -19,10 +19,13 @@
  */
 package org.mobicents.servlet.restcomm.dao.mybatis;
 
+import java.io.FileInputStream;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.List;
 
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
@@ -38,7 +41,7 @@ import org.mobicents.servlet.restcomm.entities.SmsMessage;
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
  */
-public final class SmsMessagesDaoTest {
+public final class SmsMessagesDaoTest extends DaoTest {
     private static MybatisDaoManager manager;
 
     public SmsMessagesDaoTest() {
@@ -46,8 +49,13 @@ public final class SmsMessagesDaoTest {
     }
 
     @Before
-    public void before() {
-        final InputStream data = getClass().getResourceAsStream("/mybatis.xml");
+    public void before() throws Exception {
+        sandboxRoot = createTempDir("smsMessagesTest");
+        String mybatisFilesPath = getClass().getResource("/smsMessagesDao").getFile();
+        setupSandbox(mybatisFilesPath, sandboxRoot);
+
+        String mybatisXmlPath = sandboxRoot.getPath() + "/mybatis_updated.xml";
+        final InputStream data = new FileInputStream(mybatisXmlPath);
         final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
         final SqlSessionFactory factory = builder.build(data);
         manager = new MybatisDaoManager();
@@ -57,6 +65,7 @@ public final class SmsMessagesDaoTest {
     @After
     public void after() {
         manager.shutdown();
+        removeTempDir(sandboxRoot.getAbsolutePath());
     }
 
     @Test
@@ -141,4 +150,51 @@ public final class SmsMessagesDaoTest {
         // Validate the results.
         assertTrue(messages.getSmsMessages(account).size() == 0);
     }
+
+    @Test
+    public void testBatchInsert() {
+        final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+        final Sid campaign = Sid.generate(Sid.Type.SMS_CAMPAIGN);
+        final URI url = URI.create("2012-04-24/Accounts/Acoount/SMS/Messages/unique-id.json");
+        final List<SmsMessage> batch = new ArrayList<SmsMessage>();
+        for (int i = 0; i < 25; i++) {
+            final SmsMessage.Builder builder = SmsMessage.builder();
+            builder.setSid(Sid.generate(Sid.Type.SMS_MESSAGE));
+            builder.setAccountSid(account);
+            builder.setApiVersion("2012-04-24");
+            builder.setRecipient("+1222333" + (4000 + i));
+            builder.setSender("+17778889999");
+            builder.setBody("Hello World!");
+            builder.setStatus(SmsMessage.Status.QUEUED);
+            builder.setDirection(SmsMessage.Direction.OUTBOUND_API);
+            builder.setPrice(new BigDecimal("0.00"));
+            builder.setPriceUnit(Currency.getInstance("USD"));
+            builder.setUri(url);
+            batch.add(builder.build());
+        }
+        final SmsMessagesDao messages = manager.getSmsMessagesDao();
+        // Create all the messages in a single batch.
+        messages.addSmsMessages(campaign, batch);
+        // Validate the results.
+        assertEquals(25, messages.getSmsMessages(account).size());
+        assertEquals(25, messages.getSmsCampaignMessages(campaign).size());
+        assertTrue(messages.getSmsCampaignMessages(Sid.generate(Sid.Type.SMS_CAMPAIGN)).isEmpty());
+        final SmsMessage result = messages.getSmsMessage(batch.get(7).getSid());
+        assertEquals("+12223334007", result.getRecipient());
+        assertTrue(result.getStatus() == SmsMessage.Status.QUEUED);
+        // Update all the messages in a single batch.
+        final List<SmsMessage> updates = new ArrayList<SmsMessage>();
+        for (final SmsMessage message : batch) {
+            updates.add(message.setStatus(SmsMessage.Status.SENT));
+        }
+        messages.updateSmsMessages(updates);
+        for (final SmsMessage message : messages.getSmsMessages(account)) {
+            assertTrue(message.getStatus() == SmsMessage.Status.SENT);
+        }
+        // An empty batch is a no-op.
+        messages.addSmsMessages(campaign, new ArrayList<SmsMessage>());
+        messages.updateSmsMessages(new ArrayList<SmsMessage>());
+        messages.removeSmsMessages(account);
+        assertTrue(messages.getSmsMessages(account).isEmpty());
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.dao.mybatis;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Currency;
+import java.util.List;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.joda.time.DateTime;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
+import org.mobicents.servlet.restcomm.dao.UsageDao;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.entities.SmsMessage;
+import org.mobicents.servlet.restcomm.entities.Usage;
+
+public final class UsageDaoTest {
+    private static MybatisDaoManager manager;
+    private static SqlSessionFactory factory;
+    private final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+    private final DateTime now = DateTime.now().withTime(12, 30, 0, 0);
+
+    public UsageDaoTest() {
+        super();
+    }
+
+    @Before
+    public void before() {
+        final InputStream data = getClass().getResourceAsStream("/mybatis.xml");
+        final SqlSessionFactoryBuilder builder = new SqlSessionFactoryBuilder();
+        factory = builder.build(data);
+        manager = new MybatisDaoManager();
+        manager.start(factory);
+    }
+
+    @After
+    public void after() throws Exception {
+        manager.getSmsMessagesDao().removeSmsMessages(account);
+        final SqlSession session = factory.openSession();
+        try {
+            final Connection connection = session.getConnection();
+            final Statement statement = connection.createStatement();
+            statement.execute("DELETE FROM \"restcomm_usage_rollups\"");
+            statement.execute("DELETE FROM \"restcomm_usage_rollup_state\"");
+            statement.close();
+            connection.commit();
+        } finally {
+            session.close();
+        }
+        manager.shutdown();
+    }
+
+    private int execute(final String sql) throws Exception {
+        final SqlSession session = factory.openSession();
+        try {
+            final Connection connection = session.getConnection();
+            final Statement statement = connection.createStatement();
+            int result;
+            if (statement.execute(sql)) {
+                final ResultSet results = statement.getResultSet();
+                results.next();
+                result = results.getInt(1);
+            } else {
+                result = statement.getUpdateCount();
+            }
+            statement.close();
+            connection.commit();
+            return result;
+        } finally {
+            session.close();
+        }
+    }
+
+    private void addSmsMessage(final DateTime dateCreated) {
+        final SmsMessagesDao messages = manager.getSmsMessagesDao();
+        final URI url = URI.create("2012-04-24/Accounts/Acoount/SMS/Messages/unique-id.json");
+        messages.addSmsMessage(new SmsMessage(Sid.generate(Sid.Type.SMS_MESSAGE), dateCreated, dateCreated, dateCreated,
+                account, "+17778889999", "+12223334444", "Hello World!", SmsMessage.Status.SENT,
+                SmsMessage.Direction.OUTBOUND_API, new BigDecimal("0.05"), Currency.getInstance("USD"), "2012-04-24", url));
+    }
+
+    @Test
+    public void rawUsageBeforeFirstRollup() {
+        final UsageDao usage = new MybatisUsageDao(factory);
+        addSmsMessage(now.minusDays(2).withHourOfDay(9));
+        addSmsMessage(now.minusDays(1).withHourOfDay(9));
+        final List<Usage> daily = usage.getUsageDaily(account, Usage.Category.SMS, now.minusDays(3), now);
+        assertEquals(2, daily.size());
+    }
+
+    @Test
+    public void rollupsAndCurrentHour() {
+        final UsageDao usage = new MybatisUsageDao(factory, 24 * 7);
+        addSmsMessage(now.minusDays(2).withHourOfDay(9));
+        addSmsMessage(now.minusDays(2).withHourOfDay(10));
+        addSmsMessage(now.minusDays(1).withHourOfDay(9));
+        usage.updateUsageRollups(now);
+        // Rolling up again must not count anything twice.
+        usage.updateUsageRollups(now);
+        // Not rolled up yet, it is in the current hour.
+        addSmsMessage(now.withMinuteOfHour(10));
+        final List<Usage> daily = usage.getUsageDaily(account, Usage.Category.SMS, now.minusDays(3), now);
+        assertEquals(3, daily.size());
+        assertEquals(Long.valueOf(2), daily.get(0).getCount());
+        assertEquals(now.minusDays(2).toLocalDate(), daily.get(0).getStartDate().toLocalDate());
+        assertEquals(Long.valueOf(1), daily.get(1).getCount());
+        assertEquals(Long.valueOf(1), daily.get(2).getCount());
+        assertEquals(now.toLocalDate(), daily.get(2).getStartDate().toLocalDate());
+        final List<Usage> all = usage.getUsageAllTime(account, Usage.Category.SMS, null, null);
+        assertEquals(1, all.size());
+        assertEquals(Long.valueOf(4), all.get(0).getCount());
+        assertEquals(0, new BigDecimal("0.20").compareTo(all.get(0).getPrice()));
+        long monthly = 0;
+        for (final Usage month : usage.getUsageMonthly(account, Usage.Category.SMS, now.minusDays(3), now)) {
+            monthly += month.getCount();
+        }
+        assertEquals(4, monthly);
+    }
+
+    @Test
+    public void categoriesLeasedByAnotherNodeAreSkipped() throws Exception {
+        final UsageDao usage = new MybatisUsageDao(factory, 24 * 7);
+        addSmsMessage(now.minusDays(1).withHourOfDay(9));
+        addSmsMessage(now.minusDays(1).withHourOfDay(10));
+        execute("INSERT INTO \"restcomm_usage_rollup_state\" (\"category\", \"lease_owner\", \"lease_expires\") VALUES ('sms', 'other-node', '"
+                + new Timestamp(DateTime.now().plusMinutes(5).getMillis()) + "')");
+        usage.updateUsageRollups(now);
+        assertEquals(0, execute("SELECT COUNT(*) FROM \"restcomm_usage_rollups\" WHERE \"account_sid\"='" + account + "'"));
+        assertEquals(2, (long) usage.getUsageDaily(account, Usage.Category.SMS, now.minusDays(3), now).get(0).getCount());
+        // Once the other node is gone its lease expires.
+        execute("UPDATE \"restcomm_usage_rollup_state\" SET \"lease_expires\"='"
+                + new Timestamp(DateTime.now().minusMinutes(1).getMillis()) + "'");
+        usage.updateUsageRollups(now);
+        // Only daily rollups are written, the current day is completed from the raw records when read.
+        assertEquals(1, execute("SELECT COUNT(*) FROM \"restcomm_usage_rollups\" WHERE \"account_sid\"='" + account + "'"));
+        assertEquals(0, execute("SELECT COUNT(*) FROM \"restcomm_usage_rollup_state\" WHERE \"lease_owner\" IS NOT NULL"));
+        assertEquals(2, (long) usage.getUsageDaily(account, Usage.Category.SMS, now.minusDays(3), now).get(0).getCount());
+    }
+}
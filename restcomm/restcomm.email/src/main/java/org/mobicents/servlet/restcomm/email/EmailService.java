@@ -35,7 +35,6 @@ import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.PasswordAuthentication;
 import javax.mail.Session;
-import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 import java.util.ArrayList;
@@ -43,9 +42,19 @@ import java.util.List;
 import java.util.Properties;
 
 /**
+ * Sends the messages through a {@link SmtpDeliveryEngine} sized by the pool-size, queue-size, attempts and backoff
+ * attributes of the smtp section, and answers every request with an {@link EmailResponse} once the message is delivered
+ * or given up on. The actor is never blocked on the mail server.
+ *
  * @author liblefty@gmail.com (Lefteris Banos)
  */
 public class EmailService extends UntypedActor  {
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+    private static final int DEFAULT_ATTEMPTS = 3;
+    private static final long DEFAULT_BACKOFF = 1000;
+    private static final long DEFAULT_TIMEOUT = 30000;
+    private static final long DEFAULT_IDLE = 60000;
 
     final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
     private final List<ActorRef> observers;
@@ -55,15 +64,25 @@ public class EmailService extends UntypedActor  {
     private String port;
     private String user;
     private String password;
+    private final SmtpDeliveryEngine engine;
 
     public EmailService(final Configuration config) {
+        this("email", config);
+    }
+
+    /**
+     * @param name identifies the service in the logs and the metrics.
+     */
+    public EmailService(final String name, final Configuration config) {
         this.observers = new ArrayList<ActorRef>();
         configuration = config;
         host = configuration.getString("host");
         port = configuration.getString("port");
         user = configuration.getString("user");
         password = configuration.getString("password");
-        final Properties properties = System.getProperties();
+        // Keep the settings of each smtp section apart now that several services live side by side.
+        final Properties properties = new Properties();
+        properties.putAll(System.getProperties());
         properties.setProperty("mail.smtp.host", host);
         if (user != null && !user.isEmpty()) {
             properties.setProperty("mail.smtp.user", user);
@@ -79,6 +98,10 @@ public class EmailService extends UntypedActor  {
         properties.setProperty("mail.transport.protocol", "smtps");
         // properties.setProperty("mail.smtp.ssl.enable", "true");
         properties.setProperty("mail.smtp.auth", "true");
+        // Bound every exchange with the server so a slow or unreachable one ends in a retry instead of a stuck sender.
+        final String timeout = Long.toString(configuration.getLong("[@timeout]", DEFAULT_TIMEOUT));
+        properties.setProperty("mail.smtp.connectiontimeout", timeout);
+        properties.setProperty("mail.smtp.timeout", timeout);
 
         session = Session.getInstance(properties,
                 new javax.mail.Authenticator() {
@@ -86,6 +109,18 @@ public class EmailService extends UntypedActor  {
                         return new PasswordAuthentication(user, password);
                     }
                 });
+        final int size = Math.max(1, configuration.getInt("[@pool-size]", DEFAULT_POOL_SIZE));
+        final int queueSize = configuration.getInt("[@queue-size]", DEFAULT_QUEUE_SIZE);
+        final int attempts = configuration.getInt("[@attempts]", DEFAULT_ATTEMPTS);
+        final long backoff = configuration.getLong("[@backoff]", DEFAULT_BACKOFF);
+        final long idle = configuration.getLong("[@idle-timeout]", DEFAULT_IDLE);
+        engine = new SmtpDeliveryEngine(name, session, size, queueSize, attempts, backoff, idle);
+    }
+
+    @Override
+    public void postStop() {
+        engine.shutdown();
+        super.postStop();
     }
 
     private void observe(final Object message) {
@@ -118,31 +153,48 @@ public class EmailService extends UntypedActor  {
             stopObserving(message);
         }else if (EmailRequest.class.equals(klass)) {
             EmailRequest request = (EmailRequest)message;
-            sender.tell(send(request.getObject()), self);
+            send(request.getObject(), sender);
         }
     }
 
-     EmailResponse send(final Mail mail) {
+    void send(final Mail mail, final ActorRef requester) {
+        final ActorRef self = self();
+        final MimeMessage email;
         try {
-            InternetAddress from;
-            if (mail.from() != null || !mail.from().equalsIgnoreCase("")) {
-                from = new InternetAddress(mail.from());
-            } else {
-                from = new InternetAddress(user);
-            }
-            final InternetAddress to = new InternetAddress(mail.to());
-            final MimeMessage email = new MimeMessage(session);
-            email.setFrom(from);
-            email.addRecipient(Message.RecipientType.TO, to);
-            email.setSubject(mail.subject());
-            email.setText(mail.body());
-            email.addRecipients(Message.RecipientType.CC, InternetAddress.parse(mail.cc(), false));
-            email.addRecipients(Message.RecipientType.BCC,InternetAddress.parse(mail.bcc(),false));
-            Transport.send(email);
-            return new EmailResponse(mail);
+            email = message(mail);
         } catch (final MessagingException exception) {
             logger.error(exception.getMessage(), exception);
-            return new EmailResponse(exception,exception.getMessage());
+            requester.tell(new EmailResponse<Mail>(exception, exception.getMessage()), self);
+            return;
+        }
+        engine.deliver(email, new SmtpDeliveryEngine.Listener() {
+            @Override
+            public void delivered(final MimeMessage message) {
+                requester.tell(new EmailResponse<Mail>(mail), self);
+            }
+
+            @Override
+            public void failed(final MimeMessage message, final Exception cause) {
+                requester.tell(new EmailResponse<Mail>(cause, cause.getMessage()), self);
+            }
+        });
+    }
+
+    private MimeMessage message(final Mail mail) throws MessagingException {
+        InternetAddress from;
+        if (mail.from() != null || !mail.from().equalsIgnoreCase("")) {
+            from = new InternetAddress(mail.from());
+        } else {
+            from = new InternetAddress(user);
         }
+        final InternetAddress to = new InternetAddress(mail.to());
+        final MimeMessage email = new MimeMessage(session);
+        email.setFrom(from);
+        email.addRecipient(Message.RecipientType.TO, to);
+        email.setSubject(mail.subject());
+        email.setText(mail.body());
+        email.addRecipients(Message.RecipientType.CC, InternetAddress.parse(mail.cc(), false));
+        email.addRecipients(Message.RecipientType.BCC,InternetAddress.parse(mail.bcc(),false));
+        return email;
     }
 }
@@ -0,0 +1,314 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.email;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.metrics.Counter;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+/**
+ * Delivers messages over a fixed number of SMTP connections that are kept open and reused from one message to the
+ * next, so a message does not pay for its own connection and handshake. Messages wait for a connection in a bounded
+ * queue and the ones that find the queue full are failed right away. A message that fails because of the server, or
+ * of the network, is tried again after a backoff that doubles with every attempt, up to the configured number of
+ * attempts. Messages the server rejects for good, like the ones with invalid recipients, are not retried.
+ *
+ * The outcome of every message is reported once to its {@link Listener}, from one of the delivery threads.
+ */
+@ThreadSafe
+public final class SmtpDeliveryEngine {
+    private static final Logger logger = Logger.getLogger(SmtpDeliveryEngine.class);
+
+    public interface Listener {
+        void delivered(MimeMessage message);
+
+        void failed(MimeMessage message, Exception cause);
+    }
+
+    private final String name;
+    private final Session session;
+    private final int attempts;
+    private final long backoff;
+    private final long idle;
+    // Every connection, the ones no worker is using also wait in the queue below.
+    private final List<Connection> all;
+    private final BlockingQueue<Connection> connections;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService timer;
+    private final Counter retries;
+    private final Counter failures;
+
+    /**
+     * @param name identifies the engine in the logs, the thread names and the metrics.
+     * @param session the session the SMTP connections are opened from.
+     * @param size how many SMTP connections to keep.
+     * @param queueSize how many messages may wait for a connection.
+     * @param attempts how many times a message is tried before it is failed.
+     * @param backoff how long, in milliseconds, to wait before the first retry.
+     * @param idle how long, in milliseconds, a connection may stay unused before it is closed.
+     */
+    public SmtpDeliveryEngine(final String name, final Session session, final int size, final int queueSize,
+            final int attempts, final long backoff, final long idle) {
+        super();
+        this.name = name;
+        this.session = session;
+        this.attempts = Math.max(1, attempts);
+        this.backoff = backoff;
+        this.idle = idle;
+        final List<Connection> all = new ArrayList<Connection>(size);
+        for (int index = 0; index < size; index++) {
+            all.add(new Connection());
+        }
+        this.all = Collections.unmodifiableList(all);
+        this.connections = new ArrayBlockingQueue<Connection>(size, false, all);
+        this.workers = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+                Math.max(1, queueSize)), threads(name + "-smtp-")) {
+            @Override
+            protected void terminated() {
+                for (final Connection connection : SmtpDeliveryEngine.this.all) {
+                    connection.lock.lock();
+                    try {
+                        connection.close();
+                    } finally {
+                        connection.lock.unlock();
+                    }
+                }
+            }
+        };
+        this.timer = Executors.newSingleThreadScheduledExecutor(threads(name + "-smtp-timer-"));
+        if (idle > 0) {
+            timer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    closeIdle();
+                }
+            }, idle, idle, TimeUnit.MILLISECONDS);
+        }
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.retries = metrics.counter("restcomm_email_retries_total", "Delivery attempts that were tried again.",
+                "service", name);
+        this.failures = metrics.counter("restcomm_email_failures_total", "Messages that could not be delivered.",
+                "service", name);
+    }
+
+    private static ThreadFactory threads(final String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Queues a message for delivery. The listener is told right away when the queue is full.
+     */
+    public void deliver(final MimeMessage message, final Listener listener) {
+        submit(new Delivery(message, listener));
+    }
+
+    /**
+     * @return how many messages are waiting for a connection.
+     */
+    public int queued() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * Stops taking messages, the queued ones are still delivered but the retries that fall due afterwards fail.
+     */
+    public void shutdown() {
+        workers.shutdown();
+        timer.shutdown();
+    }
+
+    private void submit(final Delivery delivery) {
+        try {
+            workers.execute(delivery);
+        } catch (final RejectedExecutionException exception) {
+            delivery.fail(new RejectedExecutionException(workers.isShutdown() ? name + " stopped." : name + " has "
+                    + workers.getQueue().size() + " messages waiting already."));
+        }
+    }
+
+    private void send(final Delivery delivery) {
+        // There are as many connections as workers, so one is always free for this worker.
+        final Connection connection;
+        try {
+            connection = connections.take();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            delivery.fail(exception);
+            return;
+        }
+        final Exception failure = connection.deliver(delivery.message);
+        connections.add(connection);
+        if (failure == null) {
+            delivery.listener.delivered(delivery.message);
+        } else if (failure instanceof MessagingException && retryable((MessagingException) failure)
+                && delivery.attempt < attempts) {
+            retry(delivery, failure);
+        } else {
+            delivery.fail(failure);
+        }
+    }
+
+    private void retry(final Delivery delivery, final Exception cause) {
+        final long delay = backoff << Math.min(delivery.attempt - 1, 16);
+        delivery.attempt++;
+        retries.increment();
+        if (logger.isDebugEnabled()) {
+            logger.debug(name + " will try a message again in " + delay + "ms: " + cause.getMessage());
+        }
+        try {
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    submit(delivery);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException exception) {
+            delivery.fail(cause);
+        }
+    }
+
+    private static boolean retryable(final MessagingException exception) {
+        // Nothing is sent while a recipient is refused, trying again would only be refused again.
+        if (exception instanceof SendFailedException) {
+            final Address[] invalid = ((SendFailedException) exception).getInvalidAddresses();
+            return invalid == null || invalid.length == 0;
+        }
+        return true;
+    }
+
+    private void closeIdle() {
+        final long now = System.currentTimeMillis();
+        for (final Connection connection : all) {
+            // A connection that is sending is not idle, skip it rather than wait for it.
+            if (connection.lock.tryLock()) {
+                try {
+                    if (now - connection.used >= idle) {
+                        connection.close();
+                    }
+                } finally {
+                    connection.lock.unlock();
+                }
+            }
+        }
+    }
+
+    private final class Connection {
+        // Held while the connection is used, so the idle ones are closed without taking them from the workers.
+        private final ReentrantLock lock = new ReentrantLock();
+        private Transport transport;
+        private long used;
+
+        /**
+         * @return why the message could not be sent, or null once it is.
+         */
+        private Exception deliver(final MimeMessage message) {
+            lock.lock();
+            try {
+                send(message);
+                return null;
+            } catch (final MessagingException exception) {
+                // The state of the conversation with the server is unknown, start over with a new connection.
+                close();
+                return exception;
+            } catch (final RuntimeException exception) {
+                close();
+                return exception;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void send(final MimeMessage message) throws MessagingException {
+            if (transport == null || !transport.isConnected()) {
+                close();
+                transport = session.getTransport("smtp");
+                transport.connect();
+            }
+            message.saveChanges();
+            transport.sendMessage(message, message.getAllRecipients());
+            used = System.currentTimeMillis();
+        }
+
+        private void close() {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (final MessagingException ignored) {
+                    // The connection is dropped either way.
+                }
+                transport = null;
+            }
+        }
+    }
+
+    private final class Delivery implements Runnable {
+        private final MimeMessage message;
+        private final Listener listener;
+        private int attempt;
+
+        private Delivery(final MimeMessage message, final Listener listener) {
+            super();
+            this.message = message;
+            this.listener = listener;
+            this.attempt = 1;
+        }
+
+        @Override
+        public void run() {
+            send(this);
+        }
+
+        private void fail(final Exception cause) {
+            failures.increment();
+            logger.error(name + " failed to deliver a message after " + attempt + " attempt(s): " + cause.getMessage());
+            listener.failed(message, cause);
+        }
+    }
+}
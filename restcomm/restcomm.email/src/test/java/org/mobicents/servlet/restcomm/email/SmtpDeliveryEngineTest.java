@@ -0,0 +1,206 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.email;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ServerSocket;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.Message;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class SmtpDeliveryEngineTest {
+    private SmtpStub server;
+    private SmtpDeliveryEngine engine;
+    private BlockingQueue<Object> outcomes;
+    private SmtpDeliveryEngine.Listener listener;
+
+    public SmtpDeliveryEngineTest() {
+        super();
+    }
+
+    @Before
+    public void before() throws Exception {
+        server = new SmtpStub();
+        outcomes = new LinkedBlockingQueue<Object>();
+        listener = new SmtpDeliveryEngine.Listener() {
+            @Override
+            public void delivered(final MimeMessage message) {
+                outcomes.add(message);
+            }
+
+            @Override
+            public void failed(final MimeMessage message, final Exception cause) {
+                outcomes.add(cause);
+            }
+        };
+    }
+
+    @After
+    public void after() throws Exception {
+        if (engine != null) {
+            engine.shutdown();
+        }
+        server.stop();
+    }
+
+    private static Session session(final int port, final long timeout) {
+        final Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", "127.0.0.1");
+        properties.setProperty("mail.smtp.port", Integer.toString(port));
+        properties.setProperty("mail.smtp.connectiontimeout", Long.toString(timeout));
+        properties.setProperty("mail.smtp.timeout", Long.toString(timeout));
+        return Session.getInstance(properties);
+    }
+
+    private static MimeMessage message(final Session session, final String to) throws Exception {
+        final MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("restcomm@localhost"));
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress(to));
+        message.setSubject("Testing the delivery engine");
+        message.setText("This is the body of the message.");
+        return message;
+    }
+
+    @Test
+    public void testDeliverOverReusedConnections() throws Exception {
+        final Session session = session(server.port(), 5000);
+        engine = new SmtpDeliveryEngine("test", session, 4, 1000, 3, 100, 60000);
+        final int count = 500;
+        final long start = System.nanoTime();
+        for (int index = 0; index < count; index++) {
+            engine.deliver(message(session, "someone" + index + "@localhost"), listener);
+        }
+        for (int index = 0; index < count; index++) {
+            final Object outcome = outcomes.poll(30, TimeUnit.SECONDS);
+            assertTrue(String.valueOf(outcome), outcome instanceof MimeMessage);
+        }
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(count, server.messages());
+        // Every message went over one of the pooled connections instead of a connection of its own.
+        assertTrue(server.connections() <= 4);
+        assertTrue("Took " + elapsed + "ms", elapsed < 30000);
+    }
+
+    @Test
+    public void testDeliverBurstWhileIdleConnectionsAreClosed() throws Exception {
+        server.slowQuit(500);
+        final Session session = session(server.port(), 5000);
+        engine = new SmtpDeliveryEngine("test", session, 2, 100, 1, 100, 50);
+        for (int index = 0; index < 2; index++) {
+            engine.deliver(message(session, "first" + index + "@localhost"), listener);
+        }
+        for (int index = 0; index < 2; index++) {
+            assertTrue(outcomes.poll(10, TimeUnit.SECONDS) instanceof MimeMessage);
+        }
+        // The connections went idle and are being closed, slowly, when the burst comes in.
+        Thread.sleep(150);
+        final int count = 50;
+        for (int index = 0; index < count; index++) {
+            engine.deliver(message(session, "someone" + index + "@localhost"), listener);
+        }
+        for (int index = 0; index < count; index++) {
+            final Object outcome = outcomes.poll(30, TimeUnit.SECONDS);
+            assertTrue(String.valueOf(outcome), outcome instanceof MimeMessage);
+        }
+        assertEquals(count + 2, server.messages());
+    }
+
+    @Test
+    public void testRetrySlowServer() throws Exception {
+        server.slow(1, 2000);
+        final Session session = session(server.port(), 500);
+        engine = new SmtpDeliveryEngine("test", session, 1, 10, 3, 50, 60000);
+        engine.deliver(message(session, "someone@localhost"), listener);
+        final Object outcome = outcomes.poll(10, TimeUnit.SECONDS);
+        assertTrue(String.valueOf(outcome), outcome instanceof MimeMessage);
+        // The first attempt timed out on the end of data and its connection was replaced.
+        assertEquals(2, server.attempts());
+        assertEquals(2, server.connections());
+    }
+
+    @Test
+    public void testGiveUpOnUnreachableServer() throws Exception {
+        final ServerSocket socket = new ServerSocket(0);
+        final int port = socket.getLocalPort();
+        socket.close();
+        final Session session = session(port, 500);
+        engine = new SmtpDeliveryEngine("test", session, 1, 10, 3, 100, 60000);
+        final long start = System.nanoTime();
+        engine.deliver(message(session, "someone@localhost"), listener);
+        final Object outcome = outcomes.poll(10, TimeUnit.SECONDS);
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(String.valueOf(outcome), outcome instanceof Exception);
+        // Two retries, after 100ms and 200ms.
+        assertTrue("Took " + elapsed + "ms", elapsed >= 300);
+        assertNull(outcomes.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRejectWhenQueueIsFull() throws Exception {
+        server.slow(3, 500);
+        final Session session = session(server.port(), 5000);
+        engine = new SmtpDeliveryEngine("test", session, 1, 1, 1, 100, 60000);
+        engine.deliver(message(session, "first@localhost"), listener);
+        // Wait for the first message to leave the queue.
+        while (server.connections() == 0) {
+            Thread.sleep(10);
+        }
+        engine.deliver(message(session, "second@localhost"), listener);
+        engine.deliver(message(session, "third@localhost"), listener);
+        final Object rejected = outcomes.poll(100, TimeUnit.MILLISECONDS);
+        assertTrue(String.valueOf(rejected), rejected instanceof RejectedExecutionException);
+        for (int index = 0; index < 2; index++) {
+            final Object outcome = outcomes.poll(10, TimeUnit.SECONDS);
+            assertTrue(String.valueOf(outcome), outcome instanceof MimeMessage);
+        }
+    }
+
+    @Test
+    public void testNoRetryForRefusedRecipient() throws Exception {
+        server.refuse("nobody@localhost");
+        final Session session = session(server.port(), 5000);
+        engine = new SmtpDeliveryEngine("test", session, 1, 10, 3, 50, 60000);
+        engine.deliver(message(session, "nobody@localhost"), listener);
+        final Object outcome = outcomes.poll(10, TimeUnit.SECONDS);
+        assertTrue(String.valueOf(outcome), outcome instanceof SendFailedException);
+        assertNull(outcomes.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals(1, server.connections());
+        // The engine still delivers the next message.
+        engine.deliver(message(session, "someone@localhost"), listener);
+        assertNotNull(outcomes.poll(10, TimeUnit.SECONDS));
+        assertEquals(1, server.messages());
+    }
+}
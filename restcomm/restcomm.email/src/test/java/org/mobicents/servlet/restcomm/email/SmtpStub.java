@@ -0,0 +1,159 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.email;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bare SMTP server, enough for the JavaMail client, that can answer slowly or refuse recipients.
+ */
+final class SmtpStub implements Runnable {
+    private final ServerSocket server;
+    private final AtomicInteger connections;
+    private final AtomicInteger attempts;
+    private final AtomicInteger messages;
+    private volatile long delay;
+    private volatile int slow;
+    private volatile String refused;
+    private volatile long farewell;
+
+    SmtpStub() throws IOException {
+        super();
+        server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        connections = new AtomicInteger();
+        attempts = new AtomicInteger();
+        messages = new AtomicInteger();
+        final Thread thread = new Thread(this, "smtp-stub");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int port() {
+        return server.getLocalPort();
+    }
+
+    int connections() {
+        return connections.get();
+    }
+
+    int attempts() {
+        return attempts.get();
+    }
+
+    int messages() {
+        return messages.get();
+    }
+
+    /**
+     * Holds the answer to the end of data of the first messages.
+     */
+    void slow(final int messages, final long delay) {
+        this.delay = delay;
+        this.slow = messages;
+    }
+
+    void refuse(final String recipient) {
+        this.refused = recipient;
+    }
+
+    /**
+     * Holds the answer to every QUIT, the client closing a connection waits for it.
+     */
+    void slowQuit(final long delay) {
+        this.farewell = delay;
+    }
+
+    void stop() throws IOException {
+        server.close();
+    }
+
+    @Override
+    public void run() {
+        while (!server.isClosed()) {
+            try {
+                final Socket socket = server.accept();
+                connections.incrementAndGet();
+                final Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                }, "smtp-stub-" + connections.get());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (final IOException exception) {
+                return;
+            }
+        }
+    }
+
+    private void serve(final Socket socket) {
+        try {
+            final BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+            final OutputStream output = socket.getOutputStream();
+            reply(output, "220 localhost");
+            String line;
+            while ((line = input.readLine()) != null) {
+                final String command = line.toUpperCase();
+                if (command.startsWith("EHLO")) {
+                    reply(output, "250-localhost\r\n250 8BITMIME");
+                } else if (command.startsWith("RCPT") && refused != null && line.contains(refused)) {
+                    reply(output, "550 No such user");
+                } else if (command.startsWith("DATA")) {
+                    reply(output, "354 End data with <CR><LF>.<CR><LF>");
+                    while ((line = input.readLine()) != null && !".".equals(line)) {
+                        continue;
+                    }
+                    if (attempts.incrementAndGet() <= slow) {
+                        Thread.sleep(delay);
+                    }
+                    messages.incrementAndGet();
+                    reply(output, "250 OK");
+                } else if (command.startsWith("QUIT")) {
+                    Thread.sleep(farewell);
+                    reply(output, "221 Bye");
+                    break;
+                } else {
+                    reply(output, "250 OK");
+                }
+            }
+        } catch (final Exception exception) {
+            // The client went away.
+        } finally {
+            try {
+                socket.close();
+            } catch (final IOException ignored) {
+                // Nothing left to do.
+            }
+        }
+    }
+
+    private static void reply(final OutputStream output, final String reply) throws IOException {
+        output.write((reply + "\r\n").getBytes("US-ASCII"));
+        output.flush();
+    }
+}
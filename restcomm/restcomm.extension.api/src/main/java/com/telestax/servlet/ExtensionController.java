@@ -0,0 +1,119 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.telestax.servlet;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.servlet.sip.SipServletRequest;
+import javax.servlet.sip.SipServletResponse;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.metrics.Counter;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+/**
+ * Holds the extensions loaded at start up, per {@link ExtensionType}, and runs them for the components that accept
+ * incoming sessions.
+ *
+ * The inbound checks run on the actor that received the request, ahead of any database access, so extensions have to
+ * answer from memory.
+ */
+@ThreadSafe
+public final class ExtensionController {
+    private static final ExtensionController instance = new ExtensionController();
+
+    private final Map<ExtensionType, List<RestcommExtensionGeneric>> extensions;
+    private final Map<ExtensionType, Counter> rejections;
+
+    public ExtensionController() {
+        super();
+        extensions = new EnumMap<ExtensionType, List<RestcommExtensionGeneric>>(ExtensionType.class);
+        rejections = new EnumMap<ExtensionType, Counter>(ExtensionType.class);
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        for (final ExtensionType type : ExtensionType.values()) {
+            extensions.put(type, new CopyOnWriteArrayList<RestcommExtensionGeneric>());
+            rejections.put(type, metrics.counter("restcomm_extension_rejections_total",
+                    "Incoming requests rejected by an extension before Restcomm processed them.", "type", type.name()));
+        }
+    }
+
+    public static ExtensionController getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registers the extension for the types listed in its {@link RestcommExtension} annotation.
+     */
+    public void register(final RestcommExtensionGeneric extension) {
+        final RestcommExtension annotation = extension.getClass().getAnnotation(RestcommExtension.class);
+        if (annotation == null) {
+            throw new IllegalArgumentException(extension.getClass().getName() + " is not annotated with @RestcommExtension");
+        }
+        for (final ExtensionType type : annotation.type()) {
+            extensions.get(type).add(extension);
+        }
+    }
+
+    public void unregister(final RestcommExtensionGeneric extension) {
+        for (final List<RestcommExtensionGeneric> registered : extensions.values()) {
+            registered.remove(extension);
+        }
+    }
+
+    public List<RestcommExtensionGeneric> getExtensions(final ExtensionType type) {
+        return Collections.unmodifiableList(extensions.get(type));
+    }
+
+    /**
+     * Runs the pre inbound action of the extensions registered for the type until one of them refuses the request.
+     *
+     * @return the refusal, or null when every extension allowed the request
+     */
+    public ExtensionResponse executePreInboundAction(final SipServletRequest request, final ExtensionType type) {
+        for (final RestcommExtensionGeneric extension : extensions.get(type)) {
+            final ExtensionResponse response = extension.preInboundAction(request);
+            if (response != null && !response.isAllowed()) {
+                rejections.get(type).increment();
+                return response;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Answers a request refused by an extension, with a 503 and a Retry-After header unless the extension asked for
+     * something else.
+     */
+    public void reject(final SipServletRequest request, final ExtensionResponse refusal) throws IOException {
+        final int status = refusal.getStatusCode() > 0 ? refusal.getStatusCode() : SipServletResponse.SC_SERVICE_UNAVAILABLE;
+        final SipServletResponse response = refusal.getReason() == null ? request.createResponse(status) : request
+                .createResponse(status, refusal.getReason());
+        if (refusal.getRetryAfter() > 0) {
+            response.addHeader("Retry-After", Integer.toString(refusal.getRetryAfter()));
+        }
+        response.send();
+    }
+}
@@ -27,6 +27,9 @@ package com.telestax.servlet;
 public class ExtensionResponse {
     private Object object;
     private boolean allowed;
+    private int statusCode;
+    private String reason;
+    private int retryAfter;
 
     public ExtensionResponse() {}
 
@@ -45,4 +48,34 @@ public class ExtensionResponse {
     public void setAllowed(boolean allowed) {
         this.allowed = allowed;
     }
+
+    /**
+     * @return the SIP status code a rejected request is answered with, 0 to let Restcomm pick one
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    /**
+     * @return the number of seconds a rejected client should wait before retrying, 0 if unknown
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+    }
 }
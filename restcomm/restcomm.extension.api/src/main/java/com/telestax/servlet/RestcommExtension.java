@@ -21,6 +21,7 @@
 package com.telestax.servlet;
 
 import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
@@ -29,6 +30,7 @@ import java.lang.annotation.Target;
  * @author <a href="mailto:gvagenas@gmail.com">gvagenas</a>
  *
  */
+@Inherited
 @Retention(RetentionPolicy.RUNTIME)
 @Target(value = {ElementType.TYPE})
 public @interface RestcommExtension {
@@ -22,6 +22,7 @@ package com.telestax.servlet;
 
 import javax.servlet.sip.SipServletRequest;
 
+import org.apache.commons.configuration.Configuration;
 import org.mobicents.servlet.restcomm.telephony.CreateCall;
 
 /**
@@ -31,8 +32,9 @@ import org.mobicents.servlet.restcomm.telephony.CreateCall;
 public interface RestcommExtensionGeneric {
     /**
      * Use this method to initialize the Extension
+     * @param configuration the configuration section of the extension in extensions.xml, may be empty
      */
-    void init();
+    void init(Configuration configuration);
     /**
      * Method that will be executed BEFORE the process of an Incoming session
      * Implement this method so you will be able to check the Incoming session
@@ -20,14 +20,43 @@
  */
 package com.telestax.servlet;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
 import javax.servlet.sip.SipServletRequest;
+import javax.servlet.sip.SipServletResponse;
+import javax.servlet.sip.SipURI;
+import javax.servlet.sip.TelURL;
+import javax.servlet.sip.URI;
 
+import org.apache.commons.configuration.Configuration;
 import org.apache.log4j.Logger;
 import org.mobicents.servlet.restcomm.telephony.CreateCall;
-import org.mobicents.servlet.sip.core.SipManager;
-import org.mobicents.servlet.sip.message.MobicentsSipApplicationSessionFacade;
+import org.mobicents.servlet.restcomm.util.TokenBucket;
 
 /**
+ * Admission control for incoming calls, messages and USSD sessions. Every request takes a token from the bucket of
+ * its account, of its source address and of its destination, and is answered with a 503 and a Retry-After header
+ * when one of them is empty.
+ *
+ * The check runs before Restcomm touches the database so the account is the user part of the From header, the
+ * identity the caller claims for itself, and not the account sid it resolves to later on. Each limit is configured
+ * with a rate (requests per second) and a burst, a limit without a rate is not enforced:
+ *
+ * <pre>
+ * &lt;configuration&gt;
+ *   &lt;account&gt;&lt;rate&gt;10&lt;/rate&gt;&lt;burst&gt;20&lt;/burst&gt;&lt;/account&gt;
+ *   &lt;source&gt;&lt;rate&gt;50&lt;/rate&gt;&lt;burst&gt;100&lt;/burst&gt;&lt;/source&gt;
+ *   &lt;destination&gt;&lt;rate&gt;5&lt;/rate&gt;&lt;burst&gt;10&lt;/burst&gt;&lt;/destination&gt;
+ *   &lt;max-buckets&gt;100000&lt;/max-buckets&gt;
+ * &lt;/configuration&gt;
+ * </pre>
+ *
  * @author <a href="mailto:gvagenas@gmail.com">gvagenas</a>
  *
  */
@@ -35,20 +64,52 @@ import org.mobicents.servlet.sip.message.MobicentsSipApplicationSessionFacade;
 public class TrafficThrottling implements RestcommExtensionGeneric {
 
     private static final Logger logger = Logger.getLogger(TrafficThrottling.class);
+    private static final int DEFAULT_MAX_BUCKETS = 100000;
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final List<Limit> limits = new ArrayList<Limit>();
 
     @Override
-    public void init() {
+    public void init(Configuration configuration) {
+        limits.clear();
+        final int maxBuckets = configuration == null ? DEFAULT_MAX_BUCKETS : configuration.getInt("max-buckets",
+                DEFAULT_MAX_BUCKETS);
+        for (final Scope scope : Scope.values()) {
+            final double rate = configuration == null ? 0 : configuration.getDouble(scope.element + ".rate", 0);
+            if (rate > 0) {
+                final int burst = configuration.getInt(scope.element + ".burst", (int) Math.ceil(rate));
+                limits.add(new Limit(scope, rate, Math.max(burst, 1), maxBuckets, now()));
+                if (logger.isInfoEnabled()) {
+                    logger.info("Traffic throttling per " + scope.element + ": " + rate + " requests per second, burst of "
+                            + burst);
+                }
+            }
+        }
     }
 
     @Override
     public ExtensionResponse preInboundAction(SipServletRequest request) {
-        SipManager sipManager = ((MobicentsSipApplicationSessionFacade) request.getApplicationSession()).getSipContext().getSipManager();
-        int activeCalls = sipManager.getActiveSipApplicationSessions();
-        if(logger.isInfoEnabled()) {
-            logger.info("Active calls: "+activeCalls);
+        final ExtensionResponse response = new ExtensionResponse();
+        response.setAllowed(true);
+        if (limits.isEmpty()) {
+            return response;
+        }
+        final long now = now();
+        for (final Limit limit : limits) {
+            final String key = limit.scope.key(request);
+            if (key != null && !limit.tryAcquire(key, now)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Throttling " + request.getMethod() + " from " + request.getFrom() + ", " + limit.scope.element
+                            + " " + key + " is over its rate");
+                }
+                response.setAllowed(false);
+                response.setStatusCode(SipServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setReason("Too Many Requests");
+                response.setRetryAfter(limit.retryAfter);
+                response.setObject(limit.scope.element);
+                return response;
+            }
         }
-        ExtensionResponse response = new ExtensionResponse();
-        response.setAllowed(false);
         return response;
     }
 
@@ -68,4 +129,106 @@ public class TrafficThrottling implements RestcommExtensionGeneric {
         // TODO Auto-generated method stub
         return null;
     }
+
+    protected long now() {
+        return System.nanoTime();
+    }
+
+    private enum Scope {
+        ACCOUNT("account") {
+            @Override
+            String key(final SipServletRequest request) {
+                return user(request.getFrom().getURI());
+            }
+        },
+        SOURCE("source") {
+            @Override
+            String key(final SipServletRequest request) {
+                // Behind the load balancer the address of the client is only known from the header it adds
+                final String initialIpBeforeLB = request.getHeader("X-Sip-Balancer-InitialRemoteAddr");
+                if (initialIpBeforeLB != null && !initialIpBeforeLB.isEmpty()) {
+                    return initialIpBeforeLB;
+                }
+                final String initial = request.getInitialRemoteAddr();
+                return initial != null ? initial : request.getRemoteAddr();
+            }
+        },
+        DESTINATION("destination") {
+            @Override
+            String key(final SipServletRequest request) {
+                final String user = user(request.getRequestURI());
+                return user != null ? user : user(request.getTo().getURI());
+            }
+        };
+
+        private final String element;
+
+        private Scope(final String element) {
+            this.element = element;
+        }
+
+        abstract String key(SipServletRequest request);
+
+        private static String user(final URI uri) {
+            if (uri instanceof SipURI) {
+                return ((SipURI) uri).getUser();
+            } else if (uri instanceof TelURL) {
+                return ((TelURL) uri).getPhoneNumber();
+            }
+            return null;
+        }
+    }
+
+    private static final class Limit {
+        private final Scope scope;
+        private final double rate;
+        private final int burst;
+        private final int maxBuckets;
+        private final int retryAfter;
+        private final ConcurrentMap<String, TokenBucket> buckets;
+        private volatile long swept;
+
+        private Limit(final Scope scope, final double rate, final int burst, final int maxBuckets, final long now) {
+            super();
+            this.scope = scope;
+            this.rate = rate;
+            this.burst = burst;
+            this.maxBuckets = maxBuckets;
+            // Seconds until the bucket holds a token again
+            this.retryAfter = (int) Math.max(1, Math.ceil(1 / rate));
+            this.buckets = new ConcurrentHashMap<String, TokenBucket>();
+            this.swept = now - SWEEP_INTERVAL;
+        }
+
+        private boolean tryAcquire(final String key, final long now) {
+            TokenBucket bucket = buckets.get(key);
+            if (bucket == null) {
+                if (buckets.size() >= maxBuckets && !evict(now)) {
+                    return false;
+                }
+                final TokenBucket created = new TokenBucket(rate, burst, now);
+                bucket = buckets.putIfAbsent(key, created);
+                if (bucket == null) {
+                    bucket = created;
+                }
+            }
+            return bucket.tryAcquire(now);
+        }
+
+        // Callers that stopped sending long enough for their bucket to refill are forgotten so forged addresses and
+        // numbers can not grow the map without bound. The map is swept at most once a second, until then and as long
+        // as it is full of active callers new ones are turned away.
+        private boolean evict(final long now) {
+            if (now - swept >= SWEEP_INTERVAL) {
+                swept = now;
+                final Iterator<Map.Entry<String, TokenBucket>> iterator = buckets.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().getValue().isFull(now)) {
+                        iterator.remove();
+                    }
+                }
+            }
+            return buckets.size() < maxBuckets;
+        }
+    }
 }
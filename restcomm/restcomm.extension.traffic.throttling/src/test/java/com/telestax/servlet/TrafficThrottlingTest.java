@@ -0,0 +1,234 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.telestax.servlet;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.sip.Address;
+import javax.servlet.sip.SipServletRequest;
+import javax.servlet.sip.SipServletResponse;
+import javax.servlet.sip.SipURI;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.metrics.Counter;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+public class TrafficThrottlingTest extends TestCase {
+    private static final long MICROSECOND = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long clock;
+    private TrafficThrottling throttling;
+
+    @Override
+    protected void setUp() throws Exception {
+        clock = 0;
+        throttling = new TrafficThrottling() {
+            @Override
+            protected long now() {
+                return clock;
+            }
+        };
+    }
+
+    public void testAdmitsTheBurstThenTheRate() {
+        throttling.init(configuration("source", 1000, 100));
+        int admitted = 0;
+        // 10000 attempts a second from one address for a second
+        for (int i = 0; i < 10000; i++) {
+            if (throttling.preInboundAction(request("alice", "1234", "10.0.0.1")).isAllowed()) {
+                admitted++;
+            }
+            clock += 100 * MICROSECOND;
+        }
+        assertTrue("admitted " + admitted, admitted >= 1099 && admitted <= 1100);
+    }
+
+    public void testEveryLimitHasABucketPerKey() {
+        final Configuration configuration = configuration("account", 100, 10);
+        configuration.setProperty("destination.rate", 100);
+        configuration.setProperty("destination.burst", 5);
+        throttling.init(configuration);
+        int alice = 0;
+        int bob = 0;
+        for (int i = 0; i < 20; i++) {
+            if (throttling.preInboundAction(request("alice", "1234", "10.0.0.1")).isAllowed()) {
+                alice++;
+            }
+            if (throttling.preInboundAction(request("bob", "5678", "10.0.0.1")).isAllowed()) {
+                bob++;
+            }
+        }
+        // The destinations run dry first, each on its own
+        assertEquals(5, alice);
+        assertEquals(5, bob);
+        final ExtensionResponse refusal = throttling.preInboundAction(request("carol", "1234", "10.0.0.1"));
+        assertFalse(refusal.isAllowed());
+        assertEquals("destination", refusal.getObject());
+        assertEquals(SipServletResponse.SC_SERVICE_UNAVAILABLE, refusal.getStatusCode());
+        assertEquals(1, refusal.getRetryAfter());
+        assertTrue(throttling.preInboundAction(request("carol", "9999", "10.0.0.1")).isAllowed());
+    }
+
+    public void testNothingIsThrottledWithoutLimits() {
+        throttling.init(new BaseConfiguration());
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(throttling.preInboundAction(request("alice", "1234", "10.0.0.1")).isAllowed());
+        }
+    }
+
+    public void testIdleBucketsAreEvicted() {
+        final Configuration configuration = configuration("source", 10, 1);
+        configuration.setProperty("max-buckets", 2);
+        throttling.init(configuration);
+        assertTrue(throttling.preInboundAction(request("alice", "1234", "10.0.0.1")).isAllowed());
+        assertTrue(throttling.preInboundAction(request("alice", "1234", "10.0.0.2")).isAllowed());
+        // Both callers are still active, there is no room for a third one
+        assertFalse(throttling.preInboundAction(request("alice", "1234", "10.0.0.3")).isAllowed());
+        clock += SECOND;
+        assertTrue(throttling.preInboundAction(request("alice", "1234", "10.0.0.3")).isAllowed());
+    }
+
+    public void testAdmitsNoMoreThanTheRateUnderConcurrentLoad() throws Exception {
+        final TrafficThrottling shared = new TrafficThrottling();
+        shared.init(configuration("account", 1000, 100));
+        final AtomicInteger admitted = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(4);
+        final long start = System.nanoTime();
+        for (int thread = 0; thread < 4; thread++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    // 2500 attempts each, paced to 10000 a second overall
+                    for (int i = 0; i < 2500; i++) {
+                        if (shared.preInboundAction(request("alice", "1234", "10.0.0.1")).isAllowed()) {
+                            admitted.incrementAndGet();
+                        }
+                        final long next = start + (i + 1) * 400 * MICROSECOND;
+                        while (System.nanoTime() < next) {
+                            Thread.yield();
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        final double elapsed = (double) (System.nanoTime() - start) / SECOND;
+        assertTrue("admitted " + admitted.get(), admitted.get() >= 100);
+        assertTrue("admitted " + admitted.get() + " in " + elapsed + "s", admitted.get() <= 100 + 1000 * elapsed + 1);
+    }
+
+    public void testTheControllerAnswersRefusalsWithARetryAfter() throws Exception {
+        throttling.init(configuration("source", 1, 1));
+        final ExtensionController controller = new ExtensionController();
+        controller.register(throttling);
+        final Counter rejections = MetricsRegistry.getInstance().counter("restcomm_extension_rejections_total",
+                "Incoming requests rejected by an extension before Restcomm processed them.", "type",
+                ExtensionType.SmsSession.name());
+        final long before = rejections.value();
+        assertNull(controller.executePreInboundAction(request("alice", "1234", "10.0.0.1"), ExtensionType.SmsSession));
+        final Map<String, Object> sent = new HashMap<String, Object>();
+        final SipServletRequest request = request("alice", "1234", "10.0.0.1", sent);
+        final ExtensionResponse refusal = controller.executePreInboundAction(request, ExtensionType.SmsSession);
+        assertNotNull(refusal);
+        assertEquals(before + 1, rejections.value());
+        controller.reject(request, refusal);
+        assertEquals(SipServletResponse.SC_SERVICE_UNAVAILABLE, sent.get("status"));
+        assertEquals("1", sent.get("Retry-After"));
+        assertEquals(Boolean.TRUE, sent.get("sent"));
+    }
+
+    private static Configuration configuration(final String limit, final int rate, final int burst) {
+        final Configuration configuration = new BaseConfiguration();
+        configuration.setProperty(limit + ".rate", rate);
+        configuration.setProperty(limit + ".burst", burst);
+        return configuration;
+    }
+
+    private static SipServletRequest request(final String from, final String to, final String address) {
+        return request(from, to, address, new HashMap<String, Object>());
+    }
+
+    // A SIP MESSAGE stub, answering the few methods the throttling and the controller use
+    private static SipServletRequest request(final String from, final String to, final String address,
+            final Map<String, Object> sent) {
+        final SipURI fromUri = stub(SipURI.class, "getUser", from);
+        final SipURI toUri = stub(SipURI.class, "getUser", to);
+        final Address fromAddress = stub(Address.class, "getURI", fromUri);
+        final Address toAddress = stub(Address.class, "getURI", toUri);
+        final SipServletResponse response = (SipServletResponse) Proxy.newProxyInstance(
+                TrafficThrottlingTest.class.getClassLoader(), new Class<?>[] { SipServletResponse.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if ("addHeader".equals(method.getName())) {
+                            sent.put((String) args[0], args[1]);
+                        } else if ("send".equals(method.getName())) {
+                            sent.put("sent", Boolean.TRUE);
+                        }
+                        return null;
+                    }
+                });
+        return (SipServletRequest) Proxy.newProxyInstance(TrafficThrottlingTest.class.getClassLoader(),
+                new Class<?>[] { SipServletRequest.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        final String name = method.getName();
+                        if ("getFrom".equals(name)) {
+                            return fromAddress;
+                        } else if ("getTo".equals(name)) {
+                            return toAddress;
+                        } else if ("getRequestURI".equals(name)) {
+                            return toUri;
+                        } else if ("getInitialRemoteAddr".equals(name) || "getRemoteAddr".equals(name)) {
+                            return address;
+                        } else if ("getMethod".equals(name)) {
+                            return "MESSAGE";
+                        } else if ("createResponse".equals(name)) {
+                            sent.put("status", args[0]);
+                            return response;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static <T> T stub(final Class<T> type, final String getter, final Object value) {
+        return type.cast(Proxy.newProxyInstance(TrafficThrottlingTest.class.getClassLoader(), new Class<?>[] { type },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        return getter.equals(method.getName()) ? value : null;
+                    }
+                }));
+    }
+}
@@ -56,6 +56,7 @@ import org.mobicents.servlet.restcomm.http.converter.AccountListConverter;
 import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
 import org.mobicents.servlet.restcomm.http.exceptions.AuthorizationException;
 import org.mobicents.servlet.restcomm.http.exceptions.InsufficientPermission;
+import org.mobicents.servlet.restcomm.telephony.util.DigestAuthenticator;
 import org.mobicents.servlet.restcomm.util.StringUtils;
 
 /**
@@ -179,6 +180,7 @@ public class AccountsEndpoint extends SecuredEndpoint {
 
         // Remove its SIP client account
         clientDao.removeClients(sidToBeRemoved);
+        DigestAuthenticator.getInstance().invalidateAll();
 
         return ok().build();
     }
@@ -361,6 +363,12 @@ public class AccountsEndpoint extends SecuredEndpoint {
 
             secure(account, "RestComm:Modify:Accounts", SecuredType.SECURED_ACCOUNT);
             accountsDao.updateAccount(account);
+            // The dao dropped its cached accounts, drop the verified credentials too so a suspension or a new token
+            // applies to the very next request.
+            if (identityContext != null && (data.containsKey("Status") || data.containsKey("Password")
+                    || data.containsKey("Auth_Token"))) {
+                identityContext.getCredentialsCache().invalidateAll();
+            }
 
             // Update SIP client of the corresponding Account
             String email = account.getEmailAddress();
@@ -382,6 +390,7 @@ public class AccountsEndpoint extends SecuredEndpoint {
                     }
 
                     clientDao.updateClient(client);
+                    DigestAuthenticator.getInstance().invalidate(client.getLogin());
                 }
             }
 
@@ -21,6 +21,7 @@ import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.http.converter.AnnouncementConverter;
 import org.mobicents.servlet.restcomm.http.converter.AnnouncementListConverter;
 import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
+import org.mobicents.servlet.restcomm.tts.api.CachingSpeechSynthesizer;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerRequest;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerResponse;
 import scala.concurrent.Await;
@@ -57,6 +58,8 @@ public abstract class AnnouncementsEndpoint extends SecuredEndpoint {
     protected Configuration runtime;
     protected ActorSystem system;
     protected ActorRef synthesizer;
+    // True if the synthesizer was started by this endpoint rather than shared with the interpreters.
+    private boolean synthesizerOwned;
     protected ActorRef cache;
     protected Gson gson;
     protected XStream xstream;
@@ -72,7 +75,10 @@ public abstract class AnnouncementsEndpoint extends SecuredEndpoint {
         configuration = (Configuration) context.getAttribute(Configuration.class.getName());
         Configuration ttsConfiguration = configuration.subset("speech-synthesizer");
         runtime = configuration.subset("runtime-settings");
-        synthesizer = tts(ttsConfiguration);
+        // Prefer the speech synthesizer shared by the interpreters, started under the name of its configuration.
+        final ActorRef shared = system.actorFor("/user/speech-synthesizer");
+        synthesizerOwned = shared.isTerminated();
+        synthesizer = synthesizerOwned ? tts(ttsConfiguration) : shared;
         super.init(runtime);
         final AnnouncementConverter converter = new AnnouncementConverter(configuration);
         final GsonBuilder builder = new GsonBuilder();
@@ -160,14 +166,15 @@ public abstract class AnnouncementsEndpoint extends SecuredEndpoint {
     private ActorRef tts(final Configuration configuration) {
         final String classpath = configuration.getString("[@class]");
 
-        return system.actorOf(new Props(new UntypedActorFactory() {
+        final Props synthesizer = new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public Actor create() throws Exception {
                 return (UntypedActor) Class.forName(classpath).getConstructor(Configuration.class).newInstance(configuration);
             }
-        }));
+        });
+        return system.actorOf(CachingSpeechSynthesizer.props(configuration, synthesizer));
     }
 
     private ActorRef cache(final String path, final String uri) {
@@ -187,6 +194,8 @@ public abstract class AnnouncementsEndpoint extends SecuredEndpoint {
             logger.info("Stopping actors before endpoint destroy");
         }
         system.stop(cache);
-        system.stop(synthesizer);
+        if (synthesizerOwned) {
+            system.stop(synthesizer);
+        }
     }
 }
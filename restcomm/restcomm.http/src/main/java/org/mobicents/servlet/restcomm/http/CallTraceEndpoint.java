@@ -0,0 +1,78 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static javax.ws.rs.core.Response.ok;
+import static javax.ws.rs.core.Response.status;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.trace.CallTrace;
+import org.mobicents.servlet.restcomm.trace.CallTracer;
+
+/**
+ * Returns the latency trace of a live or recently completed call, one line per step of the call setup and of the
+ * verbs it executed.
+ */
+@Path("/Accounts/{accountSid}/Calls/{callSid}/Trace")
+@ThreadSafe
+public final class CallTraceEndpoint extends SecuredEndpoint {
+    public CallTraceEndpoint() {
+        super();
+    }
+
+    // used for testing
+    public CallTraceEndpoint(ServletContext context, HttpServletRequest request) {
+        super(context, request);
+    }
+
+    @PostConstruct
+    public void init() {
+        Configuration configuration = (Configuration) context.getAttribute(Configuration.class.getName());
+        configuration = configuration.subset("runtime-settings");
+        super.init(configuration);
+    }
+
+    @GET
+    @Produces("text/plain")
+    public Response getTrace(@PathParam("accountSid") final String accountSid, @PathParam("callSid") final String callSid) {
+        final Account account = accountsDao.getAccount(accountSid);
+        secure(account, "RestComm:Read:Calls");
+        final CallTrace trace = CallTracer.getInstance().get(callSid);
+        // A trace whose account is not known yet is not shown to anybody
+        if (trace == null || trace.accountSid() == null || !trace.accountSid().equals(accountSid)) {
+            return status(NOT_FOUND).build();
+        }
+        secure(account, new Sid(trace.accountSid()), SecuredType.SECURED_STANDARD);
+        return ok(trace.toString(), "text/plain").build();
+    }
+}
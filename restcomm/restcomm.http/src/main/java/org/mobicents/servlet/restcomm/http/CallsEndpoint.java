@@ -24,14 +24,12 @@ import akka.util.Timeout;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.i18n.phonenumbers.NumberParseException;
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
-import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
 import com.thoughtworks.xstream.XStream;
 import org.apache.commons.configuration.Configuration;
 import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
 import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.dao.AccountsDao;
+import org.mobicents.servlet.restcomm.dao.CallDetailRecordHandler;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
 import org.mobicents.servlet.restcomm.dao.RecordingsDao;
@@ -57,6 +55,7 @@ import org.mobicents.servlet.restcomm.telephony.GetCall;
 import org.mobicents.servlet.restcomm.telephony.GetCallInfo;
 import org.mobicents.servlet.restcomm.telephony.Hangup;
 import org.mobicents.servlet.restcomm.telephony.UpdateCallScript;
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
 import scala.concurrent.Await;
 import scala.concurrent.Future;
 import scala.concurrent.duration.Duration;
@@ -67,7 +66,13 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URL;
 import java.text.ParseException;
@@ -96,6 +101,11 @@ import static javax.ws.rs.core.Response.status;
  */
 @NotThreadSafe
 public abstract class CallsEndpoint extends SecuredEndpoint {
+    private static final int EXPORT_BUFFER_SIZE = 8192;
+    private static final String CSV_HEADER = "Sid,ParentCallSid,DateCreated,DateUpdated,AccountSid,To,From,PhoneNumberSid,Status,"
+            + "StartTime,EndTime,Duration,RingDuration,Price,PriceUnit,Direction,AnsweredBy,ApiVersion,ForwardedFrom,CallerName,"
+            + "ConferenceSid,InstanceId,Uri\r\n";
+
     @Context
     protected ServletContext context;
     protected Configuration configuration;
@@ -269,17 +279,80 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
         }
     }
 
+    // Streams every cdr matching the query as csv instead of building one page of them in memory.
+    protected Response exportCalls(final String accountSid, final UriInfo info) {
+        Account account = daos.getAccountsDao().getAccount(accountSid);
+        secure(account, "RestComm:Read:Calls");
+        final MultivaluedMap<String, String> parameters = info.getQueryParameters();
+        final boolean localInstanceOnly = !"false".equalsIgnoreCase(parameters.getFirst("localOnly"));
+        List<String> ownerAccounts = null;
+        if ("true".equalsIgnoreCase(parameters.getFirst("SubAccounts"))) {
+            ownerAccounts = new ArrayList<String>();
+            ownerAccounts.add(accountSid);
+            ownerAccounts.addAll(accountsDao.getSubAccountSidsRecursive(new Sid(accountSid)));
+        }
+        final CallDetailRecordFilter filter;
+        try {
+            filter = new CallDetailRecordFilter(accountSid, ownerAccounts, parameters.getFirst("To"), parameters.getFirst("From"),
+                    parameters.getFirst("Status"), parameters.getFirst("StartTime"), parameters.getFirst("EndTime"),
+                    parameters.getFirst("ParentCallSid"), parameters.getFirst("ConferenceSid"), null, null,
+                    localInstanceOnly ? null : instanceId);
+        } catch (ParseException e) {
+            return status(BAD_REQUEST).build();
+        }
+        final CallDetailRecordsDao dao = daos.getCallDetailRecordsDao();
+        final StreamingOutput csv = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException {
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"), EXPORT_BUFFER_SIZE);
+                writer.write(CSV_HEADER);
+                dao.exportCallDetailRecords(filter, new CallDetailRecordHandler() {
+                    @Override
+                    public void handle(final CallDetailRecord cdr) throws IOException {
+                        writeCsv(writer, cdr);
+                    }
+                });
+                writer.flush();
+            }
+        };
+        return ok(csv, "text/csv").build();
+    }
+
+    private static void writeCsv(final Writer writer, final CallDetailRecord cdr) throws IOException {
+        final Object[] fields = { cdr.getSid(), cdr.getParentCallSid(), cdr.getDateCreated(), cdr.getDateUpdated(),
+                cdr.getAccountSid(), cdr.getTo(), cdr.getFrom(), cdr.getPhoneNumberSid(), cdr.getStatus(), cdr.getStartTime(),
+                cdr.getEndTime(), cdr.getDuration(), cdr.getRingDuration(), cdr.getPrice(), cdr.getPriceUnit(),
+                cdr.getDirection(), cdr.getAnsweredBy(), cdr.getApiVersion(), cdr.getForwardedFrom(), cdr.getCallerName(),
+                cdr.getConferenceSid(), cdr.getInstanceId(), cdr.getUri() };
+        for (int index = 0; index < fields.length; index++) {
+            if (index > 0) {
+                writer.write(',');
+            }
+            if (fields[index] != null) {
+                final String field = fields[index].toString();
+                if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                    writer.write('"');
+                    writer.write(field.replace("\"", "\"\""));
+                    writer.write('"');
+                } else {
+                    writer.write(field);
+                }
+            }
+        }
+        writer.write("\r\n");
+    }
+
     private void normalize(final MultivaluedMap<String, String> data) throws IllegalArgumentException {
-        final PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
+        final PhoneNumberNormalizer normalizer = PhoneNumberNormalizer.getInstance();
         final String from = data.getFirst("From");
         if (!from.contains("@")) {
             // https://github.com/Mobicents/RestComm/issues/150 Don't complain in case of URIs in the From header
             data.remove("From");
-            try {
-                data.putSingle("From", phoneNumberUtil.format(phoneNumberUtil.parse(from, "US"), PhoneNumberFormat.E164));
-            } catch (final NumberParseException exception) {
-                throw new IllegalArgumentException(exception);
+            final String fromE164 = normalizer.toE164(from);
+            if (fromE164 == null) {
+                throw new IllegalArgumentException(from + " is an invalid phone number.");
             }
+            data.putSingle("From", fromE164);
         }
         final String to = data.getFirst("To");
         // Only try to normalize phone numbers.
@@ -289,11 +362,11 @@ public abstract class CallsEndpoint extends SecuredEndpoint {
             }
         } else if (!to.contains("@")) {
             data.remove("To");
-            try {
-                data.putSingle("To", phoneNumberUtil.format(phoneNumberUtil.parse(to, "US"), PhoneNumberFormat.E164));
-            } catch (final NumberParseException exception) {
-                throw new IllegalArgumentException(exception);
+            final String toE164 = normalizer.toE164(to);
+            if (toE164 == null) {
+                throw new IllegalArgumentException(to + " is an invalid phone number.");
             }
+            data.putSingle("To", toE164);
         }
         URI.create(data.getFirst("Url"));
     }
@@ -51,6 +51,7 @@ import org.mobicents.servlet.restcomm.entities.Account;
 import org.mobicents.servlet.restcomm.http.converter.ClientConverter;
 import org.mobicents.servlet.restcomm.http.converter.ClientListConverter;
 import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
+import org.mobicents.servlet.restcomm.telephony.util.DigestAuthenticator;
 import org.mobicents.servlet.restcomm.util.StringUtils;
 
 /**
@@ -216,6 +217,7 @@ public abstract class ClientsEndpoint extends SecuredEndpoint {
         } else {
             secure(operatedAccount, client.getAccountSid(), SecuredType.SECURED_STANDARD );
             dao.updateClient(update(client, data));
+            DigestAuthenticator.getInstance().invalidate(client.getLogin());
             if (APPLICATION_XML_TYPE == responseType) {
                 final RestCommResponse response = new RestCommResponse(client);
                 return ok(xstream.toXML(response), APPLICATION_XML).build();
@@ -37,6 +37,7 @@ import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
 import org.mobicents.servlet.restcomm.entities.Account;
 import org.mobicents.servlet.restcomm.entities.Client;
 import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.telephony.util.DigestAuthenticator;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -55,6 +56,7 @@ public final class ClientsXmlEndpoint extends ClientsEndpoint {
         if (client != null) {
             secure(operatedAccount, client.getAccountSid(), SecuredType.SECURED_STANDARD);
             dao.removeClient(new Sid(sid));
+            DigestAuthenticator.getInstance().invalidate(client.getLogin());
             return ok().build();
         } else {
             return status(Response.Status.NOT_FOUND).build();
@@ -12,6 +12,7 @@ import com.google.gson.GsonBuilder;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
@@ -34,9 +35,6 @@ import org.mobicents.servlet.restcomm.email.EmailService;
 import org.mobicents.servlet.restcomm.entities.RestCommResponse;
 import org.mobicents.servlet.restcomm.http.converter.EmailMessageConverter;
 import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
-import org.mobicents.servlet.restcomm.patterns.Observe;
-import org.mobicents.servlet.restcomm.patterns.Observing;
-import org.mobicents.servlet.restcomm.patterns.StopObserving;
 
 
 /**
@@ -51,7 +49,6 @@ public class EmailMessagesEndpoint extends SecuredEndpoint {
     protected Configuration confemail;
     protected Gson gson;
     protected AccountsDao accountsDao;
-    ActorRef mailerService = null;
     protected XStream xstream;
 
     // Send the email.
@@ -61,6 +58,12 @@ public class EmailMessagesEndpoint extends SecuredEndpoint {
         super();
     }
 
+    // used for testing
+    public EmailMessagesEndpoint(ServletContext context, HttpServletRequest request) {
+        super(context, request);
+        this.context = context;
+    }
+
     @PostConstruct
     public void init() {
         final DaoManager storage = (DaoManager) context.getAttribute(DaoManager.class.getName());
@@ -145,12 +148,11 @@ public class EmailMessagesEndpoint extends SecuredEndpoint {
 
             // Send the email.
             emailMsg = new Mail(sender, recipient, subject, body ,cc,bcc, DateTime.now(),accountSid);
-            if (mailerService == null){
-                mailerService = session(confemail);
-            }
-
-            final ActorRef observer = observer();
-            mailerService.tell(new Observe(observer), observer);
+            // Prefer the smtp service shared by the interpreters, a service of our own only lives for this message.
+            final ActorRef shared = system.actorFor("/user/smtp-service");
+            final boolean owned = shared.isTerminated();
+            final ActorRef mailer = owned ? session(confemail) : shared;
+            mailer.tell(new EmailRequest(emailMsg), observer(mailer, owned));
             if (APPLICATION_JSON_TYPE == responseType) {
                 return ok(gson.toJson(emailMsg), APPLICATION_JSON).build();
             } else if (APPLICATION_XML_TYPE == responseType) {
@@ -225,20 +227,25 @@ public class EmailMessagesEndpoint extends SecuredEndpoint {
         }));
     }
 
-    private ActorRef observer() {
+    private ActorRef observer(final ActorRef mailer, final boolean owned) {
         return system.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
-                return new EmailSessionObserver();
+                return new EmailSessionObserver(mailer, owned);
             }
         }));
     }
 
-    private final class EmailSessionObserver extends UntypedActor {
-        public EmailSessionObserver() {
+    private static final class EmailSessionObserver extends UntypedActor {
+        private final ActorRef mailer;
+        private final boolean owned;
+
+        public EmailSessionObserver(final ActorRef mailer, final boolean owned) {
             super();
+            this.mailer = mailer;
+            this.owned = owned;
         }
 
         @Override
@@ -253,11 +260,11 @@ public class EmailMessagesEndpoint extends SecuredEndpoint {
                 }
 
                 final UntypedActorContext context = getContext();
-                final ActorRef self = self();
-                mailerService.tell(new StopObserving(self), null);
-                context.stop(self);
-            }else if (Observing.class.equals(klass)){
-                mailerService.tell(new EmailRequest(emailMsg), self());
+                if (owned) {
+                    // Stops the delivery threads of the service along with it.
+                    context.system().stop(mailer);
+                }
+                context.stop(self());
             }
         }
     }
@@ -21,6 +21,8 @@ package org.mobicents.servlet.restcomm.http;
 
 import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
 
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -39,6 +41,11 @@ public final class EmailMessagesJsonEndpoint extends EmailMessagesEndpoint {
         super();
     }
 
+    // used for testing
+    public EmailMessagesJsonEndpoint(ServletContext context, HttpServletRequest request) {
+        super(context, request);
+    }
+
     @POST
     public Response putEmailMessage(@PathParam("accountSid") final String accountSid, final MultivaluedMap<String, String> data) {
         return putEmailMessage(accountSid, data, APPLICATION_JSON_TYPE);
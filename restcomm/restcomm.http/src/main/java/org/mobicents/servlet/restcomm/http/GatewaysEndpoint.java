@@ -1,5 +1,6 @@
 package org.mobicents.servlet.restcomm.http;
 
+import static akka.pattern.Patterns.ask;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static javax.ws.rs.core.MediaType.APPLICATION_XML;
@@ -7,13 +8,16 @@ import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
 import static javax.ws.rs.core.Response.ok;
 import static javax.ws.rs.core.Response.status;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
@@ -29,11 +33,20 @@ import org.mobicents.servlet.restcomm.entities.RestCommResponse;
 import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.http.converter.GatewayConverter;
 import org.mobicents.servlet.restcomm.http.converter.GatewayListConverter;
+import org.mobicents.servlet.restcomm.http.converter.GatewayRegistrationConverter;
+import org.mobicents.servlet.restcomm.http.converter.GatewayRegistrationListConverter;
 import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
+import org.mobicents.servlet.restcomm.telephony.GatewayRegistration;
+import org.mobicents.servlet.restcomm.telephony.GatewayRegistrationList;
+import org.mobicents.servlet.restcomm.telephony.GetGatewayRegistrations;
 import org.mobicents.servlet.restcomm.telephony.RegisterGateway;
 import org.mobicents.servlet.restcomm.util.StringUtils;
 
+import scala.concurrent.Await;
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
 import akka.actor.ActorRef;
+import akka.util.Timeout;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -53,6 +66,12 @@ public class GatewaysEndpoint extends SecuredEndpoint {
         super();
     }
 
+    // used for testing
+    public GatewaysEndpoint(ServletContext context, HttpServletRequest request) {
+        super(context, request);
+        this.context = context;
+    }
+
     @PostConstruct
     public void init() {
         final DaoManager storage = (DaoManager) context.getAttribute(DaoManager.class.getName());
@@ -63,12 +82,16 @@ public class GatewaysEndpoint extends SecuredEndpoint {
         final GatewayConverter converter = new GatewayConverter(configuration);
         final GsonBuilder builder = new GsonBuilder();
         builder.registerTypeAdapter(Gateway.class, converter);
+        final GatewayRegistrationConverter registrationConverter = new GatewayRegistrationConverter(configuration);
+        builder.registerTypeAdapter(GatewayRegistration.class, registrationConverter);
         builder.setPrettyPrinting();
         gson = builder.create();
         xstream = new XStream();
         xstream.alias("RestcommResponse", RestCommResponse.class);
         xstream.registerConverter(converter);
         xstream.registerConverter(new GatewayListConverter(configuration));
+        xstream.registerConverter(registrationConverter);
+        xstream.registerConverter(new GatewayRegistrationListConverter(configuration));
         xstream.registerConverter(new RestCommResponseConverter(configuration));
         proxyManager = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.telephony.proxy.ProxyManager");
     }
@@ -127,6 +150,30 @@ public class GatewaysEndpoint extends SecuredEndpoint {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    protected Response getGatewayRegistrations(final String accountSid, final MediaType responseType) {
+        secure(accountsDao.getAccount(accountSid), "RestComm:Read:Gateways");
+        if (proxyManager == null) {
+            proxyManager = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.telephony.proxy.ProxyManager");
+        }
+        final List<GatewayRegistration> registrations;
+        final Timeout expires = new Timeout(Duration.create(60, TimeUnit.SECONDS));
+        try {
+            final Future<Object> future = ask(proxyManager, new GetGatewayRegistrations(), expires);
+            registrations = (List<GatewayRegistration>) Await.result(future, Duration.create(10, TimeUnit.SECONDS));
+        } catch (Exception exception) {
+            return status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
+        }
+        if (APPLICATION_XML_TYPE == responseType) {
+            final RestCommResponse response = new RestCommResponse(new GatewayRegistrationList(registrations));
+            return ok(xstream.toXML(response), APPLICATION_XML).build();
+        } else if (APPLICATION_JSON_TYPE == responseType) {
+            return ok(gson.toJson(registrations), APPLICATION_JSON).build();
+        } else {
+            return null;
+        }
+    }
+
     protected Response putGateway(final String accountSid, final MultivaluedMap<String, String> data, final MediaType responseType) {
         secure(accountsDao.getAccount(accountSid), "RestComm:Create:Gateways");
         try {
@@ -23,6 +23,8 @@ import static javax.ws.rs.core.MediaType.*;
 import static javax.ws.rs.core.Response.*;
 import static javax.ws.rs.core.Response.Status.*;
 
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -45,6 +47,11 @@ public final class GatewaysXmlEndpoint extends GatewaysEndpoint {
         super();
     }
 
+    // used for testing
+    public GatewaysXmlEndpoint(ServletContext context, HttpServletRequest request) {
+        super(context, request);
+    }
+
     private Response deleteGateway(final String accountSid, final String sid) {
         secure(super.accountsDao.getAccount(accountSid), "RestComm:Modify:Gateways");
         dao.removeGateway(new Sid(sid));
@@ -63,6 +70,18 @@ public final class GatewaysXmlEndpoint extends GatewaysEndpoint {
         return deleteGateway(accountSid, sid);
     }
 
+    @Path("/Registrations.json")
+    @GET
+    public Response getGatewayRegistrationsAsJson(@PathParam("accountSid") final String accountSid) {
+        return getGatewayRegistrations(accountSid, APPLICATION_JSON_TYPE);
+    }
+
+    @Path("/Registrations")
+    @GET
+    public Response getGatewayRegistrationsAsXml(@PathParam("accountSid") final String accountSid) {
+        return getGatewayRegistrations(accountSid, APPLICATION_XML_TYPE);
+    }
+
     @Path("/{sid}.json")
     @GET
     public Response getGatewayAsJson(@PathParam("accountSid") final String accountSid, @PathParam("sid") final String sid) {
@@ -0,0 +1,72 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static javax.ws.rs.core.Response.ok;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import javax.annotation.PostConstruct;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+/**
+ * Exposes the metrics registry in the Prometheus text format. Scrapers authenticate like any other API client.
+ */
+@Path("/Accounts/{accountSid}/Metrics")
+@ThreadSafe
+public final class MetricsEndpoint extends SecuredEndpoint {
+    public MetricsEndpoint() {
+        super();
+    }
+
+    @PostConstruct
+    public void init() {
+        Configuration configuration = (Configuration) context.getAttribute(Configuration.class.getName());
+        configuration = configuration.subset("runtime-settings");
+        super.init(configuration);
+    }
+
+    @GET
+    @Produces("text/plain; version=0.0.4")
+    public Response getMetrics(@PathParam("accountSid") final String accountSid) {
+        secure(accountsDao.getAccount(accountSid), "RestComm:Read:Calls");
+        final StreamingOutput output = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream stream) throws IOException {
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(stream, "UTF-8"));
+                MetricsRegistry.getInstance().write(writer);
+            }
+        };
+        return ok(output, "text/plain; version=0.0.4").build();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.metrics.Counter;
+import org.mobicents.servlet.restcomm.metrics.LatencyHistogram;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+import com.sun.jersey.api.model.AbstractMethod;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ResourceFilter;
+import com.sun.jersey.spi.container.ResourceFilterFactory;
+
+/**
+ * Times every REST API call and counts the ones answered with a 5xx, labelled with the resource method that served
+ * it (e.g. CallsJsonEndpoint.getCalls). Jersey asks for the filters once per resource method when the application
+ * starts, so the metrics are looked up there and a request only records into them.
+ *
+ * Registered on the Jersey servlet with the com.sun.jersey.spi.container.ResourceFilters init parameter.
+ */
+@ThreadSafe
+public final class MetricsResourceFilterFactory implements ResourceFilterFactory {
+    // Jersey 1 runs the request filter, the resource and the response filter on the same thread.
+    private static final ThreadLocal<long[]> starts = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    public MetricsResourceFilterFactory() {
+        super();
+    }
+
+    @Override
+    public List<ResourceFilter> create(final AbstractMethod method) {
+        final String resource = method.getResource().getResourceClass().getSimpleName() + "." + method.getMethod().getName();
+        return Collections.<ResourceFilter> singletonList(new MetricsFilter(resource));
+    }
+
+    private static final class MetricsFilter implements ResourceFilter, ContainerRequestFilter, ContainerResponseFilter {
+        private final LatencyHistogram latency;
+        private final Counter errors;
+
+        private MetricsFilter(final String resource) {
+            super();
+            final MetricsRegistry registry = MetricsRegistry.getInstance();
+            latency = registry.histogram("restcomm_http_request_seconds", "Time spent serving REST API requests.",
+                    "resource", resource);
+            errors = registry.counter("restcomm_http_request_errors_total", "REST API requests answered with a 5xx.",
+                    "resource", resource);
+        }
+
+        @Override
+        public ContainerRequestFilter getRequestFilter() {
+            return this;
+        }
+
+        @Override
+        public ContainerResponseFilter getResponseFilter() {
+            return this;
+        }
+
+        @Override
+        public ContainerRequest filter(final ContainerRequest request) {
+            starts.get()[0] = System.nanoTime();
+            return request;
+        }
+
+        @Override
+        public ContainerResponse filter(final ContainerRequest request, final ContainerResponse response) {
+            latency.recordSince(starts.get()[0]);
+            if (response.getStatus() >= 500) {
+                errors.increment();
+            }
+            return response;
+        }
+    }
+}
@@ -33,11 +33,13 @@ import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static javax.ws.rs.core.Response.Status.UNAUTHORIZED;
 
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
@@ -67,6 +69,8 @@ import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
 import org.mobicents.servlet.restcomm.telephony.CallInfo;
 import org.mobicents.servlet.restcomm.telephony.CallResponse;
 import org.mobicents.servlet.restcomm.telephony.CallStateChanged;
+import org.mobicents.servlet.restcomm.telephony.ConferenceParticipant;
+import org.mobicents.servlet.restcomm.telephony.ConferenceParticipantRegistry;
 import org.mobicents.servlet.restcomm.telephony.GetCall;
 import org.mobicents.servlet.restcomm.telephony.GetCallInfo;
 import org.mobicents.servlet.restcomm.mscontrol.messages.Mute;
@@ -99,11 +103,18 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
     protected AccountsDao accountsDao;
     protected RecordingsDao recordingsDao;
     protected String instanceId;
+    protected ConferenceParticipantRegistry participants;
 
     public ParticipantsEndpoint() {
         super();
     }
 
+    // used for testing
+    public ParticipantsEndpoint(ServletContext context, HttpServletRequest request) {
+        super(context, request);
+        this.context = context;
+    }
+
     @PostConstruct
     public void init() {
         configuration = (Configuration) context.getAttribute(Configuration.class.getName());
@@ -131,6 +142,7 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
         xstream.registerConverter(listConverter);
 
         instanceId = RestcommConfiguration.getInstance().getMain().getInstanceId();
+        participants = ConferenceParticipantRegistry.getInstance();
     }
 
     protected Response getCall(final String accountSid, final String sid, final MediaType responseType) {
@@ -194,6 +206,20 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
         int offset = (page == "0") ? 0 : (((Integer.parseInt(page) - 1) * Integer.parseInt(pageSize)) + Integer
                 .parseInt(pageSize));
 
+        // A conference running on this instance is listed from memory, the database is only asked once it is over
+        final Sid conference = localInstanceOnly ? activeConference(accountSid, conferenceSid) : null;
+        if (conference != null) {
+            final int total = participants.count(conference);
+            if (Integer.parseInt(page) > (total / limit)) {
+                return status(javax.ws.rs.core.Response.Status.BAD_REQUEST).build();
+            }
+            final List<CallDetailRecord> cdrs = new ArrayList<CallDetailRecord>();
+            for (final ConferenceParticipant participant : participants.participants(conference, offset, limit)) {
+                cdrs.add(toCallDetailRecord(conference, participant));
+            }
+            return getCalls(cdrs, total, page, pageSize, info, responseType);
+        }
+
         CallDetailRecordsDao dao = daos.getCallDetailRecordsDao();
 
         CallDetailRecordFilter filterForTotal;
@@ -231,14 +257,13 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
 
         final List<CallDetailRecord> cdrs = dao.getCallDetailRecords(filter);
         if (logger.isDebugEnabled()) {
-            final List<CallDetailRecord> allCdrs = dao.getCallDetailRecords(new Sid(accountSid));
-            logger.debug("CDR with filter size: "+ cdrs.size()+", all CDR with no filter size: "+allCdrs.size());
-            logger.debug("CDRs for ConferenceSid: "+conferenceSid);
-            for (CallDetailRecord cdr: allCdrs) {
-                logger.debug("CDR sid: "+cdr.getSid()+", status: "+cdr.getStatus()+", conferenceSid: "+cdr.getConferenceSid());
-            }
+            logger.debug("CDR with filter size: "+ cdrs.size()+", total: "+total+", ConferenceSid: "+conferenceSid);
         }
+        return getCalls(cdrs, total, page, pageSize, info, responseType);
+    }
 
+    private Response getCalls(final List<CallDetailRecord> cdrs, final int total, final String page,
+            final String pageSize, final UriInfo info, final MediaType responseType) {
         listConverter.setCount(total);
         listConverter.setPage(Integer.parseInt(page));
         listConverter.setPageSize(Integer.parseInt(pageSize));
@@ -254,6 +279,48 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
         }
     }
 
+    private Sid activeConference(final String accountSid, final String conferenceSid) {
+        final Sid conference;
+        try {
+            conference = new Sid(conferenceSid);
+        } catch (final IllegalArgumentException exception) {
+            return null;
+        }
+        final Sid account = participants.account(conference);
+        return account != null && account.toString().equals(accountSid) ? conference : null;
+    }
+
+    // The call record of a participant as the database would return it while the call is in the conference.
+    static CallDetailRecord toCallDetailRecord(final Sid conference, final ConferenceParticipant participant) {
+        final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+        builder.setSid(participant.getSid());
+        builder.setInstanceId(participant.getInstanceId());
+        builder.setParentCallSid(participant.getParentCallSid());
+        builder.setConferenceSid(conference);
+        builder.setDateCreated(participant.getDateCreated());
+        builder.setAccountSid(participant.getAccountSid());
+        builder.setTo(participant.getTo());
+        builder.setFrom(participant.getFrom());
+        builder.setPhoneNumberSid(participant.getPhoneNumberSid());
+        // Only calls in progress take part in a running conference.
+        builder.setStatus(CallStateChanged.State.IN_PROGRESS.toString());
+        builder.setStartTime(participant.getStartTime());
+        builder.setPrice(participant.getPrice());
+        builder.setPriceUnit(participant.getPriceUnit());
+        builder.setDirection(participant.getDirection());
+        builder.setAnsweredBy(participant.getAnsweredBy());
+        builder.setApiVersion(participant.getApiVersion());
+        builder.setForwardedFrom(participant.getForwardedFrom());
+        builder.setCallerName(participant.getCallerName());
+        builder.setCallPath(participant.getCallPath());
+        builder.setMuted(participant.isMuted());
+        builder.setOnHold(participant.isOnHold());
+        builder.setStartConferenceOnEnter(participant.isStartConferenceOnEnter());
+        builder.setEndConferenceOnExit(participant.isEndConferenceOnExit());
+        builder.setUri(participant.getUri());
+        return builder.build();
+    }
+
     @SuppressWarnings("unchecked")
     protected Response updateCall(final String sid, final String callSid, final MultivaluedMap<String, String> data, final MediaType responseType) {
         final Sid accountSid = new Sid(sid);
@@ -317,6 +384,9 @@ public abstract class ParticipantsEndpoint extends SecuredEndpoint {
                 }
                 cdr = cdr.setMuted(muted);
                 dao.updateCallDetailRecord(cdr);
+                if (cdr.getConferenceSid() != null) {
+                    participants.setMuted(cdr.getConferenceSid(), cdr.getSid(), muted);
+                }
             }
         }
         if (APPLICATION_JSON_TYPE == responseType) {
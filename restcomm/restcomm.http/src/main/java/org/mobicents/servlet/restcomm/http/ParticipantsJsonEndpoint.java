@@ -21,6 +21,8 @@ package org.mobicents.servlet.restcomm.http;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -42,6 +44,11 @@ public final class ParticipantsJsonEndpoint extends ParticipantsEndpoint {
         super();
     }
 
+    // used for testing
+    public ParticipantsJsonEndpoint(ServletContext context, HttpServletRequest request) {
+        super(context, request);
+    }
+
     @GET
     public Response getParticipants(@PathParam("accountSid") final String accountSid, @PathParam("conferenceSid") final String conferenceSid, @Context UriInfo info) {
         return getCalls(accountSid, conferenceSid, info, APPLICATION_JSON_TYPE);
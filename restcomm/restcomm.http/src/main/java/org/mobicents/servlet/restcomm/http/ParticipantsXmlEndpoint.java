@@ -22,6 +22,8 @@ package org.mobicents.servlet.restcomm.http;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
 
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -43,6 +45,11 @@ public final class ParticipantsXmlEndpoint extends ParticipantsEndpoint {
         super();
     }
 
+    // used for testing
+    public ParticipantsXmlEndpoint(ServletContext context, HttpServletRequest request) {
+        super(context, request);
+    }
+
     @Path("/{callSid}.json")
     @GET
     public Response getParticipantAsJson(@PathParam("accountSid") final String accountSid, @PathParam("conferenceSid") final String conferenceSid, @PathParam("callSid") final String callSid) {
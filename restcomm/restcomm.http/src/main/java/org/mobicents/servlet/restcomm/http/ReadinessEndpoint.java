@@ -0,0 +1,88 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.Response.status;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.startup.StartupGraph;
+import org.mobicents.servlet.restcomm.startup.StartupGraph.StepStatus;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Tells load balancers and orchestrators whether the node can take traffic: 200 once the critical start up steps are
+ * up, 503 until then. The body reports every step, with the progress of the ones still running in the background.
+ * It does not require authentication, it reveals nothing but the start up timings.
+ */
+@Path("/Readiness")
+@ThreadSafe
+public final class ReadinessEndpoint {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    @Context
+    private ServletContext context;
+
+    public ReadinessEndpoint() {
+        super();
+    }
+
+    ReadinessEndpoint(final ServletContext context) {
+        super();
+        this.context = context;
+    }
+
+    @GET
+    public Response getReadiness() {
+        final StartupGraph startup = (StartupGraph) context.getAttribute(StartupGraph.class.getName());
+        final boolean ready = startup != null && startup.isReady();
+        final JsonObject object = new JsonObject();
+        object.addProperty("ready", ready);
+        final JsonArray steps = new JsonArray();
+        if (startup != null) {
+            for (final StepStatus step : startup.steps()) {
+                final JsonObject item = new JsonObject();
+                item.addProperty("name", step.getName());
+                item.addProperty("critical", step.isCritical());
+                item.addProperty("state", step.getState().name());
+                item.addProperty("start", step.getStart());
+                item.addProperty("duration", step.getDuration());
+                if (step.getProgress() != null) {
+                    item.addProperty("progress", step.getProgress());
+                }
+                steps.add(item);
+            }
+        }
+        object.add("steps", steps);
+        return status(ready ? Status.OK : Status.SERVICE_UNAVAILABLE).entity(gson.toJson(object)).type(APPLICATION_JSON)
+                .build();
+    }
+}
@@ -89,7 +89,7 @@ public abstract class SecuredEndpoint extends AbstractEndpoint {
         final DaoManager storage = (DaoManager) context.getAttribute(DaoManager.class.getName());
         this.accountsDao = storage.getAccountsDao();
         this.identityContext = (IdentityContext) context.getAttribute(IdentityContext.class.getName());
-        this.userIdentityContext = new UserIdentityContext(request, accountsDao);
+        this.userIdentityContext = new UserIdentityContext(request, accountsDao, identityContext == null ? null : identityContext.getCredentialsCache());
     }
 
     /**
@@ -0,0 +1,477 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static akka.pattern.Patterns.ask;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
+import static javax.ws.rs.core.Response.ok;
+import static javax.ws.rs.core.Response.status;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.configuration.Configuration;
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
+import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.SmsCampaignsDao;
+import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.InstanceId;
+import org.mobicents.servlet.restcomm.entities.RestCommResponse;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.entities.SmsCampaign;
+import org.mobicents.servlet.restcomm.entities.SmsCampaignList;
+import org.mobicents.servlet.restcomm.entities.SmsMessage;
+import org.mobicents.servlet.restcomm.http.converter.RestCommResponseConverter;
+import org.mobicents.servlet.restcomm.http.converter.SmsCampaignConverter;
+import org.mobicents.servlet.restcomm.http.converter.SmsCampaignListConverter;
+import org.mobicents.servlet.restcomm.sms.CancelSmsCampaign;
+import org.mobicents.servlet.restcomm.sms.CreateSmsCampaign;
+import org.mobicents.servlet.restcomm.sms.GetSmsCampaign;
+import org.mobicents.servlet.restcomm.sms.GetSmsCampaigns;
+import org.mobicents.servlet.restcomm.sms.SmsCampaignBatch;
+import org.mobicents.servlet.restcomm.sms.SmsServiceResponse;
+import org.mobicents.servlet.restcomm.sms.SmsSessionRequest;
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
+import org.mobicents.servlet.restcomm.util.StringUtils;
+
+import scala.concurrent.Await;
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+import akka.actor.ActorRef;
+import akka.util.Timeout;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Bulk outbound sms. A campaign sends the same body, or a template filled from the columns of a CSV upload, to a list
+ * of recipients. The messages are stored in JDBC batches and handed to the campaign dispatcher which sends them at the
+ * configured rates. Each message is a regular sms message record, the campaign resource reports the progress.
+ */
+@NotThreadSafe
+public abstract class SmsCampaignsEndpoint extends SecuredEndpoint {
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int DEFAULT_REQUEST_TIMEOUT = 5;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Context
+    protected ServletContext context;
+    protected Configuration configuration;
+    protected ActorRef dispatcher;
+    protected SmsMessagesDao dao;
+    protected SmsCampaignsDao campaignsDao;
+    protected Gson gson;
+    protected XStream xstream;
+
+    private int batchSize;
+    private Timeout requestTimeout;
+    private boolean normalizePhoneNumbers;
+
+    public SmsCampaignsEndpoint() {
+        super();
+    }
+
+    // used for testing
+    public SmsCampaignsEndpoint(ServletContext context, HttpServletRequest request) {
+        super(context, request);
+        this.context = context;
+    }
+
+    @PostConstruct
+    public void init() {
+        final DaoManager storage = (DaoManager) context.getAttribute(DaoManager.class.getName());
+        final Configuration main = (Configuration) context.getAttribute(Configuration.class.getName());
+        final Configuration campaigns = main.subset("sms-campaigns");
+        batchSize = campaigns.getInt("batch-size", DEFAULT_BATCH_SIZE);
+        requestTimeout = new Timeout(Duration.create(campaigns.getInt("request-timeout", DEFAULT_REQUEST_TIMEOUT),
+                TimeUnit.SECONDS));
+        configuration = main.subset("runtime-settings");
+        dao = storage.getSmsMessagesDao();
+        campaignsDao = storage.getSmsCampaignsDao();
+        dispatcher = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.sms.SmsCampaignDispatcher");
+        super.init(configuration);
+        final SmsCampaignConverter converter = new SmsCampaignConverter(configuration);
+        final GsonBuilder builder = new GsonBuilder();
+        builder.registerTypeAdapter(SmsCampaign.class, converter);
+        builder.setPrettyPrinting();
+        gson = builder.create();
+        xstream = new XStream();
+        xstream.alias("RestcommResponse", RestCommResponse.class);
+        xstream.registerConverter(converter);
+        xstream.registerConverter(new SmsCampaignListConverter(configuration));
+        xstream.registerConverter(new RestCommResponseConverter(configuration));
+
+        normalizePhoneNumbers = configuration.getBoolean("normalize-numbers-for-outbound-calls");
+    }
+
+    protected Response getSmsCampaign(final String accountSid, final String sid, final MediaType responseType) {
+        final Account operatedAccount = accountsDao.getAccount(accountSid);
+        secure(operatedAccount, "RestComm:Read:SmsMessages");
+        final SmsCampaign campaign;
+        try {
+            campaign = (SmsCampaign) request(new GetSmsCampaign(new Sid(sid)));
+        } catch (final Exception exception) {
+            return failure(exception);
+        }
+        if (campaign == null) {
+            return status(NOT_FOUND).build();
+        }
+        secure(operatedAccount, campaign.getAccountSid(), SecuredType.SECURED_STANDARD);
+        return toResponse(campaign, responseType);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Response getSmsCampaigns(final String accountSid, final MediaType responseType) {
+        secure(accountsDao.getAccount(accountSid), "RestComm:Read:SmsMessages");
+        final List<SmsCampaign> campaigns;
+        try {
+            campaigns = (List<SmsCampaign>) request(new GetSmsCampaigns(new Sid(accountSid)));
+        } catch (final Exception exception) {
+            return failure(exception);
+        }
+        if (APPLICATION_JSON_TYPE == responseType) {
+            return ok(gson.toJson(campaigns), APPLICATION_JSON).build();
+        } else if (APPLICATION_XML_TYPE == responseType) {
+            final RestCommResponse response = new RestCommResponse(new SmsCampaignList(campaigns));
+            return ok(xstream.toXML(response), APPLICATION_XML).build();
+        } else {
+            return null;
+        }
+    }
+
+    protected Response updateSmsCampaign(final String accountSid, final String sid,
+            final MultivaluedMap<String, String> data, final MediaType responseType) {
+        final Account operatedAccount = accountsDao.getAccount(accountSid);
+        secure(operatedAccount, "RestComm:Modify:SmsMessages");
+        if (!SmsCampaign.Status.CANCELED.toString().equalsIgnoreCase(data.getFirst("Status"))) {
+            return status(BAD_REQUEST).entity("Status can only be set to " + SmsCampaign.Status.CANCELED).build();
+        }
+        try {
+            final SmsCampaign campaign = (SmsCampaign) request(new GetSmsCampaign(new Sid(sid)));
+            if (campaign == null) {
+                return status(NOT_FOUND).build();
+            }
+            secure(operatedAccount, campaign.getAccountSid(), SecuredType.SECURED_STANDARD);
+            return toResponse((SmsCampaign) request(new CancelSmsCampaign(campaign.getSid())), responseType);
+        } catch (final Exception exception) {
+            return failure(exception);
+        }
+    }
+
+    /**
+     * Creates a campaign from the To parameters of a form post, every recipient gets the same Body.
+     */
+    protected Response putSmsCampaign(final String accountSid, final MultivaluedMap<String, String> data,
+            final MediaType responseType) {
+        secure(accountsDao.getAccount(accountSid), "RestComm:Create:SmsMessages");
+        final List<String> recipients = data.get("To");
+        if (recipients == null || recipients.isEmpty()) {
+            return status(BAD_REQUEST).entity("To can not be null.").build();
+        }
+        final Campaign campaign;
+        try {
+            campaign = new Campaign(new Sid(accountSid), data);
+        } catch (final RuntimeException exception) {
+            return status(BAD_REQUEST).entity(exception.getMessage()).build();
+        }
+        final Map<String, String> variables = Collections.emptyMap();
+        for (final String recipient : recipients) {
+            campaign.add(recipient, variables);
+        }
+        return campaign.close(responseType);
+    }
+
+    /**
+     * Creates a campaign from a CSV upload. The first line names the columns, one of them must be To. The Body
+     * parameter is a template, {Column} is replaced by the value of that column for each recipient.
+     */
+    protected Response putSmsCampaign(final String accountSid, final MultivaluedMap<String, String> data,
+            final InputStream csv, final MediaType responseType) {
+        secure(accountsDao.getAccount(accountSid), "RestComm:Create:SmsMessages");
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(csv, UTF_8));
+        final Campaign campaign;
+        final List<String> columns;
+        try {
+            String line = reader.readLine();
+            columns = line != null ? parse(line) : Collections.<String> emptyList();
+            if (!columns.contains("To")) {
+                return status(BAD_REQUEST).entity("The first line of the CSV must name the columns, including To.")
+                        .build();
+            }
+            campaign = new Campaign(new Sid(accountSid), data);
+        } catch (final IOException exception) {
+            return status(BAD_REQUEST).entity(exception.getMessage()).build();
+        } catch (final RuntimeException exception) {
+            return status(BAD_REQUEST).entity(exception.getMessage()).build();
+        }
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                if (!line.trim().isEmpty()) {
+                    final List<String> values = parse(line);
+                    final Map<String, String> variables = new HashMap<String, String>();
+                    for (int i = 0; i < columns.size() && i < values.size(); i++) {
+                        variables.put(columns.get(i), values.get(i));
+                    }
+                    campaign.add(variables.get("To"), variables);
+                }
+                line = reader.readLine();
+            }
+        } catch (final IOException exception) {
+            // Whatever was read so far is already stored and queued, report the campaign as it stands.
+            logger.warn("Could not read the whole recipient list of campaign " + campaign.sid, exception);
+        }
+        return campaign.close(responseType);
+    }
+
+    /**
+     * Asks the dispatcher and waits for its answer no longer than the configured request-timeout, a busy dispatcher
+     * must not hold on to the http worker threads.
+     */
+    @SuppressWarnings("unchecked")
+    private Object request(final Object message) throws Exception {
+        if (dispatcher == null) {
+            throw new IllegalStateException("The sms campaign dispatcher is not running.");
+        }
+        final Future<Object> future = (Future<Object>) ask(dispatcher, message, requestTimeout);
+        final SmsServiceResponse<?> response = (SmsServiceResponse<?>) Await.result(future, requestTimeout.duration());
+        return response.succeeded() ? response.get() : null;
+    }
+
+    private Response failure(final Exception exception) {
+        if (exception instanceof TimeoutException) {
+            return status(SERVICE_UNAVAILABLE).entity("The sms campaign dispatcher did not answer in time.").build();
+        }
+        return status(INTERNAL_SERVER_ERROR).entity(exception.getMessage()).build();
+    }
+
+    private Response toResponse(final SmsCampaign campaign, final MediaType responseType) {
+        if (APPLICATION_JSON_TYPE == responseType) {
+            return ok(gson.toJson(campaign), APPLICATION_JSON).build();
+        } else if (APPLICATION_XML_TYPE == responseType) {
+            final RestCommResponse response = new RestCommResponse(campaign);
+            return ok(xstream.toXML(response), APPLICATION_XML).build();
+        } else {
+            return null;
+        }
+    }
+
+    // A CSV line as per RFC 4180, quoted fields may contain commas and doubled quotes but not line breaks.
+    static List<String> parse(final String line) {
+        final List<String> values = new ArrayList<String>();
+        final StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    static String fill(final String template, final Map<String, String> variables) {
+        if (variables.isEmpty() || template.indexOf('{') < 0) {
+            return template;
+        }
+        String body = template;
+        for (final Map.Entry<String, String> variable : variables.entrySet()) {
+            body = body.replace("{" + variable.getKey() + "}", variable.getValue());
+        }
+        return body;
+    }
+
+    /**
+     * Builds the message records of a campaign and flushes them to the database and the dispatcher every batchSize
+     * recipients. The campaign is recorded first, with the instance that dispatches it, so that instance can resume
+     * it after a restart.
+     */
+    private final class Campaign {
+        private final Sid sid;
+        private final Sid accountSid;
+        private final String apiVersion;
+        private final String sender;
+        private final String template;
+        private final String rootUri;
+        private List<SmsMessage> batch;
+
+        private Campaign(final Sid accountSid, final MultivaluedMap<String, String> data) {
+            super();
+            if (!data.containsKey("From")) {
+                throw new NullPointerException("From can not be null.");
+            } else if (!data.containsKey("Body")) {
+                throw new NullPointerException("Body can not be null.");
+            }
+            if (dispatcher == null) {
+                throw new IllegalStateException("The sms campaign dispatcher is not running.");
+            }
+            String from = data.getFirst("From");
+            if (normalizePhoneNumbers) {
+                final String e164 = PhoneNumberNormalizer.getInstance().toE164(from);
+                if (e164 == null) {
+                    throw new IllegalArgumentException(from + " is an invalid phone number.");
+                }
+                from = e164;
+            }
+            final SmsSessionRequest.Encoding encoding;
+            if (!data.containsKey("Encoding")) {
+                encoding = SmsSessionRequest.Encoding.GSM;
+            } else {
+                encoding = SmsSessionRequest.Encoding.valueOf(data.getFirst("Encoding").replace('-', '_'));
+            }
+            final ConcurrentHashMap<String, String> headers = new ConcurrentHashMap<String, String>();
+            final Iterator<String> names = data.keySet().iterator();
+            while (names.hasNext()) {
+                final String name = names.next();
+                if (name.startsWith("X-")) {
+                    headers.put(name, data.getFirst(name));
+                }
+            }
+            this.sid = Sid.generate(Sid.Type.SMS_CAMPAIGN);
+            this.accountSid = accountSid;
+            this.apiVersion = getApiVersion(data);
+            this.sender = from;
+            this.template = data.getFirst("Body");
+            this.rootUri = StringUtils.addSuffixIfNotPresent(configuration.getString("root-uri"), "/");
+            this.batch = new ArrayList<SmsMessage>(batchSize);
+            final StringBuilder buffer = new StringBuilder();
+            buffer.append(rootUri).append(apiVersion).append("/Accounts/").append(accountSid.toString());
+            buffer.append("/SMS/Campaigns/").append(sid.toString());
+            final InstanceId instanceId = (InstanceId) context.getAttribute(InstanceId.class.getName());
+            final DateTime now = DateTime.now();
+            final SmsCampaign campaign = new SmsCampaign(sid, now, now, accountSid, sender, template,
+                    SmsCampaign.Status.QUEUED, 0, 0, 0, 0, 0, apiVersion, URI.create(buffer.toString()),
+                    encoding.name(), instanceId == null ? null : instanceId.getId().toString());
+            campaignsDao.addSmsCampaign(campaign);
+            dispatcher.tell(new CreateSmsCampaign(campaign, encoding, headers), null);
+        }
+
+        private void add(final String to, final Map<String, String> variables) {
+            // Recipients we can not send to are recorded as failed messages so they show up in the results.
+            SmsMessage.Status status = SmsMessage.Status.QUEUED;
+            String recipient = to;
+            if (recipient == null || recipient.isEmpty()) {
+                recipient = "";
+                status = SmsMessage.Status.FAILED;
+            } else if (normalizePhoneNumbers) {
+                final String e164 = PhoneNumberNormalizer.getInstance().toE164(recipient);
+                if (e164 != null) {
+                    recipient = e164;
+                } else {
+                    status = SmsMessage.Status.FAILED;
+                }
+            }
+            batch.add(sms(recipient, fill(template, variables), status));
+            if (batch.size() >= batchSize) {
+                flush(false);
+            }
+        }
+
+        private Response close(final MediaType responseType) {
+            flush(true);
+            try {
+                final SmsCampaign campaign = (SmsCampaign) request(new GetSmsCampaign(sid));
+                if (campaign == null) {
+                    return status(INTERNAL_SERVER_ERROR).build();
+                }
+                return toResponse(campaign, responseType);
+            } catch (final Exception exception) {
+                return failure(exception);
+            }
+        }
+
+        private void flush(final boolean last) {
+            dao.addSmsMessages(sid, batch);
+            dispatcher.tell(new SmsCampaignBatch(sid, batch, last), null);
+            batch = new ArrayList<SmsMessage>(batchSize);
+        }
+
+        private SmsMessage sms(final String recipient, final String body, final SmsMessage.Status status) {
+            final SmsMessage.Builder builder = SmsMessage.builder();
+            final Sid sid = Sid.generate(Sid.Type.SMS_MESSAGE);
+            builder.setSid(sid);
+            builder.setAccountSid(accountSid);
+            builder.setSender(sender);
+            builder.setRecipient(recipient);
+            builder.setBody(body);
+            builder.setStatus(status);
+            builder.setDirection(SmsMessage.Direction.OUTBOUND_API);
+            builder.setPrice(new BigDecimal("0.00"));
+            builder.setPriceUnit(Currency.getInstance("USD"));
+            builder.setApiVersion(apiVersion);
+            final StringBuilder buffer = new StringBuilder();
+            buffer.append(rootUri).append(apiVersion).append("/Accounts/");
+            buffer.append(accountSid.toString()).append("/SMS/Messages/");
+            buffer.append(sid.toString());
+            builder.setUri(URI.create(buffer.toString()));
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static javax.ws.rs.core.MediaType.*;
+
+import java.io.InputStream;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+
+@Path("/Accounts/{accountSid}/SMS/Campaigns.json")
+@ThreadSafe
+public final class SmsCampaignsJsonEndpoint extends SmsCampaignsEndpoint {
+    public SmsCampaignsJsonEndpoint() {
+        super();
+    }
+
+    // used for testing
+    public SmsCampaignsJsonEndpoint(ServletContext context, HttpServletRequest request) {
+        super(context, request);
+    }
+
+    @GET
+    public Response getSmsCampaigns(@PathParam("accountSid") final String accountSid) {
+        return getSmsCampaigns(accountSid, APPLICATION_JSON_TYPE);
+    }
+
+    @POST
+    @Consumes(APPLICATION_FORM_URLENCODED)
+    public Response putSmsCampaign(@PathParam("accountSid") final String accountSid, final MultivaluedMap<String, String> data) {
+        return putSmsCampaign(accountSid, data, APPLICATION_JSON_TYPE);
+    }
+
+    @POST
+    @Consumes("text/csv")
+    public Response putSmsCampaign(@PathParam("accountSid") final String accountSid, @Context final UriInfo info,
+            final InputStream csv) {
+        return putSmsCampaign(accountSid, info.getQueryParameters(), csv, APPLICATION_JSON_TYPE);
+    }
+}
@@ -28,9 +28,6 @@ import akka.actor.UntypedActorFactory;
 import akka.util.Timeout;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.i18n.phonenumbers.NumberParseException;
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
-import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
 import com.thoughtworks.xstream.XStream;
 import org.apache.commons.configuration.Configuration;
 import org.joda.time.DateTime;
@@ -53,6 +50,7 @@ import org.mobicents.servlet.restcomm.sms.SmsSessionAttribute;
 import org.mobicents.servlet.restcomm.sms.SmsSessionInfo;
 import org.mobicents.servlet.restcomm.sms.SmsSessionRequest;
 import org.mobicents.servlet.restcomm.sms.SmsSessionResponse;
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
 import org.mobicents.servlet.restcomm.util.StringUtils;
 import scala.concurrent.Await;
 import scala.concurrent.Future;
@@ -154,21 +152,21 @@ public abstract class SmsMessagesEndpoint extends SecuredEndpoint {
     }
 
     private void normalize(final MultivaluedMap<String, String> data) throws IllegalArgumentException {
-        final PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
+        final PhoneNumberNormalizer normalizer = PhoneNumberNormalizer.getInstance();
         final String from = data.getFirst("From");
         data.remove("From");
-        try {
-            data.putSingle("From", phoneNumberUtil.format(phoneNumberUtil.parse(from, "US"), PhoneNumberFormat.E164));
-        } catch (final NumberParseException exception) {
-            throw new IllegalArgumentException(exception);
+        final String fromE164 = normalizer.toE164(from);
+        if (fromE164 == null) {
+            throw new IllegalArgumentException(from + " is an invalid phone number.");
         }
+        data.putSingle("From", fromE164);
         final String to = data.getFirst("To");
         data.remove("To");
-        try {
-            data.putSingle("To", phoneNumberUtil.format(phoneNumberUtil.parse(to, "US"), PhoneNumberFormat.E164));
-        } catch (final NumberParseException exception) {
-            throw new IllegalArgumentException(exception);
+        final String toE164 = normalizer.toE164(to);
+        if (toE164 == null) {
+            throw new IllegalArgumentException(to + " is an invalid phone number.");
         }
+        data.putSingle("To", toE164);
         final String body = data.getFirst("Body");
         if (body.getBytes().length > 160) {
             data.remove("Body");
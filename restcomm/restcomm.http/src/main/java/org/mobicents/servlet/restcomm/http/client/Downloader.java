@@ -40,6 +40,9 @@ import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.http.CustomHttpClientBuilder;
+import org.mobicents.servlet.restcomm.metrics.Counter;
+import org.mobicents.servlet.restcomm.metrics.LatencyHistogram;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
 import org.mobicents.servlet.restcomm.util.StringUtils;
 import org.xml.sax.InputSource;
 
@@ -58,6 +61,10 @@ import java.util.List;
  * @author quintana.thomas@gmail.com (Thomas Quintana)
  */
 public final class Downloader extends UntypedActor {
+    private static final LatencyHistogram fetches = MetricsRegistry.getInstance().histogram("restcomm_rcml_fetch_seconds",
+            "Time spent fetching and validating RCML documents, redirects included.");
+    private static final Counter failures = MetricsRegistry.getInstance().counter("restcomm_rcml_fetch_errors_total",
+            "RCML fetches that failed or returned an http error.");
 
     // Logger.
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
@@ -153,11 +160,19 @@ public final class Downloader extends UntypedActor {
                 logger.debug("New HttpRequestDescriptor, method: "+request.getMethod()+" URI: "+request.getUri()+" parameters: "+request.getParametersAsString());
             }
             DownloaderResponse response = null;
+            final long start = System.nanoTime();
             try {
-                response = new DownloaderResponse(fetch(request));
+                final HttpResponseDescriptor descriptor = fetch(request);
+                if (descriptor == null || isHttpError(descriptor.getStatusCode())) {
+                    failures.increment();
+                }
+                response = new DownloaderResponse(descriptor);
             } catch (final Exception exception) {
+                failures.increment();
                 logger.error("Exception while trying to download RCML ", exception);
                 response = new DownloaderResponse(exception, "Exception while trying to download RCML");
+            } finally {
+                fetches.recordSince(start);
             }
             if (sender != null && !sender.isTerminated()) {
                 sender.tell(response, self);
@@ -0,0 +1,312 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http.client.callback;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.mobicents.servlet.restcomm.configuration.sets.MainConfigurationSet;
+import org.mobicents.servlet.restcomm.http.CustomHttpClientBuilder;
+import org.mobicents.servlet.restcomm.http.client.HttpRequestDescriptor;
+
+import scala.concurrent.duration.Duration;
+import akka.actor.ActorContext;
+import akka.actor.ActorRef;
+import akka.actor.UntypedActor;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+/**
+ * Delivers status callbacks (call, sms, transcription) on behalf of the interpreters.
+ *
+ * Interpreters hand an {@link HttpRequestDescriptor} to the dispatcher and may stop right away, delivery does
+ * not depend on their lifecycle. Each callback is written to a local spool before the first attempt and removed
+ * once it is delivered or abandoned so pending events survive a restart. Requests are executed on a bounded
+ * thread pool with a limit of concurrent requests per destination host, requests over the limit wait in a per
+ * host queue. Connection failures, 5xx, 408 and 429 responses are retried with exponential backoff.
+ *
+ * The dispatcher is meant to run as a single top level actor named {@link #NAME}.
+ */
+public final class CallbackDispatcher extends UntypedActor {
+    public static final String NAME = "callback-dispatcher";
+
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+    private static final int DEFAULT_THREADS = 16;
+    private static final int DEFAULT_MAX_ATTEMPTS = 6;
+    private static final long DEFAULT_INITIAL_BACKOFF = 1000;
+    private static final long DEFAULT_MAX_BACKOFF = 300000;
+
+    private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+
+    private final CallbackSpool spool;
+    private final int maxConnectionsPerHost;
+    private final int maxAttempts;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final ExecutorService executor;
+    private final CloseableHttpClient client;
+    private final Map<String, Host> hosts;
+    private final Random random;
+
+    /**
+     * @param configuration the &lt;callback-dispatcher&gt; configuration section
+     * @param main used to configure the http client (ssl mode, timeouts)
+     */
+    public CallbackDispatcher(final Configuration configuration, final MainConfigurationSet main) {
+        super();
+        this.spool = new CallbackSpool(configuration.getString("spool-path"));
+        this.maxConnectionsPerHost = configuration.getInt("max-connections-per-host", DEFAULT_MAX_CONNECTIONS_PER_HOST);
+        this.maxAttempts = configuration.getInt("max-attempts", DEFAULT_MAX_ATTEMPTS);
+        this.initialBackoff = configuration.getLong("initial-backoff", DEFAULT_INITIAL_BACKOFF);
+        this.maxBackoff = configuration.getLong("max-backoff", DEFAULT_MAX_BACKOFF);
+        final int threads = configuration.getInt("threads", DEFAULT_THREADS);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.client = (CloseableHttpClient) CustomHttpClientBuilder.buildPooled(main, maxConnectionsPerHost, threads);
+        this.hosts = new HashMap<String, Host>();
+        this.random = new Random();
+    }
+
+    /**
+     * @return the running dispatcher or null if it is not running.
+     */
+    public static ActorRef lookup(final ActorContext context) {
+        final ActorRef dispatcher = context.actorFor("/user/" + NAME);
+        return dispatcher.isTerminated() ? null : dispatcher;
+    }
+
+    @Override
+    public void preStart() {
+        final List<PendingCallback> spooled = spool.load();
+        if (!spooled.isEmpty() && logger.isInfoEnabled()) {
+            logger.info("Resuming delivery of " + spooled.size() + " spooled callbacks");
+        }
+        for (final PendingCallback callback : spooled) {
+            enqueue(callback);
+        }
+    }
+
+    @Override
+    public void postStop() {
+        executor.shutdownNow();
+        HttpClientUtils.closeQuietly(client);
+        super.postStop();
+    }
+
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        final Class<?> klass = message.getClass();
+        if (HttpRequestDescriptor.class.equals(klass)) {
+            final PendingCallback callback = new PendingCallback(UUID.randomUUID().toString(),
+                    (HttpRequestDescriptor) message, 0);
+            spool.store(callback);
+            enqueue(callback);
+        } else if (Attempted.class.equals(klass)) {
+            onAttempted((Attempted) message);
+        } else if (Retry.class.equals(klass)) {
+            enqueue(((Retry) message).callback);
+        } else if (GetCallbackMetrics.class.equals(klass)) {
+            sender().tell(metrics(), self());
+        }
+    }
+
+    private void enqueue(final PendingCallback callback) {
+        final Host host = host(callback.host());
+        host.queue.addLast(callback);
+        drain(host);
+    }
+
+    private void drain(final Host host) {
+        final ActorRef self = self();
+        while (host.inFlight < maxConnectionsPerHost && !host.queue.isEmpty()) {
+            final PendingCallback callback = host.queue.pollFirst();
+            host.inFlight++;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    self.tell(deliver(callback), null);
+                }
+            });
+        }
+    }
+
+    private void onAttempted(final Attempted attempted) {
+        final PendingCallback callback = attempted.callback;
+        final Host host = host(callback.host());
+        host.inFlight--;
+        host.record(attempted.latency);
+        if (attempted.delivered) {
+            host.delivered++;
+            spool.remove(callback);
+        } else {
+            host.failedAttempts++;
+            final PendingCallback next = callback.nextAttempt();
+            if (attempted.retryable && next.attempts() < maxAttempts) {
+                final long delay = backoff(next.attempts());
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Callback to " + callback.request().getUri() + " failed (" + attempted.reason
+                            + "), retrying in " + delay + "ms");
+                }
+                getContext().system().scheduler().scheduleOnce(Duration.create(delay, TimeUnit.MILLISECONDS), self(),
+                        new Retry(next), getContext().dispatcher());
+            } else {
+                host.abandoned++;
+                spool.remove(callback);
+                logger.warning("Giving up on callback to " + callback.request().getUri() + " after " + next.attempts()
+                        + " attempts, last failure: " + attempted.reason);
+            }
+        }
+        drain(host);
+    }
+
+    private long backoff(final int attempts) {
+        long delay = initialBackoff << Math.min(attempts - 1, 30);
+        if (delay <= 0 || delay > maxBackoff) {
+            delay = maxBackoff;
+        }
+        // spread retries of callbacks that failed together
+        return delay + (long) (random.nextDouble() * delay / 4);
+    }
+
+    private Host host(final String name) {
+        Host host = hosts.get(name);
+        if (host == null) {
+            host = new Host();
+            hosts.put(name, host);
+        }
+        return host;
+    }
+
+    private CallbackMetrics metrics() {
+        final Map<String, CallbackMetrics.HostMetrics> snapshot = new HashMap<String, CallbackMetrics.HostMetrics>();
+        for (final Map.Entry<String, Host> entry : hosts.entrySet()) {
+            final Host host = entry.getValue();
+            final long attempts = host.delivered + host.failedAttempts;
+            final long average = attempts == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(host.totalLatency / attempts);
+            snapshot.put(entry.getKey(), new CallbackMetrics.HostMetrics(host.delivered, host.failedAttempts, host.abandoned,
+                    host.queue.size(), host.inFlight, average, TimeUnit.NANOSECONDS.toMillis(host.maxLatency)));
+        }
+        return new CallbackMetrics(snapshot);
+    }
+
+    // Runs on the executor threads, must not touch the actor state.
+    private Attempted deliver(final PendingCallback callback) {
+        final long start = System.nanoTime();
+        CloseableHttpResponse response = null;
+        try {
+            response = client.execute(request(callback.request()));
+            EntityUtils.consumeQuietly(response.getEntity());
+            final int code = response.getStatusLine().getStatusCode();
+            final long latency = System.nanoTime() - start;
+            if (code < HttpStatus.SC_BAD_REQUEST) {
+                return new Attempted(callback, true, false, latency, null);
+            }
+            final boolean retryable = code >= HttpStatus.SC_INTERNAL_SERVER_ERROR || code == HttpStatus.SC_REQUEST_TIMEOUT
+                    || code == 429;
+            return new Attempted(callback, false, retryable, latency, "HTTP " + code);
+        } catch (final IOException exception) {
+            return new Attempted(callback, false, true, System.nanoTime() - start, exception.toString());
+        } catch (final URISyntaxException | RuntimeException exception) {
+            return new Attempted(callback, false, false, System.nanoTime() - start, exception.toString());
+        } finally {
+            HttpClientUtils.closeQuietly(response);
+        }
+    }
+
+    private HttpUriRequest request(final HttpRequestDescriptor descriptor) throws URISyntaxException,
+            UnsupportedEncodingException {
+        final URI uri = descriptor.getUri();
+        if ("GET".equalsIgnoreCase(descriptor.getMethod())) {
+            final String query = descriptor.getParametersAsString();
+            if (query == null || query.isEmpty()) {
+                return new HttpGet(uri);
+            }
+            return new HttpGet(new URIBuilder(uri).setCustomQuery(query).build());
+        } else {
+            final HttpPost post = new HttpPost(uri);
+            post.setEntity(new UrlEncodedFormEntity(descriptor.getParameters(), "UTF-8"));
+            return post;
+        }
+    }
+
+    private static final class Host {
+        private final Deque<PendingCallback> queue = new ArrayDeque<PendingCallback>();
+        private int inFlight;
+        private long delivered;
+        private long failedAttempts;
+        private long abandoned;
+        private long totalLatency;
+        private long maxLatency;
+
+        private void record(final long latency) {
+            totalLatency += latency;
+            if (latency > maxLatency) {
+                maxLatency = latency;
+            }
+        }
+    }
+
+    private static final class Attempted {
+        private final PendingCallback callback;
+        private final boolean delivered;
+        private final boolean retryable;
+        private final long latency;
+        private final String reason;
+
+        private Attempted(final PendingCallback callback, final boolean delivered, final boolean retryable,
+                final long latency, final String reason) {
+            this.callback = callback;
+            this.delivered = delivered;
+            this.retryable = retryable;
+            this.latency = latency;
+            this.reason = reason;
+        }
+    }
+
+    private static final class Retry {
+        private final PendingCallback callback;
+
+        private Retry(final PendingCallback callback) {
+            this.callback = callback;
+        }
+    }
+}
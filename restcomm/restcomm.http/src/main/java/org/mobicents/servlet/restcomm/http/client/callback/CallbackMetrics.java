@@ -0,0 +1,103 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http.client.callback;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+
+/**
+ * Point in time view of the callback delivery statistics, per destination host.
+ */
+@Immutable
+public final class CallbackMetrics {
+    private final Map<String, HostMetrics> hosts;
+
+    public CallbackMetrics(final Map<String, HostMetrics> hosts) {
+        super();
+        this.hosts = Collections.unmodifiableMap(hosts);
+    }
+
+    public Map<String, HostMetrics> hosts() {
+        return hosts;
+    }
+
+    public HostMetrics host(final String host) {
+        return hosts.get(host);
+    }
+
+    @Immutable
+    public static final class HostMetrics {
+        private final long delivered;
+        private final long failedAttempts;
+        private final long abandoned;
+        private final int pending;
+        private final int inFlight;
+        private final long averageLatency;
+        private final long maxLatency;
+
+        public HostMetrics(final long delivered, final long failedAttempts, final long abandoned, final int pending,
+                final int inFlight, final long averageLatency, final long maxLatency) {
+            super();
+            this.delivered = delivered;
+            this.failedAttempts = failedAttempts;
+            this.abandoned = abandoned;
+            this.pending = pending;
+            this.inFlight = inFlight;
+            this.averageLatency = averageLatency;
+            this.maxLatency = maxLatency;
+        }
+
+        public long delivered() {
+            return delivered;
+        }
+
+        public long failedAttempts() {
+            return failedAttempts;
+        }
+
+        public long abandoned() {
+            return abandoned;
+        }
+
+        public int pending() {
+            return pending;
+        }
+
+        public int inFlight() {
+            return inFlight;
+        }
+
+        /**
+         * @return the average latency of the delivery attempts in milliseconds
+         */
+        public long averageLatency() {
+            return averageLatency;
+        }
+
+        /**
+         * @return the maximum latency of the delivery attempts in milliseconds
+         */
+        public long maxLatency() {
+            return maxLatency;
+        }
+    }
+}
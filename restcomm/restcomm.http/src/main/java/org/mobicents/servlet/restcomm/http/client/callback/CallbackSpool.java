@@ -0,0 +1,169 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http.client.callback;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
+import org.mobicents.servlet.restcomm.http.client.HttpRequestDescriptor;
+
+/**
+ * Durable store for undelivered callbacks. Every callback is kept in its own file until it is either
+ * delivered or abandoned so that a restart does not lose status events. Files are written to a temporary
+ * name first and then renamed to keep partially written entries out of the spool.
+ *
+ * When no directory is configured the spool is disabled and all operations are no-ops.
+ */
+@NotThreadSafe
+public final class CallbackSpool {
+    private static final Logger logger = Logger.getLogger(CallbackSpool.class);
+    private static final String SUFFIX = ".callback";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String ENCODING = "UTF-8";
+
+    private final File directory;
+
+    public CallbackSpool(final String path) {
+        super();
+        if (path == null || path.isEmpty()) {
+            directory = null;
+        } else {
+            directory = new File(path);
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IllegalArgumentException("Could not create callback spool directory " + path);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public void store(final PendingCallback callback) {
+        if (directory == null) {
+            return;
+        }
+        final File temp = new File(directory, callback.id() + TEMP_SUFFIX);
+        final HttpRequestDescriptor request = callback.request();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), ENCODING)) {
+            writer.write(request.getMethod());
+            writer.write('\n');
+            writer.write(request.getUri().toString());
+            writer.write('\n');
+            for (final NameValuePair parameter : request.getParameters()) {
+                writer.write(URLEncoder.encode(parameter.getName(), ENCODING));
+                writer.write('=');
+                if (parameter.getValue() != null) {
+                    writer.write(URLEncoder.encode(parameter.getValue(), ENCODING));
+                }
+                writer.write('\n');
+            }
+        } catch (final IOException exception) {
+            logger.error("Could not spool callback " + callback.id() + " to " + request.getUri(), exception);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(new File(directory, callback.id() + SUFFIX))) {
+            logger.error("Could not spool callback " + callback.id() + " to " + request.getUri());
+            temp.delete();
+        }
+    }
+
+    public void remove(final PendingCallback callback) {
+        if (directory == null) {
+            return;
+        }
+        new File(directory, callback.id() + SUFFIX).delete();
+    }
+
+    /**
+     * Reads back every spooled callback. Entries that can not be parsed are discarded.
+     */
+    public List<PendingCallback> load() {
+        final List<PendingCallback> callbacks = new ArrayList<PendingCallback>();
+        if (directory == null) {
+            return callbacks;
+        }
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return callbacks;
+        }
+        for (final File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            } else if (name.endsWith(SUFFIX)) {
+                final String id = name.substring(0, name.length() - SUFFIX.length());
+                try {
+                    callbacks.add(new PendingCallback(id, read(file), 0));
+                } catch (final IOException | RuntimeException exception) {
+                    logger.error("Discarding unreadable spooled callback " + file.getPath(), exception);
+                    file.delete();
+                }
+            }
+        }
+        return callbacks;
+    }
+
+    private HttpRequestDescriptor read(final File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING))) {
+            final String method = reader.readLine();
+            final String uri = reader.readLine();
+            if (method == null || uri == null) {
+                throw new IOException("Truncated callback entry");
+            }
+            final List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final int separator = line.indexOf('=');
+                if (separator < 0) {
+                    parameters.add(new BasicNameValuePair(decode(line), null));
+                } else {
+                    parameters.add(new BasicNameValuePair(decode(line.substring(0, separator)),
+                            decode(line.substring(separator + 1))));
+                }
+            }
+            return new HttpRequestDescriptor(URI.create(uri), method, parameters);
+        }
+    }
+
+    private String decode(final String value) throws UnsupportedEncodingException {
+        return URLDecoder.decode(value, ENCODING);
+    }
+}
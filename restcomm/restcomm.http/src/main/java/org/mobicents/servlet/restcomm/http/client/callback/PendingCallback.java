@@ -0,0 +1,61 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http.client.callback;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.http.client.HttpRequestDescriptor;
+
+/**
+ * A callback waiting to be delivered by the {@link CallbackDispatcher}.
+ */
+@Immutable
+public final class PendingCallback {
+    private final String id;
+    private final HttpRequestDescriptor request;
+    private final int attempts;
+
+    public PendingCallback(final String id, final HttpRequestDescriptor request, final int attempts) {
+        super();
+        this.id = id;
+        this.request = request;
+        this.attempts = attempts;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public HttpRequestDescriptor request() {
+        return request;
+    }
+
+    public int attempts() {
+        return attempts;
+    }
+
+    public String host() {
+        final String host = request.getUri().getHost();
+        return host == null ? "" : host.toLowerCase();
+    }
+
+    public PendingCallback nextAttempt() {
+        return new PendingCallback(id, request, attempts + 1);
+    }
+}
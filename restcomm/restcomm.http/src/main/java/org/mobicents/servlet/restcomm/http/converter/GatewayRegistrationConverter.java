@@ -0,0 +1,102 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http.converter;
+
+import java.lang.reflect.Type;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+import org.apache.commons.configuration.Configuration;
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.telephony.GatewayRegistration;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+@ThreadSafe
+public final class GatewayRegistrationConverter extends AbstractConverter implements JsonSerializer<GatewayRegistration> {
+    public GatewayRegistrationConverter(final Configuration configuration) {
+        super(configuration);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public boolean canConvert(final Class klass) {
+        return GatewayRegistration.class.equals(klass);
+    }
+
+    @Override
+    public void marshal(final Object object, final HierarchicalStreamWriter writer, final MarshallingContext context) {
+        final GatewayRegistration registration = (GatewayRegistration) object;
+        writer.startNode("GatewayRegistration");
+        writeSid(registration.getGateway(), writer);
+        writeFriendlyName(registration.getName(), writer);
+        writeStatus(registration.getState().toString(), writer);
+        writeNumber("Expires", registration.getExpires(), writer);
+        writeDate("DateRegistered", registration.getRegistered(), writer);
+        writeDate("DateRefresh", registration.getRefresh(), writer);
+        writeNumber("Failures", registration.getFailures(), writer);
+        writeNumber("ResponseStatus", registration.getStatus(), writer);
+        writer.endNode();
+    }
+
+    @Override
+    public JsonElement serialize(final GatewayRegistration registration, final Type type,
+            final JsonSerializationContext context) {
+        final JsonObject object = new JsonObject();
+        writeSid(registration.getGateway(), object);
+        writeFriendlyName(registration.getName(), object);
+        writeStatus(registration.getState().toString(), object);
+        object.addProperty("expires", registration.getExpires());
+        writeDate("date_registered", registration.getRegistered(), object);
+        writeDate("date_refresh", registration.getRefresh(), object);
+        object.addProperty("failures", registration.getFailures());
+        object.addProperty("response_status", registration.getStatus());
+        return object;
+    }
+
+    private void writeNumber(final String name, final int value, final HierarchicalStreamWriter writer) {
+        writer.startNode(name);
+        writer.setValue(Integer.toString(value));
+        writer.endNode();
+    }
+
+    private void writeDate(final String name, final DateTime date, final HierarchicalStreamWriter writer) {
+        writer.startNode(name);
+        if (date != null) {
+            writer.setValue(new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z", Locale.US).format(date.toDate()));
+        }
+        writer.endNode();
+    }
+
+    private void writeDate(final String name, final DateTime date, final JsonObject object) {
+        if (date != null) {
+            object.addProperty(name, new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z", Locale.US).format(date.toDate()));
+        } else {
+            object.add(name, JsonNull.INSTANCE);
+        }
+    }
+}
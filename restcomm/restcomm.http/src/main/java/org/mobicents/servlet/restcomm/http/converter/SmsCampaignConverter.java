@@ -0,0 +1,101 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http.converter;
+
+import java.lang.reflect.Type;
+
+import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.SmsCampaign;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+@ThreadSafe
+public final class SmsCampaignConverter extends AbstractConverter implements JsonSerializer<SmsCampaign> {
+    public SmsCampaignConverter(final Configuration configuration) {
+        super(configuration);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public boolean canConvert(final Class klass) {
+        return SmsCampaign.class.equals(klass);
+    }
+
+    @Override
+    public void marshal(final Object object, final HierarchicalStreamWriter writer, final MarshallingContext context) {
+        final SmsCampaign campaign = (SmsCampaign) object;
+        writer.startNode("SMSCampaign");
+        writeSid(campaign.getSid(), writer);
+        writeDateCreated(campaign.getDateCreated(), writer);
+        writeDateUpdated(campaign.getDateUpdated(), writer);
+        writeAccountSid(campaign.getAccountSid(), writer);
+        writeFrom(campaign.getSender(), writer);
+        writeBody(campaign.getBody(), writer);
+        writeStatus(campaign.getStatus().toString(), writer);
+        writeCount("Total", campaign.getTotal(), writer);
+        writeCount("Queued", campaign.getQueued(), writer);
+        writeCount("Sending", campaign.getSending(), writer);
+        writeCount("Sent", campaign.getSent(), writer);
+        writeCount("Failed", campaign.getFailed(), writer);
+        writeApiVersion(campaign.getApiVersion(), writer);
+        writeUri(campaign.getUri(), writer);
+        writer.endNode();
+    }
+
+    @Override
+    public JsonElement serialize(final SmsCampaign campaign, final Type type, final JsonSerializationContext context) {
+        final JsonObject object = new JsonObject();
+        writeSid(campaign.getSid(), object);
+        writeDateCreated(campaign.getDateCreated(), object);
+        writeDateUpdated(campaign.getDateUpdated(), object);
+        writeAccountSid(campaign.getAccountSid(), object);
+        writeFrom(campaign.getSender(), object);
+        object.addProperty("body", campaign.getBody());
+        writeStatus(campaign.getStatus().toString(), object);
+        object.addProperty("total", campaign.getTotal());
+        object.addProperty("queued", campaign.getQueued());
+        object.addProperty("sending", campaign.getSending());
+        object.addProperty("sent", campaign.getSent());
+        object.addProperty("failed", campaign.getFailed());
+        writeApiVersion(campaign.getApiVersion(), object);
+        writeUri(campaign.getUri(), object);
+        return object;
+    }
+
+    private void writeBody(final String body, final HierarchicalStreamWriter writer) {
+        writer.startNode("Body");
+        if (body != null) {
+            writer.setValue(body);
+        }
+        writer.endNode();
+    }
+
+    private void writeCount(final String name, final int count, final HierarchicalStreamWriter writer) {
+        writer.startNode(name);
+        writer.setValue(Integer.toString(count));
+        writer.endNode();
+    }
+}
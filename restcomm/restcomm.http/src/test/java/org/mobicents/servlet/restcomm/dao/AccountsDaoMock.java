@@ -57,7 +57,12 @@ public class AccountsDaoMock implements AccountsDao {
 
     @Override
     public Account getAccount(String name) {
-        throw new NotImplementedException();
+        for (Account account: accounts) {
+            if (name.equals(account.getFriendlyName()) || name.equals(account.getEmailAddress())
+                    || account.getSid().toString().equals(name))
+                return account;
+        }
+        return null;
     }
 
     @Override
@@ -82,7 +87,10 @@ public class AccountsDaoMock implements AccountsDao {
 
     @Override
     public void updateAccount(Account account) {
-        throw new NotImplementedException();
+        for (int i = 0; i < accounts.size(); i++) {
+            if (accounts.get(i).getSid().equals(account.getSid()))
+                accounts.set(i, account);
+        }
     }
 
     @Override
@@ -110,6 +110,11 @@ public class DaoManagerMock implements DaoManager {
         return null;
     }
 
+    @Override
+    public SmsCampaignsDao getSmsCampaignsDao() {
+        return null;
+    }
+
     @Override
     public UsageDao getUsageDao() {
         return null;
@@ -20,11 +20,31 @@
 
 package org.mobicents.servlet.restcomm.http;
 
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.configuration.ConfigurationException;
+import org.joda.time.DateTime;
 import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.ClientsDao;
+import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.DaoManagerMock;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.http.exceptionmappers.AuthorizationExceptionMapper;
 import org.mobicents.servlet.restcomm.http.exceptions.NotAuthenticated;
+import org.mobicents.servlet.restcomm.identity.IdentityContext;
 import org.mockito.Mockito;
 
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+
+import java.net.URI;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 /**
@@ -48,4 +68,40 @@ public class AccountsEndpointMockedTest extends EndpointMockedTest {
         endpoint.init();
     }
 
+    @Test
+    public void suspendedAccountIsLockedOutOnTheNextRequest() {
+        init();
+        conf.setProperty("runtime-settings.credentials-cache-ttl", "60");
+        when(servletContext.getAttribute(IdentityContext.class.getName())).thenReturn(new IdentityContext(conf));
+        final ClientsDao clients = Mockito.mock(ClientsDao.class);
+        when(servletContext.getAttribute(DaoManager.class.getName())).thenReturn(new DaoManagerMock(accountsDao) {
+            @Override
+            public ClientsDao getClientsDao() {
+                return clients;
+            }
+        });
+        final Account administrator = accounts.get(0);
+        accounts.set(0, new Account(administrator.getSid(), null, null, administrator.getEmailAddress(),
+                administrator.getFriendlyName(), null, null, Account.Status.ACTIVE, administrator.getAuthToken(), "Administrator", null));
+        final Sid userSid = new Sid("AC11111111111111111111111111111111");
+        accounts.add(new Account(userSid, DateTime.now(), DateTime.now(), "user@company.com", "User", administrator.getSid(),
+                Account.Type.FULL, Account.Status.ACTIVE, DigestUtils.md5Hex("secret"), "Developer", URI.create("/Accounts/" + userSid)));
+        final HttpServletRequest userRequest = Mockito.mock(HttpServletRequest.class);
+        when(userRequest.getHeader("Authorization")).thenReturn("Basic " + Base64.encodeBase64String("user@company.com:secret".getBytes()));
+        // the user gets in and its credentials are cached
+        new AccountsEndpoint(servletContext, userRequest).init();
+
+        AccountsEndpoint endpoint = new AccountsEndpoint(servletContext, request);
+        endpoint.init();
+        final MultivaluedMap<String, String> data = new MultivaluedMapImpl();
+        data.add("Status", "suspended");
+        assertEquals(200, endpoint.updateAccount(userSid.toString(), data, MediaType.APPLICATION_JSON_TYPE).getStatus());
+        try {
+            new AccountsEndpoint(servletContext, userRequest).init();
+            fail("A suspended account got in");
+        } catch (NotAuthenticated e) {
+            assertEquals(401, new AuthorizationExceptionMapper().toResponse(e).getStatus());
+        }
+    }
+
 }
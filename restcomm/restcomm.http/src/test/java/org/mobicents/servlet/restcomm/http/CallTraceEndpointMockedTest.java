@@ -0,0 +1,75 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static org.junit.Assert.assertEquals;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.trace.CallTrace;
+import org.mobicents.servlet.restcomm.trace.CallTracer;
+
+/**
+ * Checks that a call trace is only shown under the account the call belongs to.
+ */
+public class CallTraceEndpointMockedTest extends EndpointMockedTest {
+    private static final String ACCOUNT = "AC00000000000000000000000000000000";
+    private static final String OTHER = "AC11111111111111111111111111111111";
+
+    private CallTraceEndpoint endpoint;
+
+    @Before
+    public void before() {
+        init();
+        final Account administrator = accounts.get(0);
+        accounts.set(0, new Account(administrator.getSid(), null, null, administrator.getEmailAddress(),
+                administrator.getFriendlyName(), null, null, null, administrator.getAuthToken(), "Administrator", null));
+        endpoint = new CallTraceEndpoint(servletContext, request);
+        endpoint.init();
+    }
+
+    private static void trace(final String callSid, final String accountSid) {
+        final CallTrace trace = CallTracer.getInstance().start();
+        CallTracer.getInstance().bind(trace, callSid);
+        trace.bindAccount(accountSid);
+    }
+
+    @Test
+    public void traceOfTheAccountIsShown() {
+        trace("CA00000000000000000000000000000001", ACCOUNT);
+        final Response response = endpoint.getTrace(ACCOUNT, "CA00000000000000000000000000000001");
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void traceOfAnotherAccountIsNotFound() {
+        trace("CA00000000000000000000000000000002", OTHER);
+        assertEquals(404, endpoint.getTrace(ACCOUNT, "CA00000000000000000000000000000002").getStatus());
+    }
+
+    @Test
+    public void traceWithoutAccountIsNotFound() {
+        trace("CA00000000000000000000000000000003", null);
+        assertEquals(404, endpoint.getTrace(ACCOUNT, "CA00000000000000000000000000000003").getStatus());
+    }
+}
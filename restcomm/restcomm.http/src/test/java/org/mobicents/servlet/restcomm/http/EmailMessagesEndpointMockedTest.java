@@ -0,0 +1,140 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.configuration.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
+import org.mobicents.servlet.restcomm.email.EmailService;
+import org.mobicents.servlet.restcomm.entities.Account;
+
+import akka.actor.Actor;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActorFactory;
+
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+
+/**
+ * Checks that sending emails through the endpoint does not leave smtp delivery threads behind.
+ */
+public class EmailMessagesEndpointMockedTest extends EndpointMockedTest {
+    private static final String ACCOUNT = "AC00000000000000000000000000000000";
+    private static final int SENDS = 20;
+
+    private ActorSystem system;
+
+    @Before
+    public void before() throws IOException {
+        init();
+        RestcommConfiguration.createOnce(conf);
+        final Account administrator = accounts.get(0);
+        accounts.set(0, new Account(administrator.getSid(), null, null, administrator.getEmailAddress(),
+                administrator.getFriendlyName(), null, null, null, administrator.getAuthToken(), "Administrator", null));
+        // Nothing listens there, so every message fails on its only attempt.
+        final ServerSocket socket = new ServerSocket(0);
+        final int port = socket.getLocalPort();
+        socket.close();
+        conf.setProperty("smtp-service.host", "127.0.0.1");
+        conf.setProperty("smtp-service.port", Integer.toString(port));
+        conf.setProperty("smtp-service[@attempts]", "1");
+        system = ActorSystem.create();
+        when(servletContext.getAttribute(ActorSystem.class.getName())).thenReturn(system);
+    }
+
+    @After
+    public void after() {
+        system.shutdown();
+        system.awaitTermination();
+    }
+
+    private void send(final int times) {
+        final EmailMessagesJsonEndpoint endpoint = new EmailMessagesJsonEndpoint(servletContext, request);
+        endpoint.init();
+        for (int i = 0; i < times; i++) {
+            final MultivaluedMap<String, String> data = new MultivaluedMapImpl();
+            data.add("From", "alice@company.com");
+            data.add("To", "bob@company.com");
+            data.add("Subject", "Hello");
+            data.add("Body", "Hello Bob");
+            final Response response = endpoint.putEmailMessage(ACCOUNT, data);
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    private static int smtpThreads() {
+        int count = 0;
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().contains("-smtp-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Gives the messages time to fail and then waits for the thread count to come to the expected one.
+    private static int settledSmtpThreads(final int expected) throws InterruptedException {
+        Thread.sleep(1000);
+        int count = smtpThreads();
+        for (int i = 0; i < 100 && count != expected; i++) {
+            Thread.sleep(100);
+            count = smtpThreads();
+        }
+        return count;
+    }
+
+    @Test
+    public void servicesStartedForASendAreStopped() throws InterruptedException {
+        final int before = smtpThreads();
+        send(SENDS);
+        assertEquals(before, settledSmtpThreads(before));
+    }
+
+    @Test
+    public void sendsGoThroughTheSharedService() throws InterruptedException {
+        // A single connection, so the shared service is at its full count of threads after the first send.
+        conf.setProperty("smtp-service[@pool-size]", "1");
+        final Configuration smtp = conf.subset("smtp-service");
+        system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new EmailService("smtp-service", smtp);
+            }
+        }), "smtp-service");
+        send(1);
+        final int before = settledSmtpThreads(2);
+        assertEquals(2, before);
+        send(SENDS);
+        assertEquals(before, settledSmtpThreads(before));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import javax.ws.rs.core.Response;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.telephony.GatewayRegistration;
+import org.mobicents.servlet.restcomm.telephony.GetGatewayRegistrations;
+
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+
+/**
+ * Checks that the registrations held by the proxy manager are listed by the gateways resource.
+ */
+public class GatewaysEndpointMockedTest extends EndpointMockedTest {
+    private static final String ACCOUNT = "AC00000000000000000000000000000000";
+    private static final String PROXY_MANAGER = "org.mobicents.servlet.restcomm.telephony.proxy.ProxyManager";
+
+    private ActorSystem system;
+
+    @Before
+    public void before() {
+        init();
+        RestcommConfiguration.createOnce(conf);
+        final Account administrator = accounts.get(0);
+        accounts.set(0, new Account(administrator.getSid(), null, null, administrator.getEmailAddress(),
+                administrator.getFriendlyName(), null, null, null, administrator.getAuthToken(), "Administrator", null));
+        system = ActorSystem.create();
+        when(servletContext.getAttribute(PROXY_MANAGER)).thenReturn(system.actorOf(new Props(ProxyManager.class)));
+    }
+
+    @After
+    public void after() {
+        system.shutdown();
+        system.awaitTermination();
+    }
+
+    private GatewaysXmlEndpoint endpoint() {
+        final GatewaysXmlEndpoint endpoint = new GatewaysXmlEndpoint(servletContext, request);
+        endpoint.init();
+        return endpoint;
+    }
+
+    @Test
+    public void registrationsAreListed() {
+        final Response json = endpoint().getGatewayRegistrationsAsJson(ACCOUNT);
+        assertEquals(200, json.getStatus());
+        final String body = (String) json.getEntity();
+        assertTrue(body.contains("\"sid\": \"GW00000000000000000000000000000001\""));
+        assertTrue(body.contains("\"status\": \"REGISTERED\""));
+        assertTrue(body.contains("\"date_registered\""));
+        assertTrue(body.contains("\"response_status\": 403"));
+
+        final Response xml = endpoint().getGatewayRegistrationsAsXml(ACCOUNT);
+        assertEquals(200, xml.getStatus());
+        final String document = (String) xml.getEntity();
+        assertTrue(document.contains("<GatewayRegistrations>"));
+        assertTrue(document.contains("<Sid>GW00000000000000000000000000000002</Sid>"));
+        assertTrue(document.contains("<Status>FAILED</Status>"));
+        assertTrue(document.contains("<Failures>2</Failures>"));
+    }
+
+    public static final class ProxyManager extends UntypedActor {
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof GetGatewayRegistrations) {
+                final GatewayRegistration registered = new GatewayRegistration(
+                        new Sid("GW00000000000000000000000000000001"), "registered", GatewayRegistration.State.REGISTERED,
+                        3600, DateTime.now(), null, 0, 200);
+                final GatewayRegistration failed = new GatewayRegistration(new Sid("GW00000000000000000000000000000002"),
+                        "failed", GatewayRegistration.State.FAILED, 0, null, DateTime.now(), 2, 403);
+                sender().tell(Arrays.asList(registered, failed), self());
+            }
+        }
+    }
+}
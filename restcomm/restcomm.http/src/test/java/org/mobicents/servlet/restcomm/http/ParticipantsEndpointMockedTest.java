@@ -0,0 +1,175 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.Currency;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
+import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
+import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.DaoManagerMock;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.telephony.ConferenceParticipant;
+import org.mobicents.servlet.restcomm.telephony.ConferenceParticipantRegistry;
+
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+
+/**
+ * Checks that the participants of a running conference are listed without going to the database.
+ */
+public class ParticipantsEndpointMockedTest extends EndpointMockedTest {
+    private static final String ACCOUNT = "AC00000000000000000000000000000000";
+    private static final int PARTICIPANTS = 1000;
+
+    private CallDetailRecordsDao cdrs;
+    private Sid conference;
+
+    @Before
+    public void before() {
+        init();
+        RestcommConfiguration.createOnce(conf);
+        final Account administrator = accounts.get(0);
+        accounts.set(0, new Account(administrator.getSid(), null, null, administrator.getEmailAddress(),
+                administrator.getFriendlyName(), null, null, null, administrator.getAuthToken(), "Administrator", null));
+        cdrs = mock(CallDetailRecordsDao.class);
+        final DaoManager daos = new DaoManagerMock(accountsDao) {
+            @Override
+            public CallDetailRecordsDao getCallDetailRecordsDao() {
+                return cdrs;
+            }
+        };
+        when(servletContext.getAttribute(DaoManager.class.getName())).thenReturn(daos);
+        conference = Sid.generate(Sid.Type.CONFERENCE);
+        final Sid account = new Sid(ACCOUNT);
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            final Sid call = Sid.generate(Sid.Type.CALL);
+            final URI uri = URI.create("/2012-04-24/Accounts/" + ACCOUNT + "/Calls/" + call);
+            final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+            builder.setSid(call);
+            builder.setAccountSid(account);
+            builder.setDateCreated(DateTime.now());
+            builder.setUri(uri);
+            ConferenceParticipantRegistry.getInstance().join(conference,
+                    new ConferenceParticipant(builder.build(), false, false, true, false));
+        }
+    }
+
+    // The call record of a participant as stored in the database while it is in the conference.
+    private CallDetailRecord callRecord() {
+        final Sid call = Sid.generate(Sid.Type.CALL);
+        final CallDetailRecord.Builder builder = CallDetailRecord.builder();
+        builder.setSid(call);
+        builder.setInstanceId("ID00000000000000000000000000000000");
+        builder.setParentCallSid(Sid.generate(Sid.Type.CALL));
+        builder.setConferenceSid(conference);
+        builder.setDateCreated(DateTime.now().minusMinutes(2));
+        builder.setAccountSid(new Sid(ACCOUNT));
+        builder.setTo("+13055551234");
+        builder.setFrom("+13055554321");
+        builder.setPhoneNumberSid(Sid.generate(Sid.Type.PHONE_NUMBER));
+        builder.setStatus("in-progress");
+        builder.setStartTime(DateTime.now().minusMinutes(1));
+        builder.setPrice(new BigDecimal("0.00"));
+        builder.setPriceUnit(Currency.getInstance("USD"));
+        builder.setDirection("inbound");
+        builder.setAnsweredBy("human");
+        builder.setApiVersion("2012-04-24");
+        builder.setForwardedFrom("+13055550000");
+        builder.setCallerName("Alice");
+        builder.setUri(URI.create("/2012-04-24/Accounts/" + ACCOUNT + "/Calls/" + call));
+        builder.setCallPath("/user/call-manager/call-1");
+        builder.setMuted(true);
+        builder.setStartConferenceOnEnter(true);
+        builder.setEndConferenceOnExit(false);
+        builder.setOnHold(false);
+        return builder.build();
+    }
+
+    @After
+    public void after() {
+        ConferenceParticipantRegistry.getInstance().close(conference);
+    }
+
+    private UriInfo page(final int page) {
+        final MultivaluedMap<String, String> parameters = new MultivaluedMapImpl();
+        parameters.add("Page", String.valueOf(page));
+        parameters.add("PageSize", "50");
+        final UriInfo info = mock(UriInfo.class);
+        when(info.getQueryParameters()).thenReturn(parameters);
+        when(info.getRequestUri()).thenReturn(URI.create("http://localhost:8080/restcomm/2012-04-24/Accounts/" + ACCOUNT
+                + "/Conferences/" + conference + "/Participants.json"));
+        return info;
+    }
+
+    @Test
+    public void pollingRunningConferenceDoesNotQueryDatabase() {
+        final ParticipantsJsonEndpoint endpoint = new ParticipantsJsonEndpoint(servletContext, request);
+        endpoint.init();
+        for (int poll = 0; poll < 10; poll++) {
+            for (int page = 0; page < PARTICIPANTS / 50; page++) {
+                final Response response = endpoint.getParticipants(ACCOUNT, conference.toString(), page(page));
+                assertEquals(200, response.getStatus());
+            }
+        }
+        final Response last = endpoint.getParticipants(ACCOUNT, conference.toString(), page(PARTICIPANTS / 50 - 1));
+        final String body = (String) last.getEntity();
+        assertTrue(body.contains("\"total\": " + PARTICIPANTS));
+        verifyZeroInteractions(cdrs);
+    }
+
+    @Test
+    public void liveParticipantsMatchTheirCallRecords() throws Exception {
+        final CallDetailRecord record = callRecord();
+        final CallDetailRecord live = ParticipantsEndpoint.toCallDetailRecord(conference,
+                new ConferenceParticipant(record, true, false, true, false));
+        for (final Method getter : CallDetailRecord.class.getMethods()) {
+            final String name = getter.getName();
+            if (getter.getParameterTypes().length > 0 || getter.getDeclaringClass() != CallDetailRecord.class
+                    || !(name.startsWith("get") || name.startsWith("is"))) {
+                continue;
+            }
+            // Only known once the call is over, or when the record was last written.
+            if ("getEndTime".equals(name) || "getDuration".equals(name) || "getRingDuration".equals(name)
+                    || "getDateUpdated".equals(name)) {
+                continue;
+            }
+            assertEquals(name, getter.invoke(record), getter.invoke(live));
+        }
+    }
+}
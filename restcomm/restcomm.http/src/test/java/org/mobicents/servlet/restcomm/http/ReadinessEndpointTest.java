@@ -0,0 +1,76 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.startup.StartupGraph;
+import org.mobicents.servlet.restcomm.startup.StartupGraph.Step;
+
+public class ReadinessEndpointTest {
+    @Test
+    public void notReadyBeforeTheStartUpBegins() {
+        final ServletContext context = mock(ServletContext.class);
+        assertEquals(503, new ReadinessEndpoint(context).getReadiness().getStatus());
+    }
+
+    @Test
+    public void readyOnceTheCriticalStepsAreUp() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final StartupGraph startup = new StartupGraph(2);
+        startup.add("storage", true, new Step() {
+            @Override
+            public void run() throws Exception {
+                release.await();
+            }
+        });
+        startup.add("rvd-migration", false, new Step() {
+            @Override
+            public void run() throws Exception {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+            }
+
+            @Override
+            public String progress() {
+                return "10/1000 projects";
+            }
+        });
+        final ServletContext context = mock(ServletContext.class);
+        when(context.getAttribute(StartupGraph.class.getName())).thenReturn(startup);
+        final ReadinessEndpoint endpoint = new ReadinessEndpoint(context);
+        startup.start();
+        assertEquals(503, endpoint.getReadiness().getStatus());
+        release.countDown();
+        assertTrue(startup.await(10, TimeUnit.SECONDS));
+        final Response response = endpoint.getReadiness();
+        assertEquals(200, response.getStatus());
+        assertTrue((String) response.getEntity(), ((String) response.getEntity()).contains("10/1000 projects"));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
+import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.DaoManagerMock;
+import org.mobicents.servlet.restcomm.dao.SmsCampaignsDao;
+import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
+import org.mobicents.servlet.restcomm.entities.Account;
+import org.mobicents.servlet.restcomm.entities.SmsCampaign;
+import org.mobicents.servlet.restcomm.entities.SmsMessage;
+import org.mobicents.servlet.restcomm.sms.CreateSmsCampaign;
+import org.mobicents.servlet.restcomm.sms.GetSmsCampaign;
+import org.mobicents.servlet.restcomm.sms.SmsCampaignBatch;
+import org.mobicents.servlet.restcomm.sms.SmsServiceResponse;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+
+/**
+ * Checks that campaign recipients are stored in batches and that a busy dispatcher does not hold requests for long.
+ */
+public class SmsCampaignsEndpointMockedTest extends EndpointMockedTest {
+    private static final String ACCOUNT = "AC00000000000000000000000000000000";
+    private static final String DISPATCHER = "org.mobicents.servlet.restcomm.sms.SmsCampaignDispatcher";
+    // Batches received by the dispatcher.
+    private static final List<SmsCampaignBatch> batches = new CopyOnWriteArrayList<SmsCampaignBatch>();
+
+    private ActorSystem system;
+    private SmsMessagesDao messages;
+    private SmsCampaignsDao campaigns;
+
+    @Before
+    public void before() {
+        init();
+        RestcommConfiguration.createOnce(conf);
+        conf.setProperty("sms-campaigns.batch-size", "10");
+        conf.setProperty("sms-campaigns.request-timeout", "1");
+        final Account administrator = accounts.get(0);
+        accounts.set(0, new Account(administrator.getSid(), null, null, administrator.getEmailAddress(),
+                administrator.getFriendlyName(), null, null, null, administrator.getAuthToken(), "Administrator", null));
+        messages = mock(SmsMessagesDao.class);
+        campaigns = mock(SmsCampaignsDao.class);
+        final DaoManager daos = new DaoManagerMock(accountsDao) {
+            @Override
+            public SmsMessagesDao getSmsMessagesDao() {
+                return messages;
+            }
+
+            @Override
+            public SmsCampaignsDao getSmsCampaignsDao() {
+                return campaigns;
+            }
+        };
+        when(servletContext.getAttribute(DaoManager.class.getName())).thenReturn(daos);
+        system = ActorSystem.create();
+        batches.clear();
+    }
+
+    @After
+    public void after() {
+        system.shutdown();
+        system.awaitTermination();
+    }
+
+    private SmsCampaignsJsonEndpoint endpoint(final Class<? extends UntypedActor> dispatcher) {
+        when(servletContext.getAttribute(DISPATCHER)).thenReturn(system.actorOf(new Props(dispatcher)));
+        final SmsCampaignsJsonEndpoint endpoint = new SmsCampaignsJsonEndpoint(servletContext, request);
+        endpoint.init();
+        return endpoint;
+    }
+
+    private static UriInfo parameters(final String body) {
+        final MultivaluedMap<String, String> parameters = new MultivaluedMapImpl();
+        parameters.add("From", "+15550000000");
+        parameters.add("Body", body);
+        final UriInfo info = mock(UriInfo.class);
+        when(info.getQueryParameters()).thenReturn(parameters);
+        return info;
+    }
+
+    @Test
+    public void recipientsAreStoredAndQueuedInBatches() {
+        final StringBuilder csv = new StringBuilder("To,Name\n");
+        for (int i = 0; i < 25; i++) {
+            csv.append("+1305555").append(1000 + i).append(",\"Doe, Jane ").append(i).append("\"\n");
+        }
+        final Response response = endpoint(Dispatcher.class).putSmsCampaign(ACCOUNT, parameters("Hi {Name}"),
+                new ByteArrayInputStream(csv.toString().getBytes()));
+        assertEquals(200, response.getStatus());
+        assertTrue(((String) response.getEntity()).contains("\"total\": 25"));
+        assertEquals(3, batches.size());
+        assertEquals(10, batches.get(0).messages().size());
+        assertEquals(5, batches.get(2).messages().size());
+        assertTrue(batches.get(2).last());
+        final SmsMessage message = batches.get(1).messages().get(0);
+        assertEquals("+13055551010", message.getRecipient());
+        assertEquals("Hi Doe, Jane 10", message.getBody());
+        // The campaign is recorded before its messages, which are recorded with it.
+        verify(campaigns).addSmsCampaign(any(SmsCampaign.class));
+        verify(messages, times(3)).addSmsMessages(eq(batches.get(0).campaign()), anyListOf(SmsMessage.class));
+    }
+
+    @Test
+    public void busyDispatcherIsReportedUnavailable() {
+        final long start = System.nanoTime();
+        final Response response = endpoint(Silent.class).getSmsCampaigns(ACCOUNT);
+        assertEquals(503, response.getStatus());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+    }
+
+    @Test
+    public void csvLinesAndTemplatesAreParsed() {
+        assertEquals(Arrays.asList("+13055551234", "Doe, \"Jane\"", ""),
+                SmsCampaignsEndpoint.parse("+13055551234, \"Doe, \"\"Jane\"\"\","));
+        final Map<String, String> variables = new HashMap<String, String>();
+        variables.put("Name", "Jane");
+        assertEquals("Hi Jane, {Unknown}", SmsCampaignsEndpoint.fill("Hi {Name}, {Unknown}", variables));
+    }
+
+    public static final class Dispatcher extends UntypedActor {
+        private SmsCampaign campaign;
+        private int total;
+
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof CreateSmsCampaign) {
+                campaign = ((CreateSmsCampaign) message).campaign();
+            } else if (message instanceof SmsCampaignBatch) {
+                batches.add((SmsCampaignBatch) message);
+                total += ((SmsCampaignBatch) message).messages().size();
+            } else if (message instanceof GetSmsCampaign) {
+                sender().tell(new SmsServiceResponse<SmsCampaign>(new SmsCampaign(campaign.getSid(),
+                        campaign.getDateCreated(), campaign.getDateUpdated(), campaign.getAccountSid(),
+                        campaign.getSender(), campaign.getBody(), SmsCampaign.Status.QUEUED, total, total, 0, 0, 0,
+                        campaign.getApiVersion(), URI.create("/Campaigns/" + campaign.getSid()), campaign.getEncoding(),
+                        campaign.getInstanceId())), self());
+            }
+        }
+    }
+
+    // Stands in for a dispatcher too busy to answer.
+    public static final class Silent extends UntypedActor {
+        @Override
+        public void onReceive(final Object message) throws Exception {
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.http.client.callback;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.configuration.sets.MainConfigurationSet;
+import org.mobicents.servlet.restcomm.configuration.sets.impl.MainConfigurationSetImpl;
+import org.mobicents.servlet.restcomm.http.SslMode;
+import org.mobicents.servlet.restcomm.http.client.HttpRequestDescriptor;
+
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.testkit.JavaTestKit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public final class CallbackDispatcherTest {
+    private ActorSystem system;
+    private HttpServer server;
+    private File spoolDirectory;
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final List<String> received = new CopyOnWriteArrayList<String>();
+
+    @Before
+    public void before() throws Exception {
+        system = ActorSystem.create();
+        spoolDirectory = new File(System.getProperty("java.io.tmpdir"), "callback-spool-" + System.nanoTime());
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/status", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final String body = IOUtils.toString(exchange.getRequestBody(), "UTF-8");
+                final int code = failuresLeft.getAndDecrement() > 0 ? 503 : 200;
+                if (code == 200) {
+                    received.add(body);
+                }
+                exchange.sendResponseHeaders(code, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void after() throws Exception {
+        server.stop(0);
+        system.shutdown();
+        system.awaitTermination();
+        FileUtils.deleteQuietly(spoolDirectory);
+    }
+
+    private ActorRef dispatcher() {
+        final Configuration configuration = new BaseConfiguration();
+        configuration.setProperty("spool-path", spoolDirectory.getPath());
+        configuration.setProperty("initial-backoff", "10");
+        configuration.setProperty("max-backoff", "50");
+        configuration.setProperty("max-attempts", "4");
+        final MainConfigurationSet main = new MainConfigurationSetImpl(SslMode.strict, 5000, false, "", null, false);
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new CallbackDispatcher(configuration, main);
+            }
+        }));
+    }
+
+    private HttpRequestDescriptor callback(final String status) {
+        final URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/status");
+        final List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+        parameters.add(new BasicNameValuePair("CallStatus", status));
+        return new HttpRequestDescriptor(uri, "POST", parameters);
+    }
+
+    private CallbackMetrics.HostMetrics awaitSettled(final JavaTestKit kit, final ActorRef dispatcher) throws Exception {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            dispatcher.tell(GetCallbackMetrics.instance(), kit.getRef());
+            final CallbackMetrics metrics = kit.expectMsgClass(FiniteDuration.create(5, TimeUnit.SECONDS),
+                    CallbackMetrics.class);
+            final CallbackMetrics.HostMetrics host = metrics.host("127.0.0.1");
+            if (host != null && host.pending() == 0 && host.inFlight() == 0
+                    && host.delivered() + host.abandoned() > 0) {
+                return host;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Callbacks were not settled in time");
+    }
+
+    @Test
+    public void failedCallbacksAreRetriedWithBackoff() throws Exception {
+        failuresLeft.set(2);
+        new JavaTestKit(system) {
+            {
+                final ActorRef dispatcher = dispatcher();
+                dispatcher.tell(callback("completed"), null);
+                final CallbackMetrics.HostMetrics host = awaitSettled(this, dispatcher);
+                assertEquals(1, host.delivered());
+                assertEquals(2, host.failedAttempts());
+                assertEquals(0, host.abandoned());
+                assertEquals(1, received.size());
+                assertTrue(received.get(0).contains("CallStatus=completed"));
+                // delivered callbacks are removed from the spool
+                assertEquals(0, spoolDirectory.list().length);
+            }
+        };
+    }
+
+    @Test
+    public void callbacksAreAbandonedAfterMaxAttempts() throws Exception {
+        failuresLeft.set(100);
+        new JavaTestKit(system) {
+            {
+                final ActorRef dispatcher = dispatcher();
+                dispatcher.tell(callback("completed"), null);
+                final CallbackMetrics.HostMetrics host = awaitSettled(this, dispatcher);
+                assertEquals(0, host.delivered());
+                assertEquals(4, host.failedAttempts());
+                assertEquals(1, host.abandoned());
+                assertEquals(0, spoolDirectory.list().length);
+            }
+        };
+    }
+
+    @Test
+    public void spooledCallbacksAreDeliveredOnStartup() throws Exception {
+        final CallbackSpool spool = new CallbackSpool(spoolDirectory.getPath());
+        spool.store(new PendingCallback("spooled", callback("ringing"), 0));
+        new JavaTestKit(system) {
+            {
+                final ActorRef dispatcher = dispatcher();
+                final CallbackMetrics.HostMetrics host = awaitSettled(this, dispatcher);
+                assertEquals(1, host.delivered());
+                assertEquals(1, received.size());
+                assertTrue(received.get(0).contains("CallStatus=ringing"));
+                assertEquals(0, spoolDirectory.list().length);
+            }
+        };
+    }
+}
@@ -22,19 +22,32 @@ public class AccountKey {
 
 
     public AccountKey(String sid, String key, AccountsDao dao) {
+        this(sid, key, dao, null);
+    }
+
+    public AccountKey(String sid, String key, AccountsDao dao, CredentialsCache credentials) {
         this.challengedSid = sid; // store there for future reference, maybe we need the raw data
         this.challengedKey = key;
         account = dao.getAccountToAuthenticate(sid); // We don't just retrieve an account, we're authenticating. Friendly names as authentnication tokens should be prevented
-        verify(dao);
+        verify(credentials);
     }
 
-    private void verify(AccountsDao dao) {
+    private void verify(CredentialsCache credentials) {
         if ( account != null ) {
-            if ( challengedKey != null )
+            // suspended and closed accounts are locked out, whatever credentials they carry or had verified before
+            if ( account.getStatus() == Account.Status.SUSPENDED || account.getStatus() == Account.Status.CLOSED )
+                return;
+            if ( challengedKey != null ) {
+                if ( credentials != null && credentials.isVerified(challengedSid, challengedKey, account) ) {
+                    verified = true;
+                } else
                 // Compare both the plaintext version of the token and md5'ed version of it
                 if ( challengedKey.equals(account.getAuthToken()) || DigestUtils.md5Hex(challengedKey).equals(account.getAuthToken())  ) {
                     verified = true;
+                    if ( credentials != null )
+                        credentials.verified(challengedSid, challengedKey, account);
                 }
+            }
         }
     }
 
@@ -0,0 +1,77 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.identity;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.Account;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Remembers recently verified Basic credentials for a short time so that API clients hammering the REST interface do
+ * not get their token hashed and compared on every single request.
+ *
+ * An entry only stands while the account still carries the auth token it was verified against. A password or token
+ * change therefore invalidates it implicitly, as long as the account itself is read fresh (see CachedAccountsDao).
+ * Entries are keyed on a SHA-256 digest of the credentials so the secrets themselves are not kept around.
+ */
+@ThreadSafe
+public final class CredentialsCache {
+    private final Cache<String, String> verified;
+
+    /**
+     * @param ttl seconds a verified credential is trusted without being checked again. 0 disables the cache.
+     */
+    public CredentialsCache(final long ttl) {
+        super();
+        if (ttl > 0) {
+            this.verified = CacheBuilder.newBuilder().expireAfterWrite(ttl, TimeUnit.SECONDS).maximumSize(10000).build();
+        } else {
+            this.verified = null;
+        }
+    }
+
+    private static String key(final String username, final String key) {
+        return DigestUtils.sha256Hex(username + ":" + key);
+    }
+
+    public boolean isVerified(final String username, final String key, final Account account) {
+        if (verified == null || account == null || account.getAuthToken() == null) {
+            return false;
+        }
+        return account.getAuthToken().equals(verified.getIfPresent(key(username, key)));
+    }
+
+    public void verified(final String username, final String key, final Account account) {
+        if (verified != null && account.getAuthToken() != null) {
+            verified.put(key(username, key), account.getAuthToken());
+        }
+    }
+
+    public void invalidateAll() {
+        if (verified != null) {
+            verified.invalidateAll();
+        }
+    }
+}
@@ -33,20 +33,26 @@ import org.mobicents.servlet.restcomm.identity.shiro.RestcommRoles;
  */
 public class IdentityContext {
     RestcommRoles restcommRoles;
+    CredentialsCache credentialsCache;
 
     /**
      * @param restcommConfiguration An apache configuration object representing <restcomm/> element of restcomm.xml
      */
     public IdentityContext(Configuration restcommConfiguration) {
-        this.restcommRoles = new RestcommRoles(restcommConfiguration.subset("runtime-settings").subset("security-roles"));
+        final Configuration runtime = restcommConfiguration.subset("runtime-settings");
+        this.restcommRoles = new RestcommRoles(runtime.subset("security-roles"));
+        this.credentialsCache = new CredentialsCache(runtime.getLong("credentials-cache-ttl", 0));
     }
 
     public IdentityContext(RestcommRoles restcommRoles) {
         if (restcommRoles == null)
             throw  new IllegalArgumentException("Cannot create an IdentityContext object with null roles!");
         this.restcommRoles = restcommRoles;
+        this.credentialsCache = new CredentialsCache(0);
     }
 
     public RestcommRoles getRestcommRoles() { return restcommRoles; }
 
+    public CredentialsCache getCredentialsCache() { return credentialsCache; }
+
 }
@@ -53,7 +53,17 @@ public class UserIdentityContext {
      * @param accountsDao
      */
     public UserIdentityContext(HttpServletRequest request, AccountsDao accountsDao) {
-        this.accountKey = extractAccountKey(request, accountsDao);
+        this(request, accountsDao, null);
+    }
+
+    /**
+     * Same as above but recently verified credentials are looked up in (and added to) the shared credentials cache.
+     * @param request
+     * @param accountsDao
+     * @param credentialsCache may be null
+     */
+    public UserIdentityContext(HttpServletRequest request, AccountsDao accountsDao, CredentialsCache credentialsCache) {
+        this.accountKey = extractAccountKey(request, accountsDao, credentialsCache);
         if (accountKey != null) {
             if (accountKey.isVerified()) {
                 effectiveAccount = accountKey.getAccount();
@@ -76,7 +86,7 @@ public class UserIdentityContext {
         return roles;
     }
 
-    private AccountKey extractAccountKey(HttpServletRequest request, AccountsDao dao) {
+    private AccountKey extractAccountKey(HttpServletRequest request, AccountsDao dao, CredentialsCache credentialsCache) {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null) {
             String[] parts = authHeader.split(" ");
@@ -86,7 +96,7 @@ public class UserIdentityContext {
                 // credentials = username:password
                 final String[] values = credentials.split(":",2);
                 if (values.length >= 2) {
-                    AccountKey accountKey = new AccountKey(values[0], values[1], dao);
+                    AccountKey accountKey = new AccountKey(values[0], values[1], dao, credentialsCache);
                     return accountKey;
                 }
 
@@ -28,10 +28,6 @@ import akka.actor.UntypedActorFactory;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import akka.util.Timeout;
-import com.google.i18n.phonenumbers.NumberParseException;
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
-import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
-import com.google.i18n.phonenumbers.Phonenumber.PhoneNumber;
 import org.apache.commons.configuration.Configuration;
 import org.apache.http.NameValuePair;
 import org.apache.http.message.BasicNameValuePair;
@@ -44,10 +40,14 @@ import org.mobicents.servlet.restcomm.asr.AsrRequest;
 import org.mobicents.servlet.restcomm.asr.AsrResponse;
 import org.mobicents.servlet.restcomm.asr.GetAsrInfo;
 import org.mobicents.servlet.restcomm.asr.ISpeechAsr;
+import org.mobicents.servlet.restcomm.asr.Transcribe;
+import org.mobicents.servlet.restcomm.asr.TranscriptionService;
 import org.mobicents.servlet.restcomm.cache.DiskCacheFactory;
 import org.mobicents.servlet.restcomm.cache.DiskCacheRequest;
 import org.mobicents.servlet.restcomm.cache.DiskCacheResponse;
 import org.mobicents.servlet.restcomm.cache.HashGenerator;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
+import org.mobicents.servlet.restcomm.configuration.sets.CacheConfigurationSet;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
 import org.mobicents.servlet.restcomm.dao.NotificationsDao;
@@ -73,6 +73,7 @@ import org.mobicents.servlet.restcomm.http.client.Downloader;
 import org.mobicents.servlet.restcomm.http.client.DownloaderResponse;
 import org.mobicents.servlet.restcomm.http.client.HttpRequestDescriptor;
 import org.mobicents.servlet.restcomm.http.client.HttpResponseDescriptor;
+import org.mobicents.servlet.restcomm.http.client.callback.CallbackDispatcher;
 import org.mobicents.servlet.restcomm.interpreter.rcml.Attribute;
 import org.mobicents.servlet.restcomm.interpreter.rcml.GetNextVerb;
 import org.mobicents.servlet.restcomm.interpreter.rcml.Parser;
@@ -95,10 +96,13 @@ import org.mobicents.servlet.restcomm.telephony.CallStateChanged;
 import org.mobicents.servlet.restcomm.telephony.GetCallInfo;
 import org.mobicents.servlet.restcomm.telephony.Hangup;
 import org.mobicents.servlet.restcomm.telephony.Reject;
+import org.mobicents.servlet.restcomm.tts.api.CachingSpeechSynthesizer;
 import org.mobicents.servlet.restcomm.tts.api.GetSpeechSynthesizerInfo;
+import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerCache;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerInfo;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerRequest;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerResponse;
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
 import org.mobicents.servlet.restcomm.util.UriUtils;
 import org.mobicents.servlet.restcomm.util.WavUtils;
 import scala.concurrent.Await;
@@ -169,11 +173,15 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
     FiniteStateMachine fsm = null;
     // The user specific configuration.
     Configuration configuration = null;
+    // The typed view of the same configuration, kept in step with it on reloads.
+    RestcommConfiguration restcommConfiguration = null;
     // The block storage cache.
     private ActorRef cache;
     String cachePath = null;
     // The downloader will fetch resources for us using HTTP.
     ActorRef downloader = null;
+    // Delivers the status callbacks, resolved lazily.
+    ActorRef callbackDispatcher = null;
     // The mail man that will deliver e-mail.
     ActorRef mailerNotify = null;
     ActorRef mailerService = null;
@@ -385,7 +393,8 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
 
     public ActorRef getAsrService() {
         if (asrService == null || (asrService != null && asrService.isTerminated())) {
-            asrService = asr(configuration.subset("speech-recognizer"));
+            final ActorRef shared = SharedServices.lookup(getContext(), SharedServices.SPEECH_RECOGNIZER);
+            asrService = shared != null ? shared : asr(configuration.subset("speech-recognizer"));
         }
         return asrService;
     }
@@ -422,7 +431,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                 final URI callback = (URI) attribute;
                 final List<NameValuePair> parameters = parameters();
                 request = new HttpRequestDescriptor(callback, "POST", parameters);
-                downloader.tell(request, null);
+                notifyCallback(request);
             }
             // Update pending asr responses.
             outstandingAsrRequests--;
@@ -433,7 +442,8 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
 
     public ActorRef getFaxService() {
         if (faxService == null || (faxService != null && faxService.isTerminated())) {
-            faxService = fax(configuration.subset("fax-service"));
+            final ActorRef shared = SharedServices.lookup(getContext(), SharedServices.FAX_SERVICE);
+            faxService = shared != null ? shared : fax(configuration.subset("fax-service"));
         }
         return faxService;
     }
@@ -450,8 +460,28 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
         }));
     }
 
+    // Returns the shared CallbackDispatcher or null when it is not running. Callbacks handed to the dispatcher
+    // are spooled and retried on its own so the interpreter does not have to wait for them.
+    ActorRef callbackDispatcher() {
+        if (callbackDispatcher == null || callbackDispatcher.isTerminated()) {
+            callbackDispatcher = CallbackDispatcher.lookup(getContext());
+        }
+        return callbackDispatcher;
+    }
+
+    void notifyCallback(final HttpRequestDescriptor request) {
+        final ActorRef dispatcher = callbackDispatcher();
+        if (dispatcher != null) {
+            dispatcher.tell(request, null);
+        } else {
+            downloader.tell(request, null);
+        }
+    }
+
     //Callback using the Akka ask pattern (http://doc.akka.io/docs/akka/2.2.5/java/untyped-actors.html#Ask__Send-And-Receive-Future) will force VoiceInterpter to wait until
     //Downloader finish with this callback before shutdown everything. Issue https://github.com/Mobicents/RestComm/issues/437
+    //The ask pattern is only used when the CallbackDispatcher is not available since the dispatcher takes care of
+    //the delivery after the interpreter is gone.
     void callback(boolean ask) {
         if (statusCallback != null) {
             if(logger.isInfoEnabled()){
@@ -462,9 +492,9 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             }
             final List<NameValuePair> parameters = parameters();
             requestCallback = new HttpRequestDescriptor(statusCallback, statusCallbackMethod, parameters);
-            if (!ask) {
-                downloader.tell(requestCallback, null);
-            } else if (ask) {
+            if (!ask || callbackDispatcher() != null) {
+                notifyCallback(requestCallback);
+            } else {
                 final Timeout timeout = new Timeout(Duration.create(5, TimeUnit.SECONDS));
                 Future<Object> future = (Future<Object>) ask(downloader, requestCallback, timeout);
                 DownloaderResponse downloaderResponse = null;
@@ -486,14 +516,14 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
 
     public ActorRef getCache() {
         if (cache == null || (cache != null && cache.isTerminated())) {
-            final Configuration runtime = configuration.subset("runtime-settings");
-            String path = runtime.getString("cache-path");
+            final CacheConfigurationSet cacheConfiguration = restcommConfiguration.getCache();
+            String path = cacheConfiguration.getCachePath();
             if (!path.endsWith("/")) {
                 path = path + "/";
             }
             path = path + accountId.toString();
             cachePath = path;
-            String uri = runtime.getString("cache-uri");
+            String uri = cacheConfiguration.getCacheUri();
             if (!uri.endsWith("/")) {
                 uri = uri + "/";
             }
@@ -533,14 +563,8 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
     }
 
     String e164(final String number) {
-        if (configuration.subset("runtime-settings").getBoolean("normalize-numbers-for-outbound-calls")) {
-            final PhoneNumberUtil numbersUtil = PhoneNumberUtil.getInstance();
-            try {
-                final PhoneNumber result = numbersUtil.parse(number, "US");
-                return numbersUtil.format(result, PhoneNumberFormat.E164);
-            } catch (final NumberParseException ignored) {
-                return number;
-            }
+        if (restcommConfiguration.getRuntime().isNormalizeNumbersForOutboundCalls()) {
+            return PhoneNumberNormalizer.getInstance().normalize(number);
         } else {
             return number;
         }
@@ -553,8 +577,13 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
         parser.tell(next, self);
     }
 
-    ActorRef mailer(final Configuration configuration) {
+    ActorRef mailer(final String name) {
         final UntypedActorContext context = getContext();
+        final ActorRef shared = SharedServices.lookup(context, name);
+        if (shared != null) {
+            return shared;
+        }
+        final Configuration configuration = this.configuration.subset(name);
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
@@ -574,7 +603,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
         builder.setApiVersion(version);
         builder.setLog(log);
         builder.setErrorCode(error);
-        String base = configuration.subset("runtime-settings").getString("error-dictionary-uri");
+        String base = restcommConfiguration.getRuntime().getErrorDictionaryUri();
         try {
             base = UriUtils.resolve(new URI(base)).toString();
         } catch (URISyntaxException e) {
@@ -676,7 +705,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
         buffer.append(notification.getResponseBody()).append("</br>");
         final Mail emailMsg = new Mail(EMAIL_SENDER,emailAddress,EMAIL_SUBJECT, buffer.toString());
         if (mailerNotify == null){
-            mailerNotify = mailer(configuration.subset("smtp-notify"));
+            mailerNotify = mailer(SharedServices.SMTP_NOTIFY);
         }
         mailerNotify.tell(new EmailRequest(emailMsg), self());
     }
@@ -737,7 +766,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             // Send the email.
             final Mail emailMsg = new Mail(from, to, subject, verb.text(),cc,bcc);
             if (mailerService == null){
-                mailerService = mailer(configuration.subset("smtp-service"));
+                mailerService = mailer(SharedServices.SMTP_SERVICE);
             }
             mailerService.tell(new EmailRequest(emailMsg), self());
         }
@@ -765,7 +794,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                 final URI callback = (URI) attribute;
                 final List<NameValuePair> parameters = parameters();
                 request = new HttpRequestDescriptor(callback, "POST", parameters);
-                downloader.tell(request, null);
+                notifyCallback(request);
             }
             // Destroy the sms session.
             final ActorRef session = smsSessions.remove(record.getSid());
@@ -776,7 +805,8 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
 
     public ActorRef getSynthesizer() {
         if (synthesizer == null || (synthesizer != null && synthesizer.isTerminated())) {
-            synthesizer = tts(configuration.subset("speech-synthesizer"));
+            final ActorRef shared = SharedServices.lookup(getContext(), SharedServices.SPEECH_SYNTHESIZER);
+            synthesizer = shared != null ? shared : tts(configuration.subset("speech-synthesizer"));
         }
         return synthesizer;
     }
@@ -785,14 +815,15 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
         final String classpath = configuration.getString("[@class]");
 
         final UntypedActorContext context = getContext();
-        return context.actorOf(new Props(new UntypedActorFactory() {
+        final Props synthesizer = new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public Actor create() throws Exception {
                 return (UntypedActor) Class.forName(classpath).getConstructor(Configuration.class).newInstance(configuration);
             }
-        }));
+        });
+        return context.actorOf(CachingSpeechSynthesizer.props(configuration, synthesizer));
     }
 
     abstract class AbstractAction implements Action {
@@ -907,7 +938,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
 
         @Override
         public void execute(final Object message) throws Exception {
-            String path = configuration.subset("runtime-settings").getString("prompts-uri");
+            String path = restcommConfiguration.getRuntime().getPromptsUri();
             if (!path.endsWith("/")) {
                 path += "/";
             }
@@ -1043,7 +1074,9 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             final Class<?> klass = message.getClass();
             if (SpeechSynthesizerResponse.class.equals(klass)) {
                 final SpeechSynthesizerResponse<URI> response = (SpeechSynthesizerResponse<URI>) message;
-                final DiskCacheRequest request = new DiskCacheRequest(response.get());
+                // The prompt stays in the synthesizer cache for the next call playing it
+                final URI prompt = response.get();
+                final DiskCacheRequest request = new DiskCacheRequest(prompt, SpeechSynthesizerCache.getInstance().holds(prompt));
                 getCache().tell(request, source);
             } else if (Tag.class.equals(klass)) {
                 if (Tag.class.equals(klass)) {
@@ -1325,7 +1358,9 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             final NotificationsDao notifications = storage.getNotificationsDao();
             if (SpeechSynthesizerResponse.class.equals(klass)) {
                 final SpeechSynthesizerResponse<URI> response = (SpeechSynthesizerResponse<URI>) message;
-                final DiskCacheRequest request = new DiskCacheRequest(response.get());
+                // The prompt stays in the synthesizer cache for the next call playing it
+                final URI prompt = response.get();
+                final DiskCacheRequest request = new DiskCacheRequest(prompt, SpeechSynthesizerCache.getInstance().holds(prompt));
                 getCache().tell(request, source);
             } else {
                 if (Tag.class.equals(klass)) {
@@ -1442,7 +1477,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                                 }
                             }
                         }
-                        String path = configuration.subset("runtime-settings").getString("prompts-uri");
+                        String path = restcommConfiguration.getRuntime().getPromptsUri();
                         if (!path.endsWith("/")) {
                             path += "/";
                         }
@@ -1673,8 +1708,8 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             }
             // Start recording.
             recordingSid = Sid.generate(Sid.Type.RECORDING);
-            String path = configuration.subset("runtime-settings").getString("recordings-path");
-            String httpRecordingUri = configuration.subset("runtime-settings").getString("recordings-uri");
+            String path = restcommConfiguration.getRuntime().getRecordingsPath();
+            String httpRecordingUri = restcommConfiguration.getRuntime().getRecordingsUri();
             if (!path.endsWith("/")) {
                 path += "/";
             }
@@ -1692,7 +1727,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
             Record record = null;
             if (playBeep) {
                 final List<URI> prompts = new ArrayList<URI>(1);
-                path = configuration.subset("runtime-settings").getString("prompts-uri");
+                path = restcommConfiguration.getRuntime().getPromptsUri();
                 if (!path.endsWith("/")) {
                     path += "/";
                 }
@@ -1812,11 +1847,17 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                 final TranscriptionsDao transcriptions = storage.getTranscriptionsDao();
                 transcriptions.addTranscription(transcription);
                 try {
-                    final Map<String, Object> attributes = new HashMap<String, Object>();
-                    attributes.put("callback", transcribeCallback);
-                    attributes.put("transcription", transcription);
-                    getAsrService().tell(new AsrRequest(new File(recordingUri), "en", attributes), source);
-                    outstandingAsrRequests++;
+                    final ActorRef service = getContext().actorFor("/user/" + TranscriptionService.NAME);
+                    if (!service.isTerminated()) {
+                        // The transcription service keeps the job past the end of this call.
+                        service.tell(new Transcribe(sid, new File(recordingUri), "en", transcribeCallback, parameters()), null);
+                    } else {
+                        final Map<String, Object> attributes = new HashMap<String, Object>();
+                        attributes.put("callback", transcribeCallback);
+                        attributes.put("transcription", transcription);
+                        getAsrService().tell(new AsrRequest(new File(recordingUri), "en", attributes), source);
+                        outstandingAsrRequests++;
+                    }
                 } catch (final Exception exception) {
                     logger.error(exception.getMessage(), exception);
                 }
@@ -1865,7 +1906,7 @@ public abstract class BaseVoiceInterpreter extends UntypedActor {
                         parameters.add(new BasicNameValuePair("PublicRecordingUrl", recording.getFileUri().toURL().toString()));
                     } else {
                         // Redirect to the action url.
-                        String httpRecordingUri = configuration.subset("runtime-settings").getString("recordings-uri");
+                        String httpRecordingUri = restcommConfiguration.getRuntime().getRecordingsUri();
                         if (!httpRecordingUri.endsWith("/")) {
                             httpRecordingUri += "/";
                         }
@@ -9,10 +9,6 @@ import akka.actor.UntypedActorContext;
 import akka.actor.UntypedActorFactory;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
-import com.google.i18n.phonenumbers.NumberParseException;
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
-import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
-import com.google.i18n.phonenumbers.Phonenumber.PhoneNumber;
 import org.apache.commons.configuration.Configuration;
 import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
@@ -55,10 +51,13 @@ import org.mobicents.servlet.restcomm.patterns.Observe;
 import org.mobicents.servlet.restcomm.telephony.CallInfo;
 import org.mobicents.servlet.restcomm.telephony.CallStateChanged;
 import org.mobicents.servlet.restcomm.telephony.DestroyWaitUrlConfMediaGroup;
+import org.mobicents.servlet.restcomm.tts.api.CachingSpeechSynthesizer;
 import org.mobicents.servlet.restcomm.tts.api.GetSpeechSynthesizerInfo;
+import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerCache;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerInfo;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerRequest;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerResponse;
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
 
 import java.io.IOException;
 import java.net.URI;
@@ -237,7 +236,8 @@ public class ConfVoiceInterpreter extends UntypedActor {
         this.configuration = configuration;
 
         this.storage = storage;
-        this.synthesizer = tts(configuration.subset("speech-synthesizer"));
+        final ActorRef shared = SharedServices.lookup(getContext(), SharedServices.SPEECH_SYNTHESIZER);
+        this.synthesizer = shared != null ? shared : tts(configuration.subset("speech-synthesizer"));
         final Configuration runtime = configuration.subset("runtime-settings");
         String path = runtime.getString("cache-path");
         if (!path.endsWith("/")) {
@@ -282,13 +282,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
     }
 
     private String e164(final String number) {
-        final PhoneNumberUtil numbersUtil = PhoneNumberUtil.getInstance();
-        try {
-            final PhoneNumber result = numbersUtil.parse(number, "US");
-            return numbersUtil.format(result, PhoneNumberFormat.E164);
-        } catch (final NumberParseException ignored) {
-            return number;
-        }
+        return PhoneNumberNormalizer.getInstance().normalize(number);
     }
 
     private void invalidVerb(final Tag verb) {
@@ -298,8 +292,13 @@ public class ConfVoiceInterpreter extends UntypedActor {
         parser.tell(next, self);
     }
 
-    ActorRef mailer(final Configuration configuration) {
+    ActorRef mailer(final String name) {
         final UntypedActorContext context = getContext();
+        final ActorRef shared = SharedServices.lookup(context, name);
+        if (shared != null) {
+            return shared;
+        }
+        final Configuration configuration = this.configuration.subset(name);
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
@@ -564,7 +563,7 @@ public class ConfVoiceInterpreter extends UntypedActor {
         buffer.append(notification.getResponseBody()).append("</br>");
         final Mail emailMsg = new Mail(EMAIL_SENDER,emailAddress,EMAIL_SUBJECT, buffer.toString());
         if (mailerNotify == null){
-            mailerNotify = mailer(configuration.subset("smtp-notify"));
+            mailerNotify = mailer(SharedServices.SMTP_NOTIFY);
         }
         mailerNotify.tell(new EmailRequest(emailMsg), self());
     }
@@ -573,14 +572,15 @@ public class ConfVoiceInterpreter extends UntypedActor {
         final String classpath = configuration.getString("[@class]");
 
         final UntypedActorContext context = getContext();
-        return context.actorOf(new Props(new UntypedActorFactory() {
+        final Props synthesizer = new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public Actor create() throws Exception {
                 return (UntypedActor) Class.forName(classpath).getConstructor(Configuration.class).newInstance(configuration);
             }
-        }));
+        });
+        return context.actorOf(CachingSpeechSynthesizer.props(configuration, synthesizer));
     }
 
     private abstract class AbstractAction implements Action {
@@ -737,7 +737,9 @@ public class ConfVoiceInterpreter extends UntypedActor {
             final Class<?> klass = message.getClass();
             if (SpeechSynthesizerResponse.class.equals(klass)) {
                 final SpeechSynthesizerResponse<URI> response = (SpeechSynthesizerResponse<URI>) message;
-                final DiskCacheRequest request = new DiskCacheRequest(response.get());
+                // The prompt stays in the synthesizer cache for the next call playing it
+                final URI prompt = response.get();
+                final DiskCacheRequest request = new DiskCacheRequest(prompt, SpeechSynthesizerCache.getInstance().holds(prompt));
                 cache.tell(request, source);
             } else if (Tag.class.equals(klass) || MediaGroupStateChanged.class.equals(klass)) {
                 if (Tag.class.equals(klass)) {
@@ -985,11 +987,10 @@ public class ConfVoiceInterpreter extends UntypedActor {
 
             // Stop the dependencies.
             final UntypedActorContext context = getContext();
-            if (mailerNotify != null)
-                context.stop(mailerNotify);
+            SharedServices.stop(context, mailerNotify);
             context.stop(downloader);
             context.stop(cache);
-            context.stop(synthesizer);
+            SharedServices.stop(context, synthesizer);
             // Stop the interpreter.
             postCleanup();
         }
@@ -0,0 +1,170 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.interpreter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.NotThreadSafe;
+import org.mobicents.servlet.restcomm.telephony.CallManagerResponse;
+import org.mobicents.servlet.restcomm.telephony.CreateCall;
+import org.mobicents.servlet.restcomm.telephony.DestroyCall;
+
+import akka.actor.ActorRef;
+
+/**
+ * Creates the outbound legs of a forking Dial. Up to concurrency CreateCall requests are kept in flight with the
+ * CallManager, its answers are matched to the child they were sent for whatever their order, and every leg is rung as
+ * soon as it exists. Legs created once their Dial was answered, canceled or timed out are destroyed without ringing.
+ *
+ * One instance lives as long as its interpreter so that the legs of a previous Dial can still be destroyed when their
+ * creation completes after the next Dial started.
+ *
+ * @param <T> the children of the Dial.
+ */
+@NotThreadSafe
+public final class DialFork<T> {
+    private final ActorRef callManager;
+    private final ActorRef source;
+    private final int concurrency;
+    private final Legs<T> legs;
+    private final LinkedList<T> children;
+    private final Map<CreateCall, T> inProgress;
+
+    /**
+     * @param callManager creates and destroys the legs.
+     * @param source who the CallManager answers to.
+     * @param concurrency how many CreateCall requests are in flight at most.
+     * @param legs what a leg means to the interpreter.
+     */
+    public DialFork(final ActorRef callManager, final ActorRef source, final int concurrency, final Legs<T> legs) {
+        super();
+        this.callManager = callManager;
+        this.source = source;
+        this.concurrency = Math.max(1, concurrency);
+        this.legs = legs;
+        this.children = new LinkedList<T>();
+        this.inProgress = new HashMap<CreateCall, T>();
+    }
+
+    /**
+     * Starts creating the legs of a new Dial, forgetting the children of the previous one that were not requested yet.
+     */
+    public void fork(final List<T> children) {
+        this.children.clear();
+        this.children.addAll(children);
+        create();
+    }
+
+    /**
+     * No more legs are requested, the ones in flight are destroyed as they are created.
+     */
+    public void stop() {
+        children.clear();
+    }
+
+    /**
+     * @return true if the response answers a CreateCall sent by this fork.
+     */
+    public boolean isWaitingFor(final CallManagerResponse<?> response) {
+        return inProgress.containsKey(response.getCreateCall());
+    }
+
+    /**
+     * @return true while legs of a ringing Dial remain to be created.
+     */
+    public boolean isCreating() {
+        for (final T child : children) {
+            if (legs.isRinging(child)) {
+                return true;
+            }
+        }
+        for (final T child : inProgress.values()) {
+            if (legs.isRinging(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rings or destroys the legs created for a child and requests the next ones.
+     *
+     * @return how many legs were rung.
+     */
+    @SuppressWarnings("unchecked")
+    public int created(final CallManagerResponse<Object> response) {
+        final T child = inProgress.remove(response.getCreateCall());
+        final List<ActorRef> created = new ArrayList<ActorRef>();
+        if (response.succeeded()) {
+            if (response.get() instanceof List) {
+                created.addAll((List<ActorRef>) response.get());
+            } else {
+                created.add((ActorRef) response.get());
+            }
+        }
+        if (child != null && legs.isRinging(child)) {
+            for (final ActorRef leg : created) {
+                legs.ring(leg, child);
+            }
+            create();
+            return created.size();
+        }
+        // Nobody dialed these legs yet.
+        for (final ActorRef leg : created) {
+            callManager.tell(new DestroyCall(leg), source);
+        }
+        return 0;
+    }
+
+    private void create() {
+        while (!children.isEmpty() && inProgress.size() < concurrency) {
+            final T child = children.removeFirst();
+            final CreateCall create = legs.create(child);
+            if (create != null) {
+                inProgress.put(create, child);
+                callManager.tell(create, source);
+            }
+        }
+    }
+
+    /**
+     * What the legs of a Dial mean to the interpreter forking it.
+     */
+    public interface Legs<T> {
+        /**
+         * @return the request creating the legs of a child, null to skip the child.
+         */
+        CreateCall create(T child);
+
+        /**
+         * @return false once the Dial of the child was answered, canceled or timed out.
+         */
+        boolean isRinging(T child);
+
+        /**
+         * Starts ringing a leg created for a child.
+         */
+        void ring(ActorRef leg, T child);
+    }
+}
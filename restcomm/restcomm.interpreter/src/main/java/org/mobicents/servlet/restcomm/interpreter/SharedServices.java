@@ -0,0 +1,186 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.interpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.asr.AsrRequest;
+import org.mobicents.servlet.restcomm.asr.AsrResponse;
+import org.mobicents.servlet.restcomm.asr.ISpeechAsr;
+import org.mobicents.servlet.restcomm.email.EmailService;
+import org.mobicents.servlet.restcomm.fax.FaxResponse;
+import org.mobicents.servlet.restcomm.fax.InterfaxService;
+import org.mobicents.servlet.restcomm.patterns.ServicePool;
+import org.mobicents.servlet.restcomm.tts.api.CachingSpeechSynthesizer;
+import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerResponse;
+
+import akka.actor.Actor;
+import akka.actor.ActorContext;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+
+/**
+ * The speech synthesizer, speech recognizer, fax and email services shared by all the interpreters. Each one runs as a
+ * {@link ServicePool} named after its configuration section, sized by the pool-size, queue-size and timeout attributes
+ * of that section. The email services queue and retry the messages on their own, so they run as a single
+ * {@link EmailService} that reads the same attributes. The interpreters fall back to a service of their own when the
+ * shared one is not running.
+ */
+public final class SharedServices {
+    public static final String SPEECH_SYNTHESIZER = "speech-synthesizer";
+    public static final String SPEECH_RECOGNIZER = "speech-recognizer";
+    public static final String FAX_SERVICE = "fax-service";
+    public static final String SMTP_NOTIFY = "smtp-notify";
+    public static final String SMTP_SERVICE = "smtp-service";
+
+    // The workers block on the vendors, keep them away from the default dispatcher.
+    private static final String DISPATCHER = "restcomm-service-dispatcher";
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+    private static final long DEFAULT_TIMEOUT = 30000;
+
+    private SharedServices() {
+        super();
+    }
+
+    /**
+     * Starts the shared services as top level actors.
+     *
+     * @param configuration the restcomm.xml configuration.
+     * @return the services that were started, by name. A service with a pool-size of 0 is not started.
+     */
+    public static Map<String, ActorRef> start(final ActorSystem system, final Configuration configuration) {
+        final Map<String, ActorRef> services = new HashMap<String, ActorRef>();
+        start(system, services, SPEECH_SYNTHESIZER, configuration.subset(SPEECH_SYNTHESIZER), 16);
+        start(system, services, SPEECH_RECOGNIZER, configuration.subset(SPEECH_RECOGNIZER), 8);
+        start(system, services, FAX_SERVICE, configuration.subset(FAX_SERVICE), 4);
+        start(system, services, SMTP_NOTIFY, configuration.subset(SMTP_NOTIFY), 4);
+        start(system, services, SMTP_SERVICE, configuration.subset(SMTP_SERVICE), 4);
+        return services;
+    }
+
+    /**
+     * @return the shared service or null if it is not running.
+     */
+    public static ActorRef lookup(final ActorContext context, final String name) {
+        final ActorRef service = context.actorFor("/user/" + name);
+        return service.isTerminated() ? null : service;
+    }
+
+    /**
+     * Stops a service unless it is one of the shared ones.
+     */
+    public static void stop(final ActorContext context, final ActorRef service) {
+        if (service != null && context.self().path().equals(service.path().parent())) {
+            context.stop(service);
+        }
+    }
+
+    private static void start(final ActorSystem system, final Map<String, ActorRef> services, final String name,
+            final Configuration configuration, final int defaultSize) {
+        final int size = configuration.getInt("[@pool-size]", defaultSize);
+        if (configuration.isEmpty() || size <= 0) {
+            return;
+        }
+        if (SMTP_NOTIFY.equals(name) || SMTP_SERVICE.equals(name)) {
+            services.put(name, system.actorOf(email(name, configuration), name));
+            return;
+        }
+        final int queueSize = configuration.getInt("[@queue-size]", DEFAULT_QUEUE_SIZE);
+        final long timeout = configuration.getLong("[@timeout]", DEFAULT_TIMEOUT);
+        final Props worker = worker(name, configuration).withDispatcher(DISPATCHER);
+        final ServicePool.Rejection rejection = rejection(name);
+        Props props = new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new ServicePool(name, worker, size, queueSize, timeout, rejection);
+            }
+        });
+        if (SPEECH_SYNTHESIZER.equals(name)) {
+            props = CachingSpeechSynthesizer.props(configuration, props);
+        }
+        services.put(name, system.actorOf(props, name));
+    }
+
+    private static Props email(final String name, final Configuration configuration) {
+        return new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new EmailService(name, configuration);
+            }
+        });
+    }
+
+    private static Props worker(final String name, final Configuration configuration) {
+        return new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                if (SPEECH_SYNTHESIZER.equals(name)) {
+                    final String classpath = configuration.getString("[@class]");
+                    return (UntypedActor) Class.forName(classpath).getConstructor(Configuration.class)
+                            .newInstance(configuration);
+                } else if (SPEECH_RECOGNIZER.equals(name)) {
+                    return new ISpeechAsr(configuration);
+                } else {
+                    return new InterfaxService(configuration);
+                }
+            }
+        });
+    }
+
+    private static ServicePool.Rejection rejection(final String name) {
+        if (SPEECH_SYNTHESIZER.equals(name)) {
+            return new ServicePool.Rejection() {
+                @Override
+                public Object reject(final Object request, final Throwable cause) {
+                    return new SpeechSynthesizerResponse<Object>(cause);
+                }
+            };
+        } else if (SPEECH_RECOGNIZER.equals(name)) {
+            return new ServicePool.Rejection() {
+                @Override
+                public Object reject(final Object request, final Throwable cause) {
+                    // The interpreter finds the transcription to update in the attributes.
+                    if (request instanceof AsrRequest) {
+                        return new AsrResponse<Object>(cause, ((AsrRequest) request).attributes());
+                    }
+                    return new AsrResponse<Object>(cause);
+                }
+            };
+        } else {
+            return new ServicePool.Rejection() {
+                @Override
+                public Object reject(final Object request, final Throwable cause) {
+                    return new FaxResponse(cause);
+                }
+            };
+        }
+    }
+}
@@ -65,6 +65,7 @@ import org.mobicents.servlet.restcomm.http.client.Downloader;
 import org.mobicents.servlet.restcomm.http.client.DownloaderResponse;
 import org.mobicents.servlet.restcomm.http.client.HttpRequestDescriptor;
 import org.mobicents.servlet.restcomm.http.client.HttpResponseDescriptor;
+import org.mobicents.servlet.restcomm.http.client.callback.CallbackDispatcher;
 import org.mobicents.servlet.restcomm.interpreter.rcml.Attribute;
 import org.mobicents.servlet.restcomm.interpreter.rcml.GetNextVerb;
 import org.mobicents.servlet.restcomm.interpreter.rcml.Parser;
@@ -79,6 +80,7 @@ import org.mobicents.servlet.restcomm.sms.SmsSessionAttribute;
 import org.mobicents.servlet.restcomm.sms.SmsSessionInfo;
 import org.mobicents.servlet.restcomm.sms.SmsSessionRequest;
 import org.mobicents.servlet.restcomm.sms.SmsSessionResponse;
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
 
 import akka.actor.ActorRef;
 import akka.actor.Actor;
@@ -89,10 +91,6 @@ import akka.actor.UntypedActorFactory;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 
-import com.google.i18n.phonenumbers.NumberParseException;
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
-import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
-import com.google.i18n.phonenumbers.Phonenumber.PhoneNumber;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -237,8 +235,13 @@ public final class SmsInterpreter extends UntypedActor {
         }));
     }
 
-    ActorRef mailer(final Configuration configuration) {
+    ActorRef mailer(final String name) {
         final UntypedActorContext context = getContext();
+        final ActorRef shared = SharedServices.lookup(context, name);
+        if (shared != null) {
+            return shared;
+        }
+        final Configuration configuration = this.configuration.subset(name);
         return context.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
@@ -251,13 +254,7 @@ public final class SmsInterpreter extends UntypedActor {
 
     protected String format(final String number) {
         if(normalizeNumber) {
-            final PhoneNumberUtil numbersUtil = PhoneNumberUtil.getInstance();
-            try {
-                final PhoneNumber result = numbersUtil.parse(number, "US");
-                return numbersUtil.format(result, PhoneNumberFormat.E164);
-            } catch (final NumberParseException ignored) {
-                return null;
-            }
+            return PhoneNumberNormalizer.getInstance().toE164(number);
         } else {
             return number;
         }
@@ -468,7 +465,13 @@ public final class SmsInterpreter extends UntypedActor {
                 final URI callback = (URI) attribute;
                 final List<NameValuePair> parameters = parameters();
                 request = new HttpRequestDescriptor(callback, "POST", parameters);
-                downloader.tell(request, null);
+                // Hand the callback to the shared dispatcher so it is retried even after this interpreter stops
+                final ActorRef dispatcher = CallbackDispatcher.lookup(getContext());
+                if (dispatcher != null) {
+                    dispatcher.tell(request, null);
+                } else {
+                    downloader.tell(request, null);
+                }
             }
             // Destroy the sms session.
             final ActorRef session = sessions.remove(record.getSid());
@@ -956,7 +959,7 @@ public final class SmsInterpreter extends UntypedActor {
             // Send the email.
             final Mail emailMsg = new Mail(from, to, subject, verb.text(),cc,bcc);
             if (mailerService == null){
-                mailerService = mailer(configuration.subset("smtp-service"));
+                mailerService = mailer(SharedServices.SMTP_SERVICE);
             }
             mailerService.tell(new EmailRequest(emailMsg), self());
         }
@@ -31,6 +31,7 @@ import org.apache.http.message.BasicNameValuePair;
 import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.asr.AsrResponse;
 import org.mobicents.servlet.restcomm.cache.DiskCacheResponse;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.dao.CallDetailRecordsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
 import org.mobicents.servlet.restcomm.dao.NotificationsDao;
@@ -102,16 +103,18 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
     private Boolean hangupOnEnd = false;
     private ActorRef originalInterpreter;
 
-    public SubVoiceInterpreter(final Configuration configuration, final Sid account, final Sid phone, final String version,
+    public SubVoiceInterpreter(final Configuration configuration, final RestcommConfiguration restcommConfiguration,
+            final Sid account, final Sid phone, final String version,
             final URI url, final String method, final URI fallbackUrl, final String fallbackMethod, final URI statusCallback,
             final String statusCallbackMethod, final String emailAddress, final ActorRef callManager,
             final ActorRef conferenceManager, final ActorRef sms, final DaoManager storage) {
 
-        this(configuration, account, phone, version, url, method, fallbackUrl, fallbackMethod, statusCallback,
+        this(configuration, restcommConfiguration, account, phone, version, url, method, fallbackUrl, fallbackMethod, statusCallback,
                 statusCallbackMethod, emailAddress, callManager, conferenceManager, sms, storage, false);
     }
 
-    public SubVoiceInterpreter(final Configuration configuration, final Sid account, final Sid phone, final String version,
+    public SubVoiceInterpreter(final Configuration configuration, final RestcommConfiguration restcommConfiguration,
+            final Sid account, final Sid phone, final String version,
             final URI url, final String method, final URI fallbackUrl, final String fallbackMethod, final URI statusCallback,
             final String statusCallbackMethod, final String emailAddress, final ActorRef callManager,
             final ActorRef conferenceManager, final ActorRef sms, final DaoManager storage, final Boolean hangupOnEnd) {
@@ -179,6 +182,7 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
         this.statusCallbackMethod = statusCallbackMethod;
         this.emailAddress = emailAddress;
         this.configuration = configuration;
+        this.restcommConfiguration = restcommConfiguration;
         this.callManager = callManager;
 //        this.asrService = asr(configuration.subset("speech-recognizer"));
 //        this.faxService = fax(configuration.subset("fax-service"));
@@ -616,13 +620,12 @@ public final class SubVoiceInterpreter extends BaseVoiceInterpreter {
 
             // Stop the dependencies.
             final UntypedActorContext context = getContext();
-            if (mailerNotify != null)
-                context.stop(mailerNotify);
+            SharedServices.stop(context, mailerNotify);
             context.stop(downloader);
-            context.stop(getAsrService());
-            context.stop(getFaxService());
+            SharedServices.stop(context, getAsrService());
+            SharedServices.stop(context, getFaxService());
             context.stop(getCache());
-            context.stop(getSynthesizer());
+            SharedServices.stop(context, getSynthesizer());
 
             // Stop the interpreter.
             postCleanup();
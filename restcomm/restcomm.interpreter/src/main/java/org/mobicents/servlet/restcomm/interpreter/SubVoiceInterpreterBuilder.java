@@ -28,6 +28,7 @@ import akka.actor.UntypedActorFactory;
 import java.net.URI;
 
 import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 
 import org.mobicents.servlet.restcomm.dao.DaoManager;
 import org.mobicents.servlet.restcomm.entities.Sid;
@@ -38,6 +39,7 @@ import org.mobicents.servlet.restcomm.entities.Sid;
 public final class SubVoiceInterpreterBuilder {
     private final ActorSystem system;
     private Configuration configuration;
+    private RestcommConfiguration restcommConfiguration;
     private DaoManager storage;
     private ActorRef calls;
     private ActorRef conferences;
@@ -69,7 +71,7 @@ public final class SubVoiceInterpreterBuilder {
 
             @Override
             public UntypedActor create() throws Exception {
-                return new SubVoiceInterpreter(configuration, account, phone, version, url, method, fallbackUrl,
+                return new SubVoiceInterpreter(configuration, restcommConfiguration, account, phone, version, url, method, fallbackUrl,
                         fallbackMethod, statusCallback, statusCallbackMethod, emailAddress, calls, conferences, sms, storage,
                         hangupOnEnd);
             }
@@ -80,6 +82,10 @@ public final class SubVoiceInterpreterBuilder {
         this.configuration = configuration;
     }
 
+    public void setRestcommConfiguration(final RestcommConfiguration restcommConfiguration) {
+        this.restcommConfiguration = restcommConfiguration;
+    }
+
     public void setStorage(final DaoManager storage) {
         this.storage = storage;
     }
@@ -62,7 +62,6 @@ import org.mobicents.servlet.restcomm.interpreter.rcml.Nouns;
 import org.mobicents.servlet.restcomm.interpreter.rcml.ParserFailed;
 import org.mobicents.servlet.restcomm.interpreter.rcml.Tag;
 import org.mobicents.servlet.restcomm.mscontrol.messages.JoinComplete;
-import org.mobicents.servlet.restcomm.mscontrol.messages.Left;
 import org.mobicents.servlet.restcomm.mscontrol.messages.MediaGroupResponse;
 import org.mobicents.servlet.restcomm.mscontrol.messages.Mute;
 import org.mobicents.servlet.restcomm.mscontrol.messages.Play;
@@ -86,6 +85,10 @@ import org.mobicents.servlet.restcomm.telephony.Cancel;
 import org.mobicents.servlet.restcomm.telephony.ConferenceCenterResponse;
 import org.mobicents.servlet.restcomm.telephony.ConferenceInfo;
 import org.mobicents.servlet.restcomm.telephony.ConferenceModeratorPresent;
+import org.mobicents.servlet.restcomm.telephony.ConferenceParticipant;
+import org.mobicents.servlet.restcomm.telephony.ConferenceParticipantJoined;
+import org.mobicents.servlet.restcomm.telephony.ConferenceParticipantLeft;
+import org.mobicents.servlet.restcomm.telephony.ConferenceParticipantRegistry;
 import org.mobicents.servlet.restcomm.telephony.ConferenceResponse;
 import org.mobicents.servlet.restcomm.telephony.ConferenceStateChanged;
 import org.mobicents.servlet.restcomm.telephony.CreateBridge;
@@ -104,6 +107,8 @@ import org.mobicents.servlet.restcomm.telephony.RemoveParticipant;
 import org.mobicents.servlet.restcomm.telephony.StartBridge;
 import org.mobicents.servlet.restcomm.telephony.StopBridge;
 import org.mobicents.servlet.restcomm.telephony.StopConference;
+import org.mobicents.servlet.restcomm.trace.CallTrace;
+import org.mobicents.servlet.restcomm.trace.CallTracer;
 import org.mobicents.servlet.restcomm.tts.api.SpeechSynthesizerResponse;
 import org.mobicents.servlet.restcomm.util.UriUtils;
 import scala.concurrent.Await;
@@ -185,16 +190,23 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
     // State for outbound calls.
     private boolean isForking;
     private List<ActorRef> dialBranches;
-    private List<Tag> dialChildren;
     private Map<ActorRef, Tag> dialChildrenWithAttributes;
+    // Creates the legs of a forking Dial, dial-fork-concurrency of them at the same time
+    private final DialFork<Tag> dialFork;
+    private boolean dialBranchCreated;
+    private final ProcessingDialChildren dialChildrenProcessor;
 
     // The conferencing stuff
     private int maxParticipantLimit = 40;
     private ActorRef conference;
     private String conferenceFriendlyName;
     private ConferenceInfo conferenceInfo;
+    // Kept up to date from the join and leave events once the conferenceInfo snapshot is in
+    private int conferenceParticipants;
+    private long conferenceVersion;
     private ConferenceStateChanged.State conferenceState;
     private boolean muteCall;
+    private CallTrace trace;
     private boolean startConferenceOnEnter = true;
     private boolean endConferenceOnExit = false;
     private boolean confModeratorPresent = false;
@@ -217,7 +229,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
     private final ActorRef bridgeManager;
     private ActorRef bridge;
 
-    public VoiceInterpreter(final Configuration configuration, final Sid account, final Sid phone, final String version,
+    public VoiceInterpreter(final Configuration configuration, final RestcommConfiguration restcommConfiguration, final Sid account, final Sid phone, final String version,
                             final URI url, final String method, final URI fallbackUrl, final String fallbackMethod, final URI statusCallback,
                             final String statusCallbackMethod, final String emailAddress, final ActorRef callManager,
                             final ActorRef conferenceManager, final ActorRef bridgeManager, final ActorRef sms, final DaoManager storage, final ActorRef monitoring, final String rcml) {
@@ -231,7 +243,8 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         notFound = new State("notFound", new NotFound(source), null);
         rejecting = new State("rejecting", new Rejecting(source), null);
         startDialing = new State("start dialing", new StartDialing(source), null);
-        processingDialChildren = new State("processing dial children", new ProcessingDialChildren(source), null);
+        dialChildrenProcessor = new ProcessingDialChildren(source);
+        processingDialChildren = new State("processing dial children", dialChildrenProcessor, null);
         acquiringOutboundCallInfo = new State("acquiring outbound call info", new AcquiringOutboundCallInfo(source), null);
         forking = new State("forking", new Forking(source), null);
         // joiningCalls = new State("joining calls", new JoiningCalls(source), null);
@@ -330,7 +343,6 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         transitions.add(new Transition(startDialing, startDialing));
         transitions.add(new Transition(startDialing, hangingUp));
         transitions.add(new Transition(startDialing, finished));
-        transitions.add(new Transition(processingDialChildren, processingDialChildren));
         transitions.add(new Transition(processingDialChildren, forking));
         transitions.add(new Transition(processingDialChildren, hangingUp));
         transitions.add(new Transition(processingDialChildren, finished));
@@ -412,6 +424,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         this.statusCallbackMethod = statusCallbackMethod;
         this.emailAddress = emailAddress;
         this.configuration = configuration;
+        this.restcommConfiguration = restcommConfiguration;
         this.callManager = callManager;
         this.conferenceManager = conferenceManager;
         this.bridgeManager = bridgeManager;
@@ -420,6 +433,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         this.storage = storage;
         final Configuration runtime = configuration.subset("runtime-settings");
         playMusicForConference = Boolean.parseBoolean(runtime.getString("play-music-for-conference","false"));
+        dialFork = new DialFork<Tag>(callManager, self(), runtime.getInt("dial-fork-concurrency", 10), dialChildrenProcessor);
         this.downloader = downloader();
         this.monitoring = monitoring;
         this.rcml = rcml;
@@ -517,6 +531,10 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
             onForkMessage(message);
         } else if (ConferenceResponse.class.equals(klass)) {
             onConferenceResponse(message);
+        } else if (ConferenceParticipantJoined.class.equals(klass)) {
+            onConferenceParticipantJoined((ConferenceParticipantJoined) message);
+        } else if (ConferenceParticipantLeft.class.equals(klass)) {
+            onConferenceParticipantLeft((ConferenceParticipantLeft) message);
         } else if (ConferenceStateChanged.class.equals(klass)) {
             onConferenceStateChanged(message);
         } else if (DownloaderResponse.class.equals(klass)) {
@@ -585,63 +603,79 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         }
     }
 
-    private void onConferenceResponse(Object message) throws TransitionFailedException, TransitionNotFoundException, TransitionRollbackException {
-        final ConferenceResponse<ConferenceInfo> response = (ConferenceResponse<ConferenceInfo>) message;
-        final Class<?> klass = ((ConferenceResponse)message).get().getClass();
-        if (Left.class.equals(klass)) {
-            Left left = (Left) ((ConferenceResponse)message).get();
-            ActorRef leftCall = left.get();
-            if (leftCall.equals(call) && conference != null) {
-                conference.tell(new StopObserving(self()), null);
-                if(conferenceInfo.participants() != null && conferenceInfo.participants().size() !=0 ){
-                    String path = configuration.subset("runtime-settings").getString("prompts-uri");
-                    if (!path.endsWith("/")) {
-                        path += "/";
-                    }
-                    String exitAudio = configuration.subset("runtime-settings").getString("conference-exit-audio");
-                    path += exitAudio == null || exitAudio.equals("") ? "alert.wav" : exitAudio;
-                    URI uri = null;
-                    try {
-                        uri = UriUtils.resolve(new URI(path));
-                    } catch (final Exception exception) {
-                        final Notification notification = notification(ERROR_NOTIFICATION, 12400, exception.getMessage());
-                        final NotificationsDao notifications = storage.getNotificationsDao();
-                        notifications.addNotification(notification);
-                        sendMail(notification);
-                        final StopInterpreter stop = new StopInterpreter();
-                        self().tell(stop, self());
-                        return;
-                    }
-                    final Play play = new Play(uri, 1);
-                    conference.tell(play, self());
-                }
+    private void onConferenceParticipantJoined(ConferenceParticipantJoined message) throws TransitionFailedException, TransitionNotFoundException, TransitionRollbackException {
+        if (message.version() > conferenceVersion) {
+            conferenceParticipants = message.participants();
+            conferenceVersion = message.version();
+        }
+        if (call.equals(message.call()) && is(joiningConference)) {
+            fsm.transition(message, conferencing);
+        }
+    }
 
-                if (endConferenceOnExit) {
-                    // Stop the conference if endConferenceOnExit is true
-                    final StopConference stop = new StopConference();
-                    conference.tell(stop, self());
+    private void onConferenceParticipantLeft(ConferenceParticipantLeft message) throws TransitionFailedException, TransitionNotFoundException, TransitionRollbackException {
+        if (message.version() > conferenceVersion) {
+            conferenceParticipants = message.participants();
+            conferenceVersion = message.version();
+        }
+        if (call.equals(message.call()) && conference != null) {
+            conference.tell(new StopObserving(self()), null);
+            if (conferenceParticipants != 0) {
+                String path = configuration.subset("runtime-settings").getString("prompts-uri");
+                if (!path.endsWith("/")) {
+                    path += "/";
+                }
+                String exitAudio = configuration.subset("runtime-settings").getString("conference-exit-audio");
+                path += exitAudio == null || exitAudio.equals("") ? "alert.wav" : exitAudio;
+                URI uri = null;
+                try {
+                    uri = UriUtils.resolve(new URI(path));
+                } catch (final Exception exception) {
+                    final Notification notification = notification(ERROR_NOTIFICATION, 12400, exception.getMessage());
+                    final NotificationsDao notifications = storage.getNotificationsDao();
+                    notifications.addNotification(notification);
+                    sendMail(notification);
+                    final StopInterpreter stop = new StopInterpreter();
+                    self().tell(stop, self());
+                    return;
                 }
+                final Play play = new Play(uri, 1);
+                conference.tell(play, self());
+            }
 
-                Attribute attribute = null;
-                if (verb != null) {
-                    attribute = verb.attribute("action");
-                }
+            if (endConferenceOnExit) {
+                // Stop the conference if endConferenceOnExit is true
+                final StopConference stop = new StopConference();
+                conference.tell(stop, self());
+            }
 
-                if (attribute == null) {
-                    if (logger.isInfoEnabled()) {
-                        logger.info("Attribute is null, will ask for the next verb from parser");
-                    }
-                    final GetNextVerb next = GetNextVerb.instance();
-                    parser.tell(next, self());
-                } else {
-                    if (logger.isInfoEnabled()) {
-                        logger.info("Dial Action is set, executing Dial Action");
-                    }
-                    executeDialAction(message, sender);
+            Attribute attribute = null;
+            if (verb != null) {
+                attribute = verb.attribute("action");
+            }
+
+            if (attribute == null) {
+                if (logger.isInfoEnabled()) {
+                    logger.info("Attribute is null, will ask for the next verb from parser");
+                }
+                final GetNextVerb next = GetNextVerb.instance();
+                parser.tell(next, self());
+            } else {
+                if (logger.isInfoEnabled()) {
+                    logger.info("Dial Action is set, executing Dial Action");
                 }
+                executeDialAction(message, sender);
             }
-        } else if (ConferenceInfo.class.equals(klass)) {
+        }
+    }
+
+    private void onConferenceResponse(Object message) throws TransitionFailedException, TransitionNotFoundException, TransitionRollbackException {
+        final ConferenceResponse<ConferenceInfo> response = (ConferenceResponse<ConferenceInfo>) message;
+        final Class<?> klass = ((ConferenceResponse)message).get().getClass();
+        if (ConferenceInfo.class.equals(klass)) {
             conferenceInfo = response.get();
+            conferenceParticipants = conferenceInfo.participants().size();
+            conferenceVersion = conferenceInfo.version();
             if (logger.isInfoEnabled()) {
                 logger.info("VoiceInterpreter received ConferenceResponse from Conference: " + conferenceInfo.name() + ", path: " + sender().path() + ", current confernce size: " + conferenceInfo.participants().size() + ", VI state: " + fsm.state());
             }
@@ -899,18 +933,14 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
 
     private void onCallManagerResponse(Object message) throws TransitionFailedException, TransitionNotFoundException, TransitionRollbackException {
         final CallManagerResponse<Object> response = (CallManagerResponse<Object>) message;
-        if (response.succeeded()) {
+        if (dialFork.isWaitingFor(response)) {
+            dialChildrenProcessor.onDialBranchCreated(response);
+        } else if (response.succeeded()) {
             if (is(startDialing)) {
                 fsm.transition(message, processingDialChildren);
-            } else if (is(processingDialChildren)) {
-                fsm.transition(message, processingDialChildren);
             }
         } else {
-            if (dialChildren != null && dialChildren.size() > 1) {
-                fsm.transition(message, processingDialChildren);
-            } else {
-                fsm.transition(message, hangingUp);
-            }
+            fsm.transition(message, hangingUp);
         }
     }
 
@@ -934,6 +964,20 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         }
     }
 
+    // Records the interpreter transitions in the trace the Call registered under its sid.
+    private void traceCall(final Sid callSid) {
+        if (trace == null) {
+            trace = CallTracer.getInstance().get(callSid.toString());
+            if (trace != null) {
+                // Inbound calls only learn their account here, the trace is not readable before that
+                if (trace.accountSid() == null && accountId != null) {
+                    trace.bindAccount(accountId.toString());
+                }
+                fsm.setListener(trace.listener("VoiceInterpreter"));
+            }
+        }
+    }
+
     private void onCallResponse(Object message, State state) throws TransitionFailedException, TransitionNotFoundException, TransitionRollbackException {
         if (forking.equals(state)) {
             // Allow updating of the callInfo at the VoiceInterpreter so that we can do Dial SIP Screening
@@ -952,6 +996,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
             // Check from whom is the message (initial call or outbound call) and update info accordingly
             if (sender == call) {
                 callInfo = response.get();
+                traceCall(callInfo.sid());
                 if (callInfo.state() == CallStateChanged.State.CANCELED || (callInfo.invite() != null && callInfo.invite().getSession().getState().equals(SipSession.State.TERMINATED))) {
                     fsm.transition(message, finished);
                     return;
@@ -1233,7 +1278,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
             state = CallStateChanged.State.NO_ANSWER;
         }
 
-        if (dialBranches == null || dialBranches.size() == 0) {
+        if ((dialBranches == null || dialBranches.size() == 0) && !creatingDialBranches()) {
             dialBranches = null;
 
             if (attribute == null) {
@@ -1266,6 +1311,11 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         }
     }
 
+    // Only a forking Dial waits for its remaining legs, once it is decided they are destroyed as they come
+    private boolean creatingDialBranches() {
+        return is(forking) && dialFork.isCreating();
+    }
+
     private void onBridgeManagerResponse(BridgeManagerResponse message, ActorRef self, ActorRef sender) throws Exception {
         if (is(creatingBridge)) {
             this.bridge = message.get();
@@ -1523,7 +1573,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 // Create a call detail record for the call.
                 final CallDetailRecord.Builder builder = CallDetailRecord.builder();
                 builder.setSid(callInfo.sid());
-                builder.setInstanceId(RestcommConfiguration.getInstance().getMain().getInstanceId());
+                builder.setInstanceId(restcommConfiguration.getMain().getInstanceId());
                 builder.setDateCreated(callInfo.dateCreated());
                 builder.setAccountSid(accountId);
                 builder.setTo(callInfo.to());
@@ -1858,13 +1908,13 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 } else {
                     // Handle forking.
                     dialBranches = new ArrayList<ActorRef>();
-                    dialChildren = new ArrayList<Tag>(verb.children());
                     dialChildrenWithAttributes = new HashMap<ActorRef, Tag>();
+                    dialBranchCreated = false;
                     isForking = true;
                     final StartForking start = StartForking.instance();
                     source.tell(start, source);
                     if (logger.isInfoEnabled()) {
-                        logger.info("Dial verb "+verb.toString().replace("\\n","")+" with more that one element, will start forking. Dial Children size: "+dialChildren.size());
+                        logger.info("Dial verb "+verb.toString().replace("\\n","")+" with more that one element, will start forking. Dial Children size: "+verb.children().size());
                     }
                 }
             } else {
@@ -1875,96 +1925,86 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         }
     }
 
-    private final class ProcessingDialChildren extends AbstractDialAction {
+    private final class ProcessingDialChildren extends AbstractDialAction implements DialFork.Legs<Tag> {
         public ProcessingDialChildren(final ActorRef source) {
             super(source);
         }
 
-        @SuppressWarnings("unchecked")
         @Override
         public void execute(final Object message) throws Exception {
-            Class<?> klass = message.getClass();
-            if (CallManagerResponse.class.equals(klass) && ((CallManagerResponse)message).succeeded()) {
-                Tag child = dialChildren.get(0);
-                final CallManagerResponse<Object> response = (CallManagerResponse<Object>) message;
-                if (response.get() instanceof List) {
-                    List<ActorRef> calls = (List<ActorRef>) response.get();
-                    for (ActorRef branch: calls) {
-                        dialBranches.add(branch);
-                        if (child.hasAttributes()) {
-                            dialChildrenWithAttributes.put(branch, child);
-                        }
-                    }
+            // Move to forking before the first leg is requested so that every CallManagerResponse of this Dial is
+            // handled there and each branch starts ringing as soon as it exists.
+            final Fork fork = Fork.instance();
+            source.tell(fork, source);
+            dialFork.fork(verb.children());
+        }
+
+        public void onDialBranchCreated(final CallManagerResponse<Object> response) throws TransitionFailedException,
+                TransitionNotFoundException, TransitionRollbackException {
+            // Legs of a Dial that was answered, canceled or timed out in the meantime are destroyed by the fork.
+            if (dialFork.created(response) > 0) {
+                dialBranchCreated = true;
+            }
+            if (is(forking) && dialBranches != null && dialBranches.isEmpty() && !creatingDialBranches()) {
+                if (dialBranchCreated) {
+                    // Every leg already ended before the last one could be created
+                    checkDialBranch(response, null, verb.attribute("action"));
                 } else {
-                    final ActorRef branch = (ActorRef) response.get();
-                    dialBranches.add(branch);
-                    if (child.hasAttributes()) {
-                        dialChildrenWithAttributes.put(branch, child);
-                    }
+                    fsm.transition(response, hangingUp);
                 }
-                dialChildren.remove(child);
             }
-            else if (CallManagerResponse.class.equals(klass) && !((CallManagerResponse)message).succeeded()) {
-                dialChildren.remove(0);
+        }
+
+        @Override
+        public boolean isRinging(final Tag child) {
+            return is(forking) && dialBranches != null && verb != null && verb.children().contains(child);
+        }
+
+        @Override
+        public void ring(final ActorRef branch, final Tag child) {
+            dialBranches.add(branch);
+            if (child.hasAttributes()) {
+                dialChildrenWithAttributes.put(branch, child);
+            }
+            branch.tell(new Observe(source), source);
+            if (monitoring != null) {
+                branch.tell(new Observe(monitoring), source);
             }
-            if (!dialChildren.isEmpty()) {
-                CreateCall create = null;
-                final Tag child = dialChildren.get(0);
-                if (Nouns.client.equals(child.name())) {
-                    if (call != null && callInfo != null) {
-                        create = new CreateCall(e164(callerId(verb)), e164(child.text()), null, null, false, timeout(verb),
-                                CreateCall.Type.CLIENT, accountId, callInfo.sid());
-                    } else {
-                        create = new CreateCall(e164(callerId(verb)), e164(child.text()), null, null, false, timeout(verb),
-                                CreateCall.Type.CLIENT, accountId, null);
-                    }
-                } else if (Nouns.number.equals(child.name())) {
-                    if (call != null && callInfo != null) {
-                        create = new CreateCall(e164(callerId(verb)), e164(child.text()), null, null, false, timeout(verb),
-                                CreateCall.Type.PSTN, accountId, callInfo.sid());
-                    } else {
-                        create = new CreateCall(e164(callerId(verb)), e164(child.text()), null, null, false, timeout(verb),
-                                CreateCall.Type.PSTN, accountId, null);
-                    }
-                } else if (Nouns.uri.equals(child.name())) {
-                    if (call != null && callInfo != null) {
-                        create = new CreateCall(e164(callerId(verb)), e164(child.text()), null, null, false, timeout(verb),
-                                CreateCall.Type.SIP, accountId, callInfo.sid());
-                    } else {
-                        create = new CreateCall(e164(callerId(verb)), e164(child.text()), null, null, false, timeout(verb),
-                                CreateCall.Type.SIP, accountId, null);
-                    }
-                } else if (Nouns.SIP.equals(child.name())) {
-                    // https://bitbucket.org/telestax/telscale-restcomm/issue/132/implement-twilio-sip-out
-                    String username = null;
-                    String password = null;
-                    if (child.attribute("username") != null) {
-                        username = child.attribute("username").value();
-                    }
-                    if (child.attribute("password") != null) {
-                        password = child.attribute("password").value();
-                    }
-                    if (username == null || username.isEmpty()) {
-                        if (storage.getClientsDao().getClient(callInfo.from()) != null) {
-                            username = callInfo.from();
-                            password = storage.getClientsDao().getClient(callInfo.from()).getPassword();
-                        }
-                    }
-                    if (call != null && callInfo != null) {
-                        create = new CreateCall(e164(callerId(verb)), e164(child.text()), username, password, false, timeout(verb),
-                                CreateCall.Type.SIP, accountId, callInfo.sid());
-                    } else {
-                        create = new CreateCall(e164(callerId(verb)), e164(child.text()), username, password, false, timeout(verb),
-                                CreateCall.Type.SIP, accountId, null);
+            branch.tell(new Dial(), source);
+        }
+
+        @Override
+        public CreateCall create(final Tag child) {
+            final Sid parentCallSid = (call != null && callInfo != null) ? callInfo.sid() : null;
+            if (Nouns.client.equals(child.name())) {
+                return new CreateCall(e164(callerId(verb)), e164(child.text()), null, null, false, timeout(verb),
+                        CreateCall.Type.CLIENT, accountId, parentCallSid);
+            } else if (Nouns.number.equals(child.name())) {
+                return new CreateCall(e164(callerId(verb)), e164(child.text()), null, null, false, timeout(verb),
+                        CreateCall.Type.PSTN, accountId, parentCallSid);
+            } else if (Nouns.uri.equals(child.name())) {
+                return new CreateCall(e164(callerId(verb)), e164(child.text()), null, null, false, timeout(verb),
+                        CreateCall.Type.SIP, accountId, parentCallSid);
+            } else if (Nouns.SIP.equals(child.name())) {
+                // https://bitbucket.org/telestax/telscale-restcomm/issue/132/implement-twilio-sip-out
+                String username = null;
+                String password = null;
+                if (child.attribute("username") != null) {
+                    username = child.attribute("username").value();
+                }
+                if (child.attribute("password") != null) {
+                    password = child.attribute("password").value();
+                }
+                if (username == null || username.isEmpty()) {
+                    if (storage.getClientsDao().getClient(callInfo.from()) != null) {
+                        username = callInfo.from();
+                        password = storage.getClientsDao().getClient(callInfo.from()).getPassword();
                     }
                 }
-                callManager.tell(create, source);
-            } else {
-                // Fork.
-                final Fork fork = Fork.instance();
-                source.tell(fork, source);
-                dialChildren = null;
+                return new CreateCall(e164(callerId(verb)), e164(child.text()), username, password, false, timeout(verb),
+                        CreateCall.Type.SIP, accountId, parentCallSid);
             }
+            return null;
         }
     }
 
@@ -2028,6 +2068,8 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         @Override
         public void execute(final Object message) throws Exception {
             if (isForking) {
+                // Legs still being created are destroyed as their CallManagerResponse arrives
+                dialFork.stop();
                 dialBranches.remove(outboundCall);
                 for (final ActorRef branch : dialBranches) {
                     branch.tell(new Cancel(), null);
@@ -2308,7 +2350,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 } else if (outboundCall != null) {
                     outboundCall.tell(new Cancel(), source);
                 }
-                dialChildren = null;
+                dialFork.stop();
                 callback();
                 return;
             }
@@ -2335,7 +2377,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                         } else if (outboundCall != null) {
                             outboundCall.tell(new Cancel(), source);
                         }
-                        dialChildren = null;
+                        dialFork.stop();
                         callback();
                         return;
                     } else if (dialBranches != null && dialBranches.contains(sender)) {
@@ -2365,7 +2407,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                             }
                             executeDialAction(message, outboundCall);
                         }
-                        dialChildren = null;
+                        dialFork.stop();
                         if (!sender().equals(outboundCall)) {
                             callManager.tell(new DestroyCall(sender), self());
                         }
@@ -2455,7 +2497,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 //Adding conference record in DB
                 final Sid conferenceSid = conferenceInfo.sid();
                 updateConferenceDetailRecord(conferenceSid);
-                final AddParticipant request = new AddParticipant(call);
+                final AddParticipant request = new AddParticipant(call, conferenceParticipant(muteCall, false));
                 conference.tell(request, source);
             } else {
                 // Ask the parser for the next action to take.
@@ -2561,13 +2603,13 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
 
             confModeratorPresent = startConferenceOnEnter;
             if (logger.isInfoEnabled()) {
-                logger.info("At conferencing, VI state: "+fsm.state()+" , playMusicForConference: "+playMusicForConference+" ConferenceState: "+conferenceState.name()+" startConferenceOnEnter: "+startConferenceOnEnter+"  conferenceInfo.participants().size(): "+conferenceInfo.participants().size());
+                logger.info("At conferencing, VI state: "+fsm.state()+" , playMusicForConference: "+playMusicForConference+" ConferenceState: "+conferenceState.name()+" startConferenceOnEnter: "+startConferenceOnEnter+"  conferenceParticipants: "+conferenceParticipants);
             }
             if (playMusicForConference) { // && startConferenceOnEnter) {
                 //playMusicForConference is true, take over control of startConferenceOnEnter
-                if (conferenceInfo.participants().size() == 1) {
+                if (conferenceParticipants == 1) {
                     startConferenceOnEnter = false;
-                } else if (conferenceInfo.participants().size() > 1) {
+                } else if (conferenceParticipants > 1) {
                     if (startConferenceOnEnter || conferenceInfo.isModeratorPresent()) {
                         startConferenceOnEnter = true;
                     } else {
@@ -2590,9 +2632,9 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 // Only play background music if conference is not doing that already
                 // If conference state is RUNNING_MODERATOR_ABSENT and participants > 0 then BG music is playing already
                 if(logger.isInfoEnabled()) {
-                    logger.info("Play background music? " + (conferenceInfo.participants().size() == 1));
+                    logger.info("Play background music? " + (conferenceParticipants == 1));
                 }
-                boolean playBackground = conferenceInfo.participants().size() == 1;
+                boolean playBackground = conferenceParticipants == 1;
                 if (playBackground) {
                     // Parse wait url.
                     URI waitUrl = new URI("/restcomm/music/electronica/teru_-_110_Downtempo_Electronic_4.wav");
@@ -2680,6 +2722,8 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
                 callRecord = callRecord.setMuted(onMuteInCDR);
                 final CallDetailRecordsDao callRecords = storage.getCallDetailRecordsDao();
                 callRecords.updateCallDetailRecord(callRecord);
+                ConferenceParticipantRegistry.getInstance().update(conferenceInfo.sid(),
+                        conferenceParticipant(onMuteInCDR, onHoldInCDR));
             }
             // Set timer.
             final int timeLimit = timeLimit(verb);
@@ -2697,8 +2741,16 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
         conference.tell(new Play(waitUrl, Short.MAX_VALUE, confModeratorPresent), source);
     }
 
+    private ConferenceParticipant conferenceParticipant(final boolean muted, final boolean onHold) {
+        if (callRecord == null) {
+            return null;
+        }
+        return new ConferenceParticipant(callRecord, muted, onHold, startConferenceOnEnter, endConferenceOnExit);
+    }
+
     protected void updateMuteAndHoldStatusOfAllConferenceCalls(final Sid accountSid, final Sid conferenceSid, final boolean mute, final boolean hold) throws ParseException{
         if (conferenceSid != null){
+            ConferenceParticipantRegistry.getInstance().setMutedAndOnHold(conferenceSid, mute, hold);
             CallDetailRecordFilter filter = new CallDetailRecordFilter(accountSid.toString(), null, null, null, "in-progress", null, null, null, conferenceSid.toString(), 50, 0);
             CallDetailRecordsDao callRecordsDAO = storage.getCallDetailRecordsDao();
             List<CallDetailRecord> conferenceCallRecords = callRecordsDAO.getCallDetailRecords(filter);
@@ -2900,14 +2952,12 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
 
             // Stop the dependencies.
             final UntypedActorContext context = getContext();
-            if (mailerNotify != null)
-                context.stop(mailerNotify);
-            if (mailerService != null)
-                context.stop(mailerService);
-            context.stop(getAsrService());
-            context.stop(getFaxService());
+            SharedServices.stop(context, mailerNotify);
+            SharedServices.stop(context, mailerService);
+            SharedServices.stop(context, getAsrService());
+            SharedServices.stop(context, getFaxService());
             context.stop(getCache());
-            context.stop(getSynthesizer());
+            SharedServices.stop(context, getSynthesizer());
 
             // Stop the interpreter.
             postCleanup();
@@ -3002,6 +3052,7 @@ public final class VoiceInterpreter extends BaseVoiceInterpreter {
 
             final SubVoiceInterpreterBuilder builder = new SubVoiceInterpreterBuilder(getContext().system());
             builder.setConfiguration(configuration);
+            builder.setRestcommConfiguration(restcommConfiguration);
             builder.setStorage(storage);
             builder.setCallManager(super.source);
             builder.setSmsService(smsService);
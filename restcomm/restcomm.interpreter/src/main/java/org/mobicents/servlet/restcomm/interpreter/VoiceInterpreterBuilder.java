@@ -28,6 +28,7 @@ import akka.actor.UntypedActorFactory;
 import java.net.URI;
 
 import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 
 import org.mobicents.servlet.restcomm.dao.DaoManager;
 import org.mobicents.servlet.restcomm.entities.Sid;
@@ -39,6 +40,7 @@ import org.mobicents.servlet.restcomm.entities.Sid;
 public final class VoiceInterpreterBuilder {
     private final ActorSystem system;
     private Configuration configuration;
+    private RestcommConfiguration restcommConfiguration;
     private DaoManager storage;
     private ActorRef calls;
     private ActorRef conferences;
@@ -71,7 +73,7 @@ public final class VoiceInterpreterBuilder {
 
             @Override
             public UntypedActor create() throws Exception {
-                return new VoiceInterpreter(configuration, account, phone, version, url, method, fallbackUrl, fallbackMethod,
+                return new VoiceInterpreter(configuration, restcommConfiguration, account, phone, version, url, method, fallbackUrl, fallbackMethod,
                         statusCallback, statusCallbackMethod, emailAddress, calls, conferences, bridges, sms, storage, monitoring, rcml);
             }
         }));
@@ -81,6 +83,10 @@ public final class VoiceInterpreterBuilder {
         this.configuration = configuration;
     }
 
+    public void setRestcommConfiguration(final RestcommConfiguration restcommConfiguration) {
+        this.restcommConfiguration = restcommConfiguration;
+    }
+
     public void setStorage(final DaoManager storage) {
         this.storage = storage;
     }
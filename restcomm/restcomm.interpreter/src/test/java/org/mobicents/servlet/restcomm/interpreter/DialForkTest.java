@@ -0,0 +1,199 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.interpreter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.telephony.CallManagerResponse;
+import org.mobicents.servlet.restcomm.telephony.CreateCall;
+import org.mobicents.servlet.restcomm.telephony.DestroyCall;
+
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.JavaTestKit;
+
+public final class DialForkTest {
+    private static final FiniteDuration QUIET = FiniteDuration.create(200, "milliseconds");
+
+    private ActorSystem system;
+    // Stands in for the CallManager, answering is up to the test.
+    private JavaTestKit callManager;
+    private Legs legs;
+    private DialFork<String> fork;
+
+    @Before
+    public void before() {
+        system = ActorSystem.create();
+        callManager = new JavaTestKit(system);
+        legs = new Legs();
+    }
+
+    @After
+    public void after() {
+        system.shutdown();
+        system.awaitTermination();
+    }
+
+    private DialFork<String> fork(final int concurrency, final String... children) {
+        fork = new DialFork<String>(callManager.getRef(), null, concurrency, legs);
+        legs.ringing = true;
+        fork.fork(Arrays.asList(children));
+        return fork;
+    }
+
+    private CreateCall requested(final String child) {
+        final CreateCall create = callManager.expectMsgClass(CreateCall.class);
+        assertEquals(child, create.to());
+        return create;
+    }
+
+    private ActorRef answer(final CreateCall create) {
+        final ActorRef leg = new JavaTestKit(system).getRef();
+        fork.created(new CallManagerResponse<Object>(leg, create));
+        return leg;
+    }
+
+    @Test
+    public void testConcurrencyLimitsTheRequestsInFlight() {
+        fork(2, "a", "b", "c", "d", "e");
+        final CreateCall a = requested("a");
+        final CreateCall b = requested("b");
+        callManager.expectNoMsg(QUIET);
+        answer(b);
+        final CreateCall c = requested("c");
+        callManager.expectNoMsg(QUIET);
+        // A failed child makes room as well.
+        fork.created(new CallManagerResponse<Object>(new NullPointerException(), a));
+        final CreateCall d = requested("d");
+        callManager.expectNoMsg(QUIET);
+        answer(c);
+        answer(d);
+        final CreateCall e = requested("e");
+        assertTrue(fork.isCreating());
+        answer(e);
+        assertFalse(fork.isCreating());
+        callManager.expectNoMsg(QUIET);
+        assertEquals(Arrays.asList("b", "c", "d", "e"), legs.order);
+    }
+
+    @Test
+    public void testResponsesAreMatchedWhateverTheirOrder() {
+        fork(3, "a", "b", "c");
+        final CreateCall a = requested("a");
+        final CreateCall b = requested("b");
+        final CreateCall c = requested("c");
+        final ActorRef legC = answer(c);
+        final ActorRef legA = answer(a);
+        final ActorRef first = new JavaTestKit(system).getRef();
+        final ActorRef second = new JavaTestKit(system).getRef();
+        // A client with several registrations is answered with a list.
+        assertEquals(2, fork.created(new CallManagerResponse<Object>(Arrays.asList(first, second), b)));
+        assertEquals(Arrays.asList(legA), legs.rung.get("a"));
+        assertEquals(Arrays.asList(first, second), legs.rung.get("b"));
+        assertEquals(Arrays.asList(legC), legs.rung.get("c"));
+        assertEquals(Arrays.asList("c", "a", "b", "b"), legs.order);
+        callManager.expectNoMsg(QUIET);
+    }
+
+    @Test
+    public void testLegsCreatedAfterTheAnswerAreDestroyed() {
+        fork(3, "a", "b", "c", "d");
+        final CreateCall a = requested("a");
+        final CreateCall b = requested("b");
+        final CreateCall c = requested("c");
+        answer(a);
+        requested("d");
+        // The leg of a answers, the others are canceled and nothing else is requested.
+        fork.stop();
+        legs.ringing = false;
+        assertFalse(fork.isCreating());
+        final ActorRef legB = answer(b);
+        assertEquals(legB, callManager.expectMsgClass(DestroyCall.class).call());
+        final ActorRef legC = answer(c);
+        assertEquals(legC, callManager.expectMsgClass(DestroyCall.class).call());
+        callManager.expectNoMsg(QUIET);
+        assertEquals(Arrays.asList("a"), legs.order);
+    }
+
+    @Test
+    public void testLegsCreatedAfterTheTimeoutAreDestroyed() {
+        fork(2, "a", "b", "c");
+        final CreateCall a = requested("a");
+        final CreateCall b = requested("b");
+        // Timed out, the interpreter left forking without stopping the fork.
+        legs.ringing = false;
+        assertFalse(fork.isCreating());
+        final ActorRef legA = answer(a);
+        assertEquals(legA, callManager.expectMsgClass(DestroyCall.class).call());
+        // The remaining children are not requested any more.
+        callManager.expectNoMsg(QUIET);
+        // Nor do they hold up the next Dial, whose children are the only ones ringing.
+        legs.ringing = true;
+        legs.stale.addAll(Arrays.asList("a", "b", "c"));
+        fork.fork(Arrays.asList("x"));
+        final CreateCall x = requested("x");
+        final ActorRef legB = answer(b);
+        assertEquals(legB, callManager.expectMsgClass(DestroyCall.class).call());
+        assertTrue(fork.isCreating());
+        answer(x);
+        assertFalse(fork.isCreating());
+        assertEquals(Arrays.asList("x"), legs.order);
+    }
+
+    private static final class Legs implements DialFork.Legs<String> {
+        private final Map<String, List<ActorRef>> rung = new HashMap<String, List<ActorRef>>();
+        private final List<String> order = new ArrayList<String>();
+        private final List<String> stale = new ArrayList<String>();
+        private boolean ringing;
+
+        @Override
+        public CreateCall create(final String child) {
+            return new CreateCall("+15550000000", child, null, null, false, 30, CreateCall.Type.PSTN, null, null);
+        }
+
+        @Override
+        public boolean isRinging(final String child) {
+            return ringing && !stale.contains(child);
+        }
+
+        @Override
+        public void ring(final ActorRef leg, final String child) {
+            List<ActorRef> legs = rung.get(child);
+            if (legs == null) {
+                legs = new ArrayList<ActorRef>();
+                rung.put(child, legs);
+            }
+            legs.add(leg);
+            order.add(child);
+        }
+    }
+}
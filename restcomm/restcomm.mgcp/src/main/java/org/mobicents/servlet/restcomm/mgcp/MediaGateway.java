@@ -45,14 +45,21 @@ import java.net.InetAddress;
 import java.util.Map;
 import java.util.TooManyListenersException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.mobicents.protocols.mgcp.stack.JainMgcpStackImpl;
+import org.mobicents.servlet.restcomm.metrics.Gauge;
+import org.mobicents.servlet.restcomm.metrics.LatencyHistogram;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
 import org.mobicents.servlet.restcomm.util.RevolvingCounter;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
  */
 public final class MediaGateway extends UntypedActor implements JainMgcpListener {
+    // Size of the ring that remembers when each transaction was sent, a power of two.
+    private static final int TRANSACTION_SLOTS = 4096;
+
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
     // MediaGateway connection information.
     private String name;
@@ -79,11 +86,15 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
     private RevolvingCounter requestIdPool;
     private RevolvingCounter sessionIdPool;
     private RevolvingCounter transactionIdPool;
+    // Metrics, the send time of transaction n lives in slot n % TRANSACTION_SLOTS.
+    private final AtomicLongArray transactionStarts;
+    private LatencyHistogram transactionTimes;
 
     public MediaGateway() {
         super();
         notificationListeners = new ConcurrentHashMap<String, ActorRef>();
         responseListeners = new ConcurrentHashMap<Integer, ActorRef>();
+        transactionStarts = new AtomicLongArray(TRANSACTION_SLOTS);
     }
 
     private ActorRef getConnection(final Object message) {
@@ -231,6 +242,16 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
         requestIdPool = new RevolvingCounter(1, Long.MAX_VALUE);
         sessionIdPool = new RevolvingCounter(1, Long.MAX_VALUE);
         transactionIdPool = new RevolvingCounter(1, Long.MAX_VALUE);
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        transactionTimes = metrics.histogram("restcomm_mgcp_transaction_seconds",
+                "Time between sending an MGCP command and receiving its response.", "gateway", domain);
+        final Map<Integer, ActorRef> pending = responseListeners;
+        metrics.gauge("restcomm_mgcp_pending_transactions", "MGCP commands waiting for a response.", new Gauge() {
+            @Override
+            public long value() {
+                return pending.size();
+            }
+        }, "gateway", domain);
     }
 
     @Override
@@ -251,6 +272,10 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
     @Override
     public void processMgcpResponseEvent(final JainMgcpResponseEvent event) {
         final int id = event.getTransactionHandle();
+        final long start = transactionStarts.getAndSet(id & (TRANSACTION_SLOTS - 1), 0);
+        if (start != 0 && transactionTimes != null) {
+            transactionTimes.recordSince(start);
+        }
         final ActorRef listener = responseListeners.remove(id);
         if (listener != null) {
             listener.tell(event, self());
@@ -314,6 +339,7 @@ public final class MediaGateway extends UntypedActor implements JainMgcpListener
         final int transactionId = (int) transactionIdPool.get();
         command.setTransactionHandle(transactionId);
         responseListeners.put(transactionId, sender);
+        transactionStarts.set(transactionId & (TRANSACTION_SLOTS - 1), System.nanoTime());
         if (NotificationRequest.class.equals(command.getClass())) {
             final NotificationRequest request = (NotificationRequest) command;
             final String id = Long.toString(requestIdPool.get());
@@ -22,6 +22,7 @@
 package org.mobicents.servlet.restcomm.mscontrol.messages;
 
 import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.trace.CallTrace;
 
 /**
  * @author Henrique Rosa (henrique.rosa@telestax.com)
@@ -33,13 +34,20 @@ public final class CreateMediaSession {
     private final String connectionMode;
     private final String sessionDescription;
     private final boolean webrtc;
+    private final CallTrace trace;
 
-    public CreateMediaSession(String connectionMode, String sessionDescription, boolean outbound, boolean webrtc) {
+    public CreateMediaSession(String connectionMode, String sessionDescription, boolean outbound, boolean webrtc,
+            CallTrace trace) {
         super();
         this.connectionMode = connectionMode;
         this.sessionDescription = sessionDescription;
         this.outbound = outbound;
         this.webrtc = webrtc;
+        this.trace = trace;
+    }
+
+    public CreateMediaSession(String connectionMode, String sessionDescription, boolean outbound, boolean webrtc) {
+        this(connectionMode, sessionDescription, outbound, webrtc, null);
     }
 
     public CreateMediaSession(String connectionMode) {
@@ -66,4 +74,8 @@ public final class CreateMediaSession {
         return webrtc;
     }
 
+    public CallTrace trace() {
+        return trace;
+    }
+
 }
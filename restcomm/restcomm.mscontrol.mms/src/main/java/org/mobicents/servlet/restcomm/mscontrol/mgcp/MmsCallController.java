@@ -468,6 +468,9 @@ public class MmsCallController extends MediaServerController {
         this.callOutbound = message.isOutbound();
         this.remoteSdp = message.getSessionDescription();
         this.webrtc = message.isWebrtc();
+        if (message.trace() != null) {
+            fsm.setListener(message.trace().listener("MmsCallController"));
+        }
 
         fsm.transition(message, acquiringMediaGatewayInfo);
     }
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,26 +27,24 @@ import org.mobicents.servlet.restcomm.rvd.model.client.StateHeader;
 import org.mobicents.servlet.restcomm.rvd.model.client.WavItem;
 import org.mobicents.servlet.restcomm.rvd.model.project.RvdProject;
 import org.mobicents.servlet.restcomm.rvd.storage.FsProjectStorage;
+import org.mobicents.servlet.restcomm.rvd.storage.WorkspaceIndex;
 import org.mobicents.servlet.restcomm.rvd.storage.WorkspaceStorage;
-import org.mobicents.servlet.restcomm.rvd.storage.exceptions.BadProjectHeader;
 import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
 import org.mobicents.servlet.restcomm.rvd.storage.exceptions.WavItemDoesNotExist;
 import org.mobicents.servlet.restcomm.rvd.upgrade.UpgradeService;
 import org.mobicents.servlet.restcomm.rvd.upgrade.UpgradeService.UpgradabilityStatus;
-import org.mobicents.servlet.restcomm.rvd.utils.RvdUtils;
 import org.mobicents.servlet.restcomm.rvd.utils.Unzipper;
+import org.mobicents.servlet.restcomm.rvd.utils.exceptions.ZipperException;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 public class ProjectService {
@@ -141,36 +140,13 @@ public class ProjectService {
     public List<ProjectItem> getAvailableProjectsByOwner(String ownerFilter) throws StorageException {
 
         List<ProjectItem> items = new ArrayList<ProjectItem>();
-        for (String entry : FsProjectStorage.listProjectNames(workspaceStorage) ) {
-
-            String kind = "voice";
-            String owner = null;
-            ProjectItem item = new ProjectItem();
-            item.setName(entry);
-            try {
-                StateHeader header = FsProjectStorage.loadStateHeader(entry, workspaceStorage);
-                item.setStatus(ProjectService.projectStatus(header));
-                kind = header.getProjectKind();
-                owner = header.getOwner();
-            } catch ( BadProjectHeader e ) {
-                // for old projects
-                JsonParser parser = new JsonParser();
-                //JsonObject root_element = parser.parse(projectStorage.loadProjectState(entry)).getAsJsonObject();
-                JsonObject root_element = parser.parse(FsProjectStorage.loadProjectString(entry, workspaceStorage)).getAsJsonObject();
-                JsonElement projectKind_element = root_element.get("projectKind");
-                if ( projectKind_element != null ) {
-                    kind = projectKind_element.getAsString();
-                }
-                item.setStatus(Status.BAD);
-            }
-
-            if ( ownerFilter != null ) {
-                if ( owner == null || owner.equals(ownerFilter) ) {
-                    item.setKind(kind);
-                    items.add(item);
-                }
-            } else {
-                item.setKind(kind);
+        for (WorkspaceIndex.Entry entry : WorkspaceIndex.get(workspaceStorage).list() ) {
+            String owner = entry.getOwner();
+            if ( ownerFilter == null || owner == null || owner.equals(ownerFilter) ) {
+                ProjectItem item = new ProjectItem();
+                item.setName(entry.getName());
+                item.setKind(entry.getKind());
+                item.setStatus(ProjectService.versionStatus(entry.getVersion()));
                 items.add(item);
             }
         }
@@ -178,10 +154,16 @@ public class ProjectService {
     }
 
     static Status projectStatus(StateHeader header) {
-        if (header == null || header.getVersion() == null)
+        if (header == null)
+            return Status.BAD;
+        return versionStatus(header.getVersion());
+    }
+
+    static Status versionStatus(String version) {
+        if (version == null)
             return Status.BAD;
         try {
-            UpgradabilityStatus upgradable = UpgradeService.checkUpgradability(header.getVersion(), RvdConfiguration.getRvdProjectVersion());
+            UpgradabilityStatus upgradable = UpgradeService.checkUpgradability(version, RvdConfiguration.getRvdProjectVersion());
             if (upgradable == UpgradabilityStatus.NOT_NEEDED)
                 return Status.OK;
             else
@@ -260,25 +242,22 @@ public class ProjectService {
         FsProjectStorage.deleteProject(projectName,workspaceStorage);
     }
 
-    public InputStream archiveProject(String projectName) throws StorageException {
-        return FsProjectStorage.archiveProject(projectName,workspaceStorage);
+    public void archiveProject(String projectName, OutputStream archiveStream) throws StorageException {
+        FsProjectStorage.archiveProject(projectName, archiveStream, workspaceStorage);
     }
 
     public void importProjectFromRawArchive(InputStream archiveStream, String applicationSid, String owner) throws RvdException {
-        File archiveFile = new File(applicationSid);
-        String projectName = FilenameUtils.getBaseName(archiveFile.getName());
-
-        // First unzip to temp dir
-        File tempProjectDir;
+        // Unzip straight into the workspace, importProject() then only has to rename the directory
+        File importDir = FsProjectStorage.createImportDirectory(workspaceStorage);
         try {
-            tempProjectDir = RvdUtils.createTempDir();
-        } catch (RvdException e) {
-            throw new StorageException("Error importing project from archive. Cannot create temp directory for project: " + projectName, e );
+            Unzipper unzipper = new Unzipper(importDir, settings.getProjectImportMaxSize(), settings.getProjectImportMaxEntries());
+            unzipper.unzip(archiveStream);
+        } catch (ZipperException e) {
+            FileUtils.deleteQuietly(importDir);
+            throw new StorageException("Error importing project from archive. " + e.getMessage(), e);
         }
-        Unzipper unzipper = new Unzipper(tempProjectDir);
-        unzipper.unzip(archiveStream);
 
-        importProject(tempProjectDir, applicationSid, owner );
+        importProject(importDir, applicationSid, owner );
     }
 
     public String importProject(File tempProjectDir, String suggestedName, String owner) throws RvdException {
@@ -310,9 +289,7 @@ public class ProjectService {
 
             // TODO Make these an atomic action!
             suggestedName = FsProjectStorage.getAvailableProjectName(suggestedName, workspaceStorage);
-            FsProjectStorage.createProjectSlot(suggestedName, workspaceStorage);
-
-            FsProjectStorage.importProjectFromDirectory(tempProjectDir, suggestedName, true, workspaceStorage);
+            FsProjectStorage.importProjectFromDirectory(tempProjectDir, suggestedName, false, workspaceStorage);
             return suggestedName;
 
         } catch ( UnsupportedProjectVersion e) {
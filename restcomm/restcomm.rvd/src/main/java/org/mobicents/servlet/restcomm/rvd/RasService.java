@@ -21,6 +21,7 @@ import org.mobicents.servlet.restcomm.rvd.model.packaging.RappInfo;
 import org.mobicents.servlet.restcomm.rvd.model.project.RvdProject;
 import org.mobicents.servlet.restcomm.rvd.storage.FsPackagingStorage;
 import org.mobicents.servlet.restcomm.rvd.storage.FsProjectStorage;
+import org.mobicents.servlet.restcomm.rvd.storage.WorkspaceIndex;
 import org.mobicents.servlet.restcomm.rvd.storage.WorkspaceStorage;
 import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
 import org.mobicents.servlet.restcomm.rvd.upgrade.UpgradeService;
@@ -46,10 +47,12 @@ public class RasService {
 
     ModelMarshaler marshaler;
     WorkspaceStorage workspaceStorage;
+    RvdConfiguration settings;
 
     public RasService(RvdContext rvdContext, WorkspaceStorage workspaceStorage) {
         this.marshaler = rvdContext.getMarshaler();
         this.workspaceStorage = workspaceStorage;
+        this.settings = rvdContext.getSettings();
     }
 
     /**
@@ -136,11 +139,10 @@ public class RasService {
         if(logger.isDebugEnabled()) {
             logger.debug("Unzipping ras package to temporary directory " + tempDir.getPath());
         }
-        Unzipper unzipper = new Unzipper(tempDir);
-        unzipper.unzip(packageZipStream);
-
         String newProjectName;
         try {
+            Unzipper unzipper = new Unzipper(tempDir, settings.getProjectImportMaxSize(), settings.getProjectImportMaxEntries());
+            unzipper.unzip(packageZipStream);
             RappInfo info = workspaceStorage.loadModelFromXMLFile(tempDir.getPath() + "/app/" + "info.xml", RappInfo.class);
             RappConfig config = workspaceStorage.loadModelFromFile(tempDir.getPath() + "/app/" + "config", RappConfig.class);
             // check project version from info.xml
@@ -160,7 +162,7 @@ public class RasService {
             if (runtimePackageVersion < effectivePackageVersion)
                 throw new UnsupportedRasApplicationVersion("Incompatible application package. Version " + effectivePackageVersion + " is not supported");
             // Make sure no such restcomm app already exists (single instance limitation)
-            List<RappItem> rappItems = FsProjectStorage.listRapps(FsProjectStorage.listProjectNames(workspaceStorage), workspaceStorage, projectService);
+            List<RappItem> rappItems = FsProjectStorage.listRapps(WorkspaceIndex.get(workspaceStorage).names(), workspaceStorage, projectService);
             for (RappItem rappItem : rappItems)
                 if (rappItem.getRappInfo() != null && rappItem.getRappInfo().getId() != null && rappItem.getRappInfo().getId().equals(info.getId()))
                     throw new RestcommAppAlreadyExists("A restcomm application with id " + rappItem.getRappInfo().getId() + "  already exists. Cannot import " + info.getName() + " app");
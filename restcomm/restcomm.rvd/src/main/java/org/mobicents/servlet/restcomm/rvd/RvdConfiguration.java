@@ -29,6 +29,8 @@ public class RvdConfiguration {
     public static final String PROTO_DIRECTORY_PREFIX = "_proto";
     public static final String REST_SERVICES_PATH = "services"; // the "services" from the /restcomm-rvd/services/apps/... path
     public static final String USERS_DIRECTORY_NAME = "@users";
+    public static final String WORKSPACE_INDEX_FILENAME = ".index"; // the project index at the root of the workspace
+    public static final String IMPORT_DIRECTORY_PREFIX = ".import-"; // imported projects are unpacked in such directories in the workspace
 
     public static final String WAVS_DIRECTORY_NAME = "wavs";
     private static final String RVD_PROJECT_VERSION = "1.6"; // version for rvd project syntax
@@ -51,6 +53,10 @@ public class RvdConfiguration {
                     "CallTimestamp", "ForwardedFrom"}));
     public static final String RESTCOMM_HEADER_PREFIX = "SipHeader_"; // the prefix added to HTTP headers from Restcomm
     public static final String RESTCOMM_HEADER_PREFIX_DIAL = "DialSipHeader_"; // another prefix
+    public static final int DEFAULT_ACCOUNT_CACHE_TTL = 30; // seconds
+    public static final int DEFAULT_ACCOUNT_CACHE_NEGATIVE_TTL = 5; // seconds
+    public static final int DEFAULT_PROJECT_IMPORT_MAX_SIZE = 1024; // megabytes
+    public static final int DEFAULT_PROJECT_IMPORT_MAX_ENTRIES = 10000;
 
     private String workspaceBasePath;
     private RvdConfig rvdConfig;  // the configuration settings from rvd.xml
@@ -230,6 +236,51 @@ public class RvdConfiguration {
         return restcommBaseUri;
     }
 
+    /**
+     * Returns the number of seconds an authenticated account is served by AccountProvider before Restcomm is asked again.
+     *
+     * @return
+     */
+    public int getAccountCacheTtl() {
+        if (rvdConfig != null && rvdConfig.getAccountCacheTtl() != null)
+            return rvdConfig.getAccountCacheTtl();
+        return DEFAULT_ACCOUNT_CACHE_TTL;
+    }
+
+    /**
+     * Returns the number of seconds failed authentications are remembered by AccountProvider.
+     *
+     * @return
+     */
+    public int getAccountCacheNegativeTtl() {
+        if (rvdConfig != null && rvdConfig.getAccountCacheNegativeTtl() != null)
+            return rvdConfig.getAccountCacheNegativeTtl();
+        return DEFAULT_ACCOUNT_CACHE_NEGATIVE_TTL;
+    }
+
+    /**
+     * Returns the maximum number of bytes an imported project archive may unpack to.
+     *
+     * @return
+     */
+    public long getProjectImportMaxSize() {
+        int megabytes = DEFAULT_PROJECT_IMPORT_MAX_SIZE;
+        if (rvdConfig != null && rvdConfig.getProjectImportMaxSize() != null)
+            megabytes = rvdConfig.getProjectImportMaxSize();
+        return megabytes * 1024L * 1024L;
+    }
+
+    /**
+     * Returns the maximum number of files and directories in an imported project archive.
+     *
+     * @return
+     */
+    public int getProjectImportMaxEntries() {
+        if (rvdConfig != null && rvdConfig.getProjectImportMaxEntries() != null)
+            return rvdConfig.getProjectImportMaxEntries();
+        return DEFAULT_PROJECT_IMPORT_MAX_ENTRIES;
+    }
+
     /**
      * Returns a valid base url of the authorization server or null
      *
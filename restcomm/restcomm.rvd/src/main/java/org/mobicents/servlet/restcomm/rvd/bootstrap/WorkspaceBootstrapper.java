@@ -3,6 +3,9 @@ package org.mobicents.servlet.restcomm.rvd.bootstrap;
 import org.mobicents.servlet.restcomm.rvd.RvdConfiguration;
 
 import java.io.File;
+import java.io.FilenameFilter;
+
+import org.apache.commons.io.FileUtils;
 
 /**
  * A class to encapsulate all startup tasks for workspace initialization for example create the @users directory
@@ -29,6 +32,7 @@ public class WorkspaceBootstrapper {
      */
     public void run() {
         createUsersDirectory();
+        removeImportLeftovers();
     }
 
     /**
@@ -41,4 +45,22 @@ public class WorkspaceBootstrapper {
             usersDir.mkdir();
         }
     }
+
+    /**
+     * Removes directories of project imports that never completed, for example because RVD was stopped while an
+     * archive was being unpacked.
+     */
+    void removeImportLeftovers() {
+        File[] leftovers = new File(rootLocation).listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(RvdConfiguration.IMPORT_DIRECTORY_PREFIX);
+            }
+        });
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                FileUtils.deleteQuietly(leftover);
+            }
+        }
+    }
 }
@@ -11,6 +11,7 @@ import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.ssl.SSLContexts;
 import org.mobicents.servlet.restcomm.rvd.RvdConfiguration;
@@ -31,12 +32,27 @@ public class CustomHttpClientBuilder {
 
     // returns an apache http client
     public static CloseableHttpClient buildHttpClient() {
+        return buildHttpClient(HttpClients.custom());
+    }
+
+    /**
+     * Returns an apache http client meant to be kept around and shared. It keeps up to maxConnections connections
+     * open towards each host instead of the two per host of the default client.
+     *
+     * @param maxConnections
+     * @return
+     */
+    public static CloseableHttpClient buildPooledHttpClient(int maxConnections) {
+        return buildHttpClient(HttpClients.custom().setMaxConnPerRoute(maxConnections).setMaxConnTotal(maxConnections * 2));
+    }
+
+    private static CloseableHttpClient buildHttpClient(HttpClientBuilder builder) {
         SslMode sslMode = RvdConfiguration.getInstance().getSslMode();
         if ( sslMode == SslMode.strict ) {
-            return buildStrictClient();
+            return buildStrictClient(builder);
         }
         else
-            return buildAllowallClient();
+            return buildAllowallClient(builder);
     }
 
     // returns a jersey client - experimental
@@ -51,20 +67,20 @@ public class CustomHttpClientBuilder {
     }
     */
 
-    private static CloseableHttpClient buildStrictClient() {
+    private static CloseableHttpClient buildStrictClient(HttpClientBuilder builder) {
         String[] protocols = getSSLPrototocolsFromSystemProperties();
         if (protocols == null)
-            return HttpClients.createDefault();
+            return builder.build();
 
         SSLContext sslcontext = SSLContexts.createDefault();
         // Allow TLSv1 protocol only
         SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(sslcontext, protocols, null, new DefaultHostnameVerifier());
-        CloseableHttpClient httpclient = HttpClients.custom().setSSLSocketFactory(sslsf).build();
+        CloseableHttpClient httpclient = builder.setSSLSocketFactory(sslsf).build();
 
         return httpclient;
     }
 
-    private static CloseableHttpClient buildAllowallClient() {
+    private static CloseableHttpClient buildAllowallClient(HttpClientBuilder builder) {
         String[] protocols = getSSLPrototocolsFromSystemProperties();
         //SSLContext sslcontext = SSLContexts.createDefault();
         SSLContext sslcontext;
@@ -75,7 +91,7 @@ public class CustomHttpClientBuilder {
         }
         // Allow TLSv1 protocol only
         SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(sslcontext, protocols, null, new NoopHostnameVerifier());
-        CloseableHttpClient httpclient = HttpClients.custom().setSSLSocketFactory(sslsf).build();
+        CloseableHttpClient httpclient = builder.setSSLSocketFactory(sslsf).build();
 
         return httpclient;
     }
@@ -2,6 +2,7 @@ package org.mobicents.servlet.restcomm.rvd.http.resources;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.List;
@@ -22,6 +23,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.codec.EncoderException;
 import org.apache.commons.fileupload.FileItemIterator;
@@ -381,16 +383,21 @@ public class ProjectRestService extends SecuredRestService {
         }
         assertProjectAvailable(applicationSid);
 
-        InputStream archiveStream;
-        try {
-            archiveStream = projectService.archiveProject(applicationSid);
-            String dispositionHeader = "attachment; filename*=UTF-8''" + RvdUtils.myUrlEncode(projectName + ".zip");
-            return Response.ok(archiveStream, "application/zip").header("Content-Disposition", dispositionHeader).build();
-
-        } catch (StorageException e) {
-            logger.error(e, e);
-            return null;
-        }
+        // the zip is written straight to the response while it is being built
+        final String projectSid = applicationSid;
+        StreamingOutput archive = new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                try {
+                    projectService.archiveProject(projectSid, output);
+                } catch (StorageException e) {
+                    logger.error(e, e);
+                    throw new IOException("Error archiving project " + projectSid, e);
+                }
+            }
+        };
+        String dispositionHeader = "attachment; filename*=UTF-8''" + RvdUtils.myUrlEncode(projectName + ".zip");
+        return Response.ok(archive, "application/zip").header("Content-Disposition", dispositionHeader).build();
     }
 
     @POST
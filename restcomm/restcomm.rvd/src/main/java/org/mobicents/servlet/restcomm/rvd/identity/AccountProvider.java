@@ -1,6 +1,7 @@
 package org.mobicents.servlet.restcomm.rvd.identity;
 
 import com.google.gson.Gson;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -15,10 +16,21 @@ import org.mobicents.servlet.restcomm.rvd.utils.RvdUtils;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides accounts by either quereing Restcomm or accessing cache. It follows the application lifecycle (not creatd per-request)
- * Future support for account caching will be added.
+ *
+ * Authenticated accounts are cached for a while, keyed by a hash of the username and authorization header, so that
+ * designer saves, log polls and application invocations don't cost a round trip to Restcomm each. Failed
+ * authentications are cached too but for a shorter period. Concurrent lookups for the same credentials wait for the
+ * single request already in flight. All requests go through a single pooled http client.
  *
  * The class has been implemented as a singleton and is lazily created because it's not possible to initialize it
  * in RvdInitializationServlet (restcommBaseUrl is not available at that time) :-(.
@@ -26,13 +38,31 @@ import java.net.URISyntaxException;
  * @author Orestis Tsakiridis
  */
 public class AccountProvider {
+    static final int MAX_CACHED_ACCOUNTS = 10000;
+    static final int MAX_CONNECTIONS = 20;
 
     String restcommUrl;
+    private final long ttl; // milliseconds
+    private final long negativeTtl; // milliseconds
+    private final ConcurrentMap<String, CachedAccount> cache = new ConcurrentHashMap<String, CachedAccount>();
+    private final Gson gson = new Gson();
+    private volatile CloseableHttpClient client;
 
     AccountProvider(String restcommUrl) {
+        this(restcommUrl, RvdConfiguration.DEFAULT_ACCOUNT_CACHE_TTL, RvdConfiguration.DEFAULT_ACCOUNT_CACHE_NEGATIVE_TTL);
+    }
+
+    /**
+     * @param restcommUrl
+     * @param ttl seconds to keep an authenticated account
+     * @param negativeTtl seconds to remember a failed authentication
+     */
+    AccountProvider(String restcommUrl, int ttl, int negativeTtl) {
         if (restcommUrl == null)
             throw new IllegalStateException("restcommUrl cannot be null");
         this.restcommUrl = sanitizeRestcommUrl(restcommUrl);
+        this.ttl = TimeUnit.SECONDS.toMillis(ttl);
+        this.negativeTtl = TimeUnit.SECONDS.toMillis(negativeTtl);
     }
 
     private String sanitizeRestcommUrl(String restcommUrl) {
@@ -53,6 +83,16 @@ public class AccountProvider {
         }
     }
 
+    private CloseableHttpClient getClient() {
+        if (client == null) {
+            synchronized (this) {
+                if (client == null)
+                    client = CustomHttpClientBuilder.buildPooledHttpClient(MAX_CONNECTIONS);
+            }
+        }
+        return client;
+    }
+
     /**
      * Returns the account for username using authorization header as credentials. It can handle both basic http and bearer auth auth.
      * If the authentication fails or the account is not found it returns null.
@@ -62,20 +102,62 @@ public class AccountProvider {
      * @return
      */
     public RestcommAccountInfoResponse getAccount(String username, String authorizationHeader) {
-        CloseableHttpClient client = CustomHttpClientBuilder.buildHttpClient();
+        if (ttl <= 0 && negativeTtl <= 0)
+            return fetchAccount(username, authorizationHeader);
+
+        String key = DigestUtils.sha256Hex(username + "\n" + authorizationHeader);
+        CachedAccount cached = cache.get(key);
+        if (cached != null && cached.isExpired(System.currentTimeMillis())) {
+            cache.remove(key, cached);
+            cached = null;
+        }
+        if (cached == null) {
+            CachedAccount created = new CachedAccount(username, authorizationHeader);
+            cached = cache.putIfAbsent(key, created);
+            if (cached == null) {
+                cached = created;
+                if (cache.size() > MAX_CACHED_ACCOUNTS)
+                    evict();
+                created.task.run(); // the lookup runs on the first requesting thread. Others just wait for it.
+            }
+        }
+        try {
+            return cached.task.get();
+        } catch (ExecutionException e) {
+            // don't cache errors
+            cache.remove(key, cached);
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    public RestcommAccountInfoResponse getAccount(BasicAuthCredentials creds) {
+        String header = "Basic " + RvdUtils.buildHttpAuthorizationToken(creds.getUsername(),creds.getPassword());
+        return getAccount(creds.getUsername(), header);
+    }
+
+    private RestcommAccountInfoResponse fetchAccount(String username, String authorizationHeader) {
         HttpGet GETRequest = new HttpGet(buildAccountQueryUrl(username));
         GETRequest.addHeader("Authorization", authorizationHeader);
         try {
-            CloseableHttpResponse response = client.execute(GETRequest);
-            if (response.getStatusLine().getStatusCode() == 200 ) {
+            CloseableHttpResponse response = getClient().execute(GETRequest);
+            try {
                 HttpEntity entity = response.getEntity();
-                if (entity != null) {
-                    String accountJson = EntityUtils.toString(entity);
-                    Gson gson = new Gson();
-                    RestcommAccountInfoResponse accountResponse = gson.fromJson(accountJson, RestcommAccountInfoResponse.class);
-                    if ("active".equals(accountResponse.getStatus()))
-                        return accountResponse;
-                }
+                if (response.getStatusLine().getStatusCode() == 200 ) {
+                    if (entity != null) {
+                        String accountJson = EntityUtils.toString(entity);
+                        RestcommAccountInfoResponse accountResponse = gson.fromJson(accountJson, RestcommAccountInfoResponse.class);
+                        if ("active".equals(accountResponse.getStatus()))
+                            return accountResponse;
+                    }
+                } else
+                    EntityUtils.consume(entity); // so that the connection goes back to the pool
+            } finally {
+                response.close();
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -83,20 +165,56 @@ public class AccountProvider {
         return null;
     }
 
-    public RestcommAccountInfoResponse getAccount(BasicAuthCredentials creds) {
-        String header = "Basic " + RvdUtils.buildHttpAuthorizationToken(creds.getUsername(),creds.getPassword());
-        return getAccount(creds.getUsername(), header);
+    /**
+     * Drops expired entries. If the cache is still full (i.e. lots of distinct credentials within a TTL) it is
+     * emptied altogether.
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, CachedAccount> entry: cache.entrySet()) {
+            if (entry.getValue().isExpired(now))
+                cache.remove(entry.getKey(), entry.getValue());
+        }
+        if (cache.size() > MAX_CACHED_ACCOUNTS)
+            cache.clear();
+    }
+
+    /**
+     * Forgets all cached accounts. Next lookups will query Restcomm again.
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private class CachedAccount {
+        final FutureTask<RestcommAccountInfoResponse> task;
+        volatile long expires = Long.MAX_VALUE; // never expires while the lookup is in flight
+
+        CachedAccount(final String username, final String authorizationHeader) {
+            task = new FutureTask<RestcommAccountInfoResponse>(new Callable<RestcommAccountInfoResponse>() {
+                @Override
+                public RestcommAccountInfoResponse call() throws Exception {
+                    RestcommAccountInfoResponse account = fetchAccount(username, authorizationHeader);
+                    expires = System.currentTimeMillis() + (account == null ? negativeTtl : ttl);
+                    return account;
+                }
+            });
+        }
+
+        boolean isExpired(long now) {
+            return now >= expires;
+        }
     }
 
     // singleton stuff
     private static AccountProvider instance;
-    public static AccountProvider getInstance() {
+    public static synchronized AccountProvider getInstance() {
         if (instance == null) {
-            String restcommUrl = RvdConfiguration.getInstance().getRestcommBaseUri().toString();
-            instance = new AccountProvider(restcommUrl);
+            RvdConfiguration configuration = RvdConfiguration.getInstance();
+            String restcommUrl = configuration.getRestcommBaseUri().toString();
+            instance = new AccountProvider(restcommUrl, configuration.getAccountCacheTtl(), configuration.getAccountCacheNegativeTtl());
         }
         return instance;
     }
 
 }
-
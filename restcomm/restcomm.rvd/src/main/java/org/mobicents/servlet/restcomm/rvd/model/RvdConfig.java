@@ -5,6 +5,10 @@ public class RvdConfig {
     private String workspaceBackupLocation;
     private String sslMode;
     private String restcommBaseUrl;
+    private Integer accountCacheTtl;
+    private Integer accountCacheNegativeTtl;
+    private Integer projectImportMaxSize;
+    private Integer projectImportMaxEntries;
 
     public RvdConfig() {
     }
@@ -31,4 +35,20 @@ public class RvdConfig {
     public String getRestcommBaseUrl() {
         return restcommBaseUrl;
     }
+
+    public Integer getAccountCacheTtl() {
+        return accountCacheTtl;
+    }
+
+    public Integer getAccountCacheNegativeTtl() {
+        return accountCacheNegativeTtl;
+    }
+
+    public Integer getProjectImportMaxSize() {
+        return projectImportMaxSize;
+    }
+
+    public Integer getProjectImportMaxEntries() {
+        return projectImportMaxEntries;
+    }
 }
@@ -22,6 +22,7 @@ public class FsPackagingStorage {
     public static void storeRapp(Rapp rapp, String projectName, WorkspaceStorage storage) throws StorageException {
         //storageBase.storeFileToProject(rapp, rapp.getClass(), projectName, RvdConfiguration.PACKAGING_DIRECTORY_NAME, "rapp");
         storage.storeEntity(rapp, rapp.getClass(), "rapp", projectName+"/"+RvdConfiguration.PACKAGING_DIRECTORY_NAME);
+        WorkspaceIndex.get(storage).update(projectName);
     }
 
     public static void storeRappBinary(File sourceFile, String projectName, WorkspaceStorage storage ) throws RvdException {
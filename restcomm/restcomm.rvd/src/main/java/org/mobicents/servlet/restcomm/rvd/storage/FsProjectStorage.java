@@ -22,17 +22,20 @@ package org.mobicents.servlet.restcomm.rvd.storage;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -83,7 +86,7 @@ public class FsProjectStorage {
             File[] entries = workspaceDir.listFiles(new FileFilter() {
                 @Override
                 public boolean accept(File anyfile) {
-                    if (anyfile.isDirectory() && !anyfile.getName().startsWith(RvdConfiguration.PROTO_DIRECTORY_PREFIX) && !anyfile.getName().equals("@users") )
+                    if (anyfile.isDirectory() && WorkspaceIndex.isProjectDirectory(anyfile.getName()) )
                         return true;
                     return false;
                 }
@@ -122,6 +125,7 @@ public class FsProjectStorage {
 
     public static void storeBootstrapInfo(String bootstrapInfo, String projectName, WorkspaceStorage workspaceStorage) throws StorageException {
         workspaceStorage.storeEntityString(bootstrapInfo, "bootstrap", projectName);
+        WorkspaceIndex.get(workspaceStorage).update(projectName);
     }
 
     public static boolean hasBootstrapInfo(String projectName, WorkspaceStorage workspaceStorage) {
@@ -141,58 +145,41 @@ public class FsProjectStorage {
     }
 
     /**
-     * Creates a list of rapp info objects out of a set of projects
+     * Creates a list of rapp info objects out of a set of projects. The information comes from the workspace index,
+     * projects that are not in the workspace are skipped.
      * @param projectNames
      * @return
      * @throws StorageException
      * @throws ProjectException
      */
     public static List<RappItem> listRapps(List<String> projectNames, WorkspaceStorage workspaceStorage, ProjectService projectService) throws StorageException, ProjectException {
+        Map<String, WorkspaceIndex.Entry> entries = new HashMap<String, WorkspaceIndex.Entry>();
+        for (WorkspaceIndex.Entry entry : WorkspaceIndex.get(workspaceStorage).list())
+            entries.put(entry.getName(), entry);
+
         List<RappItem> rapps = new ArrayList<RappItem>();
         for (String projectName : projectNames) {
+            WorkspaceIndex.Entry entry = entries.get(projectName);
+            if (entry == null)
+                continue;
             RappItem item = new RappItem();
             item.setProjectName(projectName);
-
-            if ( FsProjectStorage.hasRasInfo(projectName, workspaceStorage) ) {
-                item.setWasImported(true);
-
-                // load info from rapp file
-                Rapp rapp = workspaceStorage.loadEntity("rapp", projectName+"/ras", Rapp.class);
-                item.setRappInfo(rapp.getInfo());
-
+            item.setWasImported(entry.getWasImported());
+            if ( entry.getWasImported() ) {
                 // app status
                 boolean installedStatus = true;
-                boolean configuredStatus = FsProjectStorage.hasBootstrapInfo(projectName, workspaceStorage);
-                boolean activeStatus = installedStatus && configuredStatus;
-                RappStatus[] statuses = new RappStatus[3];
-                statuses[0] = RappStatus.Installed; // always set
-                statuses[1] = configuredStatus ? RappStatus.Configured : RappStatus.Unconfigured;
-                statuses[2] = activeStatus ? RappStatus.Active : RappStatus.Inactive;
-                item.setStatus(statuses);
-            } else
-                item.setWasImported(false);
-
-            if ( FsProjectStorage.hasPackagingInfo(projectName, workspaceStorage) ) {
-                item.setHasPackaging(true);
-
-                // load info from rapp file
-                Rapp rapp = workspaceStorage.loadEntity("rapp", projectName+"/packaging", Rapp.class);
-                item.setRappInfo(rapp.getInfo());
-
-                // app status
-                /*boolean installedStatus = true;
-                boolean configuredStatus = FsProjectStorage.hasBootstrapInfo(projectName, workspaceStorage);
+                boolean configuredStatus = entry.getHasBootstrap();
                 boolean activeStatus = installedStatus && configuredStatus;
                 RappStatus[] statuses = new RappStatus[3];
                 statuses[0] = RappStatus.Installed; // always set
                 statuses[1] = configuredStatus ? RappStatus.Configured : RappStatus.Unconfigured;
                 statuses[2] = activeStatus ? RappStatus.Active : RappStatus.Inactive;
                 item.setStatus(statuses);
-                */
-            } else
-                item.setHasPackaging(false);
-
-            item.setHasBootstrap(FsProjectStorage.hasBootstrapInfo(projectName, workspaceStorage));
+            }
+            // packaging info takes precedence over the info of the imported rapp
+            item.setRappInfo(entry.getRappInfo());
+            item.setHasPackaging(entry.getHasPackaging());
+            item.setHasBootstrap(entry.getHasBootstrap());
             item.setStartUrl(projectService.buildStartUrl(projectName));
 
             rapps.add(item);
@@ -261,6 +248,7 @@ public class FsProjectStorage {
         storage.storeEntity(state, "state", projectName);
         if (firstTime)
             buildDirStructure(state, projectName, storage);
+        WorkspaceIndex.get(storage).update(projectName);
 
     }
 
@@ -298,6 +286,8 @@ public class FsProjectStorage {
             File sourceDir = new File(storage.rootPath  + File.separator + projectName);
             File destDir = new File(storage.rootPath  + File.separator + newProjectName);
             FileUtils.moveDirectory(sourceDir, destDir);
+            WorkspaceIndex.get(storage).update(projectName);
+            WorkspaceIndex.get(storage).update(newProjectName);
         } catch (IOException e) {
             throw new StorageException("Error renaming directory '" + projectName + "' to '" + newProjectName + "'");
         }
@@ -307,39 +297,37 @@ public class FsProjectStorage {
         try {
             File projectDir = new File(storage.rootPath  + File.separator + projectName);
             FileUtils.deleteDirectory(projectDir);
+            WorkspaceIndex.get(storage).update(projectName);
         } catch (IOException e) {
             throw new StorageException("Error removing directory '" + projectName + "'", e);
         }
     }
 
-    public static InputStream archiveProject(String projectName, WorkspaceStorage storage) throws StorageException {
-        String path = storage.rootPath + File.separator + projectName; //storageBase.getProjectBasePath(projectName);
-        File tempFile;
-        try {
-            tempFile = File.createTempFile("RVDprojectArchive",".zip");
-        } catch (IOException e1) {
-            throw new StorageException("Error creating temp file for archiving project " + projectName, e1);
-        }
-
-        InputStream archiveStream;
+    /**
+     * Writes a zip of the project straight to the stream, for example an HTTP response. The stream is not closed.
+     */
+    public static void archiveProject(String projectName, OutputStream archiveStream, WorkspaceStorage storage) throws StorageException {
+        String path = storage.rootPath + File.separator + projectName;
         try {
-            Zipper zipper = new Zipper(tempFile);
+            Zipper zipper = new Zipper(archiveStream);
             zipper.addDirectoryRecursively(path, false);
             zipper.finish();
-
-            // open a stream on this file
-            archiveStream = new FileInputStream(tempFile);
-            return archiveStream;
         } catch (ZipperException e) {
             throw new StorageException( "Error archiving " + projectName, e);
-        } catch (FileNotFoundException e) {
-            throw new StorageException("This is weird. Can't find the temp file i just created for archiving project " + projectName, e);
-        } finally {
-            // Always delete the file. The underlying file content still exists because the archiveStream refers to it (for Linux only). It will be deleted when the stream is closed
-            tempFile.delete();
         }
     }
 
+    /**
+     * Creates an empty directory inside the workspace for an imported project to be unpacked into. It is left out of
+     * project listings until it is moved in place with importProjectFromDirectory().
+     */
+    public static File createImportDirectory(WorkspaceStorage storage) throws StorageException {
+        File importDirectory = new File(storage.rootPath, RvdConfiguration.IMPORT_DIRECTORY_PREFIX + UUID.randomUUID().toString().replace("-", ""));
+        if ( !importDirectory.mkdir() )
+            throw new StorageException("Cannot create import directory " + importDirectory);
+        return importDirectory;
+    }
+
     /**
      * Returns an non-existing project name based on the given one. Ideally it returns the same name. If null or blank
      * project name given the 'Untitled' name is tried.
@@ -361,22 +349,23 @@ public class FsProjectStorage {
         throw new StorageException("Can't find an available project name for base name '" + projectName + "'");
     }
 
+    /**
+     * Moves a project directory into the workspace. When the source directory is on the same file system, for
+     * example one created by createImportDirectory(), this is a rename and no data is copied.
+     */
     public static void importProjectFromDirectory(File sourceProjectDirectory, String projectName, boolean overwrite, WorkspaceStorage storage) throws StorageException {
+        File destProjectDirectory = new File(storage.rootPath + File.separator + projectName);
         try {
-            createProjectSlot(projectName, storage);
-        } catch (ProjectAlreadyExists e) {
-            if ( !overwrite )
-                throw e;
-            else {
-                File destProjectDirectory = new File(storage.rootPath + File.separator + projectName);
-                try {
-                    FileUtils.cleanDirectory(destProjectDirectory);
-                    FileUtils.copyDirectory(sourceProjectDirectory, destProjectDirectory);
-                } catch (IOException e1) {
-                    throw new StorageException("Error importing project '" + projectName + "' from directory: " + sourceProjectDirectory);
-                }
+            if ( destProjectDirectory.exists() ) {
+                if ( !overwrite )
+                    throw new ProjectAlreadyExists("Project '" + projectName + "' already exists");
+                FileUtils.deleteDirectory(destProjectDirectory);
             }
+            FileUtils.moveDirectory(sourceProjectDirectory, destProjectDirectory);
+        } catch (IOException e) {
+            throw new StorageException("Error importing project '" + projectName + "' from directory: " + sourceProjectDirectory, e);
         }
+        WorkspaceIndex.get(storage).update(projectName);
     }
 
     private static String getProjectBasePath(String projectName, WorkspaceStorage storage) {
@@ -482,6 +471,7 @@ public class FsProjectStorage {
 
     public static void storeRapp(Rapp rapp, String projectName, WorkspaceStorage storage) throws StorageException {
         storage.storeEntity(rapp, rapp.getClass(), "rapp", projectName + "/ras");
+        WorkspaceIndex.get(storage).update(projectName);
     }
 
     public static Rapp loadRapp(String projectName, WorkspaceStorage storage) throws StorageException {
@@ -505,6 +495,7 @@ public class FsProjectStorage {
             stateFile_os = new FileOutputStream(storage.rootPath + File.separator + projectName + File.separator + "state");
             IOUtils.write(newState, stateFile_os, Charset.forName("UTF-8"));
             stateFile_os.close();
+            WorkspaceIndex.get(storage).update(projectName);
         } catch (FileNotFoundException e) {
             throw new StorageException("Error updating state file for project '" + projectName + "'", e);
         } catch (IOException e) {
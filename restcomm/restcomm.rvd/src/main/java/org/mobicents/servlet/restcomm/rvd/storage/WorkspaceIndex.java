@@ -0,0 +1,326 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.storage;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.rvd.RvdConfiguration;
+import org.mobicents.servlet.restcomm.rvd.model.client.StateHeader;
+import org.mobicents.servlet.restcomm.rvd.model.packaging.RappInfo;
+import org.mobicents.servlet.restcomm.rvd.storage.exceptions.BadProjectHeader;
+import org.mobicents.servlet.restcomm.rvd.storage.exceptions.BadWorkspaceDirectoryStructure;
+import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageEntityNotFound;
+import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * An index of the projects in a workspace, kept in a single file at the workspace root. It holds what the project
+ * and app listings need from each project (kind, owner, version, rapp info) so that listing a workspace does not open
+ * the state and rapp files of every project.
+ *
+ * FsProjectStorage updates the index when a project is created, saved, renamed or deleted. Changes made behind RVD's
+ * back are picked up when listing: project directories that appeared or vanished are added or dropped, and a project
+ * whose state file modification time differs from the indexed one is read again. A missing or unreadable index file is
+ * rebuilt from scratch.
+ *
+ * There is one index per workspace directory, get it with {@link #get(WorkspaceStorage)}.
+ */
+public class WorkspaceIndex {
+    static final Logger logger = Logger.getLogger(WorkspaceIndex.class.getName());
+
+    // bump when the layout of the index file changes, older files are then rebuilt
+    static final int FORMAT = 1;
+
+    private static final ConcurrentMap<String, WorkspaceIndex> indexes = new ConcurrentHashMap<String, WorkspaceIndex>();
+
+    private final WorkspaceStorage storage;
+    private final File root;
+    private final File file;
+    private final Gson gson;
+    // project entries by name, null until the index file is loaded
+    private Map<String, Entry> entries;
+
+    WorkspaceIndex(WorkspaceStorage storage) {
+        this.storage = storage;
+        this.root = new File(storage.rootPath);
+        this.file = new File(root, RvdConfiguration.WORKSPACE_INDEX_FILENAME);
+        this.gson = new Gson();
+    }
+
+    /**
+     * Returns the index of the workspace the storage is rooted at.
+     */
+    public static WorkspaceIndex get(WorkspaceStorage storage) {
+        String key = new File(storage.rootPath).getAbsolutePath();
+        WorkspaceIndex index = indexes.get(key);
+        if (index == null) {
+            WorkspaceIndex created = new WorkspaceIndex(storage);
+            index = indexes.putIfAbsent(key, created);
+            if (index == null)
+                index = created;
+        }
+        return index;
+    }
+
+    /**
+     * Tells whether a directory at the workspace root holds a project. Prototypes, the users directory and hidden
+     * directories, like those of imports in progress, do not.
+     */
+    public static boolean isProjectDirectory(String name) {
+        return !name.startsWith(RvdConfiguration.PROTO_DIRECTORY_PREFIX) && !name.equals(RvdConfiguration.USERS_DIRECTORY_NAME)
+                && !name.startsWith(".");
+    }
+
+    /**
+     * Returns the entries of all projects in the workspace, most recently modified first. Only the workspace
+     * directory is listed; project files are read only for projects that are new or changed since they were indexed.
+     *
+     * @throws BadWorkspaceDirectoryStructure if the workspace directory does not exist
+     */
+    public synchronized List<Entry> list() throws StorageException {
+        if (!root.isDirectory())
+            throw new BadWorkspaceDirectoryStructure();
+        if (entries == null)
+            load();
+
+        File[] directories = root.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File anyfile) {
+                return anyfile.isDirectory() && isProjectDirectory(anyfile.getName());
+            }
+        });
+        boolean changed = false;
+        Map<String, Entry> current = new HashMap<String, Entry>(directories.length * 2);
+        for (File directory : directories) {
+            String name = directory.getName();
+            long modified = new File(directory, "state").lastModified();
+            Entry entry = entries.get(name);
+            if (entry == null || entry.modified != modified) {
+                entry = read(name, modified);
+                changed = true;
+            }
+            current.put(name, entry);
+        }
+        if (current.size() != entries.size())
+            changed = true;
+        entries = current;
+        if (changed)
+            save();
+
+        List<Entry> list = new ArrayList<Entry>(current.values());
+        Collections.sort(list, new Comparator<Entry>() {
+            public int compare(Entry e1, Entry e2) {
+                return Long.valueOf(e2.modified).compareTo(e1.modified);
+            }
+        });
+        return list;
+    }
+
+    /**
+     * Returns the names of all projects in the workspace in the order of {@link #list()}.
+     */
+    public List<String> names() throws StorageException {
+        List<String> names = new ArrayList<String>();
+        for (Entry entry : list())
+            names.add(entry.name);
+        return names;
+    }
+
+    /**
+     * Re-reads the entry of a project after it was created or changed or drops it if the project no longer exists.
+     * Failures are not propagated, the project is left out of the index and read again on the next listing.
+     */
+    public synchronized void update(String projectName) {
+        // nothing to keep up to date if the index was never built
+        if (!isProjectDirectory(projectName) || (entries == null && !file.exists()))
+            return;
+        if (entries == null)
+            load();
+        File directory = new File(root, projectName);
+        if (directory.isDirectory()) {
+            try {
+                entries.put(projectName, read(projectName, new File(directory, "state").lastModified()));
+            } catch (StorageException e) {
+                logger.warn("Error indexing project '" + projectName + "'. It will be indexed again on next listing", e);
+                entries.remove(projectName);
+            }
+        } else
+            entries.remove(projectName);
+        save();
+    }
+
+    private Entry read(String projectName, long modified) throws StorageException {
+        Entry entry = new Entry(projectName, modified);
+        try {
+            StateHeader header = FsProjectStorage.loadStateHeader(projectName, storage);
+            entry.kind = header.getProjectKind();
+            entry.owner = header.getOwner();
+            entry.version = header.getVersion();
+        } catch (BadProjectHeader e) {
+            // for old projects
+            entry.kind = "voice";
+            JsonObject root_element = new JsonParser().parse(FsProjectStorage.loadProjectString(projectName, storage)).getAsJsonObject();
+            JsonElement projectKind_element = root_element.get("projectKind");
+            if (projectKind_element != null)
+                entry.kind = projectKind_element.getAsString();
+        }
+
+        try {
+            if (FsProjectStorage.hasRasInfo(projectName, storage)) {
+                entry.wasImported = true;
+                entry.rappInfo = FsProjectStorage.loadRapp(projectName, storage).getInfo();
+            }
+            if (FsProjectStorage.hasPackagingInfo(projectName, storage)) {
+                entry.hasPackaging = true;
+                entry.rappInfo = FsPackagingStorage.loadRapp(projectName, storage).getInfo();
+            }
+        } catch (StorageEntityNotFound e) {
+            // ras or packaging directory without a rapp file yet
+        }
+        entry.hasBootstrap = FsProjectStorage.hasBootstrapInfo(projectName, storage);
+        return entry;
+    }
+
+    private void load() {
+        entries = new HashMap<String, Entry>();
+        if (!file.exists()) {
+            if (logger.isInfoEnabled())
+                logger.info("Building workspace index at " + file);
+            return;
+        }
+        try {
+            Snapshot snapshot = gson.fromJson(FileUtils.readFileToString(file, Charset.forName("UTF-8")), Snapshot.class);
+            if (snapshot != null && snapshot.format == FORMAT && snapshot.projects != null) {
+                for (Entry entry : snapshot.projects)
+                    entries.put(entry.name, entry);
+                return;
+            }
+        } catch (IOException e) {
+            logger.warn("Error loading workspace index " + file, e);
+        } catch (JsonParseException e) {
+            logger.warn("Error loading workspace index " + file, e);
+        }
+        logger.warn("Rebuilding workspace index at " + file);
+    }
+
+    private void save() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.format = FORMAT;
+        snapshot.projects = new ArrayList<Entry>(entries.values());
+        // write aside and move in place so that a crash never leaves a truncated index behind
+        File temp = new File(root, RvdConfiguration.WORKSPACE_INDEX_FILENAME + ".tmp");
+        try {
+            FileUtils.writeStringToFile(temp, gson.toJson(snapshot), "UTF-8");
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the index is rebuilt from the projects anyway, only the next startup gets slower
+            logger.warn("Error storing workspace index " + file, e);
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
+    static class Snapshot {
+        int format;
+        List<Entry> projects;
+    }
+
+    /**
+     * The indexed information of a single project.
+     */
+    public static class Entry {
+        private String name;
+        private long modified; // of the state file
+        private String kind;
+        private String owner;
+        private String version;
+        private boolean wasImported;
+        private boolean hasPackaging;
+        private boolean hasBootstrap;
+        private RappInfo rappInfo;
+
+        Entry() {
+        }
+
+        Entry(String name, long modified) {
+            this.name = name;
+            this.modified = modified;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        /**
+         * @return the project version or null for old projects without a header
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        public boolean getWasImported() {
+            return wasImported;
+        }
+
+        public boolean getHasPackaging() {
+            return hasPackaging;
+        }
+
+        public boolean getHasBootstrap() {
+            return hasBootstrap;
+        }
+
+        public RappInfo getRappInfo() {
+            return rappInfo;
+        }
+    }
+}
@@ -4,58 +4,90 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.rvd.utils.exceptions.ZipperException;
 
+/**
+ * Unpacks a zip stream into a directory as it is read, nothing is buffered in memory or in temporary files. Entries
+ * that would land outside the output directory (zip-slip) are rejected, and so are archives that unpack to more than
+ * maxSize bytes or hold more than maxEntries entries.
+ */
 public class Unzipper {
     static final Logger logger = Logger.getLogger(Unzipper.class.getName());
 
     File outputDirectory;
+    long maxSize;
+    int maxEntries;
 
     public Unzipper(File outputDirectory) {
+        this(outputDirectory, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxSize the maximum number of bytes unpacked, over all entries
+     * @param maxEntries the maximum number of files and directories in the archive
+     */
+    public Unzipper(File outputDirectory, long maxSize, int maxEntries) {
         this.outputDirectory = outputDirectory;
+        this.maxSize = maxSize;
+        this.maxEntries = maxEntries;
     }
 
-    public void unzip(InputStream zipStream) {
-        try{
-           ZipInputStream zipInputStream = new ZipInputStream(zipStream);
-
-           ZipEntry zipEntry = zipInputStream.getNextEntry();
-
-           while ( zipEntry != null ) {
-              String fileName = zipEntry.getName();
-              String pathname = outputDirectory.getPath() + File.separator + fileName;
-
-              String destinationDirPath = FilenameUtils.getFullPath(pathname);
-              File destinationDir = new File(destinationDirPath);
-
-              // create the destination directory if it does not exist (works for both file and dir entries)
-              if (!destinationDir.exists()) {
-                  if(logger.isDebugEnabled()) {
-                      logger.debug("creating new directory from zip: " + pathname);
-                  }
-                  destinationDir.mkdirs();
-              }
-
-              if (!zipEntry.isDirectory()) {
-                  if(logger.isDebugEnabled()) {
-                      logger.debug("creating new file from zip: " + pathname);
-                  }
-                  FileOutputStream fileEntryStream = new FileOutputStream(new File(pathname));
-                  IOUtils.copy(zipInputStream, fileEntryStream);
-                  fileEntryStream.close();
-              }
-
-              zipEntry = zipInputStream.getNextEntry();
-           }
-           zipInputStream.closeEntry();
-
-       } catch(IOException ex) {
-          ex.printStackTrace();
-       }
+    /**
+     * Unpacks the zip stream. The stream is read up to the end of the last entry and is not closed. On failure
+     * whatever was unpacked so far is left in the output directory for the caller to remove.
+     *
+     * @throws ZipperException if the archive is broken, too large or has entries outside the output directory
+     */
+    public void unzip(InputStream zipStream) throws ZipperException {
+        try {
+            String rootPath = outputDirectory.getCanonicalPath();
+            ZipInputStream zipInputStream = new ZipInputStream(zipStream);
+            byte[] buffer = new byte[8192];
+            long size = 0;
+            int entries = 0;
+
+            ZipEntry zipEntry = zipInputStream.getNextEntry();
+            while ( zipEntry != null ) {
+                if (++entries > maxEntries)
+                    throw new ZipperException("Archive has more than " + maxEntries + " entries");
+                File destination = new File(outputDirectory, zipEntry.getName());
+                String destinationPath = destination.getCanonicalPath();
+                if (!destinationPath.startsWith(rootPath + File.separator) && !destinationPath.equals(rootPath))
+                    throw new ZipperException("Archive entry '" + zipEntry.getName() + "' is outside of the target directory");
+
+                if (zipEntry.isDirectory()) {
+                    if(logger.isDebugEnabled()) {
+                        logger.debug("creating new directory from zip: " + destination);
+                    }
+                    destination.mkdirs();
+                } else {
+                    if(logger.isDebugEnabled()) {
+                        logger.debug("creating new file from zip: " + destination);
+                    }
+                    // create the destination directory if it does not exist, not all zips have directory entries
+                    destination.getParentFile().mkdirs();
+                    OutputStream fileEntryStream = new FileOutputStream(destination);
+                    try {
+                        int count;
+                        while ((count = zipInputStream.read(buffer)) != -1) {
+                            size += count;
+                            if (size > maxSize)
+                                throw new ZipperException("Archive unpacks to more than " + maxSize + " bytes");
+                            fileEntryStream.write(buffer, 0, count);
+                        }
+                    } finally {
+                        fileEntryStream.close();
+                    }
+                }
+                zipEntry = zipInputStream.getNextEntry();
+            }
+        } catch (IOException e) {
+            throw new ZipperException("Error unpacking archive to " + outputDirectory, e);
+        }
     }
 }
@@ -7,6 +7,7 @@ import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -18,24 +19,33 @@ public class Zipper {
     static final Logger logger = Logger.getLogger(Zipper.class.getName());
 
     ZipOutputStream zipOut;
-    File zipFile;
+    String zipName; // the file or stream written to, for error messages
 
     public Zipper(File tempFile) throws ZipperException {
-        zipFile = tempFile;
+        zipName = tempFile.getPath();
         try {
-            zipOut = new ZipOutputStream(new FileOutputStream(zipFile));
+            zipOut = new ZipOutputStream(new FileOutputStream(tempFile));
         } catch (FileNotFoundException e) {
-            throw new ZipperException("Error creating zip " + zipFile, e);
+            throw new ZipperException("Error creating zip " + zipName, e);
         }
 
     }
 
+    /**
+     * Writes the zip straight to a stream, for example an HTTP response. finish() completes the zip but does not
+     * close the stream.
+     */
+    public Zipper(OutputStream outputStream) {
+        zipName = "output stream";
+        zipOut = new ZipOutputStream(outputStream);
+    }
+
     public void addDirectory(String name) throws ZipperException {
         try {
             zipOut.putNextEntry(new ZipEntry(name));
             zipOut.closeEntry();
         } catch (IOException e) {
-            throw new ZipperException("Error adding directory " + name + " to zip " + zipFile , e);
+            throw new ZipperException("Error adding directory " + name + " to zip " + zipName , e);
         }
     }
 
@@ -45,7 +55,7 @@ public class Zipper {
             IOUtils.copy(fileStream, zipOut);
             zipOut.closeEntry();
         } catch (IOException e) {
-            throw new ZipperException("Error adding file " + filepath + " to zip " + zipFile, e);
+            throw new ZipperException("Error adding file " + filepath + " to zip " + zipName, e);
         }
 
     }
@@ -56,7 +66,7 @@ public class Zipper {
             IOUtils.write(fileContent, zipOut, "UTF-8");
             zipOut.closeEntry();
         } catch (IOException e) {
-            throw new ZipperException("Error adding string content to zip " + zipFile, e);
+            throw new ZipperException("Error adding string content to zip " + zipName, e);
         }
 
     }
@@ -134,7 +144,7 @@ public class Zipper {
         try {
             zipOut.finish();
         } catch (IOException e) {
-            logger.warn("Error closing Zipper " + zipFile + ". There is nothing more that can be done.", e);
+            logger.warn("Error closing Zipper " + zipName + ". There is nothing more that can be done.", e);
         }
     }
 }
@@ -56,4 +56,18 @@ public class WorkspaceBootstrapperTest {
         TestUtils.removeTempWorkspace(workspaceLocation);
     }
 
+    @Test
+    public void importLeftoversAreRemoved() {
+        File workspaceDir = TestUtils.createTempWorkspace();
+        String workspaceLocation = workspaceDir.getPath();
+        File leftover = new File(workspaceDir, RvdConfiguration.IMPORT_DIRECTORY_PREFIX + "0123");
+        new File(leftover, "wavs").mkdirs();
+
+        WorkspaceBootstrapper wb = new WorkspaceBootstrapper(workspaceLocation);
+        wb.run();
+        Assert.assertFalse("Unfinished import '" + leftover + "' was not removed on workspace bootstrapping.", leftover.exists());
+
+        TestUtils.removeTempWorkspace(workspaceLocation);
+    }
+
 }
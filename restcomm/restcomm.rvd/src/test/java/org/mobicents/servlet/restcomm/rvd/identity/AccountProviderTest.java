@@ -0,0 +1,141 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.identity;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.rvd.TestUtils;
+import org.mobicents.servlet.restcomm.rvd.restcomm.RestcommAccountInfoResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AccountProviderTest {
+    private static final String GOOD_HEADER = "Basic " + "administrator@company.com:secret";
+
+    private HttpServer server;
+    private AtomicInteger requests;
+    private String restcommUrl;
+
+    @BeforeClass
+    public static void init() {
+        TestUtils.initRvdConfiguration();
+    }
+
+    @Before
+    public void before() throws IOException {
+        requests = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/restcomm/2012-04-24/Accounts.json/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (GOOD_HEADER.equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                    byte[] body = "{\"sid\":\"AC123\",\"email_address\":\"administrator@company.com\",\"status\":\"active\"}".getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                } else {
+                    exchange.sendResponseHeaders(401, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        restcommUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void after() {
+        server.stop(0);
+    }
+
+    @Test
+    public void authenticatedAccountsAreCached() {
+        AccountProvider provider = new AccountProvider(restcommUrl, 30, 5);
+        RestcommAccountInfoResponse account = provider.getAccount("administrator@company.com", GOOD_HEADER);
+        Assert.assertEquals("AC123", account.getSid());
+        Assert.assertSame(account, provider.getAccount("administrator@company.com", GOOD_HEADER));
+        Assert.assertEquals(1, requests.get());
+
+        provider.invalidateAll();
+        provider.getAccount("administrator@company.com", GOOD_HEADER);
+        Assert.assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void failedAuthenticationsAreCached() {
+        AccountProvider provider = new AccountProvider(restcommUrl, 30, 5);
+        Assert.assertNull(provider.getAccount("administrator@company.com", "Basic wrong"));
+        Assert.assertNull(provider.getAccount("administrator@company.com", "Basic wrong"));
+        Assert.assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void nothingIsCachedWhenDisabled() {
+        AccountProvider provider = new AccountProvider(restcommUrl, 0, 0);
+        provider.getAccount("administrator@company.com", GOOD_HEADER);
+        provider.getAccount("administrator@company.com", GOOD_HEADER);
+        Assert.assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void concurrentLookupsAreCoalesced() throws Exception {
+        final AccountProvider provider = new AccountProvider(restcommUrl, 30, 5);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<RestcommAccountInfoResponse>> results = new ArrayList<Future<RestcommAccountInfoResponse>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<RestcommAccountInfoResponse>() {
+                    @Override
+                    public RestcommAccountInfoResponse call() throws Exception {
+                        return provider.getAccount("administrator@company.com", GOOD_HEADER);
+                    }
+                }));
+            }
+            for (Future<RestcommAccountInfoResponse> result: results)
+                Assert.assertEquals("AC123", result.get().getSid());
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, requests.get());
+    }
+}
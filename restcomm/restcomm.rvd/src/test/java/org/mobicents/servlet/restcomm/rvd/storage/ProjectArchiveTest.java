@@ -0,0 +1,172 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.rvd.TestUtils;
+import org.mobicents.servlet.restcomm.rvd.model.ModelMarshaler;
+import org.mobicents.servlet.restcomm.rvd.model.client.ProjectState;
+import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
+import org.mobicents.servlet.restcomm.rvd.utils.Unzipper;
+import org.mobicents.servlet.restcomm.rvd.utils.exceptions.ZipperException;
+
+/**
+ * Exports a project and imports it back through a pipe, the way a download is uploaded again, with no temporary files
+ * in between. The size of the project's media defaults to a few megabytes, run with -Drvd.test.archiveSize=500 (and a
+ * small -Xmx) to try a large project.
+ */
+public class ProjectArchiveTest {
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private File workspaceDir;
+    private WorkspaceStorage storage;
+
+    @Before
+    public void before() throws StorageException {
+        workspaceDir = TestUtils.createTempWorkspace();
+        storage = new WorkspaceStorage(workspaceDir.getPath(), new ModelMarshaler());
+        FsProjectStorage.createProjectSlot("AP1", storage);
+        FsProjectStorage.storeProject(true, ProjectState.createEmptyVoice("alice@company.com"), "AP1", storage);
+    }
+
+    @After
+    public void after() {
+        TestUtils.removeTempWorkspace(workspaceDir.getPath());
+    }
+
+    private void writeWav(String name, long size) throws IOException {
+        byte[] chunk = new byte[(int) MEGABYTE];
+        new Random(size).nextBytes(chunk);
+        OutputStream out = new FileOutputStream(new File(workspaceDir, "AP1/wavs/" + name));
+        try {
+            for (long written = 0; written < size; written += chunk.length)
+                out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+        } finally {
+            out.close();
+        }
+    }
+
+    private Set<String> tempFiles() {
+        Set<String> names = new HashSet<String>();
+        for (String name : new File(System.getProperty("java.io.tmpdir")).list())
+            // what archiving and importing used to leave behind there
+            if (name.startsWith("RVDprojectArchive") || name.matches("\\d+-\\d+"))
+                names.add(name);
+        return names;
+    }
+
+    @Test
+    public void projectIsExportedAndImportedAsAStream() throws Exception {
+        long size = Long.getLong("rvd.test.archiveSize", 4) * MEGABYTE;
+        writeWav("big.wav", size);
+        writeWav("small.wav", 1000);
+        Set<String> tempFilesBefore = tempFiles();
+
+        final PipedOutputStream download = new PipedOutputStream();
+        PipedInputStream upload = new PipedInputStream(download, 64 * 1024);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread exporter = new Thread() {
+            public void run() {
+                try {
+                    FsProjectStorage.archiveProject("AP1", download, storage);
+                    download.close();
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        };
+        exporter.start();
+        File importDir = FsProjectStorage.createImportDirectory(storage);
+        new Unzipper(importDir, size + MEGABYTE, 100).unzip(upload);
+        exporter.join();
+        Assert.assertNull(failure.get());
+        Assert.assertFalse("Import in progress is listed", WorkspaceIndex.get(storage).names().contains(importDir.getName()));
+
+        FsProjectStorage.importProjectFromDirectory(importDir, "AP2", false, storage);
+        Assert.assertFalse(importDir.exists());
+        Assert.assertEquals(size, new File(workspaceDir, "AP2/wavs/big.wav").length());
+        Assert.assertTrue(FileUtils.contentEquals(new File(workspaceDir, "AP1/wavs/small.wav"), new File(workspaceDir, "AP2/wavs/small.wav")));
+        Assert.assertEquals("alice@company.com", FsProjectStorage.loadStateHeader("AP2", storage).getOwner());
+        Assert.assertEquals(tempFilesBefore, tempFiles());
+    }
+
+    @Test
+    public void archivesLargerThanTheLimitAreRejected() throws Exception {
+        writeWav("big.wav", 2 * MEGABYTE);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        FsProjectStorage.archiveProject("AP1", archive, storage);
+
+        File importDir = FsProjectStorage.createImportDirectory(storage);
+        try {
+            new Unzipper(importDir, MEGABYTE, 100).unzip(new ByteArrayInputStream(archive.toByteArray()));
+            Assert.fail("Archive larger than the limit was unpacked");
+        } catch (ZipperException e) {
+            // expected
+        }
+        try {
+            new Unzipper(importDir, 10 * MEGABYTE, 2).unzip(new ByteArrayInputStream(archive.toByteArray()));
+            Assert.fail("Archive with more entries than the limit was unpacked");
+        } catch (ZipperException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void entriesOutsideTheTargetDirectoryAreRejected() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(archive);
+        zip.putNextEntry(new ZipEntry("state"));
+        zip.write("{}".getBytes("UTF-8"));
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry("../AP1/state"));
+        zip.write("overwritten".getBytes("UTF-8"));
+        zip.closeEntry();
+        zip.close();
+
+        File importDir = FsProjectStorage.createImportDirectory(storage);
+        try {
+            new Unzipper(importDir).unzip(new ByteArrayInputStream(archive.toByteArray()));
+            Assert.fail("Zip entry outside of the target directory was unpacked");
+        } catch (ZipperException e) {
+            // expected
+        }
+        Assert.assertEquals("alice@company.com", FsProjectStorage.loadStateHeader("AP1", storage).getOwner());
+    }
+}
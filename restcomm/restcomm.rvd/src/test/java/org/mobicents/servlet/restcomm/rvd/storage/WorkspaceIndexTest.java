@@ -0,0 +1,140 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2016, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+
+package org.mobicents.servlet.restcomm.rvd.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.rvd.RvdConfiguration;
+import org.mobicents.servlet.restcomm.rvd.TestUtils;
+import org.mobicents.servlet.restcomm.rvd.model.ModelMarshaler;
+import org.mobicents.servlet.restcomm.rvd.model.client.ProjectState;
+import org.mobicents.servlet.restcomm.rvd.model.packaging.Rapp;
+import org.mobicents.servlet.restcomm.rvd.model.packaging.RappConfig;
+import org.mobicents.servlet.restcomm.rvd.model.packaging.RappInfo;
+import org.mobicents.servlet.restcomm.rvd.storage.exceptions.StorageException;
+
+public class WorkspaceIndexTest {
+    private File workspaceDir;
+    private WorkspaceStorage storage;
+
+    @Before
+    public void before() throws StorageException {
+        workspaceDir = TestUtils.createTempWorkspace();
+        TestUtils.createUsersDirectory(workspaceDir.getPath());
+        storage = new WorkspaceStorage(workspaceDir.getPath(), new ModelMarshaler());
+        createProject("AP1", ProjectState.createEmptyVoice("alice@company.com"));
+        createProject("AP2", ProjectState.createEmptySms(null));
+    }
+
+    @After
+    public void after() {
+        TestUtils.removeTempWorkspace(workspaceDir.getPath());
+    }
+
+    private void createProject(String name, ProjectState state) throws StorageException {
+        FsProjectStorage.createProjectSlot(name, storage);
+        FsProjectStorage.storeProject(true, state, name, storage);
+    }
+
+    private WorkspaceIndex.Entry entry(List<WorkspaceIndex.Entry> entries, String name) {
+        for (WorkspaceIndex.Entry entry : entries)
+            if (entry.getName().equals(name))
+                return entry;
+        return null;
+    }
+
+    @Test
+    public void projectsAreIndexedAndIndexIsRebuiltWhenMissing() throws StorageException {
+        List<WorkspaceIndex.Entry> entries = new WorkspaceIndex(storage).list();
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals("voice", entry(entries, "AP1").getKind());
+        Assert.assertEquals("alice@company.com", entry(entries, "AP1").getOwner());
+        Assert.assertEquals(RvdConfiguration.getRvdProjectVersion(), entry(entries, "AP1").getVersion());
+        Assert.assertEquals("sms", entry(entries, "AP2").getKind());
+        Assert.assertNull(entry(entries, "AP2").getOwner());
+        File indexFile = new File(workspaceDir, RvdConfiguration.WORKSPACE_INDEX_FILENAME);
+        Assert.assertTrue("Index file was not created", indexFile.exists());
+
+        indexFile.delete();
+        entries = new WorkspaceIndex(storage).list();
+        Assert.assertEquals(2, entries.size());
+        Assert.assertTrue("Index file was not rebuilt", indexFile.exists());
+    }
+
+    @Test
+    public void unchangedProjectsAreNotReadAgain() throws StorageException, IOException {
+        new WorkspaceIndex(storage).list();
+        // garble the state but keep its modification time, a fresh index loaded from the file should not notice
+        File state = new File(workspaceDir, "AP1/state");
+        long modified = state.lastModified();
+        FileUtils.writeStringToFile(state, "garbage", "UTF-8");
+        state.setLastModified(modified);
+
+        List<WorkspaceIndex.Entry> entries = new WorkspaceIndex(storage).list();
+        Assert.assertEquals("alice@company.com", entry(entries, "AP1").getOwner());
+    }
+
+    @Test
+    public void indexFollowsChangesMadeThroughStorage() throws StorageException {
+        WorkspaceIndex index = WorkspaceIndex.get(storage);
+        Assert.assertEquals(2, index.list().size());
+
+        FsProjectStorage.renameProject("AP1", "AP3", storage);
+        FsProjectStorage.deleteProject("AP2", storage);
+        RappInfo info = new RappInfo();
+        info.setName("Weather");
+        FsProjectStorage.storeRapp(new Rapp(info, new RappConfig()), "AP3", storage);
+
+        // a fresh index sees the same thing as the one kept up to date
+        for (WorkspaceIndex in : Arrays.asList(index, new WorkspaceIndex(storage))) {
+            List<WorkspaceIndex.Entry> entries = in.list();
+            Assert.assertEquals(1, entries.size());
+            Assert.assertEquals("AP3", entries.get(0).getName());
+            Assert.assertTrue(entries.get(0).getWasImported());
+            Assert.assertEquals("Weather", entries.get(0).getRappInfo().getName());
+        }
+    }
+
+    @Test
+    public void indexPicksUpChangesMadeBehindItsBack() throws StorageException, IOException {
+        WorkspaceIndex index = WorkspaceIndex.get(storage);
+        index.list();
+
+        FileUtils.deleteDirectory(new File(workspaceDir, "AP2"));
+        FileUtils.copyDirectory(new File(workspaceDir, "AP1"), new File(workspaceDir, "AP4"));
+        File state = new File(workspaceDir, "AP1/state");
+        String data = FileUtils.readFileToString(state, "UTF-8").replace("alice@company.com", "bob@company.com");
+        FileUtils.writeStringToFile(state, data, "UTF-8");
+        state.setLastModified(state.lastModified() + 2000);
+
+        List<WorkspaceIndex.Entry> entries = index.list();
+        Assert.assertEquals(Arrays.asList("AP1", "AP4"), index.names());
+        Assert.assertEquals("bob@company.com", entry(entries, "AP1").getOwner());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.sms;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.SmsCampaign;
+
+/**
+ * Registers a new campaign with the campaign dispatcher. The messages follow in one or more {@link SmsCampaignBatch}.
+ */
+@Immutable
+public final class CreateSmsCampaign {
+    private final SmsCampaign campaign;
+    private final SmsSessionRequest.Encoding encoding;
+    private final ConcurrentHashMap<String, String> headers;
+
+    public CreateSmsCampaign(final SmsCampaign campaign, final SmsSessionRequest.Encoding encoding,
+            final ConcurrentHashMap<String, String> headers) {
+        super();
+        this.campaign = campaign;
+        this.encoding = encoding;
+        this.headers = headers;
+    }
+
+    public SmsCampaign campaign() {
+        return campaign;
+    }
+
+    public SmsSessionRequest.Encoding encoding() {
+        return encoding;
+    }
+
+    public ConcurrentHashMap<String, String> headers() {
+        return headers;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.sms;
+
+import java.util.List;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.entities.SmsMessage;
+
+/**
+ * A batch of already persisted messages to be dispatched for a campaign. The last batch of a campaign is flagged so the
+ * dispatcher knows when the campaign is complete.
+ */
+@Immutable
+public final class SmsCampaignBatch {
+    private final Sid campaign;
+    private final List<SmsMessage> messages;
+    private final boolean last;
+
+    public SmsCampaignBatch(final Sid campaign, final List<SmsMessage> messages, final boolean last) {
+        super();
+        this.campaign = campaign;
+        this.messages = messages;
+        this.last = last;
+    }
+
+    public Sid campaign() {
+        return campaign;
+    }
+
+    public List<SmsMessage> messages() {
+        return messages;
+    }
+
+    public boolean last() {
+        return last;
+    }
+}
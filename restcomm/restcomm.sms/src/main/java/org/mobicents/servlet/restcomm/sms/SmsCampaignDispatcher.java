@@ -0,0 +1,583 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.sms;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.dao.SmsCampaignsDao;
+import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
+import org.mobicents.servlet.restcomm.entities.InstanceId;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.entities.SmsCampaign;
+import org.mobicents.servlet.restcomm.entities.SmsMessage;
+import org.mobicents.servlet.restcomm.patterns.Observe;
+import org.mobicents.servlet.restcomm.sms.smpp.SmppClientOpsThread;
+import org.mobicents.servlet.restcomm.util.TokenBucket;
+
+import scala.concurrent.duration.Duration;
+import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import akka.actor.Terminated;
+import akka.actor.UntypedActor;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+
+/**
+ * Dispatches the messages of bulk sms campaigns.
+ *
+ * The messages of a campaign are already stored (status queued) when they reach the dispatcher. They are sent through
+ * a small pool of long lived {@link SmsSession}s, each session carries one message at a time, instead of creating a
+ * session and an observer per message. Dispatch is rate limited by two token buckets, one per account and one per
+ * outbound route (the SMPP bind or the SIP sms aggregator), and accounts are served round robin so a large campaign
+ * does not starve the others.
+ *
+ * Campaign progress is kept in memory by the node that accepted the campaign, completed campaigns are forgotten after
+ * the configured retention. The campaign and message records are the durable state of a campaign. The outcome of the
+ * messages is written in JDBC batches, on every tick or as soon as a batch is full, rather than one update per
+ * message, and the campaign record is updated once, when the campaign is completed or canceled. Once told the
+ * {@link InstanceId} of this node the dispatcher resumes the unfinished campaigns it accepted before a restart, the
+ * messages still queued are sent again, the custom headers of those campaigns are not kept.
+ *
+ * Sessions are watched, a message in flight on a session that stops is failed right away.
+ */
+public final class SmsCampaignDispatcher extends UntypedActor {
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int DEFAULT_SESSIONS = 8;
+    private static final double DEFAULT_ACCOUNT_RATE = 10;
+    private static final double DEFAULT_ROUTE_RATE = 50;
+    private static final int DEFAULT_RESPONSE_TIMEOUT = 30;
+    private static final int DEFAULT_RETENTION = 86400;
+    private static final long TICK = 100;
+
+    private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+
+    private final ActorRef service;
+    private final SmsMessagesDao dao;
+    private final SmsCampaignsDao campaignsDao;
+    private final boolean smppActivated;
+    private final int sessions;
+    private final int batchSize;
+    private final double accountRate;
+    private final long responseTimeout;
+    private final long retention;
+    private final Route smpp;
+    private final Route sip;
+
+    private final Deque<ActorRef> idle;
+    private final Map<ActorRef, InFlight> busy;
+    private final Map<Sid, Campaign> campaigns;
+    private final Map<Sid, Account> accounts;
+    private final Deque<Account> ready;
+    private List<SmsMessage> updates;
+    private Cancellable ticker;
+
+    /**
+     * @param configuration the restcomm configuration, the dispatcher reads the &lt;sms-campaigns&gt; section
+     * @param service the sms service used to create the sessions
+     * @param dao the sms messages dao used to record the outcome of each message
+     * @param campaignsDao the sms campaigns dao used to record the end of each campaign and to resume them
+     */
+    public SmsCampaignDispatcher(final Configuration configuration, final ActorRef service, final SmsMessagesDao dao,
+            final SmsCampaignsDao campaignsDao) {
+        super();
+        final Configuration campaigns = configuration.subset("sms-campaigns");
+        this.service = service;
+        this.dao = dao;
+        this.campaignsDao = campaignsDao;
+        this.smppActivated = Boolean.parseBoolean(configuration.subset("smpp").getString("[@activateSmppConnection]",
+                "false"));
+        this.sessions = campaigns.getInt("session-pool-size", DEFAULT_SESSIONS);
+        this.batchSize = Math.max(1, campaigns.getInt("batch-size", DEFAULT_BATCH_SIZE));
+        this.accountRate = campaigns.getDouble("account-rate", DEFAULT_ACCOUNT_RATE);
+        this.responseTimeout = TimeUnit.SECONDS.toNanos(campaigns.getInt("response-timeout", DEFAULT_RESPONSE_TIMEOUT));
+        this.retention = TimeUnit.SECONDS.toMillis(campaigns.getInt("retention", DEFAULT_RETENTION));
+        // SMPP submissions are not reported back to the sms session, a message is done once handed to the bind.
+        this.smpp = new Route(campaigns.getDouble("smpp-rate", DEFAULT_ROUTE_RATE), false);
+        this.sip = new Route(campaigns.getDouble("sip-rate", DEFAULT_ROUTE_RATE), true);
+        this.idle = new ArrayDeque<ActorRef>();
+        this.busy = new HashMap<ActorRef, InFlight>();
+        this.campaigns = new LinkedHashMap<Sid, Campaign>();
+        this.accounts = new HashMap<Sid, Account>();
+        this.ready = new ArrayDeque<Account>();
+        this.updates = new ArrayList<SmsMessage>();
+    }
+
+    @Override
+    public void preStart() {
+        for (int i = 0; i < sessions; i++) {
+            service.tell(new CreateSmsSession(), self());
+        }
+        ticker = getContext().system().scheduler().schedule(Duration.create(TICK, TimeUnit.MILLISECONDS),
+                Duration.create(TICK, TimeUnit.MILLISECONDS), self(), Tick.INSTANCE, getContext().dispatcher());
+    }
+
+    @Override
+    public void postStop() {
+        if (ticker != null) {
+            ticker.cancel();
+        }
+        flush();
+        record();
+        for (final ActorRef session : idle) {
+            service.tell(new DestroySmsSession(session), null);
+        }
+        for (final ActorRef session : busy.keySet()) {
+            service.tell(new DestroySmsSession(session), null);
+        }
+        super.postStop();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        final Class<?> klass = message.getClass();
+        final ActorRef self = self();
+        final ActorRef sender = sender();
+        if (Tick.class.equals(klass)) {
+            expire();
+            dispatch();
+            flush();
+            record();
+        } else if (SmsCampaignBatch.class.equals(klass)) {
+            enqueue((SmsCampaignBatch) message);
+            dispatch();
+        } else if (SmsSessionResponse.class.equals(klass)) {
+            onResponse(sender, (SmsSessionResponse) message);
+            dispatch();
+        } else if (SmsServiceResponse.class.equals(klass)) {
+            final SmsServiceResponse<ActorRef> response = (SmsServiceResponse<ActorRef>) message;
+            if (response.succeeded()) {
+                final ActorRef session = response.get();
+                session.tell(new Observe(self), self);
+                getContext().watch(session);
+                idle.addLast(session);
+            } else {
+                logger.error(response.cause(), "Could not create an sms session for the campaign dispatcher");
+            }
+        } else if (Terminated.class.equals(klass)) {
+            onTerminated(((Terminated) message).getActor());
+            dispatch();
+        } else if (InstanceId.class.equals(klass)) {
+            resume(((InstanceId) message).getId().toString());
+            dispatch();
+        } else if (CreateSmsCampaign.class.equals(klass)) {
+            final CreateSmsCampaign request = (CreateSmsCampaign) message;
+            final SmsCampaign campaign = request.campaign();
+            campaigns.put(campaign.getSid(), new Campaign(campaign, request.encoding(), request.headers()));
+        } else if (GetSmsCampaign.class.equals(klass)) {
+            final Campaign campaign = campaigns.get(((GetSmsCampaign) message).sid());
+            if (campaign != null) {
+                sender.tell(new SmsServiceResponse<SmsCampaign>(campaign.snapshot()), self);
+            } else {
+                sender.tell(new SmsServiceResponse<SmsCampaign>(new IllegalArgumentException("Unknown campaign")), self);
+            }
+        } else if (GetSmsCampaigns.class.equals(klass)) {
+            final Sid accountSid = ((GetSmsCampaigns) message).accountSid();
+            final List<SmsCampaign> result = new ArrayList<SmsCampaign>();
+            for (final Campaign campaign : campaigns.values()) {
+                if (campaign.accountSid.equals(accountSid)) {
+                    result.add(campaign.snapshot());
+                }
+            }
+            sender.tell(new SmsServiceResponse<List<SmsCampaign>>(result), self);
+        } else if (CancelSmsCampaign.class.equals(klass)) {
+            final Campaign campaign = campaigns.get(((CancelSmsCampaign) message).sid());
+            if (campaign != null) {
+                cancel(campaign);
+                sender.tell(new SmsServiceResponse<SmsCampaign>(campaign.snapshot()), self);
+            } else {
+                sender.tell(new SmsServiceResponse<SmsCampaign>(new IllegalArgumentException("Unknown campaign")), self);
+            }
+        }
+    }
+
+    private void enqueue(final SmsCampaignBatch batch) {
+        final Campaign campaign = campaigns.get(batch.campaign());
+        if (campaign == null) {
+            logger.warning("Dropping a batch of " + batch.messages().size() + " messages for unknown campaign "
+                    + batch.campaign());
+            return;
+        }
+        for (final SmsMessage record : batch.messages()) {
+            campaign.total++;
+            if (SmsMessage.Status.FAILED == record.getStatus()) {
+                // Rejected by the endpoint (invalid recipient), already stored as failed.
+                campaign.failed++;
+            } else if (campaign.canceled) {
+                finish(campaign, record, false);
+            } else {
+                campaign.pending.addLast(record);
+                campaign.queued++;
+            }
+        }
+        campaign.complete = batch.last();
+        campaign.touch();
+        schedule(campaign);
+    }
+
+    private void resume(final String instanceId) {
+        final List<SmsCampaign> unfinished;
+        try {
+            unfinished = campaignsDao.getUnfinishedSmsCampaigns(instanceId);
+        } catch (final RuntimeException exception) {
+            logger.error(exception, "Could not read the unfinished sms campaigns of instance " + instanceId);
+            return;
+        }
+        for (final SmsCampaign record : unfinished) {
+            if (campaigns.containsKey(record.getSid())) {
+                continue;
+            }
+            final Campaign campaign = new Campaign(record, SmsSessionRequest.Encoding.valueOf(record.getEncoding()),
+                    new ConcurrentHashMap<String, String>());
+            for (final SmsMessage message : dao.getSmsCampaignMessages(record.getSid())) {
+                campaign.total++;
+                switch (message.getStatus()) {
+                    case QUEUED:
+                        campaign.pending.addLast(message);
+                        campaign.queued++;
+                        break;
+                    case SENDING:
+                        // Handed to the route before the restart but never confirmed, it is not sent twice.
+                        campaign.sending++;
+                        break;
+                    case SENT:
+                        campaign.sent++;
+                        break;
+                    default:
+                        campaign.failed++;
+                        break;
+                }
+            }
+            campaign.complete = true;
+            campaigns.put(campaign.sid, campaign);
+            schedule(campaign);
+            logger.info("Resuming sms campaign " + campaign.sid + " with " + campaign.queued + " queued messages");
+        }
+    }
+
+    private void schedule(final Campaign campaign) {
+        Account account = accounts.get(campaign.accountSid);
+        if (account == null) {
+            account = new Account(accountRate);
+            accounts.put(campaign.accountSid, account);
+        }
+        if (!campaign.pending.isEmpty() && !account.campaigns.contains(campaign)) {
+            account.campaigns.addLast(campaign);
+        }
+        if (!account.scheduled && !account.campaigns.isEmpty()) {
+            account.scheduled = true;
+            ready.addLast(account);
+        }
+    }
+
+    private void dispatch() {
+        final long now = System.nanoTime();
+        final Route route = route();
+        int throttled = 0;
+        while (!idle.isEmpty() && !ready.isEmpty() && throttled < ready.size()) {
+            final Account account = ready.pollFirst();
+            final Campaign campaign = account.next();
+            if (campaign == null) {
+                // Nothing left for this account, it re-enters the rotation with its next batch.
+                account.scheduled = false;
+                continue;
+            }
+            if (!account.bucket.tryAcquire(now)) {
+                ready.addLast(account);
+                throttled++;
+                continue;
+            }
+            if (!route.bucket.tryAcquire(now)) {
+                account.bucket.release();
+                ready.addFirst(account);
+                break;
+            }
+            send(campaign, campaign.pending.pollFirst(), route, now);
+            ready.addLast(account);
+            throttled = 0;
+        }
+    }
+
+    private void send(final Campaign campaign, final SmsMessage record, final Route route, final long now) {
+        final ActorRef self = self();
+        final ActorRef session = idle.pollFirst();
+        campaign.queued--;
+        session.tell(new SmsSessionAttribute("record", record), self);
+        session.tell(new SmsSessionRequest(record.getSender(), record.getRecipient(), record.getBody(),
+                campaign.encoding, campaign.headers), self);
+        if (route.confirmed) {
+            campaign.inFlight++;
+            campaign.sending++;
+            busy.put(session, new InFlight(campaign, record, now + responseTimeout));
+        } else {
+            finish(campaign, record, true);
+            idle.addLast(session);
+        }
+    }
+
+    private void onTerminated(final ActorRef session) {
+        final InFlight inFlight = busy.remove(session);
+        if (inFlight != null) {
+            inFlight.campaign.inFlight--;
+            inFlight.campaign.sending--;
+            finish(inFlight.campaign, inFlight.record, false);
+        } else if (!idle.remove(session)) {
+            return;
+        }
+        service.tell(new CreateSmsSession(), self());
+    }
+
+    private void onResponse(final ActorRef session, final SmsSessionResponse response) {
+        final InFlight inFlight = busy.remove(session);
+        if (inFlight == null) {
+            return;
+        }
+        inFlight.campaign.inFlight--;
+        inFlight.campaign.sending--;
+        finish(inFlight.campaign, inFlight.record, response.succeeded());
+        idle.addLast(session);
+    }
+
+    private void finish(final Campaign campaign, SmsMessage record, final boolean succeeded) {
+        if (succeeded) {
+            record = record.setDateSent(DateTime.now());
+            record = record.setStatus(SmsMessage.Status.SENT);
+            campaign.sent++;
+        } else {
+            record = record.setStatus(SmsMessage.Status.FAILED);
+            campaign.failed++;
+        }
+        update(record);
+        campaign.touch();
+    }
+
+    private void update(final SmsMessage record) {
+        updates.add(record);
+        if (updates.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (updates.isEmpty()) {
+            return;
+        }
+        final List<SmsMessage> batch = updates;
+        updates = new ArrayList<SmsMessage>();
+        try {
+            dao.updateSmsMessages(batch);
+        } catch (final RuntimeException exception) {
+            // The campaign progress is still right, only the message records are left behind.
+            logger.error(exception, "Could not record the outcome of " + batch.size() + " campaign messages");
+        }
+    }
+
+    // Called after flush so a campaign is never recorded as finished ahead of its messages.
+    private void record() {
+        for (final Campaign campaign : campaigns.values()) {
+            if (campaign.done() && !campaign.recorded) {
+                // Not retried, a campaign left unfinished is resumed and recorded again after a restart.
+                campaign.recorded = true;
+                try {
+                    campaignsDao.updateSmsCampaign(campaign.snapshot());
+                } catch (final RuntimeException exception) {
+                    logger.error(exception, "Could not record the end of sms campaign " + campaign.sid);
+                }
+            }
+        }
+    }
+
+    private void expire() {
+        final long now = System.nanoTime();
+        final Iterator<Map.Entry<ActorRef, InFlight>> entries = busy.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<ActorRef, InFlight> entry = entries.next();
+            final InFlight inFlight = entry.getValue();
+            if (now - inFlight.deadline > 0) {
+                entries.remove();
+                // The message was handed to the route but never confirmed. It stays "sending" and the session is
+                // replaced so a late response can not be mistaken for the next message.
+                inFlight.campaign.inFlight--;
+                update(inFlight.record.setStatus(SmsMessage.Status.SENDING));
+                inFlight.campaign.touch();
+                getContext().unwatch(entry.getKey());
+                service.tell(new DestroySmsSession(entry.getKey()), null);
+                service.tell(new CreateSmsSession(), self());
+            }
+        }
+        final long horizon = System.currentTimeMillis() - retention;
+        final Iterator<Campaign> iterator = campaigns.values().iterator();
+        while (iterator.hasNext()) {
+            final Campaign campaign = iterator.next();
+            if (campaign.done() && campaign.dateUpdated.getMillis() < horizon) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void cancel(final Campaign campaign) {
+        campaign.canceled = true;
+        SmsMessage record = campaign.pending.pollFirst();
+        while (record != null) {
+            campaign.queued--;
+            finish(campaign, record, false);
+            record = campaign.pending.pollFirst();
+        }
+    }
+
+    private Route route() {
+        if (smppActivated && SmppClientOpsThread.getSmppSession() != null
+                && SmppClientOpsThread.getSmppSession().isBound()) {
+            return smpp;
+        }
+        return sip;
+    }
+
+    private static final class Campaign {
+        private final Sid sid;
+        private final Sid accountSid;
+        private final DateTime dateCreated;
+        private final String sender;
+        private final String body;
+        private final String apiVersion;
+        private final URI uri;
+        private final String instanceId;
+        private final SmsSessionRequest.Encoding encoding;
+        private final ConcurrentHashMap<String, String> headers;
+        private final Deque<SmsMessage> pending;
+        private DateTime dateUpdated;
+        private int total;
+        private int queued;
+        private int inFlight;
+        private int sending;
+        private int sent;
+        private int failed;
+        private boolean complete;
+        private boolean canceled;
+        private boolean recorded;
+
+        private Campaign(final SmsCampaign campaign, final SmsSessionRequest.Encoding encoding,
+                final ConcurrentHashMap<String, String> headers) {
+            super();
+            this.sid = campaign.getSid();
+            this.accountSid = campaign.getAccountSid();
+            this.dateCreated = campaign.getDateCreated();
+            this.dateUpdated = campaign.getDateUpdated();
+            this.sender = campaign.getSender();
+            this.body = campaign.getBody();
+            this.apiVersion = campaign.getApiVersion();
+            this.uri = campaign.getUri();
+            this.instanceId = campaign.getInstanceId();
+            this.encoding = encoding;
+            this.headers = headers;
+            this.pending = new ArrayDeque<SmsMessage>();
+        }
+
+        private void touch() {
+            dateUpdated = DateTime.now();
+        }
+
+        private boolean done() {
+            return canceled || (complete && queued == 0 && inFlight == 0);
+        }
+
+        private SmsCampaign snapshot() {
+            final SmsCampaign.Status status;
+            if (canceled) {
+                status = SmsCampaign.Status.CANCELED;
+            } else if (done()) {
+                status = SmsCampaign.Status.COMPLETED;
+            } else if (sending + sent + failed > 0) {
+                status = SmsCampaign.Status.SENDING;
+            } else {
+                status = SmsCampaign.Status.QUEUED;
+            }
+            return new SmsCampaign(sid, dateCreated, dateUpdated, accountSid, sender, body, status, total, queued,
+                    sending, sent, failed, apiVersion, uri, encoding.name(), instanceId);
+        }
+    }
+
+    private static final class Account {
+        private final TokenBucket bucket;
+        private final Deque<Campaign> campaigns;
+        private boolean scheduled;
+
+        private Account(final double rate) {
+            super();
+            this.bucket = bucket(rate);
+            this.campaigns = new ArrayDeque<Campaign>();
+        }
+
+        // The oldest campaign with queued messages, campaigns of the same account are sent in order.
+        private Campaign next() {
+            Campaign campaign = campaigns.peekFirst();
+            while (campaign != null && campaign.pending.isEmpty()) {
+                campaigns.pollFirst();
+                campaign = campaigns.peekFirst();
+            }
+            return campaign;
+        }
+    }
+
+    private static final class Route {
+        private final TokenBucket bucket;
+        private final boolean confirmed;
+
+        private Route(final double rate, final boolean confirmed) {
+            super();
+            this.bucket = bucket(rate);
+            this.confirmed = confirmed;
+        }
+    }
+
+    private static final class InFlight {
+        private final Campaign campaign;
+        private final SmsMessage record;
+        private final long deadline;
+
+        private InFlight(final Campaign campaign, final SmsMessage record, final long deadline) {
+            super();
+            this.campaign = campaign;
+            this.record = record;
+            this.deadline = deadline;
+        }
+    }
+
+    // Up to rate messages per second with bursts of one second worth of messages.
+    private static TokenBucket bucket(final double rate) {
+        return new TokenBucket(rate, Math.max(1, rate), System.nanoTime());
+    }
+
+    private static final class Tick {
+        private static final Tick INSTANCE = new Tick();
+    }
+}
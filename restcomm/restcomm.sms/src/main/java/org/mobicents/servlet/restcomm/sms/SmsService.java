@@ -56,9 +56,11 @@ import org.mobicents.servlet.restcomm.entities.SmsMessage.Direction;
 import org.mobicents.servlet.restcomm.entities.SmsMessage.Status;
 import org.mobicents.servlet.restcomm.interpreter.SmsInterpreterBuilder;
 import org.mobicents.servlet.restcomm.interpreter.StartInterpreter;
+import org.mobicents.servlet.restcomm.startup.ProjectMigration;
 import org.mobicents.servlet.restcomm.telephony.TextMessage;
 import org.mobicents.servlet.restcomm.telephony.util.B2BUAHelper;
 import org.mobicents.servlet.restcomm.telephony.util.CallControlHelper;
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
 import org.mobicents.servlet.restcomm.util.UriUtils;
 
 import akka.actor.ActorRef;
@@ -70,8 +72,9 @@ import akka.actor.UntypedActorFactory;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
-import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
+import com.telestax.servlet.ExtensionController;
+import com.telestax.servlet.ExtensionResponse;
+import com.telestax.servlet.ExtensionType;
 import com.telestax.servlet.MonitoringService;
 
 /**
@@ -92,6 +95,7 @@ public final class SmsService extends UntypedActor {
     static final int WARNING_NOTIFICATION = 1;
 
     private final ActorRef monitoringService;
+    private final ExtensionController extensions;
 
     // configurable switch whether to use the To field in a SIP header to determine the callee address
     // alternatively the Request URI can be used
@@ -112,6 +116,7 @@ public final class SmsService extends UntypedActor {
         this.storage = storage;
         this.servletContext = servletContext;
         monitoringService = (ActorRef) servletContext.getAttribute(MonitoringService.class.getName());
+        extensions = ExtensionController.getInstance();
         // final Configuration runtime = configuration.subset("runtime-settings");
         // TODO this.useTo = runtime.getBoolean("use-to");
         patchForNatB2BUASessions = runtime.getBoolean("patch-for-nat-b2bua-sessions", true);
@@ -130,6 +135,13 @@ public final class SmsService extends UntypedActor {
             return;
         }
 
+        // Admission control runs before any database access so a flood of messages is turned away cheaply
+        final ExtensionResponse refusal = extensions.executePreInboundAction(request, ExtensionType.SmsSession);
+        if (refusal != null) {
+            extensions.reject(request, refusal);
+            return;
+        }
+
         final SipURI fromURI = (SipURI) request.getFrom().getURI();
         final String fromUser = fromURI.getUser();
         final ClientsDao clients = storage.getClientsDao();
@@ -235,6 +247,13 @@ public final class SmsService extends UntypedActor {
         }}
 
 
+    // A number or client still pointing to an RVD project the workspace migration did not get to yet has it migrated
+    // before the project is used
+    private boolean migrated(final URI url) {
+        final ProjectMigration migration = (ProjectMigration) servletContext.getAttribute(ProjectMigration.class.getName());
+        return url != null && migration != null && migration.migrate(url);
+    }
+
     /**
      *
      * Try to locate a hosted sms app corresponding to the callee/To address. If one is found, begin execution, otherwise return
@@ -255,17 +274,16 @@ public final class SmsService extends UntypedActor {
         final SipURI uri = (SipURI) request.getRequestURI();
         final String to = uri.getUser();
         // Format the destination to an E.164 phone number.
-        final PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
-        String phone = to;
-        try {
-            phone = phoneNumberUtil.format(phoneNumberUtil.parse(to, "US"), PhoneNumberFormat.E164);
-        } catch (Exception e) {}
+        final String phone = PhoneNumberNormalizer.getInstance().normalize(to);
         // Try to find an application defined for the phone number.
         final IncomingPhoneNumbersDao numbers = storage.getIncomingPhoneNumbersDao();
         IncomingPhoneNumber number = numbers.getIncomingPhoneNumber(phone);
         if (number == null) {
             number = numbers.getIncomingPhoneNumber(to);
         }
+        if (number != null && number.getSmsApplicationSid() == null && migrated(number.getSmsUrl())) {
+            number = numbers.getIncomingPhoneNumber(number.getSid());
+        }
         try {
             if (number != null) {
                 URI appUri = number.getSmsUrl();
@@ -33,6 +33,7 @@ import javax.servlet.sip.SipServletResponse;
 import org.apache.commons.configuration.Configuration;
 import org.apache.log4j.Logger;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.entities.InstanceId;
 
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
@@ -52,6 +53,7 @@ public final class SmsServiceProxy extends SipServlet implements SipServletListe
 
     private ActorSystem system;
     private ActorRef service;
+    private ActorRef campaignDispatcher;
     private ActorRef smppService;
     private ActorRef smppMessageHandler;
     private ServletContext context;
@@ -82,6 +84,18 @@ public final class SmsServiceProxy extends SipServlet implements SipServletListe
         }));
     }
 
+    private ActorRef campaignDispatcher(final Configuration configuration, final DaoManager storage) {
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new SmsCampaignDispatcher(configuration, service, storage.getSmsMessagesDao(),
+                        storage.getSmsCampaignsDao());
+            }
+        }));
+    }
+
     private ActorRef smppService(final Configuration configuration, final SipFactory factory, final DaoManager storage,
                                  final ServletContext context, final ActorRef smppMessageHandler) {
         return system.actorOf(new Props(new UntypedActorFactory() {
@@ -115,6 +129,12 @@ public final class SmsServiceProxy extends SipServlet implements SipServletListe
             system = (ActorSystem) context.getAttribute(ActorSystem.class.getName());
             service = service(configuration, factory, storage);
             context.setAttribute(SmsService.class.getName(), service);
+            campaignDispatcher = campaignDispatcher(configuration, storage);
+            context.setAttribute(SmsCampaignDispatcher.class.getName(), campaignDispatcher);
+            final InstanceId instanceId = (InstanceId) context.getAttribute(InstanceId.class.getName());
+            if (instanceId != null) {
+                campaignDispatcher.tell(instanceId, null);
+            }
             if (configuration.subset("smpp").getString("[@activateSmppConnection]", "false").equalsIgnoreCase("true")) {
                 if(logger.isInfoEnabled()) {
                     logger.info("Will initialize SMPP");
@@ -61,10 +61,6 @@ import akka.actor.UntypedActor;
 import akka.actor.UntypedActorContext;
 import akka.actor.UntypedActorFactory;
 
-import com.google.i18n.phonenumbers.NumberParseException;
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
-import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
-import com.google.i18n.phonenumbers.Phonenumber.PhoneNumber;
 import org.mobicents.servlet.restcomm.sms.CreateSmsSession;
 import org.mobicents.servlet.restcomm.sms.DestroySmsSession;
 import org.mobicents.servlet.restcomm.sms.GetLastSmsRequest;
@@ -73,6 +69,7 @@ import org.mobicents.servlet.restcomm.sms.SmsSessionAttribute;
 import org.mobicents.servlet.restcomm.sms.SmsSessionInfo;
 import org.mobicents.servlet.restcomm.sms.SmsSessionRequest;
 import org.mobicents.servlet.restcomm.sms.SmsSessionResponse;
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
 
 public class SmppInterpreter extends UntypedActor  {
 
@@ -231,13 +228,7 @@ public class SmppInterpreter extends UntypedActor  {
 
     protected String format(final String number) {
         if(normalizeNumber) {
-            final PhoneNumberUtil numbersUtil = PhoneNumberUtil.getInstance();
-            try {
-                final PhoneNumber result = numbersUtil.parse(number, "US");
-                return numbersUtil.format(result, PhoneNumberFormat.E164);
-            } catch (final NumberParseException ignored) {
-                return null;
-            }
+            return PhoneNumberNormalizer.getInstance().toE164(number);
         } else {
             return number;
         }
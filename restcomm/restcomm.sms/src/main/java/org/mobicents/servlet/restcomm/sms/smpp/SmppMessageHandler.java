@@ -9,6 +9,7 @@ import akka.actor.UntypedActorFactory;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import com.cloudhopper.commons.charset.CharsetUtil;
+import com.cloudhopper.smpp.SmppSession;
 import com.cloudhopper.smpp.pdu.SubmitSm;
 import com.cloudhopper.smpp.type.Address;
 import com.cloudhopper.smpp.type.RecoverablePduException;
@@ -16,7 +17,6 @@ import com.cloudhopper.smpp.type.SmppChannelException;
 import com.cloudhopper.smpp.type.SmppInvalidArgumentException;
 import com.cloudhopper.smpp.type.SmppTimeoutException;
 import com.cloudhopper.smpp.type.UnrecoverablePduException;
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import com.telestax.servlet.MonitoringService;
 import org.apache.commons.configuration.Configuration;
 import org.mobicents.servlet.restcomm.dao.AccountsDao;
@@ -27,10 +27,15 @@ import org.mobicents.servlet.restcomm.entities.Application;
 import org.mobicents.servlet.restcomm.entities.IncomingPhoneNumber;
 import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.interpreter.StartInterpreter;
+import org.mobicents.servlet.restcomm.metrics.Counter;
+import org.mobicents.servlet.restcomm.metrics.Gauge;
+import org.mobicents.servlet.restcomm.metrics.LatencyHistogram;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
 import org.mobicents.servlet.restcomm.sms.CreateSmsSession;
 import org.mobicents.servlet.restcomm.sms.DestroySmsSession;
 import org.mobicents.servlet.restcomm.sms.SmsServiceResponse;
 import org.mobicents.servlet.restcomm.sms.SmsSession;
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
 import org.mobicents.servlet.restcomm.util.UriUtils;
 
 import javax.servlet.ServletContext;
@@ -42,6 +47,22 @@ import java.net.URI;
 import java.util.List;
 
 public class SmppMessageHandler extends UntypedActor  {
+    private static final LatencyHistogram submits = MetricsRegistry.getInstance().histogram("restcomm_smpp_submit_seconds",
+            "Time between sending a submit_sm and receiving its response.");
+    private static final Counter submitFailures = MetricsRegistry.getInstance().counter("restcomm_smpp_submit_errors_total",
+            "submit_sm requests that failed or timed out.");
+
+    static {
+        MetricsRegistry.getInstance().gauge("restcomm_smpp_window_used", "Requests waiting for a response in the SMPP send window.",
+                new Gauge() {
+                    @Override
+                    public long value() {
+                        final SmppSession session = SmppClientOpsThread.getSmppSession();
+                        return session == null ? 0 : session.getSendWindow().getSize();
+                    }
+                });
+    }
+
 
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
     private final ActorSystem system = getContext().system();
@@ -107,13 +128,7 @@ public class SmppMessageHandler extends UntypedActor  {
         boolean isFoundHostedApp = false;
 
         String to = request.getSmppTo();
-        String phone = to;
-
-        final PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
-
-        try {
-            phone = phoneNumberUtil.format(phoneNumberUtil.parse(to, "US"), PhoneNumberUtil.PhoneNumberFormat.E164);
-        } catch (Exception e) {}
+        final String phone = PhoneNumberNormalizer.getInstance().normalize(to);
         // Try to find an application defined for the phone number.
         final IncomingPhoneNumbersDao numbers = storage.getIncomingPhoneNumbersDao();
         IncomingPhoneNumber number = numbers.getIncomingPhoneNumber(phone);
@@ -216,10 +231,13 @@ public class SmppMessageHandler extends UntypedActor  {
             if(logger.isInfoEnabled()) {
                 logger.info("To : " + request.getSmppTo() + " From : " + request.getSmppFrom() );
             }
+            final long start = System.nanoTime();
             SmppClientOpsThread.getSmppSession().submit(submit0, 10000); //send message through SMPP connector
+            submits.recordSince(start);
         } catch (RecoverablePduException | UnrecoverablePduException
                 | SmppTimeoutException | SmppChannelException
                 | InterruptedException e) {
+            submitFailures.increment();
             // TODO Auto-generated catch block
             logger.error("SMPP message cannot be sent : " + e );
         }
@@ -0,0 +1,323 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.sms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.SmsCampaignsDao;
+import org.mobicents.servlet.restcomm.dao.SmsMessagesDao;
+import org.mobicents.servlet.restcomm.entities.InstanceId;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.entities.SmsCampaign;
+import org.mobicents.servlet.restcomm.entities.SmsMessage;
+import org.mobicents.servlet.restcomm.patterns.Observe;
+import org.mockito.ArgumentCaptor;
+
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.testkit.JavaTestKit;
+
+public final class SmsCampaignDispatcherTest {
+    // Recipients in the order their messages reached a session.
+    private static final List<String> sent = new CopyOnWriteArrayList<String>();
+    // The session that gets this recipient stops without answering.
+    private static volatile String stopsOn;
+
+    private ActorSystem system;
+    private SmsMessagesDao dao;
+    private SmsCampaignsDao campaignsDao;
+
+    @Before
+    public void before() {
+        system = ActorSystem.create();
+        dao = mock(SmsMessagesDao.class);
+        campaignsDao = mock(SmsCampaignsDao.class);
+        sent.clear();
+        stopsOn = null;
+    }
+
+    @After
+    public void after() {
+        system.shutdown();
+        system.awaitTermination();
+    }
+
+    private ActorRef dispatcher(final double accountRate, final double sipRate) {
+        final Configuration configuration = new BaseConfiguration();
+        configuration.setProperty("sms-campaigns.session-pool-size", "4");
+        configuration.setProperty("sms-campaigns.batch-size", "100");
+        configuration.setProperty("sms-campaigns.account-rate", String.valueOf(accountRate));
+        configuration.setProperty("sms-campaigns.sip-rate", String.valueOf(sipRate));
+        final ActorRef service = system.actorOf(new Props(Service.class));
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new SmsCampaignDispatcher(configuration, service, dao, campaignsDao);
+            }
+        }));
+    }
+
+    private static SmsCampaign record(final Sid sid, final Sid account, final String instanceId) {
+        final DateTime now = DateTime.now();
+        return new SmsCampaign(sid, now, now, account, "+15550000000", "Hello", SmsCampaign.Status.QUEUED, 0, 0, 0, 0,
+                0, "2012-04-24", URI.create("/Campaigns/" + sid), "GSM", instanceId);
+    }
+
+    private static SmsMessage message(final Sid account, final String recipient, final SmsMessage.Status status) {
+        final SmsMessage.Builder builder = SmsMessage.builder();
+        builder.setSid(Sid.generate(Sid.Type.SMS_MESSAGE));
+        builder.setAccountSid(account);
+        builder.setSender("+15550000000");
+        builder.setRecipient(recipient);
+        builder.setBody("Hello");
+        builder.setStatus(status);
+        builder.setDirection(SmsMessage.Direction.OUTBOUND_API);
+        return builder.build();
+    }
+
+    private static Sid campaign(final ActorRef dispatcher, final Sid account, final int recipients) {
+        final Sid sid = Sid.generate(Sid.Type.SMS_CAMPAIGN);
+        dispatcher.tell(new CreateSmsCampaign(record(sid, account, null), SmsSessionRequest.Encoding.GSM,
+                new ConcurrentHashMap<String, String>()), null);
+        final List<SmsMessage> messages = new ArrayList<SmsMessage>();
+        for (int i = 0; i < recipients; i++) {
+            messages.add(message(account, account + "-" + i, SmsMessage.Status.QUEUED));
+        }
+        dispatcher.tell(new SmsCampaignBatch(sid, messages, true), null);
+        return sid;
+    }
+
+    private static SmsCampaign get(final JavaTestKit kit, final ActorRef dispatcher, final Sid campaign) {
+        dispatcher.tell(new GetSmsCampaign(campaign), kit.getRef());
+        final SmsServiceResponse<?> response = kit.expectMsgClass(SmsServiceResponse.class);
+        return (SmsCampaign) response.get();
+    }
+
+    private static SmsCampaign awaitCompleted(final JavaTestKit kit, final ActorRef dispatcher, final Sid campaign)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        SmsCampaign result = get(kit, dispatcher, campaign);
+        while (result.getStatus() != SmsCampaign.Status.COMPLETED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            result = get(kit, dispatcher, campaign);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int updated() throws InterruptedException {
+        // Outcomes are written on the next tick.
+        Thread.sleep(300);
+        final ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(dao, atLeastOnce()).updateSmsMessages(batches.capture());
+        int total = 0;
+        for (final List<SmsMessage> batch : batches.getAllValues()) {
+            for (final SmsMessage message : batch) {
+                assertEquals(SmsMessage.Status.SENT, message.getStatus());
+            }
+            total += batch.size();
+        }
+        return total;
+    }
+
+    @Test
+    public void messagesAreSentAndRecordedInBatches() throws Exception {
+        new JavaTestKit(system) {
+            {
+                final ActorRef dispatcher = dispatcher(0, 0);
+                final Sid campaign = campaign(dispatcher, Sid.generate(Sid.Type.ACCOUNT), 250);
+                final SmsCampaign result = awaitCompleted(this, dispatcher, campaign);
+                assertEquals(SmsCampaign.Status.COMPLETED, result.getStatus());
+                assertEquals(250, result.getSent());
+                assertEquals(250, sent.size());
+                assertEquals(250, updated());
+                verify(dao, never()).updateSmsMessage(any(SmsMessage.class));
+            }
+        };
+    }
+
+    @Test
+    public void accountRateIsEnforced() throws Exception {
+        new JavaTestKit(system) {
+            {
+                final ActorRef dispatcher = dispatcher(10, 0);
+                final long start = System.nanoTime();
+                final Sid campaign = campaign(dispatcher, Sid.generate(Sid.Type.ACCOUNT), 25);
+                Thread.sleep(500);
+                // A burst of one second worth of messages then 10 per second.
+                assertTrue(sent.size() <= 16);
+                final SmsCampaign result = awaitCompleted(this, dispatcher, campaign);
+                assertEquals(25, result.getSent());
+                assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(1400));
+            }
+        };
+    }
+
+    @Test
+    public void routeRateIsSharedRoundRobinByAccounts() throws Exception {
+        new JavaTestKit(system) {
+            {
+                final ActorRef dispatcher = dispatcher(0, 20);
+                final Sid large = Sid.generate(Sid.Type.ACCOUNT);
+                final Sid small = Sid.generate(Sid.Type.ACCOUNT);
+                final Sid first = campaign(dispatcher, large, 60);
+                final Sid second = campaign(dispatcher, small, 5);
+                awaitCompleted(this, dispatcher, second);
+                // The small campaign does not wait for the large one queued before it.
+                int sentByLarge = 0;
+                for (final String recipient : sent) {
+                    if (recipient.startsWith(large.toString())) {
+                        sentByLarge++;
+                    }
+                }
+                assertTrue(sentByLarge < 60);
+                assertEquals(60, awaitCompleted(this, dispatcher, first).getSent());
+            }
+        };
+    }
+
+    @Test
+    public void canceledMessagesAreFailed() throws Exception {
+        new JavaTestKit(system) {
+            {
+                final ActorRef dispatcher = dispatcher(5, 0);
+                final Sid campaign = campaign(dispatcher, Sid.generate(Sid.Type.ACCOUNT), 50);
+                dispatcher.tell(new CancelSmsCampaign(campaign), getRef());
+                final SmsCampaign result = (SmsCampaign) expectMsgClass(SmsServiceResponse.class).get();
+                assertEquals(SmsCampaign.Status.CANCELED, result.getStatus());
+                assertEquals(50, result.getSent() + result.getFailed() + result.getSending());
+                assertTrue(result.getFailed() >= 40);
+                expectNoMsg(new FiniteDuration(300, TimeUnit.MILLISECONDS));
+            }
+        };
+    }
+
+    @Test
+    public void unfinishedCampaignsAreResumed() throws Exception {
+        new JavaTestKit(system) {
+            {
+                final Sid instance = Sid.generate(Sid.Type.INSTANCE);
+                final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+                final Sid campaign = Sid.generate(Sid.Type.SMS_CAMPAIGN);
+                when(campaignsDao.getUnfinishedSmsCampaigns(instance.toString())).thenReturn(
+                        Arrays.asList(record(campaign, account, instance.toString())));
+                when(dao.getSmsCampaignMessages(campaign)).thenReturn(
+                        Arrays.asList(message(account, "sent", SmsMessage.Status.SENT),
+                                message(account, "queued-1", SmsMessage.Status.QUEUED),
+                                message(account, "queued-2", SmsMessage.Status.QUEUED)));
+                final ActorRef dispatcher = dispatcher(0, 0);
+                final InstanceId id = new InstanceId(instance, "localhost", DateTime.now(), DateTime.now());
+                dispatcher.tell(id, null);
+                // Told twice, by the bootstrapper and the sms servlet, the campaign is resumed once.
+                dispatcher.tell(id, null);
+                final SmsCampaign result = awaitCompleted(this, dispatcher, campaign);
+                assertEquals(3, result.getTotal());
+                assertEquals(3, result.getSent());
+                assertEquals(Arrays.asList("queued-1", "queued-2"), sent);
+                assertEquals(2, updated());
+                final ArgumentCaptor<SmsCampaign> recorded = ArgumentCaptor.forClass(SmsCampaign.class);
+                verify(campaignsDao).updateSmsCampaign(recorded.capture());
+                assertEquals(SmsCampaign.Status.COMPLETED, recorded.getValue().getStatus());
+            }
+        };
+    }
+
+    @Test
+    public void stoppedSessionFailsItsMessage() throws Exception {
+        new JavaTestKit(system) {
+            {
+                final Sid account = Sid.generate(Sid.Type.ACCOUNT);
+                stopsOn = account + "-3";
+                final ActorRef dispatcher = dispatcher(0, 0);
+                // Completed well before the 30 seconds response timeout.
+                final SmsCampaign result = awaitCompleted(this, dispatcher, campaign(dispatcher, account, 10));
+                assertEquals(SmsCampaign.Status.COMPLETED, result.getStatus());
+                assertEquals(9, result.getSent());
+                assertEquals(1, result.getFailed());
+                assertEquals(0, result.getSending());
+            }
+        };
+    }
+
+    public static final class Service extends UntypedActor {
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof CreateSmsSession) {
+                final ActorRef session = getContext().actorOf(new Props(Session.class));
+                sender().tell(new SmsServiceResponse<ActorRef>(session), self());
+            } else if (message instanceof DestroySmsSession) {
+                getContext().stop(((DestroySmsSession) message).session());
+            }
+        }
+    }
+
+    public static final class Session extends UntypedActor {
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+        private ActorRef observer;
+
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            if (message instanceof Observe) {
+                observer = ((Observe) message).observer();
+            } else if (message instanceof SmsSessionAttribute) {
+                final SmsSessionAttribute attribute = (SmsSessionAttribute) message;
+                attributes.put(attribute.name(), attribute.value());
+            } else if (message instanceof SmsSessionRequest) {
+                final SmsSessionRequest request = (SmsSessionRequest) message;
+                sent.add(request.to());
+                if (request.to().equals(stopsOn)) {
+                    getContext().stop(self());
+                    return;
+                }
+                observer.tell(new SmsSessionResponse(new SmsSessionInfo(request.from(), request.to(), attributes), true),
+                        self());
+            }
+        }
+    }
+}
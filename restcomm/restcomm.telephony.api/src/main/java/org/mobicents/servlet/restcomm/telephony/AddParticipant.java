@@ -29,13 +29,26 @@ import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
 @Immutable
 public final class AddParticipant {
     private final ActorRef call;
+    private final ConferenceParticipant participant;
 
     public AddParticipant(final ActorRef call) {
+        this(call, null);
+    }
+
+    public AddParticipant(final ActorRef call, final ConferenceParticipant participant) {
         super();
         this.call = call;
+        this.participant = participant;
     }
 
     public ActorRef call() {
         return call;
     }
+
+    /**
+     * @return the entry published in the {@link ConferenceParticipantRegistry} once the call joined, may be null.
+     */
+    public ConferenceParticipant participant() {
+        return participant;
+    }
 }
@@ -34,6 +34,11 @@ public final class CallManagerResponse<T> extends StandardResponse<T> {
         super(object);
     }
 
+    public CallManagerResponse(final T object, final CreateCall createCall) {
+        super(object);
+        this.createCall = createCall;
+    }
+
     public CallManagerResponse(final Throwable cause) {
         super(cause);
     }
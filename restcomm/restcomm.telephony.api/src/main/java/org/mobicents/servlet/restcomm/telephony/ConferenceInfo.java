@@ -37,15 +37,21 @@ public final class ConferenceInfo {
     private final ConferenceStateChanged.State state;
     private final String name;
     private final boolean moderatorPresent;
+    private final long version;
 
     public ConferenceInfo(final Sid sid, final List<ActorRef> participants, final ConferenceStateChanged.State state, final String name, final boolean moderatorPresent) {
+        this(sid, participants, state, name, moderatorPresent, 0);
+    }
 
+    public ConferenceInfo(final Sid sid, final List<ActorRef> participants, final ConferenceStateChanged.State state,
+            final String name, final boolean moderatorPresent, final long version) {
         super();
         this.sid = sid;
         this.participants = participants;
         this.state = state;
         this.name = name;
         this.moderatorPresent = moderatorPresent;
+        this.version = version;
     }
 
     public List<ActorRef> participants() {
@@ -66,4 +72,12 @@ public final class ConferenceInfo {
 
     public boolean isModeratorPresent() { return moderatorPresent; }
 
+    /**
+     * @return the version of the last {@link ConferenceParticipantJoined} or {@link ConferenceParticipantLeft} event
+     *         included in this snapshot.
+     */
+    public long version() {
+        return version;
+    }
+
 }
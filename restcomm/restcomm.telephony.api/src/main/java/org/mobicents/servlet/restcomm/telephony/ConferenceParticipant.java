@@ -0,0 +1,240 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.Currency;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.CallDetailRecord;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * A call taking part in a running conference as kept by the {@link ConferenceParticipantRegistry}. Besides the
+ * conference flags it keeps the fields of the call record that do not change while the call is in progress, so a
+ * running conference can be listed the way the call records would be.
+ */
+@Immutable
+public final class ConferenceParticipant {
+    private final Sid sid;
+    private final String instanceId;
+    private final Sid parentCallSid;
+    private final Sid accountSid;
+    private final DateTime dateCreated;
+    private final DateTime dateJoined;
+    private final DateTime dateUpdated;
+    private final String to;
+    private final String from;
+    private final Sid phoneNumberSid;
+    private final DateTime startTime;
+    private final BigDecimal price;
+    private final Currency priceUnit;
+    private final String direction;
+    private final String answeredBy;
+    private final String apiVersion;
+    private final String forwardedFrom;
+    private final String callerName;
+    private final URI uri;
+    private final String callPath;
+    private final boolean muted;
+    private final boolean onHold;
+    private final boolean startConferenceOnEnter;
+    private final boolean endConferenceOnExit;
+
+    public ConferenceParticipant(final CallDetailRecord call, final boolean muted, final boolean onHold,
+            final boolean startConferenceOnEnter, final boolean endConferenceOnExit) {
+        super();
+        this.sid = call.getSid();
+        this.instanceId = call.getInstanceId();
+        this.parentCallSid = call.getParentCallSid();
+        this.accountSid = call.getAccountSid();
+        this.dateCreated = call.getDateCreated();
+        this.dateJoined = null;
+        this.dateUpdated = DateTime.now();
+        this.to = call.getTo();
+        this.from = call.getFrom();
+        this.phoneNumberSid = call.getPhoneNumberSid();
+        this.startTime = call.getStartTime();
+        this.price = call.getPrice();
+        this.priceUnit = call.getPriceUnit();
+        this.direction = call.getDirection();
+        this.answeredBy = call.getAnsweredBy();
+        this.apiVersion = call.getApiVersion();
+        this.forwardedFrom = call.getForwardedFrom();
+        this.callerName = call.getCallerName();
+        this.uri = call.getUri();
+        this.callPath = call.getCallPath();
+        this.muted = muted;
+        this.onHold = onHold;
+        this.startConferenceOnEnter = startConferenceOnEnter;
+        this.endConferenceOnExit = endConferenceOnExit;
+    }
+
+    private ConferenceParticipant(final ConferenceParticipant participant, final DateTime dateJoined,
+            final boolean muted, final boolean onHold, final boolean startConferenceOnEnter,
+            final boolean endConferenceOnExit) {
+        super();
+        this.sid = participant.sid;
+        this.instanceId = participant.instanceId;
+        this.parentCallSid = participant.parentCallSid;
+        this.accountSid = participant.accountSid;
+        this.dateCreated = participant.dateCreated;
+        this.dateJoined = dateJoined;
+        this.dateUpdated = DateTime.now();
+        this.to = participant.to;
+        this.from = participant.from;
+        this.phoneNumberSid = participant.phoneNumberSid;
+        this.startTime = participant.startTime;
+        this.price = participant.price;
+        this.priceUnit = participant.priceUnit;
+        this.direction = participant.direction;
+        this.answeredBy = participant.answeredBy;
+        this.apiVersion = participant.apiVersion;
+        this.forwardedFrom = participant.forwardedFrom;
+        this.callerName = participant.callerName;
+        this.uri = participant.uri;
+        this.callPath = participant.callPath;
+        this.muted = muted;
+        this.onHold = onHold;
+        this.startConferenceOnEnter = startConferenceOnEnter;
+        this.endConferenceOnExit = endConferenceOnExit;
+    }
+
+    /**
+     * @return the sid of the call.
+     */
+    public Sid getSid() {
+        return sid;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public Sid getParentCallSid() {
+        return parentCallSid;
+    }
+
+    public Sid getAccountSid() {
+        return accountSid;
+    }
+
+    public DateTime getDateCreated() {
+        return dateCreated;
+    }
+
+    public DateTime getDateJoined() {
+        return dateJoined;
+    }
+
+    public DateTime getDateUpdated() {
+        return dateUpdated;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public Sid getPhoneNumberSid() {
+        return phoneNumberSid;
+    }
+
+    public DateTime getStartTime() {
+        return startTime;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public Currency getPriceUnit() {
+        return priceUnit;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public String getAnsweredBy() {
+        return answeredBy;
+    }
+
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    public String getForwardedFrom() {
+        return forwardedFrom;
+    }
+
+    public String getCallerName() {
+        return callerName;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public String getCallPath() {
+        return callPath;
+    }
+
+    public boolean isMuted() {
+        return muted;
+    }
+
+    public boolean isOnHold() {
+        return onHold;
+    }
+
+    public boolean isStartConferenceOnEnter() {
+        return startConferenceOnEnter;
+    }
+
+    public boolean isEndConferenceOnExit() {
+        return endConferenceOnExit;
+    }
+
+    public ConferenceParticipant setDateJoined(final DateTime dateJoined) {
+        return new ConferenceParticipant(this, dateJoined, muted, onHold, startConferenceOnEnter, endConferenceOnExit);
+    }
+
+    public ConferenceParticipant setMuted(final boolean muted) {
+        return new ConferenceParticipant(this, dateJoined, muted, onHold, startConferenceOnEnter, endConferenceOnExit);
+    }
+
+    public ConferenceParticipant setOnHold(final boolean onHold) {
+        return new ConferenceParticipant(this, dateJoined, muted, onHold, startConferenceOnEnter, endConferenceOnExit);
+    }
+
+    public ConferenceParticipant setStartConferenceOnEnter(final boolean startConferenceOnEnter) {
+        return new ConferenceParticipant(this, dateJoined, muted, onHold, startConferenceOnEnter, endConferenceOnExit);
+    }
+
+    public ConferenceParticipant setEndConferenceOnExit(final boolean endConferenceOnExit) {
+        return new ConferenceParticipant(this, dateJoined, muted, onHold, startConferenceOnEnter, endConferenceOnExit);
+    }
+}
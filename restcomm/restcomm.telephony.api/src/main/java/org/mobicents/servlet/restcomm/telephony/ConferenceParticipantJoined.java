@@ -0,0 +1,64 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+import akka.actor.ActorRef;
+
+/**
+ * Sent by a conference to its observers when a call has joined it. The version grows by one with every change to the
+ * participants, observers that asked for a {@link ConferenceInfo} snapshot can drop the events it already covers.
+ */
+@Immutable
+public final class ConferenceParticipantJoined {
+    private final Sid conference;
+    private final ActorRef call;
+    private final int participants;
+    private final long version;
+
+    public ConferenceParticipantJoined(final Sid conference, final ActorRef call, final int participants, final long version) {
+        super();
+        this.conference = conference;
+        this.call = call;
+        this.participants = participants;
+        this.version = version;
+    }
+
+    public Sid conference() {
+        return conference;
+    }
+
+    public ActorRef call() {
+        return call;
+    }
+
+    /**
+     * @return the number of participants in the conference once this change was applied.
+     */
+    public int participants() {
+        return participants;
+    }
+
+    public long version() {
+        return version;
+    }
+}
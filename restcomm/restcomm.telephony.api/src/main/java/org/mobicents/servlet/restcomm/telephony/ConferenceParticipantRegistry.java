@@ -0,0 +1,211 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * Live view of the participants of the conferences running on this instance, so the Participants API can be answered
+ * without going to the database while a conference is in progress.
+ *
+ * The conference actors add and remove participants as calls join and leave and drop the whole room when the
+ * conference ends, the interpreters and the REST API keep the muted and hold flags up to date. Readers never block
+ * writers and see participants in the order they joined.
+ */
+@ThreadSafe
+public final class ConferenceParticipantRegistry {
+    private static final ConferenceParticipantRegistry instance = new ConferenceParticipantRegistry();
+
+    private final ConcurrentMap<Sid, Room> rooms;
+
+    public ConferenceParticipantRegistry() {
+        super();
+        this.rooms = new ConcurrentHashMap<Sid, Room>();
+    }
+
+    public static ConferenceParticipantRegistry getInstance() {
+        return instance;
+    }
+
+    public void join(final Sid conference, final ConferenceParticipant participant) {
+        Room room = rooms.get(conference);
+        if (room == null) {
+            final Room created = new Room();
+            room = rooms.putIfAbsent(conference, created);
+            if (room == null) {
+                room = created;
+            }
+        }
+        room.join(participant.setDateJoined(DateTime.now()));
+    }
+
+    public void leave(final Sid conference, final Sid call) {
+        final Room room = rooms.get(conference);
+        if (room != null) {
+            room.leave(call);
+        }
+    }
+
+    /**
+     * Replaces the entry of a participant that is still in the conference, keeping its place and join time.
+     */
+    public void update(final Sid conference, final ConferenceParticipant participant) {
+        final Room room = rooms.get(conference);
+        if (room != null) {
+            room.update(participant);
+        }
+    }
+
+    public void setMuted(final Sid conference, final Sid call, final boolean muted) {
+        final ConferenceParticipant participant = participant(conference, call);
+        if (participant != null) {
+            update(conference, participant.setMuted(muted));
+        }
+    }
+
+    public void setMutedAndOnHold(final Sid conference, final boolean muted, final boolean onHold) {
+        final Room room = rooms.get(conference);
+        if (room != null) {
+            for (final ConferenceParticipant participant : room.participants(0, Integer.MAX_VALUE)) {
+                room.update(participant.setMuted(muted).setOnHold(onHold));
+            }
+        }
+    }
+
+    /**
+     * Forgets a conference once it has ended, from then on its participants are only found in the call detail records.
+     */
+    public void close(final Sid conference) {
+        rooms.remove(conference);
+    }
+
+    public boolean isActive(final Sid conference) {
+        return rooms.containsKey(conference);
+    }
+
+    /**
+     * @return the account the conference belongs to or null if it is not running on this instance.
+     */
+    public Sid account(final Sid conference) {
+        final Room room = rooms.get(conference);
+        return room == null ? null : room.account;
+    }
+
+    public int count(final Sid conference) {
+        final Room room = rooms.get(conference);
+        return room == null ? 0 : room.size();
+    }
+
+    public ConferenceParticipant participant(final Sid conference, final Sid call) {
+        final Room room = rooms.get(conference);
+        return room == null ? null : room.participant(call);
+    }
+
+    public List<ConferenceParticipant> participants(final Sid conference, final int offset, final int limit) {
+        final Room room = rooms.get(conference);
+        if (room == null) {
+            return Collections.emptyList();
+        }
+        return room.participants(offset, limit);
+    }
+
+    private static final class Room {
+        // Participants by join order and the join order of every call.
+        private final ConcurrentSkipListMap<Long, ConferenceParticipant> participants;
+        private final ConcurrentMap<Sid, Long> order;
+        private final AtomicLong sequence;
+        private final AtomicInteger size;
+        private volatile Sid account;
+
+        private Room() {
+            super();
+            this.participants = new ConcurrentSkipListMap<Long, ConferenceParticipant>();
+            this.order = new ConcurrentHashMap<Sid, Long>();
+            this.sequence = new AtomicLong();
+            this.size = new AtomicInteger();
+        }
+
+        private void join(final ConferenceParticipant participant) {
+            final Long position = sequence.incrementAndGet();
+            if (order.putIfAbsent(participant.getSid(), position) == null) {
+                if (account == null) {
+                    account = participant.getAccountSid();
+                }
+                participants.put(position, participant);
+                size.incrementAndGet();
+            }
+        }
+
+        private void leave(final Sid call) {
+            final Long position = order.remove(call);
+            if (position != null && participants.remove(position) != null) {
+                size.decrementAndGet();
+            }
+        }
+
+        private void update(final ConferenceParticipant participant) {
+            final Long position = order.get(participant.getSid());
+            if (position == null) {
+                return;
+            }
+            ConferenceParticipant current = participants.get(position);
+            while (current != null) {
+                final ConferenceParticipant updated = participant.setDateJoined(current.getDateJoined());
+                if (participants.replace(position, current, updated)) {
+                    return;
+                }
+                current = participants.get(position);
+            }
+        }
+
+        private ConferenceParticipant participant(final Sid call) {
+            final Long position = order.get(call);
+            return position == null ? null : participants.get(position);
+        }
+
+        private int size() {
+            return size.get();
+        }
+
+        private List<ConferenceParticipant> participants(final int offset, final int limit) {
+            final List<ConferenceParticipant> page = new ArrayList<ConferenceParticipant>(Math.min(limit, size()));
+            final Iterator<ConferenceParticipant> iterator = participants.values().iterator();
+            for (int skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+                iterator.next();
+            }
+            while (page.size() < limit && iterator.hasNext()) {
+                page.add(iterator.next());
+            }
+            return page;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
+import org.mobicents.servlet.restcomm.entities.Sid;
+
+/**
+ * The registration of a gateway with its proxy as the proxy manager last saw it.
+ */
+@Immutable
+public final class GatewayRegistration {
+    public enum State {
+        REGISTERING, REGISTERED, FAILED
+    }
+
+    private final Sid gateway;
+    private final String name;
+    private final State state;
+    private final int expires;
+    private final DateTime registered;
+    private final DateTime refresh;
+    private final int failures;
+    private final int status;
+
+    public GatewayRegistration(final Sid gateway, final String name, final State state, final int expires,
+            final DateTime registered, final DateTime refresh, final int failures, final int status) {
+        super();
+        this.gateway = gateway;
+        this.name = name;
+        this.state = state;
+        this.expires = expires;
+        this.registered = registered;
+        this.refresh = refresh;
+        this.failures = failures;
+        this.status = status;
+    }
+
+    public Sid getGateway() {
+        return gateway;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the expiry, in seconds, the proxy granted to the last successful registration.
+     */
+    public int getExpires() {
+        return expires;
+    }
+
+    /**
+     * @return when the last successful registration was made, null if there was none.
+     */
+    public DateTime getRegistered() {
+        return registered;
+    }
+
+    /**
+     * @return when the registration is refreshed or tried again next, null while a request is under way.
+     */
+    public DateTime getRefresh() {
+        return refresh;
+    }
+
+    /**
+     * @return how many registrations failed in a row.
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the status of the last final response from the proxy, 0 if there was none.
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony.util;
+
+import static org.mobicents.servlet.restcomm.util.HexadecimalUtils.toHex;
+
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.dao.ClientsDao;
+import org.mobicents.servlet.restcomm.entities.Client;
+import org.mobicents.servlet.restcomm.util.DigestAuthentication;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Digest authentication engine shared by INVITE/MESSAGE (CallControlHelper) and REGISTER (UserAgentManager) handling.
+ *
+ * Nonces are self-validating: they carry their issue time, a random salt and an HMAC of both keyed with a per-node
+ * secret, so they need no server side state and survive until they expire. Clients are therefore free to re-use a nonce
+ * pre-emptively on subsequent requests instead of taking a 407 round trip every time. When the client uses qop the
+ * highest nc seen per nonce and user is tracked and anything not above it is treated as a replay. Without qop there is
+ * no count to track, so such responses are only accepted while their nonce is younger than a much shorter TTL.
+ *
+ * H(user:realm:password) is cached per client and realm so that authenticating a known client does not hit the
+ * database. Whoever changes or removes a client must call {@link #invalidate(String)}. That only reaches this node:
+ * a response that does not match the cached value is checked once more against the database, so a new password is
+ * picked up on the first attempt, and entries expire quickly enough that a client disabled or changed on another node
+ * stops being accepted with its old credentials within a minute.
+ */
+@ThreadSafe
+public final class DigestAuthenticator {
+    public enum Outcome {
+        // The credentials are valid.
+        OK,
+        // The credentials were computed correctly but the nonce is unknown, expired or replayed. Challenge again with stale=true.
+        STALE,
+        // Wrong credentials or unknown/disabled client.
+        FAILED
+    }
+
+    private static final String HMAC_ALGORITHM = "HmacSHA1";
+    private static final int TIMESTAMP_LENGTH = 16;
+    private static final int SALT_LENGTH = 16;
+    private static final int MAX_TRACKED_NONCES = 100000;
+
+    private static final DigestAuthenticator instance = new DigestAuthenticator(TimeUnit.MINUTES.toMillis(5),
+            TimeUnit.SECONDS.toMillis(30), 10000, TimeUnit.MINUTES.toMillis(1));
+
+    private final byte[] secret;
+    private final SecureRandom random;
+    private final long nonceTtl;
+    private final long unprotectedNonceTtl;
+    private final Cache<String, String> ha1s;
+    private final ConcurrentMap<String, Long> nonceCounts;
+
+    /**
+     * @param nonceTtl how long a nonce is accepted with qop.
+     * @param unprotectedNonceTtl how long a nonce is accepted without qop, when replays can not be detected.
+     * @param maxClients how many H(A1) are cached.
+     * @param ha1Ttl how long a cached H(A1) is trusted.
+     */
+    DigestAuthenticator(final long nonceTtl, final long unprotectedNonceTtl, final long maxClients, final long ha1Ttl) {
+        super();
+        this.random = new SecureRandom();
+        this.secret = new byte[20];
+        random.nextBytes(secret);
+        this.nonceTtl = nonceTtl;
+        this.unprotectedNonceTtl = Math.min(unprotectedNonceTtl, nonceTtl);
+        this.ha1s = CacheBuilder.newBuilder().maximumSize(maxClients).expireAfterWrite(ha1Ttl, TimeUnit.MILLISECONDS).build();
+        this.nonceCounts = new ConcurrentHashMap<String, Long>();
+    }
+
+    public static DigestAuthenticator getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return a new nonce that this engine will accept until it expires.
+     */
+    public String nonce() {
+        return nonce(System.currentTimeMillis());
+    }
+
+    String nonce(final long issued) {
+        final byte[] salt = new byte[SALT_LENGTH / 2];
+        random.nextBytes(salt);
+        final String prefix = String.format("%016x", issued) + new String(toHex(salt));
+        return prefix + sign(prefix);
+    }
+
+    private String sign(final String prefix) {
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, HMAC_ALGORITHM));
+            return new String(toHex(mac.doFinal(prefix.getBytes())));
+        } catch (final NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        } catch (final InvalidKeyException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    boolean isValid(final String nonce, final long now) {
+        return isValid(nonce, now, nonceTtl);
+    }
+
+    private boolean isValid(final String nonce, final long now, final long ttl) {
+        if (nonce == null || nonce.length() <= TIMESTAMP_LENGTH + SALT_LENGTH) {
+            return false;
+        }
+        final String prefix = nonce.substring(0, TIMESTAMP_LENGTH + SALT_LENGTH);
+        final String signature = nonce.substring(TIMESTAMP_LENGTH + SALT_LENGTH);
+        if (!MessageDigest.isEqual(signature.getBytes(), sign(prefix).getBytes())) {
+            return false;
+        }
+        final long issued;
+        try {
+            issued = Long.parseLong(prefix.substring(0, TIMESTAMP_LENGTH), 16);
+        } catch (final NumberFormatException exception) {
+            return false;
+        }
+        return issued <= now && now - issued < ttl;
+    }
+
+    /**
+     * Builds the value of a Proxy-Authenticate / WWW-Authenticate header with a fresh nonce.
+     *
+     * @param realm
+     * @param stale whether the previous credentials were rejected only because of their nonce.
+     */
+    public String challenge(final String realm, final boolean stale) {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("Digest ");
+        buffer.append("realm=\"").append(realm).append("\", ");
+        buffer.append("nonce=\"").append(nonce()).append("\", ");
+        buffer.append("algorithm=MD5, qop=\"auth\"");
+        if (stale) {
+            buffer.append(", stale=true");
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Checks a Proxy-Authorization / Authorization header value against the client it names.
+     *
+     * @param authorization the header value.
+     * @param method the method of the request carrying the header.
+     * @param clients used to look up the client the first time it authenticates.
+     */
+    public Outcome authenticate(final String authorization, final String method, final ClientsDao clients) {
+        final Map<String, String> map = toMap(authorization);
+        final String user = map.get("username");
+        final String realm = map.get("realm");
+        final String uri = map.get("uri");
+        final String nonce = map.get("nonce");
+        final String nc = map.get("nc");
+        final String cnonce = map.get("cnonce");
+        final String qop = map.get("qop");
+        final String response = map.get("response");
+        if (user == null || realm == null || uri == null || nonce == null || response == null) {
+            return Outcome.FAILED;
+        }
+        final String algorithm = map.get("algorithm");
+        final String key = user + ":" + realm;
+        String ha1 = ha1s.getIfPresent(key);
+        if (ha1 == null || !response.equals(DigestAuthentication.responseWithHA1(algorithm, ha1, nonce, nc, cnonce, method,
+                uri, null, qop))) {
+            // Not cached yet or cached before a password change made on another node. Ask the database.
+            ha1s.invalidate(key);
+            ha1 = ha1(user, realm, clients);
+            if (ha1 == null || !response.equals(DigestAuthentication.responseWithHA1(algorithm, ha1, nonce, nc, cnonce, method,
+                    uri, null, qop))) {
+                return Outcome.FAILED;
+            }
+            ha1s.put(key, ha1);
+        }
+        return check(user, nonce, nc, qop, System.currentTimeMillis());
+    }
+
+    Outcome check(final String user, final String nonce, final String nc, final String qop, final long now) {
+        if (qop == null || nc == null) {
+            return isValid(nonce, now, unprotectedNonceTtl) ? Outcome.OK : Outcome.STALE;
+        }
+        if (!isValid(nonce, now) || !count(nonce + ":" + user, nc, now)) {
+            return Outcome.STALE;
+        }
+        return Outcome.OK;
+    }
+
+    /**
+     * Records nc for the nonce as used by a user and returns false if it does not move forward.
+     */
+    private boolean count(final String key, final String nc, final long now) {
+        final long count;
+        try {
+            count = Long.parseLong(nc, 16);
+        } catch (final NumberFormatException exception) {
+            return false;
+        }
+        while (true) {
+            final Long last = nonceCounts.putIfAbsent(key, count);
+            if (last == null) {
+                if (nonceCounts.size() > MAX_TRACKED_NONCES) {
+                    purge(now);
+                }
+                return true;
+            } else if (count <= last) {
+                return false;
+            } else if (nonceCounts.replace(key, last, count)) {
+                return true;
+            }
+        }
+    }
+
+    private void purge(final long now) {
+        final Iterator<String> keys = nonceCounts.keySet().iterator();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            final int separator = key.indexOf(':');
+            if (!isValid(separator < 0 ? key : key.substring(0, separator), now)) {
+                keys.remove();
+            }
+        }
+    }
+
+    private String ha1(final String user, final String realm, final ClientsDao clients) {
+        final Client client = clients.getClient(user);
+        if (client == null || Client.ENABLED != client.getStatus() || client.getPassword() == null) {
+            return null;
+        }
+        return DigestAuthentication.HA1(user, realm, client.getPassword());
+    }
+
+    /**
+     * Forgets the cached credentials of a client. Must be called when its password or status changes or it is removed.
+     *
+     * @param user the login of the client.
+     */
+    public void invalidate(final String user) {
+        final String prefix = user + ":";
+        final Iterator<String> keys = ha1s.asMap().keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().startsWith(prefix)) {
+                keys.remove();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        ha1s.invalidateAll();
+    }
+
+    static Map<String, String> toMap(final String header) {
+        final Map<String, String> map = new HashMap<String, String>();
+        final int endOfScheme = header.indexOf(" ");
+        map.put("scheme", header.substring(0, endOfScheme).trim());
+        final String[] tokens = header.substring(endOfScheme + 1).split(",");
+        for (final String token : tokens) {
+            final String[] values = token.trim().split("=", 2); // Issue #935, split only for first occurrence of "="
+            if (values.length == 2) {
+                map.put(values[0].toLowerCase(), values[1].replace("\"", ""));
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.dao.ClientsDao;
+import org.mobicents.servlet.restcomm.entities.Client;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.telephony.util.DigestAuthenticator.Outcome;
+import org.mobicents.servlet.restcomm.util.DigestAuthentication;
+
+public class DigestAuthenticatorTest {
+    private static final String REALM = "restcomm.org";
+    private static final long NONCE_TTL = TimeUnit.MINUTES.toMillis(5);
+    private static final long UNPROTECTED_NONCE_TTL = TimeUnit.SECONDS.toMillis(30);
+
+    private DigestAuthenticator authenticator;
+    private ClientsDao clients;
+    private ExecutorService executor;
+
+    @Before
+    public void before() {
+        authenticator = new DigestAuthenticator(NONCE_TTL, UNPROTECTED_NONCE_TTL, 100, TimeUnit.MINUTES.toMillis(1));
+        clients = mock(ClientsDao.class);
+        client("alice", "secret");
+        client("bob", "secret");
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    private void client(final String login, final String password) {
+        final Client.Builder builder = Client.builder();
+        builder.setSid(Sid.generate(Sid.Type.CLIENT));
+        builder.setLogin(login);
+        builder.setPassword(password);
+        builder.setStatus(Client.ENABLED);
+        when(clients.getClient(login)).thenReturn(builder.build());
+    }
+
+    private static String authorization(final String user, final String password, final String nonce, final String nc) {
+        final String qop = nc == null ? null : "auth";
+        final String response = DigestAuthentication.response("MD5", user, REALM, password, nonce, nc, "0a4f113b",
+                "REGISTER", "sip:" + REALM, null, qop);
+        final StringBuilder buffer = new StringBuilder("Digest username=\"").append(user).append("\", realm=\"")
+                .append(REALM).append("\", nonce=\"").append(nonce).append("\", uri=\"sip:").append(REALM)
+                .append("\", algorithm=MD5, response=\"").append(response).append("\"");
+        if (nc != null) {
+            buffer.append(", qop=auth, nc=").append(nc).append(", cnonce=\"0a4f113b\"");
+        }
+        return buffer.toString();
+    }
+
+    @Test
+    public void validResponsesAreAccepted() {
+        final String nonce = authenticator.nonce();
+        assertEquals(Outcome.OK, authenticator.authenticate(authorization("alice", "secret", nonce, "00000001"), "REGISTER",
+                clients));
+        assertEquals(Outcome.OK, authenticator.authenticate(authorization("alice", "secret", nonce, "00000002"), "REGISTER",
+                clients));
+        assertEquals(Outcome.FAILED, authenticator.authenticate(authorization("alice", "wrong", nonce, "00000003"),
+                "REGISTER", clients));
+    }
+
+    @Test
+    public void expiredAndForgedNoncesAreStale() {
+        final long now = System.currentTimeMillis();
+        final String expired = authenticator.nonce(now - NONCE_TTL - 1);
+        assertEquals(Outcome.STALE, authenticator.authenticate(authorization("alice", "secret", expired, "00000001"),
+                "REGISTER", clients));
+        final String nonce = authenticator.nonce(now);
+        final char last = nonce.charAt(20);
+        final String forged = nonce.substring(0, 20) + (last == '0' ? '1' : '0') + nonce.substring(21);
+        assertEquals(Outcome.STALE, authenticator.check("alice", forged, "00000001", "auth", now));
+    }
+
+    @Test
+    public void noncesIssuedInTheSameMillisecondDiffer() {
+        final long now = System.currentTimeMillis();
+        final Set<String> nonces = new HashSet<String>();
+        for (int i = 0; i < 1000; i++) {
+            nonces.add(authenticator.nonce(now));
+        }
+        assertEquals(1000, nonces.size());
+    }
+
+    @Test
+    public void replayedCountsAreStale() {
+        final String nonce = authenticator.nonce();
+        final String first = authorization("alice", "secret", nonce, "00000001");
+        assertEquals(Outcome.OK, authenticator.authenticate(first, "REGISTER", clients));
+        assertEquals(Outcome.STALE, authenticator.authenticate(first, "REGISTER", clients));
+        // Counts are kept per user, another client answering the same challenge is not a replay.
+        assertEquals(Outcome.OK, authenticator.authenticate(authorization("bob", "secret", nonce, "00000001"), "REGISTER",
+                clients));
+    }
+
+    @Test
+    public void responsesWithoutQopAreOnlyAcceptedBriefly() {
+        final long now = System.currentTimeMillis();
+        final String nonce = authenticator.nonce(now);
+        assertEquals(Outcome.OK, authenticator.authenticate(authorization("alice", "secret", nonce, null), "REGISTER",
+                clients));
+        assertEquals(Outcome.OK, authenticator.check("alice", nonce, null, null, now + UNPROTECTED_NONCE_TTL - 1));
+        assertEquals(Outcome.STALE, authenticator.check("alice", nonce, null, null, now + UNPROTECTED_NONCE_TTL));
+        // The same nonce is still fine with qop, where replays are detected.
+        assertEquals(Outcome.OK, authenticator.check("alice", nonce, "00000001", "auth", now + UNPROTECTED_NONCE_TTL));
+    }
+
+    @Test
+    public void concurrentReplaysAreAcceptedOnce() throws Exception {
+        final String nonce = authenticator.nonce();
+        final String authorization = authorization("alice", "secret", nonce, "00000001");
+        final AtomicInteger accepted = new AtomicInteger();
+        final Set<Future<Outcome>> outcomes = new HashSet<Future<Outcome>>();
+        for (int i = 0; i < 64; i++) {
+            outcomes.add(executor.submit(new Callable<Outcome>() {
+                @Override
+                public Outcome call() {
+                    final Outcome outcome = authenticator.authenticate(authorization, "REGISTER", clients);
+                    if (outcome == Outcome.OK) {
+                        accepted.incrementAndGet();
+                    }
+                    return outcome;
+                }
+            }));
+        }
+        for (final Future<Outcome> outcome : outcomes) {
+            assertFalse(outcome.get() == Outcome.FAILED);
+        }
+        assertEquals(1, accepted.get());
+    }
+
+    @Test
+    public void concurrentChallengesAreAllAccepted() throws Exception {
+        final Set<String> nonces = Collections.synchronizedSet(new HashSet<String>());
+        final Set<Future<Outcome>> outcomes = new HashSet<Future<Outcome>>();
+        for (int i = 0; i < 64; i++) {
+            outcomes.add(executor.submit(new Callable<Outcome>() {
+                @Override
+                public Outcome call() {
+                    final String nonce = authenticator.nonce();
+                    nonces.add(nonce);
+                    return authenticator.authenticate(authorization("alice", "secret", nonce, "00000001"), "REGISTER",
+                            clients);
+                }
+            }));
+        }
+        for (final Future<Outcome> outcome : outcomes) {
+            assertEquals(Outcome.OK, outcome.get());
+        }
+        assertEquals(64, nonces.size());
+    }
+}
@@ -91,6 +91,8 @@ import org.mobicents.servlet.restcomm.mscontrol.messages.UpdateMediaSession;
 import org.mobicents.servlet.restcomm.patterns.Observe;
 import org.mobicents.servlet.restcomm.patterns.Observing;
 import org.mobicents.servlet.restcomm.patterns.StopObserving;
+import org.mobicents.servlet.restcomm.trace.CallTrace;
+import org.mobicents.servlet.restcomm.trace.CallTracer;
 import org.mobicents.servlet.restcomm.util.SdpUtils;
 
 import akka.actor.ActorRef;
@@ -191,6 +193,9 @@ public final class Call extends UntypedActor {
     private boolean recording;
     private Sid parentCallSid;
 
+    // Latency trace shared with the media server controller and the interpreter
+    private CallTrace trace;
+
     // Runtime Setting
     private Configuration runtimeSettings;
     private Configuration configuration;
@@ -997,7 +1002,7 @@ public final class Call extends UntypedActor {
             // Initialize the MS Controller
             CreateMediaSession command = null;
             if (isOutbound()) {
-                command = new CreateMediaSession("sendrecv", "", true, webrtc);
+                command = new CreateMediaSession("sendrecv", "", true, webrtc, trace);
             } else {
                 if (!liveCallModification) {
                     command = generateRequest(invite);
@@ -1027,7 +1032,7 @@ public final class Call extends UntypedActor {
             }
             final byte[] sdp = sipMessage.getRawContent();
             final String offer = SdpUtils.patch(sipMessage.getContentType(), sdp, externalIp);
-            return new CreateMediaSession("sendrecv", offer, false, webrtc);
+            return new CreateMediaSession("sendrecv", offer, false, webrtc, trace);
         }
     }
 
@@ -1365,8 +1370,18 @@ public final class Call extends UntypedActor {
         sender.tell(info(), self);
     }
 
+    private void startTrace(final CallTrace trace) {
+        this.trace = trace;
+        CallTracer.getInstance().bind(trace, id.toString());
+        fsm.setListener(trace.listener("Call"));
+    }
+
     private void onInitializeOutbound(InitializeOutbound message, ActorRef self, ActorRef sender) throws Exception {
         if (is(uninitialized)) {
+            startTrace(CallTracer.getInstance().start());
+            if (message.accountId() != null) {
+                trace.bindAccount(message.accountId().toString());
+            }
             fsm.transition(message, queued);
         }
     }
@@ -1432,6 +1447,9 @@ public final class Call extends UntypedActor {
         final String method = message.getMethod();
         if ("INVITE".equalsIgnoreCase(method)) {
             if (is(uninitialized)) {
+                // CallManager starts the trace when the INVITE arrives
+                final CallTrace routed = (CallTrace) message.getAttribute(CallTrace.class.getName());
+                startTrace(routed != null ? routed : CallTracer.getInstance().start());
                 fsm.transition(message, ringing);
             }
         } else if ("CANCEL".equalsIgnoreCase(method)) {
@@ -1974,6 +1992,10 @@ public final class Call extends UntypedActor {
             if(logger.isInfoEnabled()) {
                 logger.info("Exception during Call postStop while trying to remove observers: "+exception);
             }
+        } finally {
+            if (trace != null) {
+                CallTracer.getInstance().complete(trace);
+            }
         }
         super.postStop();
     }
@@ -78,8 +78,12 @@ import org.mobicents.servlet.restcomm.interpreter.StopInterpreter;
 import org.mobicents.servlet.restcomm.interpreter.VoiceInterpreterBuilder;
 import org.mobicents.servlet.restcomm.mscontrol.MediaServerControllerFactory;
 import org.mobicents.servlet.restcomm.patterns.StopObserving;
+import org.mobicents.servlet.restcomm.startup.ProjectMigration;
 import org.mobicents.servlet.restcomm.telephony.util.B2BUAHelper;
 import org.mobicents.servlet.restcomm.telephony.util.CallControlHelper;
+import org.mobicents.servlet.restcomm.trace.CallTrace;
+import org.mobicents.servlet.restcomm.trace.CallTracer;
+import org.mobicents.servlet.restcomm.util.PhoneNumberNormalizer;
 import org.mobicents.servlet.restcomm.util.SdpUtils;
 import org.mobicents.servlet.restcomm.util.UriUtils;
 
@@ -99,8 +103,9 @@ import akka.event.LoggingAdapter;
 import akka.util.Timeout;
 
 import com.google.i18n.phonenumbers.NumberParseException;
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
-import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
+import com.telestax.servlet.ExtensionController;
+import com.telestax.servlet.ExtensionResponse;
+import com.telestax.servlet.ExtensionType;
 import com.telestax.servlet.MonitoringService;
 
 /**
@@ -119,6 +124,7 @@ public final class CallManager extends UntypedActor {
 
     private final ActorSystem system;
     private final Configuration configuration;
+    private final RestcommConfiguration restcommConfiguration;
     private final ServletContext context;
     private final MediaServerControllerFactory msControllerFactory;
     private final ActorRef conferences;
@@ -127,6 +133,7 @@ public final class CallManager extends UntypedActor {
     private final SipFactory sipFactory;
     private final DaoManager storage;
     private final ActorRef monitoring;
+    private final ExtensionController extensions;
 
     // configurable switch whether to use the To field in a SIP header to determine the callee address
     // alternatively the Request URI can be used
@@ -181,12 +188,14 @@ public final class CallManager extends UntypedActor {
 
     }
 
-    public CallManager(final Configuration configuration, final ServletContext context, final ActorSystem system,
+    public CallManager(final Configuration configuration, final RestcommConfiguration restcommConfiguration,
+                       final ServletContext context, final ActorSystem system,
                        final MediaServerControllerFactory msControllerFactory, final ActorRef conferences, final ActorRef bridges,
                        final ActorRef sms, final SipFactory factory, final DaoManager storage) {
         super();
         this.system = system;
         this.configuration = configuration;
+        this.restcommConfiguration = restcommConfiguration;
         this.context = context;
         this.msControllerFactory = msControllerFactory;
         this.conferences = conferences;
@@ -194,6 +203,7 @@ public final class CallManager extends UntypedActor {
         this.sms = sms;
         this.sipFactory = factory;
         this.storage = storage;
+        this.extensions = ExtensionController.getInstance();
         final Configuration runtime = configuration.subset("runtime-settings");
         final Configuration outboundProxyConfig = runtime.subset("outbound-proxy");
         SipURI outboundIntf = outboundInterface("udp");
@@ -291,7 +301,16 @@ public final class CallManager extends UntypedActor {
             okay.send();
             return;
         }
-        //Run proInboundAction Extensions here
+        // Admission control runs before any database access so a flood of invites is turned away cheaply
+        final ExtensionResponse refusal = extensions.executePreInboundAction(request, ExtensionType.CallManager);
+        if (refusal != null) {
+            extensions.reject(request, refusal);
+            return;
+        }
+        // The Call picks the trace up from the request, the gap until its first transition is the routing below
+        final CallTrace trace = CallTracer.getInstance().start();
+        trace.mark("CallManager", "invite");
+        request.setAttribute(CallTrace.class.getName(), trace);
         // If it's a new invite lets try to handle it.
         final AccountsDao accounts = storage.getAccountsDao();
         final ApplicationsDao applications = storage.getApplicationsDao();
@@ -383,10 +402,9 @@ public final class CallManager extends UntypedActor {
                 boolean callToSipUri = false;
                 // proxy DID or number if the outbound proxy fields are not empty in the restcomm.xml
                 if (proxyURI != null && !proxyURI.isEmpty()) {
-                    final Configuration runtime = configuration.subset("runtime-settings");
-                    final boolean useLocalAddressAtFromHeader = runtime.getBoolean("use-local-address", false);
-                    final boolean outboudproxyUserAtFromHeader = runtime.subset("outbound-proxy").getBoolean(
-                            "outboudproxy-user-at-from-header", true);
+                    final boolean useLocalAddressAtFromHeader = restcommConfiguration.getRuntime().isUseLocalAddress();
+                    final boolean outboudproxyUserAtFromHeader = restcommConfiguration.getOutboundProxy()
+                            .isOutboundProxyUserAtFromHeader();
 
                     final String fromHost = ((SipURI) request.getFrom().getURI()).getHost();
                     final String fromHostIpAddress = InetAddress.getByName(fromHost).getHostAddress();
@@ -491,6 +509,7 @@ public final class CallManager extends UntypedActor {
         String rcml = "<Response><Dial>"+destNumber+"</Dial></Response>";
         final VoiceInterpreterBuilder builder = new VoiceInterpreterBuilder(system);
         builder.setConfiguration(configuration);
+        builder.setRestcommConfiguration(restcommConfiguration);
         builder.setStorage(storage);
         builder.setCallManager(self());
         builder.setConferenceManager(conferences);
@@ -579,39 +598,30 @@ public final class CallManager extends UntypedActor {
     private boolean redirectToHostedVoiceApp(final ActorRef self, final SipServletRequest request, final AccountsDao accounts,
                                              final ApplicationsDao applications, String phone) {
         boolean isFoundHostedApp = false;
-        // Format the destination to an E.164 phone number.
-        final PhoneNumberUtil phoneNumberUtil = PhoneNumberUtil.getInstance();
-        String formatedPhone = null;
-        try {
-            formatedPhone = phoneNumberUtil.format(phoneNumberUtil.parse(phone, "US"), PhoneNumberFormat.E164);
-        } catch (Exception e) {
-        }
         IncomingPhoneNumber number = null;
         try {
-            // Try to find an application defined for the phone number.
+            // Try to find an application defined for the phone number. The E.164 form comes first, then the
+            // number as dialed and finally the number with the (+) prefix added or removed. The normalizer
+            // remembers which one matched so repeated calls to the same number cost a single query.
             final IncomingPhoneNumbersDao numbers = storage.getIncomingPhoneNumbersDao();
-            number = numbers.getIncomingPhoneNumber(formatedPhone);
-            if (number == null) {
-                number = numbers.getIncomingPhoneNumber(phone);
-            }
-            if(number == null){
-                if (phone.startsWith("+")) {
-                    //remove the (+) and check if exists
-                    phone= phone.replaceFirst("\\+","");
-                    number = numbers.getIncomingPhoneNumber(phone);
-                } else {
-                    //Add "+" add check if number exists
-                    phone = "+".concat(phone);
-                    number = numbers.getIncomingPhoneNumber(phone);
+            final PhoneNumberNormalizer.Lookup<IncomingPhoneNumber> provisioned = new PhoneNumberNormalizer.Lookup<IncomingPhoneNumber>() {
+                @Override
+                public IncomingPhoneNumber find(final String spelling) {
+                    return numbers.getIncomingPhoneNumber(spelling);
                 }
-            }
+            };
+            number = PhoneNumberNormalizer.getInstance().resolve(phone, provisioned);
             if (number == null) {
                 // https://github.com/Mobicents/RestComm/issues/84 using wildcard as default application
                 number = numbers.getIncomingPhoneNumber("*");
             }
+            if (number != null && number.getVoiceApplicationSid() == null && migrated(number.getVoiceUrl())) {
+                number = numbers.getIncomingPhoneNumber(number.getSid());
+            }
             if (number != null) {
                 final VoiceInterpreterBuilder builder = new VoiceInterpreterBuilder(system);
                 builder.setConfiguration(configuration);
+                builder.setRestcommConfiguration(restcommConfiguration);
                 builder.setStorage(storage);
                 builder.setCallManager(self);
                 builder.setConferenceManager(conferences);
@@ -665,6 +675,13 @@ public final class CallManager extends UntypedActor {
         return isFoundHostedApp;
     }
 
+    // A number or client still pointing to an RVD project the workspace migration did not get to yet has it migrated
+    // before the project is used
+    private boolean migrated(final URI url) {
+        final ProjectMigration migration = (ProjectMigration) context.getAttribute(ProjectMigration.class.getName());
+        return url != null && migration != null && migration.migrate(url);
+    }
+
     /**
      * If there is VoiceUrl provided for a Client configuration, try to begin execution of the RCML app, otherwise return false.
      *
@@ -675,7 +692,10 @@ public final class CallManager extends UntypedActor {
      * @param client
      */
     private boolean redirectToClientVoiceApp(final ActorRef self, final SipServletRequest request, final AccountsDao accounts,
-                                             final ApplicationsDao applications, final Client client) {
+                                             final ApplicationsDao applications, Client client) {
+        if (client.getVoiceApplicationSid() == null && migrated(client.getVoiceUrl())) {
+            client = storage.getClientsDao().getClient(client.getSid());
+        }
         Sid applicationSid = client.getVoiceApplicationSid();
         URI clientAppVoiceUrl = null;
         if (applicationSid != null) {
@@ -690,6 +710,7 @@ public final class CallManager extends UntypedActor {
         if (isClientManaged) {
             final VoiceInterpreterBuilder builder = new VoiceInterpreterBuilder(system);
             builder.setConfiguration(configuration);
+            builder.setRestcommConfiguration(restcommConfiguration);
             builder.setStorage(storage);
             builder.setCallManager(self);
             builder.setConferenceManager(conferences);
@@ -943,6 +964,7 @@ public final class CallManager extends UntypedActor {
         final ActorRef self = self();
         final VoiceInterpreterBuilder builder = new VoiceInterpreterBuilder(system);
         builder.setConfiguration(configuration);
+        builder.setRestcommConfiguration(restcommConfiguration);
         builder.setStorage(storage);
         builder.setCallManager(self);
         builder.setConferenceManager(conferences);
@@ -1013,6 +1035,7 @@ public final class CallManager extends UntypedActor {
         // Build a new VoiceInterpreter
         final VoiceInterpreterBuilder builder = new VoiceInterpreterBuilder(system);
         builder.setConfiguration(configuration);
+        builder.setRestcommConfiguration(restcommConfiguration);
         builder.setStorage(storage);
         builder.setCallManager(self);
         builder.setConferenceManager(conferences);
@@ -1107,7 +1130,7 @@ public final class CallManager extends UntypedActor {
                         registrationToDial.add(registration);
                     } else {
                         //If this is a WebRTC client registration, check that the InstanceId of the registration is for the current Restcomm instance
-                        if ((registration.getInstanceId() != null && !registration.getInstanceId().equals(RestcommConfiguration.getInstance().getMain().getInstanceId()))) {
+                        if ((registration.getInstanceId() != null && !registration.getInstanceId().equals(restcommConfiguration.getMain().getInstanceId()))) {
                             logger.warning("Cannot create call for user agent: " + registration.getLocation() + " since this is a webrtc client registered in another Restcomm instance.");
                         } else {
                             if (logger.isInfoEnabled())
@@ -1138,7 +1161,7 @@ public final class CallManager extends UntypedActor {
             List<ActorRef> calls = new CopyOnWriteArrayList<>();
             for (Registration registration : registrationToDial) {
                 if (logger.isInfoEnabled())
-                    logger.info("Will proceed to create call for client: " + registration.getLocation() + " registration instanceId: " + registration.getInstanceId() + " own InstanceId: " + RestcommConfiguration.getInstance().getMain().getInstanceId());
+                    logger.info("Will proceed to create call for client: " + registration.getLocation() + " registration instanceId: " + registration.getInstanceId() + " own InstanceId: " + restcommConfiguration.getMain().getInstanceId());
                 String transport;
                 if (registration.getLocation().contains("transport")) {
                     transport = registration.getLocation().split(";")[1].replace("transport=", "");
@@ -1151,8 +1174,7 @@ public final class CallManager extends UntypedActor {
                     String errMsg = "The outbound interface for transport: "+transport+" is NULL, something is wrong with container, cannot proceed to call client "+request.to();
                     logger.error(errMsg);
                     sendNotification(errMsg, 11008, "error", true);
-                    sender.tell(new CallManagerResponse<ActorRef>(new NullPointerException(errMsg), this.createCallRequest), self());
-                    return;
+                    continue;
                 }
                 if (request.from() != null && request.from().contains("@")) {
                     // https://github.com/Mobicents/RestComm/issues/150 if it contains @ it means this is a sip uri and we allow
@@ -1174,13 +1196,16 @@ public final class CallManager extends UntypedActor {
                     //In case From or To are null we have to cancel outbound call and hnagup initial call if needed
                     final String errMsg = "From and/or To are null, we cannot proceed to the outbound call to: "+request.to();
                     logger.error(errMsg);
-                    sender.tell(new CallManagerResponse<ActorRef>(new NullPointerException(errMsg), this.createCallRequest), self());
                 } else {
                     calls.add(createOutbound(request,from,to,webRTC));
                 }
             }
+            // Answer every CreateCall exactly once so a forking Dial can match the reply to its child
             if (calls.size() > 0) {
-                sender.tell(new CallManagerResponse<List<ActorRef>>(calls), self());
+                sender.tell(new CallManagerResponse<List<ActorRef>>(calls, request), self());
+            } else {
+                String errMsg = "None of the registrations of the SIP Client "+request.to()+" could be dialed";
+                sender.tell(new CallManagerResponse<ActorRef>(new NullPointerException(errMsg), request), self());
             }
         } else {
             String errMsg = "The SIP Client "+request.to()+" is not registered or does not exist";
@@ -1196,8 +1221,7 @@ public final class CallManager extends UntypedActor {
         SipURI from = null;
         SipURI to = null;
 
-        final Configuration runtime = configuration.subset("runtime-settings");
-        final boolean useLocalAddressAtFromHeader = runtime.getBoolean("use-local-address", false);
+        final boolean useLocalAddressAtFromHeader = restcommConfiguration.getRuntime().isUseLocalAddress();
 
         final String proxyUsername = (request.username() != null) ? request.username() : activeProxyUsername;
 
@@ -1206,8 +1230,8 @@ public final class CallManager extends UntypedActor {
                 to = sipFactory.createSipURI(request.to(), uri);
                 String transport = (to.getTransportParam() != null) ? to.getTransportParam() : "udp";
                 outboundIntf = outboundInterface(transport);
-                final boolean outboudproxyUserAtFromHeader = runtime.subset("outbound-proxy").getBoolean(
-                        "outboudproxy-user-at-from-header");
+                final boolean outboudproxyUserAtFromHeader = restcommConfiguration.getOutboundProxy()
+                        .isOutboundProxyUserAtFromHeader();
                 if (request.from() != null && request.from().contains("@")) {
                     // https://github.com/Mobicents/RestComm/issues/150 if it contains @ it means this is a sip uri and we allow
                     // to use it directly
@@ -1232,6 +1256,7 @@ public final class CallManager extends UntypedActor {
                 }
             } catch (Exception exception) {
                 sender.tell(new CallManagerResponse<ActorRef>(exception, this.createCallRequest), self());
+                return;
             }
             if (from == null || to == null) {
                 //In case From or To are null we have to cancel outbound call and hnagup initial call if needed
@@ -1239,7 +1264,7 @@ public final class CallManager extends UntypedActor {
                 logger.error(errMsg);
                 sender.tell(new CallManagerResponse<ActorRef>(new NullPointerException(errMsg), this.createCallRequest), self());
             } else {
-                sender.tell(new CallManagerResponse<ActorRef>(createOutbound(request,from,to,false)), self());
+                sender.tell(new CallManagerResponse<ActorRef>(createOutbound(request,from,to,false), request), self());
             }
         } else {
             String errMsg = "Cannot create call to: "+request.to()+". The Active Outbound Proxy is null. Please check configuration";
@@ -1275,26 +1300,26 @@ public final class CallManager extends UntypedActor {
             logger.error(errMsg);
             sender.tell(new CallManagerResponse<ActorRef>(new NullPointerException(errMsg), this.createCallRequest), self());
         } else {
-            sender.tell(new CallManagerResponse<ActorRef>(createOutbound(request,from,to,false)), self());
+            sender.tell(new CallManagerResponse<ActorRef>(createOutbound(request,from,to,false), request), self());
         }
     }
 
 
     private ActorRef createOutbound(final CreateCall request, final SipURI from, final SipURI to, final boolean webRTC) {
-        final Configuration runtime = configuration.subset("runtime-settings");
+        final String apiVersion = restcommConfiguration.getRuntime().getApiVersion();
         final String proxyUsername = (request.username() != null) ? request.username() : activeProxyUsername;
         final String proxyPassword = (request.password() != null) ? request.password() : activeProxyPassword;
 
         final ActorRef call = call();
         final ActorRef self = self();
-        final boolean userAtDisplayedName = runtime.subset("outbound-proxy").getBoolean("user-at-displayed-name");
+        final boolean userAtDisplayedName = restcommConfiguration.getOutboundProxy().isUserAtDisplayedName();
         InitializeOutbound init;
         if (request.from() != null && !request.from().contains("@") && userAtDisplayedName) {
             init = new InitializeOutbound(request.from(), from, to, proxyUsername, proxyPassword, request.timeout(),
-                    request.isFromApi(), runtime.getString("api-version"), request.accountId(), request.type(), storage, webRTC);
+                    request.isFromApi(), apiVersion, request.accountId(), request.type(), storage, webRTC);
         } else {
             init = new InitializeOutbound(null, from, to, proxyUsername, proxyPassword, request.timeout(), request.isFromApi(),
-                    runtime.getString("api-version"), request.accountId(), request.type(), storage, webRTC);
+                    apiVersion, request.accountId(), request.type(), storage, webRTC);
         }
         if (request.parentCallSid() != null) {
             init.setParentCallSid(request.parentCallSid());
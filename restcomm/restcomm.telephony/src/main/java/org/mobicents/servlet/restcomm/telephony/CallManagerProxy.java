@@ -38,6 +38,7 @@ import javax.sip.message.Response;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.log4j.Logger;
+import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
 import org.mobicents.servlet.restcomm.mscontrol.MediaServerControllerFactory;
 import org.mobicents.servlet.restcomm.ussd.telephony.UssdCallManager;
@@ -116,7 +117,8 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
         super.init(config);
     }
 
-    private ActorRef manager(final Configuration configuration, final ServletContext context,
+    private ActorRef manager(final Configuration configuration, final RestcommConfiguration restcommConfiguration,
+            final ServletContext context,
             final MediaServerControllerFactory msControllerfactory, final ActorRef conferences, final ActorRef bridges,
             final ActorRef sms, final SipFactory factory, final DaoManager storage) {
         return system.actorOf(new Props(new UntypedActorFactory() {
@@ -124,7 +126,8 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
 
             @Override
             public UntypedActor create() throws Exception {
-                return new CallManager(configuration, context, system, msControllerfactory, conferences, bridges, sms, factory, storage);
+                return new CallManager(configuration, restcommConfiguration, context, system, msControllerfactory,
+                        conferences, bridges, sms, factory, storage);
             }
         }));
     }
@@ -198,7 +201,10 @@ public final class CallManagerProxy extends SipServlet implements SipServletList
             final ActorRef conferences = conferences(mscontrolFactory);
             final ActorRef bridges = bridges(mscontrolFactory);
             final ActorRef sms = (ActorRef) context.getAttribute("org.mobicents.servlet.restcomm.sms.SmsService");
-            manager = manager(configuration, context, mscontrolFactory, conferences, bridges, sms, factory, storage);
+            final RestcommConfiguration restcommConfiguration = (RestcommConfiguration) context
+                    .getAttribute(RestcommConfiguration.class.getName());
+            manager = manager(configuration, restcommConfiguration, context, mscontrolFactory, conferences, bridges, sms,
+                    factory, storage);
             ussdManager = ussdManager(configuration, context, conferences, bridges, sms, factory, storage);
             context.setAttribute(CallManager.class.getName(), manager);
             context.setAttribute(UssdCallManager.class.getName(), ussdManager);
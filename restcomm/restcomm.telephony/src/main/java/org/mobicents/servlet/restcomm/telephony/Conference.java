@@ -22,9 +22,11 @@ package org.mobicents.servlet.restcomm.telephony;
 import jain.protocol.ip.mgcp.message.parms.ConnectionMode;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.mobicents.servlet.restcomm.annotations.concurrency.Immutable;
@@ -78,8 +80,15 @@ public final class Conference extends UntypedActor {
     // Runtime stuff
     private final String name;
     private final Sid sid;
-    private final List<ActorRef> calls;
+    // Participants in the order they joined, indexed by call so a leave does not scan the room
+    private final Set<ActorRef> calls;
     private final List<ActorRef> observers;
+    // Bumped on every join and leave, observers use it to line deltas up with a snapshot
+    private long version;
+    // Live participants published for the REST API, by call
+    private final ConferenceParticipantRegistry registry;
+    private final Map<ActorRef, ConferenceParticipant> joining;
+    private final Map<ActorRef, Sid> published;
 
     private boolean moderatorPresent = false;
 
@@ -87,6 +96,10 @@ public final class Conference extends UntypedActor {
     private final ActorRef mscontroller;
 
     public Conference(final String name, final ActorRef msController) {
+        this(name, msController, ConferenceParticipantRegistry.getInstance());
+    }
+
+    public Conference(final String name, final ActorRef msController, final ConferenceParticipantRegistry registry) {
         super();
         final ActorRef source = self();
 
@@ -122,8 +135,11 @@ public final class Conference extends UntypedActor {
         this.name = name;
         this.sid = Sid.generate(Sid.Type.CONFERENCE);
         this.mscontroller = msController;
-        this.calls = new ArrayList<ActorRef>();
+        this.calls = new LinkedHashSet<ActorRef>();
         this.observers = new ArrayList<ActorRef>();
+        this.registry = registry;
+        this.joining = new HashMap<ActorRef, ConferenceParticipant>();
+        this.published = new HashMap<ActorRef, Sid>();
     }
 
     private boolean is(State state) {
@@ -287,6 +303,11 @@ public final class Conference extends UntypedActor {
 
         @Override
         public void execute(Object message) throws Exception {
+            // Nobody is left to list, the call detail records take over from here.
+            registry.close(sid);
+            published.clear();
+            joining.clear();
+
             // Notify the observers.
             broadcast(new ConferenceStateChanged(name, this.finalState));
             observers.clear();
@@ -331,15 +352,20 @@ public final class Conference extends UntypedActor {
     private void onGetConferenceInfo(ActorRef self, ActorRef sender) throws Exception {
         ConferenceInfo information = null;
         if (is(waiting)) {
-            information = new ConferenceInfo(sid, calls, ConferenceStateChanged.State.RUNNING_MODERATOR_ABSENT, name, moderatorPresent);
+            information = snapshot(ConferenceStateChanged.State.RUNNING_MODERATOR_ABSENT);
         } else if (is(running)) {
-            information = new ConferenceInfo(sid, calls, ConferenceStateChanged.State.RUNNING_MODERATOR_PRESENT, name, moderatorPresent);
+            information = snapshot(ConferenceStateChanged.State.RUNNING_MODERATOR_PRESENT);
         } else if (is(stopped)) {
-            information = new ConferenceInfo(sid, calls, ConferenceStateChanged.State.COMPLETED, name, moderatorPresent);
+            information = snapshot(ConferenceStateChanged.State.COMPLETED);
         }
         sender.tell(new ConferenceResponse<ConferenceInfo>(information), self);
     }
 
+    private ConferenceInfo snapshot(final ConferenceStateChanged.State state) {
+        final List<ActorRef> participants = new ArrayList<ActorRef>(calls);
+        return new ConferenceInfo(sid, participants, state, name, moderatorPresent, version);
+    }
+
     private void onStartConference(StartConference message, ActorRef self, ActorRef sender) throws Exception {
         if (is(uninitialized)) {
             this.fsm.transition(message, initializing);
@@ -363,6 +389,9 @@ public final class Conference extends UntypedActor {
 
     private void onAddParticipant(AddParticipant message, ActorRef self, ActorRef sender) {
         if (isRunning()) {
+            if (message.participant() != null) {
+                joining.put(message.call(), message.participant());
+            }
             final JoinCall joinCall = new JoinCall(message.call(), ConnectionMode.Confrnce);
             this.mscontroller.tell(joinCall, self);
         }
@@ -392,8 +421,14 @@ public final class Conference extends UntypedActor {
             if(logger.isInfoEnabled()) {
                 logger.info("################################## Conference " + name + " has " + participantsNr + " participants");
             }
-            ConferenceResponse conferenceResponse = new ConferenceResponse(message);
-            notifyObservers(conferenceResponse);
+            final Sid participant = published.remove(sender);
+            if (participant != null) {
+                registry.leave(sid, participant);
+            }
+            if (removed) {
+                version++;
+                broadcast(new ConferenceParticipantLeft(sid, sender, participantsNr, version));
+            }
 
             // Stop the conference when ALL participants have been evicted
             if (removed && calls.isEmpty()) {
@@ -402,12 +437,6 @@ public final class Conference extends UntypedActor {
         }
     }
 
-    private void notifyObservers(final Object message) {
-        for (final ActorRef observer : this.observers) {
-            observer.tell(message, self());
-        }
-    }
-
     private void onMediaServerControllerStateChanged(MediaServerControllerStateChanged message, ActorRef self, ActorRef sender)
             throws Exception {
         MediaServerControllerState state = message.getState();
@@ -434,19 +463,18 @@ public final class Conference extends UntypedActor {
     }
 
     private void onJoinComplete(JoinComplete message, ActorRef self, ActorRef sender) throws Exception {
-        this.calls.add(sender);
-        if (logger.isInfoEnabled()) {
-            logger.info("Conference name: "+name+", path: "+self().path()+", received JoinComplete from Call: "+sender.path()+", number of participants currently: "+calls.size()+", will send conference info to observers");
-        }
-        if (observers != null && observers.size() > 0) {
-            Iterator<ActorRef> iter = observers.iterator();
-            while (iter.hasNext()) {
-                ActorRef observer = iter.next();
-                //First send conferenceInfo
-                onGetConferenceInfo(self(), observer);
-                //Next send the JoinComplete message
-                observer.tell(message, self());
+        if (this.calls.add(sender)) {
+            if (logger.isInfoEnabled()) {
+                logger.info("Conference name: "+name+", path: "+self().path()+", received JoinComplete from Call: "+sender.path()+", number of participants currently: "+calls.size()+", will notify observers");
+            }
+            final ConferenceParticipant participant = joining.remove(sender);
+            if (participant != null) {
+                registry.join(sid, participant);
+                published.put(sender, participant.getSid());
             }
+            // Observers only get the change, the full list is sent when asked for with GetConferenceInfo
+            version++;
+            broadcast(new ConferenceParticipantJoined(sid, sender, calls.size(), version));
         }
     }
 
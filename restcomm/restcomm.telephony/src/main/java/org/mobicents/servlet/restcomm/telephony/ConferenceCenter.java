@@ -46,10 +46,17 @@ public final class ConferenceCenter extends UntypedActor {
     private final MediaServerControllerFactory factory;
     private final Map<String, ActorRef> conferences;
     private final Map<String, List<ActorRef>> initializing;
+    // Participants of the running conferences, read by the Participants REST API
+    private final ConferenceParticipantRegistry registry;
 
     public ConferenceCenter(final MediaServerControllerFactory factory) {
+        this(factory, ConferenceParticipantRegistry.getInstance());
+    }
+
+    public ConferenceCenter(final MediaServerControllerFactory factory, final ConferenceParticipantRegistry registry) {
         super();
         this.factory = factory;
+        this.registry = registry;
         this.conferences = new HashMap<String, ActorRef>();
         this.initializing = new HashMap<String, List<ActorRef>>();
     }
@@ -60,7 +67,7 @@ public final class ConferenceCenter extends UntypedActor {
 
             @Override
             public UntypedActor create() throws Exception {
-                return new Conference(name, factory.provideConferenceController());
+                return new Conference(name, factory.provideConferenceController(), registry);
             }
         }));
     }
@@ -0,0 +1,227 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony.proxy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.joda.time.DateTime;
+import org.mobicents.servlet.restcomm.entities.Gateway;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.telephony.GatewayRegistration;
+import org.mobicents.servlet.restcomm.telephony.GatewayRegistration.State;
+
+/**
+ * Decides when the registration of each gateway is refreshed. A registration is refreshed once a fraction of the
+ * expiry granted by the proxy has gone by, moved back or forth by a random share of it so gateways registered together
+ * do not stay in step. A failed registration is tried again after a backoff that doubles with every failure in a row,
+ * up to a ceiling, also with a random part.
+ *
+ * Every refresh that is scheduled gets a new generation, the timers of the older generations are stale and must be
+ * ignored. Only the proxy manager changes the registrations, the snapshots of {@link GatewayRegistration} can be read
+ * from any thread.
+ */
+final class GatewayRegistrations {
+    private final double ratio;
+    private final double jitter;
+    private final long backoff;
+    private final long ceiling;
+    private final Random random;
+    private final Map<Sid, Entry> entries;
+    private final ConcurrentMap<Sid, GatewayRegistration> snapshots;
+
+    /**
+     * @param ratio the share of the granted expiry after which a registration is refreshed.
+     * @param jitter the largest share of the delay a refresh is moved by.
+     * @param backoff how long, in milliseconds, to wait before trying a failed registration again the first time.
+     * @param ceiling the longest time, in milliseconds, to wait before trying a failed registration again.
+     */
+    GatewayRegistrations(final double ratio, final double jitter, final long backoff, final long ceiling,
+            final Random random) {
+        super();
+        this.ratio = Math.min(Math.max(ratio, 0.1), 0.9);
+        this.jitter = Math.min(Math.max(jitter, 0), 0.5);
+        this.backoff = backoff;
+        this.ceiling = Math.max(backoff, ceiling);
+        this.random = random;
+        this.entries = new HashMap<Sid, Entry>();
+        this.snapshots = new ConcurrentHashMap<Sid, GatewayRegistration>();
+    }
+
+    boolean contains(final Sid gateway) {
+        return entries.containsKey(gateway);
+    }
+
+    /**
+     * Starts tracking a gateway, its first registration is due after a random delay shorter than the spread.
+     *
+     * @return the delay in milliseconds.
+     */
+    long add(final Gateway gateway, final long spread, final long now) {
+        final Entry entry = entry(gateway);
+        final long delay = spread > 0 ? (long) (random.nextDouble() * spread) : 0;
+        return schedule(entry, delay, now);
+    }
+
+    /**
+     * A registration request is on its way to the proxy.
+     */
+    void registering(final Gateway gateway) {
+        final Entry entry = entry(gateway);
+        if (entry.state != State.REGISTERED) {
+            entry.state = State.REGISTERING;
+        }
+        entry.refresh = 0;
+        entry.generation++;
+        publish(entry);
+    }
+
+    /**
+     * @return the delay, in milliseconds, before the registration is refreshed or -1 if the gateway is not tracked.
+     */
+    long registered(final Sid gateway, final int expires, final long now) {
+        final Entry entry = entries.get(gateway);
+        if (entry == null) {
+            return -1;
+        }
+        entry.state = State.REGISTERED;
+        entry.expires = expires;
+        entry.registered = now;
+        entry.failures = 0;
+        entry.status = 200;
+        final long delay = spread(expires * 1000L * ratio);
+        return schedule(entry, delay, now);
+    }
+
+    /**
+     * @param status the status of the final response from the proxy or 0 if the request could not be sent.
+     * @return the delay, in milliseconds, before the registration is tried again or -1 if the gateway is not tracked.
+     */
+    long failed(final Sid gateway, final int status, final long now) {
+        final Entry entry = entries.get(gateway);
+        if (entry == null) {
+            return -1;
+        }
+        entry.failures++;
+        entry.status = status;
+        // The proxy still knows the gateway until the last binding it granted runs out.
+        final long expiry = entry.registered + entry.expires * 1000L;
+        if (entry.state != State.REGISTERED || expiry <= now) {
+            entry.state = State.FAILED;
+        }
+        long delay = spread(Math.min(ceiling, backoff << Math.min(entry.failures - 1, 20)));
+        if (entry.state == State.REGISTERED) {
+            // Have a last go when the binding runs out rather than showing it registered past that.
+            delay = Math.min(delay, expiry - now);
+        }
+        return schedule(entry, delay, now);
+    }
+
+    /**
+     * @return true if a timer of the given generation is the one the gateway waits for.
+     */
+    boolean due(final Sid gateway, final long generation) {
+        final Entry entry = entries.get(gateway);
+        return entry != null && entry.generation == generation;
+    }
+
+    long generation(final Sid gateway) {
+        final Entry entry = entries.get(gateway);
+        return entry == null ? -1 : entry.generation;
+    }
+
+    void remove(final Sid gateway) {
+        entries.remove(gateway);
+        snapshots.remove(gateway);
+    }
+
+    List<Sid> gateways() {
+        return new ArrayList<Sid>(entries.keySet());
+    }
+
+    GatewayRegistration get(final Sid gateway) {
+        return snapshots.get(gateway);
+    }
+
+    List<GatewayRegistration> snapshot() {
+        return new ArrayList<GatewayRegistration>(snapshots.values());
+    }
+
+    int count(final State state) {
+        int count = 0;
+        for (final GatewayRegistration registration : snapshots.values()) {
+            if (registration.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long spread(final double delay) {
+        return Math.max(0, (long) (delay * (1 + jitter * (2 * random.nextDouble() - 1))));
+    }
+
+    private long schedule(final Entry entry, final long delay, final long now) {
+        entry.refresh = now + delay;
+        entry.generation++;
+        publish(entry);
+        return delay;
+    }
+
+    private Entry entry(final Gateway gateway) {
+        Entry entry = entries.get(gateway.getSid());
+        if (entry == null) {
+            entry = new Entry(gateway.getSid());
+            entries.put(gateway.getSid(), entry);
+        }
+        entry.name = gateway.getFriendlyName();
+        return entry;
+    }
+
+    private void publish(final Entry entry) {
+        final DateTime registered = entry.registered > 0 ? new DateTime(entry.registered) : null;
+        final DateTime refresh = entry.refresh > 0 ? new DateTime(entry.refresh) : null;
+        snapshots.put(entry.gateway, new GatewayRegistration(entry.gateway, entry.name, entry.state, entry.expires,
+                registered, refresh, entry.failures, entry.status));
+    }
+
+    private static final class Entry {
+        private final Sid gateway;
+        private String name;
+        private State state;
+        private int expires;
+        private long registered;
+        private long refresh;
+        private int failures;
+        private int status;
+        private long generation;
+
+        private Entry(final Sid gateway) {
+            super();
+            this.gateway = gateway;
+            this.state = State.REGISTERING;
+        }
+    }
+}
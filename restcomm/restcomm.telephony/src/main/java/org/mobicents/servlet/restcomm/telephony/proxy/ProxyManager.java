@@ -24,7 +24,11 @@ import static javax.servlet.sip.SipServletResponse.SC_OK;
 import static javax.servlet.sip.SipServletResponse.SC_PROXY_AUTHENTICATION_REQUIRED;
 import static javax.servlet.sip.SipServletResponse.SC_UNAUTHORIZED;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletContext;
@@ -38,20 +42,28 @@ import javax.servlet.sip.SipServletResponse;
 import javax.servlet.sip.SipSession;
 import javax.servlet.sip.SipURI;
 
-import org.joda.time.DateTime;
+import org.apache.commons.configuration.Configuration;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
 import org.mobicents.servlet.restcomm.dao.GatewaysDao;
 import org.mobicents.servlet.restcomm.entities.Gateway;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.metrics.Gauge;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+import org.mobicents.servlet.restcomm.telephony.GatewayRegistration;
+import org.mobicents.servlet.restcomm.telephony.GetGatewayRegistrations;
 import org.mobicents.servlet.restcomm.telephony.RegisterGateway;
 
 import scala.concurrent.duration.Duration;
-import akka.actor.ActorContext;
-import akka.actor.ReceiveTimeout;
+import akka.actor.Cancellable;
 import akka.actor.UntypedActor;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 
 /**
+ * Keeps the gateways registered with their proxies. The registration of each gateway is refreshed on a timer of its
+ * own, set from the expiry the proxy granted, and a failed registration is tried again with a growing backoff, see
+ * {@link GatewayRegistrations}. The state of every registration is answered to {@link GetGatewayRegistrations}.
+ *
  * @author quintana.thomas@gmail.com (Thomas Quintana)
  * @author gvagenas@gmail.com
  */
@@ -59,32 +71,71 @@ public final class ProxyManager extends UntypedActor {
     private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
 
     private static final int ttl = 1800;
+    // The first registrations, and the ones of gateways found by the sweep, are spread over this many milliseconds.
+    private static final long SPREAD = 30000;
+    private static final long MAX_BACKOFF = 300000;
+    // How often the gateways added or removed behind the back of the proxy manager are picked up.
+    private static final long SWEEP = 60000;
 
     private final ServletContext servletContext;
     private final SipFactory factory;
     private final DaoManager storage;
     private final String address;
+    private final GatewayRegistrations registrations;
+    private Cancellable sweeper;
 
     public ProxyManager(final ServletContext servletContext, final SipFactory factory, final DaoManager storage,
-            final String address) {
+            final String address, final Configuration runtime) {
         super();
         this.servletContext = servletContext;
         this.factory = factory;
         this.storage = storage;
         this.address = address;
-        final ActorContext context = context();
-        context.setReceiveTimeout(Duration.create(60, TimeUnit.SECONDS));
+        final double ratio = runtime.getDouble("gateway-refresh-ratio", 0.5);
+        final double jitter = runtime.getDouble("gateway-refresh-jitter", 0.1);
+        final long backoff = runtime.getLong("gateway-retry-backoff", 5) * 1000;
+        this.registrations = new GatewayRegistrations(ratio, jitter, backoff, MAX_BACKOFF, new Random());
+    }
+
+    @Override
+    public void preStart() {
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        for (final GatewayRegistration.State state : GatewayRegistration.State.values()) {
+            metrics.gauge("restcomm_gateway_registrations", "Gateways by the state of their registration.", new Gauge() {
+                @Override
+                public long value() {
+                    return registrations.count(state);
+                }
+            }, "state", state.name().toLowerCase());
+        }
         registerFirstTime();
+        // A receive timeout would never fire, the refreshes and the SIP responses keep the proxy manager busy.
+        sweeper = getContext().system().scheduler().schedule(Duration.create(SWEEP, TimeUnit.MILLISECONDS),
+                Duration.create(SWEEP, TimeUnit.MILLISECONDS), self(), Sweep.INSTANCE, getContext().dispatcher());
         if(logger.isInfoEnabled()) {
             logger.info("Proxy Manager started.");
         }
     }
 
+    @Override
+    public void postStop() {
+        if (sweeper != null) {
+            sweeper.cancel();
+        }
+        super.postStop();
+    }
+
     private void authenticate(final Object message) {
         final SipServletResponse response = (SipServletResponse) message;
         final SipApplicationSession application = response.getApplicationSession();
         final Gateway gateway = (Gateway) application.getAttribute(Gateway.class.getName());
         final int status = response.getStatus();
+        final SipServletRequest request = response.getRequest();
+        if (request.getHeader("Authorization") != null || request.getHeader("Proxy-Authorization") != null) {
+            // The proxy turned down the credentials, asking again would only loop.
+            failed(gateway, status);
+            return;
+        }
         final AuthInfo authentication = factory.createAuthInfo();
         final String realm = response.getChallengeRealms().next();
         final String user = gateway.getUserName();
@@ -121,22 +172,25 @@ public final class ProxyManager extends UntypedActor {
 
     @Override
     public void onReceive(Object message) throws Exception {
-        if (message instanceof ReceiveTimeout) {
-            refresh();
+        if (message instanceof Sweep) {
+            sweep();
+        } else if (message instanceof Refresh) {
+            refresh((Refresh) message);
         } else if (message instanceof SipServletResponse) {
             final SipServletResponse response = (SipServletResponse) message;
             final int status = response.getStatus();
-            switch (status) {
-                case SC_PROXY_AUTHENTICATION_REQUIRED:
-                case SC_UNAUTHORIZED: {
-                    authenticate(message);
-                }
-                case SC_OK: {
-                    update(message);
-                }
+            if (status == SC_PROXY_AUTHENTICATION_REQUIRED || status == SC_UNAUTHORIZED) {
+                authenticate(message);
+            } else if (status == SC_OK) {
+                update(message);
+            } else if (status >= 300) {
+                final Gateway gateway = (Gateway) response.getApplicationSession().getAttribute(Gateway.class.getName());
+                failed(gateway, status);
             }
         } else if (message instanceof RegisterGateway) {
             register(((RegisterGateway)message).getGateway());
+        } else if (message instanceof GetGatewayRegistrations) {
+            sender().tell(registrations.snapshot(), self());
         }
     }
 
@@ -173,29 +227,66 @@ public final class ProxyManager extends UntypedActor {
         if(logger.isInfoEnabled()) {
             logger.info("First time registration for the gateways");
         }
-        final GatewaysDao gateways = storage.getGatewaysDao();
-        final List<Gateway> results = gateways.getGateways();
-        for (final Gateway result : results) {
-            register(result);
-        }
+        sweep();
     }
 
-    private void refresh() {
+    private void sweep() {
         final GatewaysDao gateways = storage.getGatewaysDao();
         final List<Gateway> results = gateways.getGateways();
+        final Set<Sid> found = new HashSet<Sid>();
+        final long now = System.currentTimeMillis();
         for (final Gateway result : results) {
-            final DateTime lastUpdate = result.getDateUpdated();
-            final DateTime expires = lastUpdate.plusSeconds(result.getTimeToLive());
-            if (expires.isBeforeNow() || expires.isEqualNow()) {
-                register(result);
+            found.add(result.getSid());
+            if (!registrations.contains(result.getSid())) {
+                schedule(result.getSid(), registrations.add(result, SPREAD, now));
             }
         }
+        for (final Sid gateway : registrations.gateways()) {
+            if (!found.contains(gateway)) {
+                registrations.remove(gateway);
+            }
+        }
+    }
+
+    private void refresh(final Refresh refresh) {
+        if (!registrations.due(refresh.gateway, refresh.generation)) {
+            return;
+        }
+        // Reload the gateway so a change of its credentials or a removal is taken into account.
+        final Gateway gateway = storage.getGatewaysDao().getGateway(refresh.gateway);
+        if (gateway == null) {
+            registrations.remove(refresh.gateway);
+        } else {
+            register(gateway);
+        }
+    }
+
+    private void schedule(final Sid gateway, final long delay) {
+        if (delay < 0) {
+            return;
+        }
+        final Refresh refresh = new Refresh(gateway, registrations.generation(gateway));
+        getContext().system().scheduler().scheduleOnce(Duration.create(delay, TimeUnit.MILLISECONDS), self(), refresh,
+                getContext().dispatcher());
+    }
+
+    private void failed(final Gateway gateway, final int status) {
+        if (gateway == null) {
+            return;
+        }
+        final long delay = registrations.failed(gateway.getSid(), status, System.currentTimeMillis());
+        if (delay >= 0) {
+            logger.warning("Registration of the gateway " + gateway.getFriendlyName() + " failed with status " + status
+                    + ", trying again in " + delay + "ms");
+        }
+        schedule(gateway.getSid(), delay);
     }
 
     private void register(final Gateway gateway) {
         if(logger.isInfoEnabled()) {
             logger.info("About to register gateway: "+gateway.getFriendlyName());
         }
+        registrations.registering(gateway);
         register(gateway, null, null);
     }
 
@@ -208,7 +299,7 @@ public final class ProxyManager extends UntypedActor {
             final StringBuilder buffer = new StringBuilder();
             buffer.append("sip:").append(user).append("@").append(proxy);
             final String aor = buffer.toString();
-            final int expires = (gateway.getTimeToLive() > 0 && gateway.getTimeToLive() < 3600) ? gateway.getTimeToLive() : ttl;
+            final int expires = expires(gateway);
             final Address contact = contact(gateway, expires);
             // Issue http://code.google.com/p/restcomm/issues/detail?id=65
             SipServletRequest register = null;
@@ -231,6 +322,7 @@ public final class ProxyManager extends UntypedActor {
         } catch (final Exception exception) {
             final String name = gateway.getFriendlyName();
             logger.error(exception, "Could not send a registration request to the proxy named " + name);
+            failed(gateway, 0);
         }
     }
 
@@ -243,5 +335,49 @@ public final class ProxyManager extends UntypedActor {
         gateway = gateway.setTimeToLive(gateway.getTimeToLive());
         final GatewaysDao gateways = storage.getGatewaysDao();
         gateways.updateGateway(gateway);
+        final int expires = granted(response, expires(gateway));
+        schedule(gateway.getSid(), registrations.registered(gateway.getSid(), expires, System.currentTimeMillis()));
+    }
+
+    private static int expires(final Gateway gateway) {
+        return (gateway.getTimeToLive() > 0 && gateway.getTimeToLive() < 3600) ? gateway.getTimeToLive() : ttl;
+    }
+
+    /**
+     * @return the expiry the proxy granted to our contact, the requested one if the proxy did not say.
+     */
+    private int granted(final SipServletResponse response, final int requested) {
+        try {
+            final Address ours = response.getRequest().getAddressHeader("Contact");
+            final ListIterator<Address> contacts = response.getAddressHeaders("Contact");
+            while (contacts.hasNext()) {
+                final Address contact = contacts.next();
+                if (contact.getExpires() > 0 && (ours == null || ours.getURI().equals(contact.getURI()))) {
+                    return contact.getExpires();
+                }
+            }
+            final String expires = response.getHeader("Expires");
+            if (expires != null && Integer.parseInt(expires.trim()) > 0) {
+                return Integer.parseInt(expires.trim());
+            }
+        } catch (final ServletParseException | NumberFormatException exception) {
+            logger.warning("Could not read the expiry granted by the proxy: " + exception.getMessage());
+        }
+        return requested;
+    }
+
+    private static final class Sweep {
+        private static final Sweep INSTANCE = new Sweep();
+    }
+
+    private static final class Refresh {
+        private final Sid gateway;
+        private final long generation;
+
+        private Refresh(final Sid gateway, final long generation) {
+            super();
+            this.gateway = gateway;
+            this.generation = generation;
+        }
     }
 }
@@ -87,13 +87,13 @@ public final class ProxyManagerProxy extends SipServlet implements SipServletLis
     }
 
     private ActorRef manager(final ServletContext servletContext, final SipFactory factory, final DaoManager storage,
-            final String address) {
+            final String address, final Configuration runtime) {
         return system.actorOf(new Props(new UntypedActorFactory() {
             private static final long serialVersionUID = 1L;
 
             @Override
             public UntypedActor create() throws Exception {
-                return new ProxyManager(servletContext, factory, storage, address);
+                return new ProxyManager(servletContext, factory, storage, address, runtime);
             }
         }));
     }
@@ -111,7 +111,7 @@ public final class ProxyManagerProxy extends SipServlet implements SipServletLis
             final String address = configuration.getString("external-ip");
             final DaoManager storage = (DaoManager) context.getAttribute(DaoManager.class.getName());
             system = (ActorSystem) context.getAttribute(ActorSystem.class.getName());
-            manager = manager(context, factory, storage, address);
+            manager = manager(context, factory, storage, address, configuration);
             context.setAttribute(ProxyManager.class.getName(), manager);
         }
     }
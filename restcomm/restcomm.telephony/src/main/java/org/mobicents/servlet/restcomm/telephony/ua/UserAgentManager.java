@@ -28,14 +28,14 @@ import com.telestax.servlet.MonitoringService;
 import org.apache.commons.configuration.Configuration;
 import org.joda.time.DateTime;
 import org.mobicents.servlet.restcomm.configuration.RestcommConfiguration;
-import org.mobicents.servlet.restcomm.dao.ClientsDao;
 import org.mobicents.servlet.restcomm.dao.DaoManager;
+import org.mobicents.servlet.restcomm.dao.RegistrationLocationService;
 import org.mobicents.servlet.restcomm.dao.RegistrationsDao;
-import org.mobicents.servlet.restcomm.entities.Client;
 import org.mobicents.servlet.restcomm.entities.Registration;
 import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.telephony.UserRegistration;
-import org.mobicents.servlet.restcomm.util.DigestAuthentication;
+import org.mobicents.servlet.restcomm.telephony.util.DigestAuthenticator;
+import org.mobicents.servlet.restcomm.telephony.util.DigestAuthenticator.Outcome;
 import scala.concurrent.duration.Duration;
 
 import javax.servlet.ServletContext;
@@ -51,18 +51,14 @@ import javax.servlet.sip.SipSession;
 import javax.servlet.sip.SipURI;
 import java.io.IOException;
 import java.net.UnknownHostException;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.Integer.parseInt;
 import static javax.servlet.sip.SipServlet.OUTBOUND_INTERFACES;
 import static javax.servlet.sip.SipServletResponse.SC_OK;
 import static javax.servlet.sip.SipServletResponse.SC_PROXY_AUTHENTICATION_REQUIRED;
-import static org.mobicents.servlet.restcomm.util.HexadecimalUtils.toHex;
 
 /**
  * @author quintana.thomas@gmail.com (Thomas Quintana)
@@ -91,6 +87,18 @@ public final class UserAgentManager extends UntypedActor {
         getContext().setReceiveTimeout(Duration.create(pingInterval, TimeUnit.SECONDS));
         logger.info("About to run firstTimeCleanup()");
         firstTimeCleanup();
+        final RegistrationsDao registrations = storage.getRegistrationsDao();
+        if (registrations instanceof RegistrationLocationService) {
+            // Expired registrations are dropped by the location service itself, clean() will not see them
+            final ActorRef self = self();
+            final ActorRef monitoring = monitoringService;
+            ((RegistrationLocationService) registrations).setListener(new RegistrationLocationService.Listener() {
+                @Override
+                public void expired(final Registration registration) {
+                    monitoring.tell(new UserRegistration(registration.getUserName(), registration.getLocation(), false), self);
+                }
+            });
+        }
     }
 
     private void firstTimeCleanup() {
@@ -158,22 +166,12 @@ public final class UserAgentManager extends UntypedActor {
         }
     }
 
-    private String header(final String nonce, final String realm, final String scheme) {
-        final StringBuilder buffer = new StringBuilder();
-        buffer.append(scheme).append(" ");
-        buffer.append("realm=\"").append(realm).append("\", ");
-        buffer.append("nonce=\"").append(nonce).append("\"");
-        return buffer.toString();
-    }
-
-    private void authenticate(final Object message) throws IOException {
+    private void authenticate(final Object message, final boolean stale) throws IOException {
         final SipServletRequest request = (SipServletRequest) message;
         final SipServletResponse response = request.createResponse(SC_PROXY_AUTHENTICATION_REQUIRED);
-        final String nonce = nonce();
         final SipURI uri = (SipURI) request.getTo().getURI();
         final String realm = uri.getHost();
-        final String header = header(nonce, realm, "Digest");
-        response.addHeader("Proxy-Authenticate", header);
+        response.addHeader("Proxy-Authenticate", DigestAuthenticator.getInstance().challenge(realm, stale));
         response.send();
     }
 
@@ -186,12 +184,6 @@ public final class UserAgentManager extends UntypedActor {
         }
     }
 
-    private String nonce() {
-        final byte[] uuid = UUID.randomUUID().toString().getBytes();
-        final char[] hex = toHex(uuid);
-        return new String(hex).substring(0, 31);
-    }
-
     @Override
     public void onReceive(final Object message) throws Exception {
         if (message instanceof ReceiveTimeout) {
@@ -207,14 +199,18 @@ public final class UserAgentManager extends UntypedActor {
                 if(authenticateUsers) { // https://github.com/Mobicents/RestComm/issues/29 Allow disabling of SIP authentication
                     final String authorization = request.getHeader("Proxy-Authorization");
                     if (authorization != null) {
-                      if (permitted(authorization, method)) {
+                      final Outcome outcome = DigestAuthenticator.getInstance().authenticate(authorization, method, storage.getClientsDao());
+                      if (outcome == Outcome.OK) {
                           register(message);
+                      } else if (outcome == Outcome.STALE) {
+                          // Right password but expired or replayed nonce, let the client retry with a fresh one
+                          authenticate(message, true);
                       } else {
                           SipServletResponse response = ((SipServletRequest) message).createResponse(javax.servlet.sip.SipServletResponse.SC_FORBIDDEN); //Issue #935, Send 403 FORBIDDEN instead of issuing 407 again and again
                           response.send();
                       }
                     } else {
-                        authenticate(message);
+                        authenticate(message, false);
                     }
                 } else {
                     register(message);
@@ -266,29 +262,6 @@ public final class UserAgentManager extends UntypedActor {
         uri.setPort(port);
     }
 
-    private boolean permitted(final String authorization, final String method) {
-        final Map<String, String> map = toMap(authorization);
-        final String user = map.get("username");
-        final String algorithm = map.get("algorithm");
-        final String realm = map.get("realm");
-        final String uri = map.get("uri");
-        final String nonce = map.get("nonce");
-        final String nc = map.get("nc");
-        final String cnonce = map.get("cnonce");
-        final String qop = map.get("qop");
-        final String response = map.get("response");
-        final ClientsDao clients = storage.getClientsDao();
-        final Client client = clients.getClient(user);
-        if (client != null && Client.ENABLED == client.getStatus()) {
-            final String password = client.getPassword();
-            final String result = DigestAuthentication.response(algorithm, user, realm, password, nonce, nc, cnonce, method,
-                    uri, null, qop);
-            return result.equals(response);
-        } else {
-            return false;
-        }
-    }
-
     private void ping(final String to) throws ServletException {
         final SipApplicationSession application = factory.createApplicationSession();
         String toTransport = ((SipURI) factory.createURI(to)).getTransportParam();
@@ -503,16 +476,4 @@ public final class UserAgentManager extends UntypedActor {
         contact.setExpires(expires);
         return contact.toString();
     }
-
-    private Map<String, String> toMap(final String header) {
-        final Map<String, String> map = new HashMap<String, String>();
-        final int endOfScheme = header.indexOf(" ");
-        map.put("scheme", header.substring(0, endOfScheme).trim());
-        final String[] tokens = header.substring(endOfScheme + 1).split(",");
-        for (final String token : tokens) {
-            final String[] values = token.trim().split("=",2); //Issue #935, split only for first occurrence of "="
-            map.put(values[0].toLowerCase(), values[1].replace("\"", ""));
-        }
-        return map;
-    }
 }
@@ -0,0 +1,145 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.mscontrol.messages.CreateMediaSession;
+import org.mobicents.servlet.restcomm.mscontrol.messages.JoinComplete;
+import org.mobicents.servlet.restcomm.mscontrol.messages.Left;
+import org.mobicents.servlet.restcomm.mscontrol.messages.MediaServerControllerStateChanged;
+import org.mobicents.servlet.restcomm.mscontrol.messages.MediaServerControllerStateChanged.MediaServerControllerState;
+import org.mobicents.servlet.restcomm.patterns.Observe;
+import org.mobicents.servlet.restcomm.patterns.Observing;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.testkit.JavaTestKit;
+
+public final class ConferenceTest {
+    private static final int PARTICIPANTS = 500;
+
+    private ActorSystem system;
+
+    @Before
+    public void before() throws Exception {
+        system = ActorSystem.create();
+    }
+
+    @After
+    public void after() throws Exception {
+        system.shutdown();
+        system.awaitTermination();
+    }
+
+    private ActorRef conference(final ActorRef mscontroller) {
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public UntypedActor create() throws Exception {
+                return new Conference("room", mscontroller);
+            }
+        }));
+    }
+
+    private ActorRef start(final JavaTestKit observer) {
+        final JavaTestKit mscontroller = new JavaTestKit(system);
+        final ActorRef conference = conference(mscontroller.getRef());
+        conference.tell(new Observe(observer.getRef()), observer.getRef());
+        observer.expectMsgClass(Observing.class);
+        conference.tell(new StartConference(), observer.getRef());
+        mscontroller.expectMsgClass(Observe.class);
+        mscontroller.expectMsgClass(CreateMediaSession.class);
+        conference.tell(new MediaServerControllerStateChanged(MediaServerControllerState.ACTIVE), mscontroller.getRef());
+        observer.expectMsgClass(ConferenceStateChanged.class);
+        return conference;
+    }
+
+    private List<ActorRef> join(final ActorRef conference, final int count) {
+        final List<ActorRef> calls = new ArrayList<ActorRef>();
+        for (int i = 0; i < count; i++) {
+            final ActorRef call = new JavaTestKit(system).getRef();
+            conference.tell(new JoinComplete(), call);
+            calls.add(call);
+        }
+        return calls;
+    }
+
+    @Test
+    public void testObserverGetsOneDeltaPerJoin() throws Exception {
+        new JavaTestKit(system) {
+            {
+                final ActorRef conference = start(this);
+                final List<ActorRef> calls = join(conference, PARTICIPANTS);
+                // One small event per join, not a full participant list to every observer on every join.
+                for (int i = 1; i <= PARTICIPANTS; i++) {
+                    final ConferenceParticipantJoined joined = expectMsgClass(ConferenceParticipantJoined.class);
+                    assertEquals(calls.get(i - 1), joined.call());
+                    assertEquals(i, joined.participants());
+                    assertEquals(i, joined.version());
+                }
+                expectNoMsg(duration("200 milliseconds"));
+                // A join the conference already knows about is not announced again.
+                conference.tell(new JoinComplete(), calls.get(0));
+                expectNoMsg(duration("200 milliseconds"));
+                // The full list is only built on request.
+                conference.tell(new GetConferenceInfo(), getRef());
+                final ConferenceResponse<?> response = expectMsgClass(ConferenceResponse.class);
+                final ConferenceInfo info = (ConferenceInfo) response.get();
+                assertEquals(calls, info.participants());
+                assertEquals(PARTICIPANTS, info.version());
+            }
+        };
+    }
+
+    @Test
+    public void testLeaveIsVersionedAfterTheJoins() throws Exception {
+        new JavaTestKit(system) {
+            {
+                final ActorRef conference = start(this);
+                final List<ActorRef> calls = join(conference, 3);
+                expectMsgClass(ConferenceParticipantJoined.class);
+                expectMsgClass(ConferenceParticipantJoined.class);
+                expectMsgClass(ConferenceParticipantJoined.class);
+                conference.tell(new Left(), calls.get(1));
+                final ConferenceParticipantLeft left = expectMsgClass(ConferenceParticipantLeft.class);
+                assertEquals(calls.get(1), left.call());
+                assertEquals(2, left.participants());
+                assertEquals(4, left.version());
+                conference.tell(new GetConferenceInfo(), getRef());
+                final ConferenceInfo info = (ConferenceInfo) expectMsgClass(ConferenceResponse.class).get();
+                assertEquals(2, info.participants().size());
+                assertEquals(calls.get(0), info.participants().get(0));
+                assertEquals(calls.get(2), info.participants().get(1));
+                assertEquals(4, info.version());
+            }
+        };
+    }
+}
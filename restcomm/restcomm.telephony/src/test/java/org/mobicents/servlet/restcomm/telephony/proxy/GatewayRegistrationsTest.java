@@ -0,0 +1,275 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.telephony.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.entities.Gateway;
+import org.mobicents.servlet.restcomm.entities.Sid;
+import org.mobicents.servlet.restcomm.telephony.GatewayRegistration;
+import org.mobicents.servlet.restcomm.telephony.GatewayRegistration.State;
+
+/**
+ * Drives the registration schedule against a registrar stub on a simulated clock, the way the proxy manager drives it
+ * with its timers and the responses of the proxies.
+ */
+public final class GatewayRegistrationsTest {
+    private static final int GATEWAYS = 300;
+    private static final long SECOND = 1000;
+
+    private GatewayRegistrations registrations;
+    private Registrar registrar;
+    private Map<Sid, Gateway> gateways;
+    private PriorityQueue<Timer> timers;
+    private long now;
+
+    @Before
+    public void before() {
+        registrations = new GatewayRegistrations(0.5, 0.1, 5 * SECOND, 300 * SECOND, new Random(7));
+        registrar = new Registrar(3600);
+        gateways = new HashMap<Sid, Gateway>();
+        timers = new PriorityQueue<Timer>();
+        now = 0;
+        for (int index = 0; index < GATEWAYS; index++) {
+            final Gateway.Builder builder = Gateway.builder();
+            builder.setSid(Sid.generate(Sid.Type.GATEWAY));
+            builder.setFriendlyName("gateway" + index);
+            builder.setTimeToLive(3600);
+            final Gateway gateway = builder.build();
+            gateways.put(gateway.getSid(), gateway);
+        }
+    }
+
+    private void start(final long spread) {
+        for (final Gateway gateway : gateways.values()) {
+            schedule(gateway.getSid(), registrations.add(gateway, spread, now));
+        }
+    }
+
+    private void schedule(final Sid gateway, final long delay) {
+        if (delay >= 0) {
+            timers.add(new Timer(now + delay, gateway, registrations.generation(gateway)));
+        }
+    }
+
+    /**
+     * Fires the timers due until the given time, each one sends a REGISTER to the registrar.
+     */
+    private void run(final long until) {
+        while (!timers.isEmpty() && timers.peek().time <= until) {
+            final Timer timer = timers.poll();
+            now = timer.time;
+            if (!registrations.due(timer.gateway, timer.generation)) {
+                continue;
+            }
+            final Gateway gateway = gateways.get(timer.gateway);
+            registrations.registering(gateway);
+            final int granted = registrar.register(gateway, now);
+            if (granted > 0) {
+                schedule(timer.gateway, registrations.registered(timer.gateway, granted, now));
+            } else {
+                schedule(timer.gateway, registrations.failed(timer.gateway, 503, now));
+            }
+        }
+        now = until;
+    }
+
+    @Test
+    public void testRefreshesAreSpreadOut() {
+        start(0);
+        run(4 * 3600 * SECOND);
+        // Every gateway registered once at start up and then about every half hour.
+        assertTrue(registrar.requests.size() >= GATEWAYS * 8);
+        int busiest = 0;
+        final Map<Long, Integer> perSecond = new HashMap<Long, Integer>();
+        for (final Request request : registrar.requests) {
+            if (request.time == 0) {
+                continue;
+            }
+            final long second = request.time / SECOND;
+            final Integer count = perSecond.get(second);
+            perSecond.put(second, count == null ? 1 : count + 1);
+            busiest = Math.max(busiest, count == null ? 1 : count + 1);
+        }
+        // A single sweep would have sent the 300 refreshes in the same second.
+        assertTrue("Busiest second had " + busiest + " registrations", busiest <= 6);
+        // No binding ran out before it was refreshed.
+        final Map<Sid, Long> expiry = new HashMap<Sid, Long>();
+        for (final Request request : registrar.requests) {
+            final Long expires = expiry.get(request.gateway);
+            assertTrue(expires == null || request.time < expires);
+            expiry.put(request.gateway, request.time + request.granted * SECOND);
+        }
+        assertEquals(GATEWAYS, registrations.count(State.REGISTERED));
+    }
+
+    @Test
+    public void testFirstRegistrationsAreSpreadOut() {
+        start(30 * SECOND);
+        run(30 * SECOND);
+        assertEquals(GATEWAYS, registrar.requests.size());
+        final int[] perSecond = new int[30];
+        for (final Request request : registrar.requests) {
+            perSecond[(int) (request.time / SECOND)]++;
+        }
+        for (final int count : perSecond) {
+            assertTrue(count < GATEWAYS / 10);
+        }
+    }
+
+    @Test
+    public void testGrantedExpiryDrivesRefresh() {
+        registrar = new Registrar(600);
+        start(0);
+        run(0);
+        for (final Sid gateway : gateways.keySet()) {
+            final GatewayRegistration registration = registrations.get(gateway);
+            assertEquals(600, registration.getExpires());
+            final long delay = registration.getRefresh().getMillis() - now;
+            assertTrue(delay >= 270 * SECOND && delay <= 330 * SECOND);
+        }
+    }
+
+    @Test
+    public void testRetryWithBackoff() {
+        registrar.down = true;
+        start(0);
+        run(10 * 60 * SECOND);
+        final Sid first = gateways.keySet().iterator().next();
+        final List<Long> attempts = new ArrayList<Long>();
+        for (final Request request : registrar.requests) {
+            if (request.gateway.equals(first)) {
+                attempts.add(request.time);
+            }
+        }
+        // 5s, 10s, 20s, 40s, 80s, 160s then 300s apart, give or take the jitter.
+        assertTrue(attempts.size() >= 7 && attempts.size() <= 9);
+        for (int index = 2; index < attempts.size(); index++) {
+            final long previous = attempts.get(index - 1) - attempts.get(index - 2);
+            final long current = attempts.get(index) - attempts.get(index - 1);
+            assertTrue(current > previous || current >= 270 * SECOND);
+            assertTrue(current <= 330 * SECOND);
+        }
+        final GatewayRegistration failed = registrations.get(first);
+        assertEquals(State.FAILED, failed.getState());
+        assertEquals(503, failed.getStatus());
+        assertEquals(attempts.size(), failed.getFailures());
+        assertEquals(GATEWAYS, registrations.count(State.FAILED));
+        // Once the registrar is back every gateway registers again within the longest backoff.
+        registrar.down = false;
+        run(now + 330 * SECOND);
+        assertEquals(GATEWAYS, registrations.count(State.REGISTERED));
+        assertEquals(0, registrations.get(first).getFailures());
+    }
+
+    @Test
+    public void testFailedRefreshKeepsValidBinding() {
+        start(0);
+        run(0);
+        registrar.down = true;
+        run(2000 * SECOND);
+        // The refresh failed but the binding granted for an hour is still there.
+        assertEquals(GATEWAYS, registrations.count(State.REGISTERED));
+        for (final Sid gateway : gateways.keySet()) {
+            assertTrue(registrations.get(gateway).getFailures() > 0);
+        }
+        run(3700 * SECOND);
+        assertEquals(GATEWAYS, registrations.count(State.FAILED));
+    }
+
+    @Test
+    public void testStaleTimersAreIgnored() {
+        final Gateway gateway = gateways.values().iterator().next();
+        final long delay = registrations.add(gateway, 0, now);
+        final long generation = registrations.generation(gateway.getSid());
+        assertEquals(0, delay);
+        assertTrue(registrations.due(gateway.getSid(), generation));
+        // A registration requested through the API supersedes the timer.
+        registrations.registering(gateway);
+        assertFalse(registrations.due(gateway.getSid(), generation));
+        assertEquals(State.REGISTERING, registrations.get(gateway.getSid()).getState());
+        registrations.remove(gateway.getSid());
+        assertFalse(registrations.due(gateway.getSid(), registrations.generation(gateway.getSid())));
+        assertEquals(-1, registrations.registered(gateway.getSid(), 3600, now));
+    }
+
+    /**
+     * Grants the expiry it is configured with, at most the one asked for, or answers 503 while it is down.
+     */
+    private static final class Registrar {
+        private final int maximum;
+        private final List<Request> requests;
+        private boolean down;
+
+        private Registrar(final int maximum) {
+            super();
+            this.maximum = maximum;
+            this.requests = new ArrayList<Request>();
+        }
+
+        private int register(final Gateway gateway, final long now) {
+            final int granted = down ? 0 : Math.min(maximum, gateway.getTimeToLive());
+            requests.add(new Request(now, gateway.getSid(), granted));
+            return granted;
+        }
+    }
+
+    private static final class Request {
+        private final long time;
+        private final Sid gateway;
+        private final int granted;
+
+        private Request(final long time, final Sid gateway, final int granted) {
+            super();
+            this.time = time;
+            this.gateway = gateway;
+            this.granted = granted;
+        }
+    }
+
+    private static final class Timer implements Comparable<Timer> {
+        private final long time;
+        private final Sid gateway;
+        private final long generation;
+
+        private Timer(final long time, final Sid gateway, final long generation) {
+            super();
+            this.time = time;
+            this.gateway = gateway;
+            this.generation = generation;
+        }
+
+        @Override
+        public int compareTo(final Timer other) {
+            return time < other.time ? -1 : time > other.time ? 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.tts.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration.Configuration;
+import org.mobicents.servlet.restcomm.cache.HashGenerator;
+
+import scala.concurrent.Future;
+import akka.actor.Actor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.dispatch.OnComplete;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import akka.pattern.Patterns;
+
+/**
+ * Sits in front of any speech synthesizer and answers the prompts found in the {@link SpeechSynthesizerCache} without
+ * bothering the vendor. Concurrent requests for the same prompt, from this or any other interpreter, result in a single
+ * request to the vendor. The synthesizer behind the cache may answer its requests in any order, a pool of them for
+ * instance. When it stops, the prompts it was still waiting for are handed over to the synthesizer of another interpreter
+ * waiting for them, only its own requesters are told it stopped.
+ */
+public final class CachingSpeechSynthesizer extends UntypedActor {
+    private final LoggingAdapter logger = Logging.getLogger(getContext().system(), this);
+
+    private final Configuration configuration;
+    private final Props props;
+    private final SpeechSynthesizerCache cache;
+    private final long timeout;
+    private final Map<String, Warming> warming;
+    private ActorRef synthesizer;
+
+    /**
+     * @param configuration the speech-synthesizer configuration.
+     * @param props creates the vendor speech synthesizer.
+     */
+    public CachingSpeechSynthesizer(final Configuration configuration, final Props props) {
+        this(configuration, props, SpeechSynthesizerCache.getInstance());
+    }
+
+    // used for testing
+    CachingSpeechSynthesizer(final Configuration configuration, final Props props, final SpeechSynthesizerCache cache) {
+        super();
+        this.configuration = configuration;
+        this.props = props;
+        this.cache = cache;
+        this.timeout = configuration.getLong("cache.timeout", 120000);
+        this.warming = new HashMap<String, Warming>();
+    }
+
+    /**
+     * @param configuration the speech-synthesizer configuration.
+     * @param synthesizer creates the vendor speech synthesizer.
+     * @return the vendor speech synthesizer behind a cache, unless the cache is disabled.
+     */
+    public static Props props(final Configuration configuration, final Props synthesizer) {
+        if (!configuration.getBoolean("cache[@enabled]", true)) {
+            return synthesizer;
+        }
+        return new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new CachingSpeechSynthesizer(configuration, synthesizer);
+            }
+        });
+    }
+
+    @Override
+    public void preStart() {
+        synthesizer = getContext().actorOf(props);
+        if (!cache.isConfigured()) {
+            String path = configuration.getString("cache.path");
+            if (path == null || path.isEmpty()) {
+                path = System.getProperty("java.io.tmpdir") + File.separator + "restcomm-tts-cache";
+            }
+            final long megabytes = configuration.getLong("cache.max-size", 512);
+            cache.configure(new File(path), megabytes * 1024 * 1024);
+        }
+        final List<Object> applications = configuration.getList("cache.prewarm.application[@name]");
+        for (int index = 0; index < applications.size(); index++) {
+            final String prefix = "cache.prewarm.application(" + index + ")";
+            final String voice = configuration.getString(prefix + "[@voice]", "man");
+            final String language = configuration.getString(prefix + "[@language]", "en");
+            final List<SpeechSynthesizerRequest> requests = new ArrayList<SpeechSynthesizerRequest>();
+            for (final Object phrase : configuration.getList(prefix + ".phrase")) {
+                requests.add(new SpeechSynthesizerRequest(voice, language, phrase.toString()));
+            }
+            warm(new WarmSpeechSynthesizerCache(applications.get(index).toString(), requests));
+        }
+    }
+
+    @Override
+    public void postStop() {
+        final ActorRef self = self();
+        final SpeechSynthesizerException exception = new SpeechSynthesizerException("The speech synthesizer stopped.");
+        for (final String hash : cache.owned(self)) {
+            // Our requesters are told we stopped, the others keep waiting on whoever takes over.
+            final SpeechSynthesizerCache.Handover handover = cache.abandon(hash, self);
+            for (final ActorRef requester : handover.requesters()) {
+                requester.tell(new SpeechSynthesizerResponse<URI>(exception), self);
+            }
+            if (handover.synthesizer() != null) {
+                handover.synthesizer().tell(new Resynthesize(hash, handover.request()), null);
+            }
+        }
+        // Let another synthesizer warm the applications we did not finish.
+        for (final String application : warming.keySet()) {
+            cache.warmed(application, false);
+        }
+        warming.clear();
+    }
+
+    @Override
+    public void onReceive(final Object message) throws Exception {
+        final Class<?> klass = message.getClass();
+        final ActorRef sender = sender();
+        if (SpeechSynthesizerRequest.class.equals(klass)) {
+            synthesize((SpeechSynthesizerRequest) message, sender);
+        } else if (Synthesized.class.equals(klass)) {
+            complete((Synthesized) message);
+        } else if (Resynthesize.class.equals(klass)) {
+            final Resynthesize resynthesize = (Resynthesize) message;
+            if (cache.owns(resynthesize.hash, self())) {
+                ask(resynthesize.hash, resynthesize.request);
+            }
+        } else if (WarmSpeechSynthesizerCache.class.equals(klass)) {
+            warm((WarmSpeechSynthesizerCache) message);
+        } else if (Warmed.class.equals(klass)) {
+            warmed((Warmed) message);
+        } else if (GetSpeechSynthesizerInfo.class.equals(klass)) {
+            synthesizer.tell(message, sender);
+        } else {
+            unhandled(message);
+        }
+    }
+
+    private void synthesize(final SpeechSynthesizerRequest request, final ActorRef requester) {
+        final String hash = HashGenerator.hashMessage(request.gender(), request.language(), request.text());
+        final URI uri = cache.get(hash);
+        if (uri != null) {
+            if (requester != null) {
+                requester.tell(new SpeechSynthesizerResponse<URI>(uri), self());
+            }
+        } else if (cache.await(hash, request, requester, self())) {
+            ask(hash, request);
+        }
+    }
+
+    private void ask(final String hash, final SpeechSynthesizerRequest request) {
+        final ActorRef self = self();
+        final Future<Object> future = Patterns.ask(synthesizer, request, timeout);
+        future.onComplete(new OnComplete<Object>() {
+            @Override
+            public void onComplete(final Throwable failure, final Object response) {
+                self.tell(new Synthesized(hash, failure, response), null);
+            }
+        }, getContext().dispatcher());
+    }
+
+    private void complete(final Synthesized synthesized) {
+        final String hash = synthesized.hash;
+        if (!cache.owns(hash, self())) {
+            return;
+        }
+        final ActorRef self = self();
+        final SpeechSynthesizerResponse<?> response = synthesized.failure != null ? new SpeechSynthesizerResponse<URI>(
+                synthesized.failure) : (SpeechSynthesizerResponse<?>) synthesized.response;
+        if (response.succeeded()) {
+            final URI uri = (URI) response.get();
+            SpeechSynthesizerCache.Completion completion = null;
+            try {
+                completion = cache.put(hash, uri);
+            } catch (final IOException exception) {
+                logger.warning("Could not move " + uri + " in the speech synthesizer cache: " + exception);
+            }
+            final SpeechSynthesizerResponse<URI> answer = new SpeechSynthesizerResponse<URI>(completion == null ? uri
+                    : completion.uri());
+            final List<ActorRef> requesters = completion == null ? cache.fail(hash) : completion.requesters();
+            for (final ActorRef requester : requesters) {
+                requester.tell(answer, self);
+            }
+        } else {
+            for (final ActorRef requester : cache.fail(hash)) {
+                requester.tell(response, self);
+            }
+        }
+    }
+
+    private void warm(final WarmSpeechSynthesizerCache message) {
+        if (!cache.warm(message.application())) {
+            return;
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("Warming the speech synthesizer cache with " + message.requests().size() + " prompts of "
+                    + message.application());
+        }
+        final String application = message.application();
+        if (message.requests().isEmpty()) {
+            cache.warmed(application, true);
+            return;
+        }
+        warming.put(application, new Warming(message.requests().size()));
+        // Ask ourselves so that every prompt is answered, whether it was cached, synthesized or coalesced.
+        final ActorRef self = self();
+        for (final SpeechSynthesizerRequest request : message.requests()) {
+            final Future<Object> future = Patterns.ask(self, request, timeout);
+            future.onComplete(new OnComplete<Object>() {
+                @Override
+                public void onComplete(final Throwable failure, final Object response) {
+                    final boolean succeeded = failure == null && ((SpeechSynthesizerResponse<?>) response).succeeded();
+                    self.tell(new Warmed(application, succeeded), null);
+                }
+            }, getContext().dispatcher());
+        }
+    }
+
+    private void warmed(final Warmed message) {
+        final Warming progress = warming.get(message.application);
+        if (progress == null) {
+            return;
+        }
+        progress.remaining--;
+        progress.succeeded &= message.succeeded;
+        if (progress.remaining == 0) {
+            warming.remove(message.application);
+            cache.warmed(message.application, progress.succeeded);
+            if (!progress.succeeded) {
+                logger.warning("Could not warm the speech synthesizer cache with all the prompts of " + message.application);
+            }
+        }
+    }
+
+    private static final class Resynthesize {
+        private final String hash;
+        private final SpeechSynthesizerRequest request;
+
+        private Resynthesize(final String hash, final SpeechSynthesizerRequest request) {
+            super();
+            this.hash = hash;
+            this.request = request;
+        }
+    }
+
+    private static final class Warmed {
+        private final String application;
+        private final boolean succeeded;
+
+        private Warmed(final String application, final boolean succeeded) {
+            super();
+            this.application = application;
+            this.succeeded = succeeded;
+        }
+    }
+
+    private static final class Warming {
+        private int remaining;
+        private boolean succeeded;
+
+        private Warming(final int remaining) {
+            super();
+            this.remaining = remaining;
+            this.succeeded = true;
+        }
+    }
+
+    private static final class Synthesized {
+        private final String hash;
+        private final Throwable failure;
+        private final Object response;
+
+        private Synthesized(final String hash, final Throwable failure, final Object response) {
+            super();
+            this.hash = hash;
+            this.failure = failure;
+            this.response = response;
+        }
+    }
+}
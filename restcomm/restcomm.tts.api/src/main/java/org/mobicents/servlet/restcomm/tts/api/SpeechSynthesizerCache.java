@@ -0,0 +1,459 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.tts.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.mobicents.servlet.restcomm.annotations.concurrency.ThreadSafe;
+import org.mobicents.servlet.restcomm.metrics.Counter;
+import org.mobicents.servlet.restcomm.metrics.MetricsRegistry;
+
+import akka.actor.ActorRef;
+
+/**
+ * Synthesized prompts shared by every {@link CachingSpeechSynthesizer} of the process. The files are kept in a single
+ * directory, named after the hash of the request, and the least recently used ones are deleted once the directory grows
+ * past its size limit, sparing the ones handed out during the last minute since they may not have been played yet. It also
+ * keeps the requesters waiting on a prompt that is being synthesized so that a prompt is only ever sent once to the vendor,
+ * along with the {@link CachingSpeechSynthesizer} that sent it.
+ */
+@ThreadSafe
+public final class SpeechSynthesizerCache {
+    private static final SpeechSynthesizerCache instance = new SpeechSynthesizerCache();
+    private static final String EXTENSION = ".wav";
+    private static final long LEASE = 60 * 1000;
+
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, Pending> pending;
+    private final Set<String> warmed;
+    private final Set<String> warming;
+    private final long lease;
+    private final Counter hits;
+    private final Counter misses;
+    private File directory;
+    private long maxBytes;
+    private long bytes;
+
+    public SpeechSynthesizerCache() {
+        this(LEASE);
+    }
+
+    /**
+     * @param lease milliseconds a prompt handed out is kept even if the cache is over its size limit.
+     */
+    SpeechSynthesizerCache(final long lease) {
+        super();
+        entries = new LinkedHashMap<String, Entry>(256, 0.75f, true);
+        pending = new HashMap<String, Pending>();
+        warmed = new HashSet<String>();
+        warming = new HashSet<String>();
+        this.lease = lease;
+        final MetricsRegistry metrics = MetricsRegistry.getInstance();
+        hits = metrics.counter("restcomm_tts_cache_hits_total", "Speech synthesizer requests answered from the cache.");
+        misses = metrics.counter("restcomm_tts_cache_misses_total", "Speech synthesizer requests sent to the vendor.");
+        maxBytes = 0;
+        bytes = 0;
+    }
+
+    public static SpeechSynthesizerCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Points the cache to its directory, indexing the prompts already in there. Only the first call has any effect.
+     *
+     * @param directory where to keep the synthesized prompts.
+     * @param maxBytes how big the directory may grow.
+     */
+    public synchronized void configure(final File directory, final long maxBytes) {
+        if (this.directory != null) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Could not create the speech synthesizer cache " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            final List<File> prompts = new ArrayList<File>();
+            for (final File file : files) {
+                if (file.isFile() && file.getName().endsWith(EXTENSION)) {
+                    prompts.add(file);
+                }
+            }
+            // Oldest first so the access order of the index matches the age of the files.
+            Collections.sort(prompts, new Comparator<File>() {
+                @Override
+                public int compare(final File first, final File second) {
+                    final long difference = first.lastModified() - second.lastModified();
+                    return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+                }
+            });
+            for (final File prompt : prompts) {
+                final String name = prompt.getName();
+                index(name.substring(0, name.length() - EXTENSION.length()), prompt.toURI(), prompt.length(),
+                        prompt.lastModified());
+            }
+        }
+        delete(evict());
+    }
+
+    public synchronized boolean isConfigured() {
+        return directory != null;
+    }
+
+    /**
+     * @return true if the file is one of the prompts of the cache, it must then be left where it is.
+     */
+    public boolean holds(final URI uri) {
+        final File directory;
+        synchronized (this) {
+            directory = this.directory;
+        }
+        return directory != null && uri != null && "file".equals(uri.getScheme())
+                && directory.equals(new File(uri).getParentFile());
+    }
+
+    /**
+     * @return the prompt synthesized for the hash or null if there is none.
+     */
+    public URI get(final String hash) {
+        final Entry entry;
+        synchronized (this) {
+            entry = entries.get(hash);
+            if (entry == null) {
+                return null;
+            }
+            entry.touched = System.currentTimeMillis();
+        }
+        if (entry.file.exists()) {
+            hits.increment();
+            return entry.uri;
+        }
+        // Somebody cleaned up the directory behind our back.
+        synchronized (this) {
+            if (entries.get(hash) == entry) {
+                entries.remove(hash);
+                bytes -= entry.size;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Registers a requester for a prompt that is not in the cache.
+     *
+     * @param request what the vendor is asked, kept in case the synthesis has to be handed over.
+     * @param requester who to answer once the prompt is synthesized, may be null.
+     * @param synthesizer the caching speech synthesizer the requester asked.
+     * @return true if the synthesizer has to send the request to the vendor, false if somebody else already did.
+     */
+    public synchronized boolean await(final String hash, final SpeechSynthesizerRequest request, final ActorRef requester,
+            final ActorRef synthesizer) {
+        Pending prompt = pending.get(hash);
+        final boolean first = prompt == null;
+        if (first) {
+            prompt = new Pending(request, synthesizer);
+            pending.put(hash, prompt);
+            misses.increment();
+        }
+        prompt.waiters.add(new Waiter(requester, synthesizer));
+        return first;
+    }
+
+    /**
+     * @return true if the synthesizer is the one expected to send the prompt to the vendor.
+     */
+    public synchronized boolean owns(final String hash, final ActorRef synthesizer) {
+        final Pending prompt = pending.get(hash);
+        return prompt != null && synthesizer.equals(prompt.owner);
+    }
+
+    /**
+     * @return the prompts the synthesizer is expected to send to the vendor.
+     */
+    public synchronized List<String> owned(final ActorRef synthesizer) {
+        final List<String> hashes = new ArrayList<String>();
+        for (final Map.Entry<String, Pending> prompt : pending.entrySet()) {
+            if (synthesizer.equals(prompt.getValue().owner)) {
+                hashes.add(prompt.getKey());
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Withdraws a stopping synthesizer from a prompt it was sending to the vendor. Only the requesters that asked that
+     * synthesizer are dropped, the prompt is handed over to the synthesizer of one of the others.
+     *
+     * @return the requesters dropped and who has to send the prompt to the vendor now, if anybody.
+     */
+    public synchronized Handover abandon(final String hash, final ActorRef synthesizer) {
+        final Pending prompt = pending.get(hash);
+        if (prompt == null || !synthesizer.equals(prompt.owner)) {
+            return new Handover(Collections.<ActorRef> emptyList(), null, null);
+        }
+        final List<ActorRef> dropped = new ArrayList<ActorRef>();
+        final Iterator<Waiter> iterator = prompt.waiters.iterator();
+        while (iterator.hasNext()) {
+            final Waiter waiter = iterator.next();
+            if (synthesizer.equals(waiter.synthesizer)) {
+                iterator.remove();
+                if (waiter.requester != null) {
+                    dropped.add(waiter.requester);
+                }
+            }
+        }
+        if (prompt.waiters.isEmpty()) {
+            pending.remove(hash);
+            return new Handover(dropped, null, null);
+        }
+        prompt.owner = prompt.waiters.get(0).synthesizer;
+        return new Handover(dropped, prompt.owner, prompt.request);
+    }
+
+    /**
+     * Moves a freshly synthesized prompt in the cache.
+     *
+     * @return where the prompt can be played from and everybody that was waiting for it.
+     * @throws IOException if the prompt could not be moved, the requesters are still waiting in that case.
+     */
+    public Completion put(final String hash, final URI uri) throws IOException {
+        final File directory;
+        synchronized (this) {
+            directory = this.directory;
+        }
+        if (directory == null || !"file".equals(uri.getScheme())) {
+            synchronized (this) {
+                return new Completion(uri, remove(hash));
+            }
+        }
+        // Only the owner of the hash puts it, the file is ours to move until it is indexed.
+        final File source = new File(uri);
+        final File file = new File(directory, hash + EXTENSION);
+        if (source.equals(file)) {
+            // Already in place.
+        } else if (file.exists()) {
+            // Same hash, same prompt. Keep the file that may be playing right now.
+            FileUtils.deleteQuietly(source);
+        } else {
+            FileUtils.moveFile(source, file);
+        }
+        final URI location = file.toURI();
+        final long size = file.length();
+        final List<File> evicted;
+        final Completion completion;
+        synchronized (this) {
+            final Entry previous = entries.remove(hash);
+            if (previous != null) {
+                bytes -= previous.size;
+            }
+            index(hash, location, size, System.currentTimeMillis());
+            evicted = evict();
+            completion = new Completion(location, remove(hash));
+        }
+        delete(evicted);
+        return completion;
+    }
+
+    /**
+     * Gives up on a prompt the vendor could not synthesize.
+     *
+     * @return everybody that was waiting for it.
+     */
+    public synchronized List<ActorRef> fail(final String hash) {
+        return remove(hash);
+    }
+
+    /**
+     * Claims the warming of an application. The claim lasts until {@link #warmed(String, boolean)} is called.
+     *
+     * @return true if the application is neither warm nor being warmed, false otherwise.
+     */
+    public synchronized boolean warm(final String application) {
+        if (warmed.contains(application)) {
+            return false;
+        }
+        return warming.add(application);
+    }
+
+    /**
+     * Releases the claim on the warming of an application.
+     *
+     * @param succeeded true if all the prompts of the application are in the cache, false to let somebody else try again.
+     */
+    public synchronized void warmed(final String application, final boolean succeeded) {
+        warming.remove(application);
+        if (succeeded) {
+            warmed.add(application);
+        }
+    }
+
+    public synchronized boolean isWarm(final String application) {
+        return warmed.contains(application);
+    }
+
+    public synchronized long size() {
+        return bytes;
+    }
+
+    private List<ActorRef> remove(final String hash) {
+        final Pending prompt = pending.remove(hash);
+        if (prompt == null) {
+            return Collections.emptyList();
+        }
+        final List<ActorRef> requesters = new ArrayList<ActorRef>(prompt.waiters.size());
+        for (final Waiter waiter : prompt.waiters) {
+            if (waiter.requester != null) {
+                requesters.add(waiter.requester);
+            }
+        }
+        return requesters;
+    }
+
+    private void index(final String hash, final URI uri, final long size, final long touched) {
+        entries.put(hash, new Entry(uri, new File(uri), size, touched));
+        bytes += size;
+    }
+
+    /**
+     * @return the files of the prompts dropped from the index, to be deleted once the lock is released.
+     */
+    private List<File> evict() {
+        final List<File> evicted = new ArrayList<File>();
+        final long now = System.currentTimeMillis();
+        final Iterator<Entry> iterator = entries.values().iterator();
+        // Always keep the most recent prompt even if it is bigger than the whole cache.
+        while (bytes > maxBytes && entries.size() > 1 && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (now - entry.touched < lease) {
+                // Handed out recently, the media server may still have to fetch it.
+                continue;
+            }
+            iterator.remove();
+            bytes -= entry.size;
+            evicted.add(entry.file);
+        }
+        return evicted;
+    }
+
+    private static void delete(final List<File> files) {
+        for (final File file : files) {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    public static final class Completion {
+        private final URI uri;
+        private final List<ActorRef> requesters;
+
+        private Completion(final URI uri, final List<ActorRef> requesters) {
+            super();
+            this.uri = uri;
+            this.requesters = requesters;
+        }
+
+        public URI uri() {
+            return uri;
+        }
+
+        public List<ActorRef> requesters() {
+            return requesters;
+        }
+    }
+
+    public static final class Handover {
+        private final List<ActorRef> requesters;
+        private final ActorRef synthesizer;
+        private final SpeechSynthesizerRequest request;
+
+        private Handover(final List<ActorRef> requesters, final ActorRef synthesizer, final SpeechSynthesizerRequest request) {
+            super();
+            this.requesters = requesters;
+            this.synthesizer = synthesizer;
+            this.request = request;
+        }
+
+        public List<ActorRef> requesters() {
+            return requesters;
+        }
+
+        public ActorRef synthesizer() {
+            return synthesizer;
+        }
+
+        public SpeechSynthesizerRequest request() {
+            return request;
+        }
+    }
+
+    private static final class Entry {
+        private final URI uri;
+        private final File file;
+        private final long size;
+        private long touched;
+
+        private Entry(final URI uri, final File file, final long size, final long touched) {
+            super();
+            this.uri = uri;
+            this.file = file;
+            this.size = size;
+            this.touched = touched;
+        }
+    }
+
+    private static final class Pending {
+        private final SpeechSynthesizerRequest request;
+        private final List<Waiter> waiters;
+        private ActorRef owner;
+
+        private Pending(final SpeechSynthesizerRequest request, final ActorRef owner) {
+            super();
+            this.request = request;
+            this.waiters = new ArrayList<Waiter>(1);
+            this.owner = owner;
+        }
+    }
+
+    private static final class Waiter {
+        private final ActorRef requester;
+        private final ActorRef synthesizer;
+
+        private Waiter(final ActorRef requester, final ActorRef synthesizer) {
+            super();
+            this.requester = requester;
+            this.synthesizer = synthesizer;
+        }
+    }
+}
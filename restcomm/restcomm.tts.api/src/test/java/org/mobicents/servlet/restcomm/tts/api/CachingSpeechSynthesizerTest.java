@@ -0,0 +1,224 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.tts.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mobicents.servlet.restcomm.cache.DiskCache;
+import org.mobicents.servlet.restcomm.cache.DiskCacheRequest;
+import org.mobicents.servlet.restcomm.cache.DiskCacheResponse;
+
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.Actor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.actor.UntypedActorFactory;
+import akka.testkit.JavaTestKit;
+
+public final class CachingSpeechSynthesizerTest {
+    private static final SpeechSynthesizerRequest REQUEST = new SpeechSynthesizerRequest("man", "en", "Hello");
+
+    private ActorSystem system;
+    private File directory;
+    private SpeechSynthesizerCache cache;
+
+    @Before
+    public void before() throws IOException {
+        system = ActorSystem.create();
+        directory = File.createTempFile("tts-cache", "");
+        directory.delete();
+        cache = new SpeechSynthesizerCache();
+        cache.configure(directory, 1024 * 1024);
+    }
+
+    @After
+    public void after() {
+        system.shutdown();
+        system.awaitTermination();
+        FileUtils.deleteQuietly(directory);
+    }
+
+    private ActorRef synthesizer(final String xml, final ActorRef vendor) throws ConfigurationException {
+        final XMLConfiguration configuration = new XMLConfiguration();
+        configuration.load(new StringReader("<speech-synthesizer>" + xml + "</speech-synthesizer>"));
+        final Props props = new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new Vendor(vendor);
+            }
+        });
+        return system.actorOf(new Props(new UntypedActorFactory() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Actor create() throws Exception {
+                return new CachingSpeechSynthesizer(configuration, props, cache);
+            }
+        }));
+    }
+
+    private static SpeechSynthesizerResponse<URI> prompt() throws IOException {
+        final File file = File.createTempFile("prompt", ".wav");
+        FileUtils.writeByteArrayToFile(file, new byte[16]);
+        return new SpeechSynthesizerResponse<URI>(file.toURI());
+    }
+
+    private static SpeechSynthesizerResponse<?> answer(final JavaTestKit requester) {
+        return requester.expectMsgClass(SpeechSynthesizerResponse.class);
+    }
+
+    @Test
+    public void testRequestsFromTwoInterpretersReachTheVendorOnce() throws Exception {
+        final JavaTestKit vendor = new JavaTestKit(system);
+        final ActorRef first = synthesizer("", vendor.getRef());
+        final ActorRef second = synthesizer("", vendor.getRef());
+        final JavaTestKit one = new JavaTestKit(system);
+        final JavaTestKit two = new JavaTestKit(system);
+        first.tell(REQUEST, one.getRef());
+        second.tell(REQUEST, two.getRef());
+        vendor.expectMsgEquals(REQUEST);
+        final ActorRef asker = vendor.getLastSender();
+        // Make sure both requests are registered before answering.
+        first.tell(new GetSpeechSynthesizerInfo(), null);
+        second.tell(new GetSpeechSynthesizerInfo(), null);
+        vendor.expectMsgClass(GetSpeechSynthesizerInfo.class);
+        vendor.expectMsgClass(GetSpeechSynthesizerInfo.class);
+        asker.tell(prompt(), null);
+        final URI uri = new File(directory, new File((URI) answer(one).get()).getName()).toURI();
+        assertEquals(uri, answer(two).get());
+        vendor.expectNoMsg(FiniteDuration.create(200, "milliseconds"));
+        // Answered from the cache from now on.
+        second.tell(REQUEST, two.getRef());
+        assertEquals(uri, answer(two).get());
+        vendor.expectNoMsg(FiniteDuration.create(200, "milliseconds"));
+    }
+
+    @Test
+    public void testPlayingAPromptKeepsItInTheCache() throws Exception {
+        final JavaTestKit vendor = new JavaTestKit(system);
+        final ActorRef synthesizer = synthesizer("", vendor.getRef());
+        final File played = File.createTempFile("disk-cache", "");
+        played.delete();
+        try {
+            // The disk cache of the interpreters, where the media server fetches the prompts from.
+            final ActorRef disk = system.actorOf(new Props(new UntypedActorFactory() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Actor create() throws Exception {
+                    return new DiskCache(played.getPath(), "http://127.0.0.1/cache", true);
+                }
+            }));
+            final JavaTestKit interpreter = new JavaTestKit(system);
+            for (int call = 0; call < 2; call++) {
+                synthesizer.tell(REQUEST, interpreter.getRef());
+                if (call == 0) {
+                    vendor.expectMsgEquals(REQUEST);
+                    vendor.reply(prompt());
+                }
+                final URI uri = (URI) answer(interpreter).get();
+                disk.tell(new DiskCacheRequest(uri, cache.holds(uri)), interpreter.getRef());
+                assertTrue(interpreter.expectMsgClass(DiskCacheResponse.class).succeeded());
+                assertTrue(new File(uri).exists());
+            }
+            vendor.expectNoMsg(FiniteDuration.create(200, "milliseconds"));
+        } finally {
+            FileUtils.deleteQuietly(played);
+        }
+    }
+
+    @Test
+    public void testStoppingTheOwnerHandsThePromptOver() throws Exception {
+        final JavaTestKit vendor = new JavaTestKit(system);
+        final ActorRef first = synthesizer("", vendor.getRef());
+        final ActorRef second = synthesizer("", vendor.getRef());
+        final JavaTestKit one = new JavaTestKit(system);
+        final JavaTestKit two = new JavaTestKit(system);
+        first.tell(REQUEST, one.getRef());
+        vendor.expectMsgEquals(REQUEST);
+        second.tell(REQUEST, two.getRef());
+        second.tell(new GetSpeechSynthesizerInfo(), null);
+        vendor.expectMsgClass(GetSpeechSynthesizerInfo.class);
+        system.stop(first);
+        // Only the requester of the stopped synthesizer is told.
+        assertFalse(answer(one).succeeded());
+        vendor.expectMsgEquals(REQUEST);
+        vendor.reply(prompt());
+        assertTrue(answer(two).succeeded());
+        vendor.expectNoMsg(FiniteDuration.create(200, "milliseconds"));
+    }
+
+    @Test
+    public void testApplicationIsWarmOnceItsPromptsAreSynthesized() throws Exception {
+        final JavaTestKit vendor = new JavaTestKit(system);
+        synthesizer("<cache><prewarm><application name=\"ivr\" voice=\"man\" language=\"en\"><phrase>Hello</phrase>"
+                + "<phrase>Bye</phrase></application></prewarm></cache>", vendor.getRef());
+        vendor.expectMsgClass(SpeechSynthesizerRequest.class);
+        final ActorRef hello = vendor.getLastSender();
+        vendor.expectMsgClass(SpeechSynthesizerRequest.class);
+        final ActorRef bye = vendor.getLastSender();
+        hello.tell(prompt(), null);
+        vendor.expectNoMsg(FiniteDuration.create(200, "milliseconds"));
+        assertFalse(cache.isWarm("ivr"));
+        bye.tell(prompt(), null);
+        new JavaTestKit(system) {
+            {
+                new AwaitCond(duration("3 seconds")) {
+                    @Override
+                    protected boolean cond() {
+                        return cache.isWarm("ivr");
+                    }
+                };
+            }
+        };
+    }
+
+    // Hands whatever it is asked to the test.
+    public static final class Vendor extends UntypedActor {
+        private final ActorRef test;
+
+        public Vendor(final ActorRef test) {
+            super();
+            this.test = test;
+        }
+
+        @Override
+        public void onReceive(final Object message) throws Exception {
+            test.forward(message, getContext());
+        }
+    }
+}
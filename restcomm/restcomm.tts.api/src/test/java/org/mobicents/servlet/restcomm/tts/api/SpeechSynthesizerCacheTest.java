@@ -0,0 +1,154 @@
+/*
+ * TeleStax, Open Source Cloud Communications
+ * Copyright 2011-2014, Telestax Inc and individual contributors
+ * by the @authors tag.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ *
+ */
+package org.mobicents.servlet.restcomm.tts.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.JavaTestKit;
+
+public final class SpeechSynthesizerCacheTest {
+    private static final SpeechSynthesizerRequest REQUEST = new SpeechSynthesizerRequest("man", "en", "Hello");
+
+    private ActorSystem system;
+    private File directory;
+
+    @Before
+    public void before() throws IOException {
+        system = ActorSystem.create();
+        directory = File.createTempFile("tts-cache", "");
+        directory.delete();
+    }
+
+    @After
+    public void after() {
+        system.shutdown();
+        system.awaitTermination();
+        FileUtils.deleteQuietly(directory);
+    }
+
+    private ActorRef ref() {
+        return new JavaTestKit(system).getRef();
+    }
+
+    private URI prompt(final int size) throws IOException {
+        final File file = File.createTempFile("prompt", ".wav");
+        FileUtils.writeByteArrayToFile(file, new byte[size]);
+        return file.toURI();
+    }
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced() throws IOException {
+        final SpeechSynthesizerCache cache = new SpeechSynthesizerCache();
+        cache.configure(directory, 1024);
+        final ActorRef synthesizer = ref();
+        final ActorRef other = ref();
+        final ActorRef first = ref();
+        final ActorRef second = ref();
+        assertTrue(cache.await("hash", REQUEST, first, synthesizer));
+        assertFalse(cache.await("hash", REQUEST, second, other));
+        assertTrue(cache.owns("hash", synthesizer));
+        assertFalse(cache.owns("hash", other));
+        final SpeechSynthesizerCache.Completion completion = cache.put("hash", prompt(16));
+        assertEquals(Arrays.asList(first, second), completion.requesters());
+        assertEquals(new File(directory, "hash.wav").toURI(), completion.uri());
+        assertEquals(completion.uri(), cache.get("hash"));
+        // The next request starts over.
+        assertTrue(cache.await("hash", REQUEST, first, synthesizer));
+    }
+
+    @Test
+    public void testAbandonOnlyDropsItsOwnRequesters() {
+        final SpeechSynthesizerCache cache = new SpeechSynthesizerCache();
+        final ActorRef synthesizer = ref();
+        final ActorRef other = ref();
+        final ActorRef first = ref();
+        final ActorRef second = ref();
+        assertTrue(cache.await("hash", REQUEST, first, synthesizer));
+        assertFalse(cache.await("hash", REQUEST, second, other));
+        SpeechSynthesizerCache.Handover handover = cache.abandon("hash", synthesizer);
+        assertEquals(Collections.singletonList(first), handover.requesters());
+        assertEquals(other, handover.synthesizer());
+        assertEquals(REQUEST, handover.request());
+        assertTrue(cache.owns("hash", other));
+        assertEquals(Collections.singletonList("hash"), cache.owned(other));
+        // Nobody is left once the new owner stops as well.
+        handover = cache.abandon("hash", other);
+        assertEquals(Collections.singletonList(second), handover.requesters());
+        assertNull(handover.synthesizer());
+        assertTrue(cache.owned(other).isEmpty());
+        assertTrue(cache.await("hash", REQUEST, first, synthesizer));
+    }
+
+    @Test
+    public void testEvictionSparesRecentlyHandedOutPrompts() throws IOException {
+        final SpeechSynthesizerCache cache = new SpeechSynthesizerCache(60 * 1000);
+        cache.configure(directory, 100);
+        cache.put("first", prompt(60));
+        final URI first = cache.get("first");
+        cache.put("second", prompt(60));
+        // Over the limit, but the first prompt was just handed out.
+        assertEquals(first, cache.get("first"));
+        assertTrue(new File(first).exists());
+        assertEquals(120, cache.size());
+    }
+
+    @Test
+    public void testEvictionDeletesTheLeastRecentlyUsedPrompts() throws IOException {
+        final SpeechSynthesizerCache cache = new SpeechSynthesizerCache(0);
+        cache.configure(directory, 100);
+        cache.put("first", prompt(60));
+        cache.put("second", prompt(60));
+        cache.get("second");
+        cache.put("third", prompt(30));
+        assertNull(cache.get("first"));
+        assertFalse(new File(directory, "first.wav").exists());
+        assertTrue(new File(directory, "second.wav").exists());
+        assertEquals(90, cache.size());
+    }
+
+    @Test
+    public void testApplicationIsWarmOnlyOnceWarmed() {
+        final SpeechSynthesizerCache cache = new SpeechSynthesizerCache();
+        assertTrue(cache.warm("ivr"));
+        assertFalse(cache.warm("ivr"));
+        assertFalse(cache.isWarm("ivr"));
+        cache.warmed("ivr", false);
+        assertTrue(cache.warm("ivr"));
+        cache.warmed("ivr", true);
+        assertTrue(cache.isWarm("ivr"));
+        assertFalse(cache.warm("ivr"));
+    }
+}
@@ -25,6 +25,7 @@ import static javax.servlet.sip.SipServletResponse.SC_NOT_FOUND;
 import static javax.servlet.sip.SipServletResponse.SC_OK;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -46,6 +47,7 @@ import org.mobicents.servlet.restcomm.entities.Application;
 import org.mobicents.servlet.restcomm.entities.IncomingPhoneNumber;
 import org.mobicents.servlet.restcomm.entities.Sid;
 import org.mobicents.servlet.restcomm.interpreter.StartInterpreter;
+import org.mobicents.servlet.restcomm.startup.ProjectMigration;
 import org.mobicents.servlet.restcomm.telephony.CallManagerResponse;
 import org.mobicents.servlet.restcomm.telephony.CreateCall;
 import org.mobicents.servlet.restcomm.telephony.ExecuteCallScript;
@@ -63,6 +65,10 @@ import akka.actor.UntypedActorFactory;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 
+import com.telestax.servlet.ExtensionController;
+import com.telestax.servlet.ExtensionResponse;
+import com.telestax.servlet.ExtensionType;
+
 /**
  * @author <a href="mailto:gvagenas@gmail.com">gvagenas</a>
  */
@@ -77,6 +83,7 @@ public class UssdCallManager extends UntypedActor {
     private final ServletContext context;
     private final SipFactory sipFactory;
     private final DaoManager storage;
+    private final ExtensionController extensions;
     private CreateCall createCallRequest;
     private final String ussdGatewayUri;
     private final String ussdGatewayUsername;
@@ -106,6 +113,7 @@ public class UssdCallManager extends UntypedActor {
         this.context = context;
         this.sipFactory = factory;
         this.storage = storage;
+        this.extensions = ExtensionController.getInstance();
         final Configuration runtime = configuration.subset("runtime-settings");
         final Configuration ussdGatewayConfig = runtime.subset("ussd-gateway");
         this.ussdGatewayUri = ussdGatewayConfig.getString("ussd-gateway-uri");
@@ -180,6 +188,12 @@ public class UssdCallManager extends UntypedActor {
             okay.send();
             return;
         }
+        // Admission control runs before any database access so a flood of sessions is turned away cheaply
+        final ExtensionResponse refusal = extensions.executePreInboundAction(request, ExtensionType.UssdCallManager);
+        if (refusal != null) {
+            extensions.reject(request, refusal);
+            return;
+        }
 
         final AccountsDao accounts = storage.getAccountsDao();
         final ApplicationsDao applications = storage.getApplicationsDao();
@@ -193,6 +207,13 @@ public class UssdCallManager extends UntypedActor {
         response.send();
     }
 
+    // A number or client still pointing to an RVD project the workspace migration did not get to yet has it migrated
+    // before the project is used
+    private boolean migrated(final URI url) {
+        final ProjectMigration migration = (ProjectMigration) context.getAttribute(ProjectMigration.class.getName());
+        return url != null && migration != null && migration.migrate(url);
+    }
+
     /**
      * Try to locate a hosted voice app corresponding to the callee/To address. If one is found, begin execution, otherwise
      * return false;
@@ -214,6 +235,9 @@ public class UssdCallManager extends UntypedActor {
         if (request.getContentType().equals("application/vnd.3gpp.ussd+xml")) {
             // This is a USSD Invite
             number = numbersDao.getIncomingPhoneNumber(id);
+            if (number != null && number.getUssdApplicationSid() == null && migrated(number.getUssdUrl())) {
+                number = numbersDao.getIncomingPhoneNumber(number.getSid());
+            }
             if (number != null) {
                 final UssdInterpreterBuilder builder = new UssdInterpreterBuilder(system);
                 builder.setConfiguration(configuration);